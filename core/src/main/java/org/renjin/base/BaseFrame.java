@@ -22,7 +22,6 @@
 package org.renjin.base;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.IdentityHashMap;
 import java.util.Set;
@@ -58,6 +57,15 @@ public class BaseFrame implements Frame {
 
   @Override
   public SEXP getVariable(Symbol name) {
+    SEXP value = getVariableForUpdate(name);
+    if(value instanceof ReferenceTracked) {
+      ((ReferenceTracked) value).markShared();
+    }
+    return value;
+  }
+  
+  @Override
+  public SEXP getVariableForUpdate(Symbol name) {
     SEXP value = Primitives.getBuiltin(name);
     if(value != null) {
       return value;
@@ -68,7 +76,7 @@ public class BaseFrame implements Frame {
     }
     return Symbol.UNBOUND_VALUE;
   }
-  
+
   @Override
   public Function getFunction(Context context, Symbol name) {
     SEXP value = Primitives.getBuiltin(name);
@@ -179,18 +187,11 @@ public class BaseFrame implements Frame {
   }
   
   public void load(Context context) throws IOException {
-    Iterable<NamedValue> frame = LazyLoadFrame.load(context, new com.google.common.base.Function<String, InputStream>() {
-
-      @Override
-      public InputStream apply(String name) {
-        String resourcePath = "/org/renjin/base/" + name;
-        InputStream in = getClass().getResourceAsStream(resourcePath);
-        if(in == null) {
-          throw new RuntimeException("Could not open resource " + resourcePath);
-        }
-        return in;
-      }
-    });
+    URL index = getClass().getResource("/org/renjin/base/environment");
+    if(index == null) {
+      throw new IOException("Could not open resource /org/renjin/base/environment");
+    }
+    Iterable<NamedValue> frame = LazyLoadFrame.load(context, index);
     for(NamedValue name : frame) {
       loaded.put(Symbol.get(name.getName()), name.getValue());
     }
@@ -5,10 +5,14 @@ import org.apache.commons.math.complex.Complex;
 import org.netlib.lapack.LAPACK;
 import org.netlib.util.doubleW;
 import org.netlib.util.intW;
+import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.DotCall;
 import org.renjin.primitives.ComplexGroup;
 import org.renjin.primitives.Types;
+import org.renjin.primitives.matrix.LinearAlgebra;
+import org.renjin.primitives.matrix.LinearAlgebraBackend;
 import org.renjin.sexp.*;
 
 import java.util.ArrayList;
@@ -145,7 +149,7 @@ public class Lapack {
    * upper triangular.  The factored form of A is then used to solve the 
    * system of equations A * X = B.
    */
-  public static SEXP dgesv(DoubleVector A, DoubleVector B, double tolerance) {
+  public static SEXP dgesv(@Current Context context, DoubleVector A, DoubleVector B, double tolerance) {
     double anorm;
     doubleW rcond = new doubleW(0);
 
@@ -182,7 +186,7 @@ public class Lapack {
     
     double[] result = B.toDoubleArray();
     
-    lapack.dgesv(n, p, avals, n, ipiv, result, n, info);
+    LinearAlgebra.backend(context).dgesv(n, p, avals, n, ipiv, result, n, info);
 
     if (info.val < 0) {
       throw new EvalException("argument -" + info.val + " of Lapack routine 'dgsv' had invalid value");
@@ -209,7 +213,7 @@ public class Lapack {
    * @param ov
    * @return
    */
-  public static SEXP rs(DoubleVector x, boolean ov) {
+  public static SEXP rs(@Current Context context, DoubleVector x, boolean ov) {
 //      int *xdims, n, lwork, info = 0, ov;
 //      char jobv[1], uplo[1], range[1];
 //      SEXP values, ret, nm, x, z = R_NilValue;
@@ -247,7 +251,7 @@ public class Lapack {
     
     double tmp[] = new double[1];
     
-    LAPACK lapack = LAPACK.getInstance();
+    LinearAlgebraBackend lapack = LinearAlgebra.backend(context);
     intW info = new intW(0);
     lapack.dsyevr(jobv, range, uplo, n, rx, n,
                        vl, vu, il, iu, abstol, m, rvalues,
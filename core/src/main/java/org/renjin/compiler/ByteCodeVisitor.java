@@ -1,6 +1,7 @@
 package org.renjin.compiler;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import edu.uci.ics.jung.graph.util.Context;
 
@@ -8,25 +9,41 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.renjin.compiler.cfg.BasicBlock;
+import org.renjin.compiler.ir.ssa.InferredType;
 import org.renjin.compiler.ir.ssa.PhiFunction;
 import org.renjin.compiler.ir.ssa.SsaVariable;
+import org.renjin.compiler.ir.ssa.TypeInference;
 import org.renjin.compiler.ir.tac.IRLabel;
 import org.renjin.compiler.ir.tac.expressions.*;
 import org.renjin.compiler.ir.tac.statements.*;
+import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.FunctionCall;
 import org.renjin.sexp.SEXP;
 import org.renjin.sexp.Symbol;
 
 import java.util.Map;
+import java.util.Set;
 
 public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opcodes {
   
   private GenerationContext generationContext;
   private MethodVisitor mv;
   private Map<LValue, Integer> variableSlots = Maps.newHashMap();
+  private Map<LValue, Integer> doubleSlots = Maps.newHashMap();
+  private int localVariableCount;
   private Map<IRLabel, Label> labels = Maps.newHashMap();
   
+  private TypeInference types;
+
+  /**
+   * Temps which have been inferred to be scalar doubles, and which are
+   * held unboxed in a double local. See {@link #unboxedAssignment(LValue, Expression)}
+   */
+  private Set<LValue> unboxedTemps = Sets.newHashSet();
+  
   private int work1;
+  private int work2;
+  private int work3;
   private int localVariablesStart;
   
   
@@ -35,12 +52,46 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
     this.generationContext = generationContext;
     this.mv = mv;
     this.work1 = generationContext.getFirstFreeLocalVariable();
-    this.localVariablesStart = work1 + 1;
+    this.work2 = work1 + 1;
+    this.work3 = work1 + 2;
+    this.localVariablesStart = work1 + 3;
+  }
+  
+  /**
+   * Provides the types inferred for a body in SSA form, which enables 
+   * specialized code for arithmetic on scalar doubles.
+   */
+  public void setTypeInference(TypeInference types) {
+    this.types = types;
+
+    // All SSA versions of a temp share its locals, so a temp
+    // can only be unboxed if every version is a scalar double
+    Set<LValue> boxed = Sets.newHashSet();
+    for(BasicBlock bb : types.getControlFlowGraph().getBasicBlocks()) {
+      for(Assignment assignment : bb.assignments()) {
+        if(assignment.getLHS() instanceof Variable) {
+          Variable lhs = (Variable) assignment.getLHS();
+          if(unwrap(lhs) instanceof Temp) {
+            if(types.getType(lhs) == InferredType.DOUBLE) {
+              unboxedTemps.add(unwrap(lhs));
+            } else {
+              boxed.add(unwrap(lhs));
+            }
+          }
+        }
+      }
+    }
+    unboxedTemps.removeAll(boxed);
   }
   
   @Override
   public void visitAssignment(Assignment assignment) {
-    LValue lhs = assignment.getLHS();
+    if(assignment.getRHS() instanceof PhiFunction) {
+      // all versions of an SSA variable share the same slot
+      // or environment binding, so there is nothing to do
+      return;
+    }
+    LValue lhs = unwrap(assignment.getLHS());
     if(lhs instanceof EnvironmentVariable) {
       environmentAssignment(((EnvironmentVariable)lhs).getName(), 
           assignment.getRHS());
@@ -55,9 +106,12 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
    */
   private void localVariableAssignment(LValue lhs, Expression rhs) {
     
-    if(rhs instanceof Increment) {
+    if(unboxedTemps.contains(lhs)) {
+      unboxedAssignment(lhs, rhs);
+
+    } else if(rhs instanceof Increment) {
       Increment inc = (Increment) rhs;
-      if(inc.getCounter().equals(lhs)) {
+      if(unwrap(inc.getCounter()).equals(lhs)) {
         mv.visitIincInsn(getVariableSlot(lhs), 1);
         return;
       }
@@ -87,6 +141,62 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
     }
   }
 
+  /**
+   * Assigns a value to a temp which has been inferred to be a scalar double. The value
+   * is held in the temp's double local, and its object local is set to {@code null}. 
+   * If the inference proves wrong at runtime, the value is held boxed in the object 
+   * local instead, so the temp is only boxed where its value escapes to generic code.
+   */
+  private void unboxedAssignment(LValue lhs, Expression rhs) {
+    if(rhs instanceof PrimitiveCall && isSpecialized((PrimitiveCall) rhs)) {
+      Label generic = new Label();
+      Label finish = new Label();
+      pushScalarDouble((PrimitiveCall) rhs, generic);
+      storeUnboxed(lhs);
+      mv.visitJumpInsn(GOTO, finish);
+      
+      mv.visitLabel(generic);
+      applyToEvaluatedOperands((PrimitiveCall) rhs);
+      storeBoxed(lhs);
+      mv.visitLabel(finish);
+      
+    } else {
+      rhs.accept(this);
+      storeBoxed(lhs);
+    }
+  }
+  
+  private void storeUnboxed(LValue lhs) {
+    mv.visitVarInsn(DSTORE, getDoubleSlot(lhs));
+    mv.visitInsn(ACONST_NULL);
+    mv.visitVarInsn(ASTORE, getVariableSlot(lhs));
+  }
+
+  /**
+   * Stores the SEXP on the stack into an unboxed temp, unboxing it if it is
+   * in fact a scalar double.
+   */
+  private void storeBoxed(LValue lhs) {
+    Label boxed = new Label();
+    Label finish = new Label();
+    mv.visitInsn(DUP);
+    mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "isScalarDouble", 
+        "(Lorg/renjin/sexp/SEXP;)Z");
+    mv.visitJumpInsn(IFEQ, boxed);
+    mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "unboxDouble", 
+        "(Lorg/renjin/sexp/SEXP;)D");
+    storeUnboxed(lhs);
+    mv.visitJumpInsn(GOTO, finish);
+    
+    mv.visitLabel(boxed);
+    mv.visitVarInsn(ASTORE, getVariableSlot(lhs));
+    // the verifier does not know that the double local is only
+    // read when the object local is null, so it must always be assigned
+    mv.visitInsn(DCONST_0);
+    mv.visitVarInsn(DSTORE, getDoubleSlot(lhs));
+    mv.visitLabel(finish);
+  }
+
 
   
   /**
@@ -404,6 +514,20 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
 
   @Override
   public void visitPrimitiveCall(PrimitiveCall call) {
+    
+    if(isSpecialized(call)) {
+      Label generic = new Label();
+      Label finish = new Label();
+      pushScalarDouble(call, generic);
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "boxDouble", 
+          "(D)Lorg/renjin/sexp/SEXP;");
+      mv.visitJumpInsn(GOTO, finish);
+      
+      mv.visitLabel(generic);
+      applyToEvaluatedOperands(call);
+      mv.visitLabel(finish);
+      return;
+    }
 
     loadContext();
     loadEnvironment();
@@ -434,6 +558,171 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
         "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/FunctionCall;[Ljava/lang/String;[Lorg/renjin/sexp/SEXP;)Lorg/renjin/sexp/SEXP;");
   }
 
+  /**
+   * @return true if {@code call} is arithmetic on operands inferred to be scalar doubles,
+   * or the extraction of a single element from a vector inferred to be a double vector, 
+   * for which we can emit code that computes an unboxed double
+   */
+  private boolean isSpecialized(PrimitiveCall call) {
+    return isScalarDoubleArithmetic(call) || isScalarDoubleElement(call);
+  }
+
+  private boolean isScalarDoubleArithmetic(PrimitiveCall call) {
+    if(types == null || call.hasElipses() || call.getArguments().size() != 2) {
+      return false;
+    }
+    if(arithmeticOpcode(call) == -1) {
+      return false;
+    }
+    for(int i=0;i!=2;++i) {
+      if(call.getArgumentNames().get(i) != null ||
+         types.typeOf(call.getArguments().get(i)) != InferredType.DOUBLE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isScalarDoubleElement(PrimitiveCall call) {
+    if(types == null || call.hasElipses() || call.getArguments().size() != 2) {
+      return false;
+    }
+    String name = call.getName().getPrintName();
+    if(!name.equals("[") && !name.equals("[[")) {
+      return false;
+    }
+    return call.getArgumentNames().get(0) == null && 
+           call.getArgumentNames().get(1) == null &&
+           types.typeOf(call).equals(InferredType.DOUBLE) &&
+           types.typeOf(call.getArguments().get(0)).element() == InferredType.DOUBLE;
+  }
+  
+  private int arithmeticOpcode(PrimitiveCall call) {
+    String name = call.getName().getPrintName();
+    if(name.equals("+")) {
+      return DADD;
+    } else if(name.equals("-")) {
+      return DSUB;
+    } else if(name.equals("*")) {
+      return DMUL;
+    } else if(name.equals("/")) {
+      return DDIV;
+    } else {
+      return -1;
+    }
+  }
+  
+  /**
+   * Emits code which leaves the result of a specialized call on the stack as an
+   * unboxed double. The inference can be invalidated at runtime, for example by a 
+   * call to {@code assign()}, so the operands are first evaluated into work slots and
+   * guarded, and we jump to {@code generic}, leaving nothing on the stack, if a guard fails.
+   */
+  private void pushScalarDouble(PrimitiveCall call, Label generic) {
+    Expression x = call.getArguments().get(0);
+    Expression y = call.getArguments().get(1);
+    
+    if(isScalarDoubleElement(call)) {
+      // the guard needs both operands boxed
+      x.accept(this);
+      mv.visitVarInsn(ASTORE, work2);
+      y.accept(this);
+      mv.visitVarInsn(ASTORE, work3);
+      mv.visitVarInsn(ALOAD, work2);
+      mv.visitVarInsn(ALOAD, work3);
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "isDoubleElement", 
+          "(Lorg/renjin/sexp/SEXP;Lorg/renjin/sexp/SEXP;)Z");
+      mv.visitJumpInsn(IFEQ, generic);
+      mv.visitVarInsn(ALOAD, work2);
+      mv.visitVarInsn(ALOAD, work3);
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "getDoubleElement", 
+          "(Lorg/renjin/sexp/SEXP;Lorg/renjin/sexp/SEXP;)D");
+    } else {
+      evaluateOperand(x, work2);
+      evaluateOperand(y, work3);
+      guardOperand(x, work2, generic);
+      guardOperand(y, work3, generic);
+      pushUnboxedOperand(x, work2);
+      pushUnboxedOperand(y, work3);
+      mv.visitInsn(arithmeticOpcode(call));
+    }
+  }
+
+  /**
+   * Evaluates an operand of a specialized call into a work slot, unless it is an unboxed temp
+   * or a constant double, which need no evaluation.
+   */
+  private void evaluateOperand(Expression operand, int workSlot) {
+    if(!isUnboxed(operand) && !isDoubleConstant(operand)) {
+      operand.accept(this);
+      mv.visitVarInsn(ASTORE, workSlot);
+    }
+  }
+
+  private void guardOperand(Expression operand, int workSlot, Label generic) {
+    if(isUnboxed(operand)) {
+      mv.visitVarInsn(ALOAD, getVariableSlot((LValue) operand));
+      mv.visitJumpInsn(IFNONNULL, generic);
+    } else if(!isDoubleConstant(operand)) {
+      mv.visitVarInsn(ALOAD, workSlot);
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "isScalarDouble", 
+          "(Lorg/renjin/sexp/SEXP;)Z");
+      mv.visitJumpInsn(IFEQ, generic);
+    }
+  }
+
+  private void pushUnboxedOperand(Expression operand, int workSlot) {
+    if(isUnboxed(operand)) {
+      mv.visitVarInsn(DLOAD, getDoubleSlot((LValue) operand));
+    } else if(isDoubleConstant(operand)) {
+      mv.visitLdcInsn(((DoubleVector) ((Constant) operand).getValue()).getElementAsDouble(0));
+    } else {
+      mv.visitVarInsn(ALOAD, workSlot);
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "unboxDouble", 
+          "(Lorg/renjin/sexp/SEXP;)D");
+    }
+  }
+
+  private void pushBoxedOperand(Expression operand, int workSlot) {
+    if(isUnboxed(operand) || isDoubleConstant(operand)) {
+      operand.accept(this);
+    } else {
+      mv.visitVarInsn(ALOAD, workSlot);
+    }
+  }
+
+  private boolean isUnboxed(Expression operand) {
+    return operand instanceof LValue && unboxedTemps.contains(unwrap((LValue) operand));
+  }
+
+  private boolean isDoubleConstant(Expression operand) {
+    return types != null && operand instanceof Constant && 
+        types.typeOf(operand) == InferredType.DOUBLE;
+  }
+  
+  /**
+   * Emits the generic call to a primitive which has been specialized,
+   * reusing its already evaluated operands.
+   */
+  private void applyToEvaluatedOperands(PrimitiveCall call) {
+    loadContext();
+    loadEnvironment();
+    pushSexp(call.getSExpression());
+    pushArgNames(call);
+    pushInt(2);
+    mv.visitTypeInsn(ANEWARRAY, "org/renjin/sexp/SEXP");
+    mv.visitInsn(DUP);
+    pushInt(0);
+    pushBoxedOperand(call.getArguments().get(0), work2);
+    mv.visitInsn(AASTORE);
+    mv.visitInsn(DUP);
+    pushInt(1);
+    pushBoxedOperand(call.getArguments().get(1), work3);
+    mv.visitInsn(AASTORE);
+    mv.visitMethodInsn(INVOKESTATIC, call.getWrapperClass().getName().replace('.', '/'), "doApply",
+        "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/FunctionCall;[Ljava/lang/String;[Lorg/renjin/sexp/SEXP;)Lorg/renjin/sexp/SEXP;");
+  }
+
   private void spliceArgumentValues(CallExpression call) {
 
     
@@ -486,6 +775,17 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
   @Override
   public void visitTemp(Temp temp) {
     mv.visitVarInsn(ALOAD, getVariableSlot(temp));
+    if(unboxedTemps.contains(temp)) {
+      // the value escapes, so box it if it is held unboxed
+      Label boxed = new Label();
+      mv.visitInsn(DUP);
+      mv.visitJumpInsn(IFNONNULL, boxed);
+      mv.visitInsn(POP);
+      mv.visitVarInsn(DLOAD, getDoubleSlot(temp));
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/runtime/CompiledRuntime", "boxDouble", 
+          "(D)Lorg/renjin/sexp/SEXP;");
+      mv.visitLabel(boxed);
+    }
   }
 
   @Override
@@ -495,7 +795,7 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
 
   @Override
   public void visitSsaVariable(SsaVariable variable) {
-    throw new UnsupportedOperationException();
+    variable.getInner().accept(this);
   }
 
   @Override
@@ -548,15 +848,39 @@ public class ByteCodeVisitor implements StatementVisitor, ExpressionVisitor, Opc
     return asmLabel;
   }
   
+  private static LValue unwrap(LValue lvalue) {
+    if(lvalue instanceof SsaVariable) {
+      return ((SsaVariable) lvalue).getInner();
+    } else {
+      return lvalue;
+    }
+  }
+  
   private int getVariableSlot(LValue lvalue) {
+    lvalue = unwrap(lvalue);
     Integer index = variableSlots.get(lvalue);
     if(index == null) {
-      index = variableSlots.size();
+      index = localVariableCount++;
       variableSlots.put(lvalue, index);
     }
     return index + localVariablesStart;
   }
 
+  /**
+   * @return the first of the two slots holding the unboxed value of a temp 
+   * which has been inferred to be a scalar double
+   */
+  private int getDoubleSlot(LValue lvalue) {
+    lvalue = unwrap(lvalue);
+    Integer index = doubleSlots.get(lvalue);
+    if(index == null) {
+      index = localVariableCount;
+      localVariableCount += 2;
+      doubleSlots.put(lvalue, index);
+    }
+    return index + localVariablesStart;
+  }
+
 
   @Override
   public void visitReturn(ReturnStatement returnStatement) {
@@ -10,7 +10,13 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.util.TraceClassVisitor;
 import org.renjin.compiler.cfg.BasicBlock;
+import org.renjin.compiler.cfg.CommonSubexpressionElimination;
 import org.renjin.compiler.cfg.ControlFlowGraph;
+import org.renjin.compiler.cfg.DeadCodeElimination;
+import org.renjin.compiler.cfg.DominanceTree;
+import org.renjin.compiler.cfg.LoopInvariantCodeMotion;
+import org.renjin.compiler.ir.ssa.SsaTransformer;
+import org.renjin.compiler.ir.ssa.TypeInference;
 import org.renjin.compiler.ir.tac.IRBodyBuilder;
 import org.renjin.compiler.ir.tac.IRFunction;
 import org.renjin.compiler.ir.tac.IRFunctionTable;
@@ -153,10 +159,13 @@ public class ClosureCompiler implements Opcodes {
     
     
     ControlFlowGraph cfg = new ControlFlowGraph(closure.getBody());
+    try {
+      visitor.setTypeInference(optimize(cfg));
+    } catch(RuntimeException e) {
+      // fall back to generic code for the untransformed body
+      cfg = new ControlFlowGraph(closure.getBody());
+    }
     for(BasicBlock bb : cfg.getBasicBlocks()) {
-      
-      System.out.println(bb.statementsToString());
-      
       visitor.startBasicBlock(bb);
       
     //  List<Statement> statements = TreeBuilder.build(bb);
@@ -166,6 +175,26 @@ public class ClosureCompiler implements Opcodes {
     }
   }
 
+  /**
+   * Transforms the body to SSA form, runs the optimization passes, and infers
+   * the types of its variables so that arithmetic on scalar doubles can be specialized.
+   * Each SSA variable shares the slot of the variable it renames, so the transformed
+   * body can be emitted without first translating out of SSA form.
+   */
+  private TypeInference optimize(ControlFlowGraph cfg) {
+    DominanceTree dtree = new DominanceTree(cfg);
+    new SsaTransformer(cfg, dtree).transform();
+
+    // the passes only move and remove statements, so the
+    // types inferred beforehand remain valid afterwards
+    TypeInference types = new TypeInference(cfg);
+    types.infer();
+    new LoopInvariantCodeMotion(cfg, dtree, types).optimize();
+    new CommonSubexpressionElimination(cfg, dtree, types).optimize();
+    new DeadCodeElimination(cfg).optimize();
+    return types;
+  }
+
   private void writeClassEnd() {
     cv.visitEnd();
   }
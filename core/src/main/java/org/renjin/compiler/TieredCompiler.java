@@ -0,0 +1,184 @@
+package org.renjin.compiler;
+
+import com.google.common.collect.Lists;
+import org.renjin.compiler.ir.tac.CannotBuildTacException;
+import org.renjin.eval.Context;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.Environment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Automatically compiles "hot" closures to JVM bytecode using the {@link ClosureCompiler}.
+ *
+ * <p>Each {@link Closure} counts its invocations and the iterations of loops evaluated
+ * within its body. Once either count crosses this compiler's threshold, the closure is
+ * compiled on a background thread and the compiled body is swapped in for subsequent calls.
+ * If the closure cannot be compiled, for example because its body cannot be translated to
+ * three-address code, it is marked as uncompilable and is never retried.</p>
+ *
+ * <p>Tiered compilation is disabled unless a {@code TieredCompiler} is bound to the
+ * {@link org.renjin.eval.SessionBuilder}, or the {@code renjin.compile.threshold} system
+ * property is set.</p>
+ */
+public class TieredCompiler {
+
+  /**
+   * System property specifying the number of invocations after which a closure is compiled.
+   */
+  public static final String THRESHOLD_PROPERTY = "renjin.compile.threshold";
+
+  /**
+   * Number of loop iterations counted for each invocation
+   */
+  private static final int BACK_EDGES_PER_INVOCATION = 100;
+
+  /**
+   * A compiler which never compiles anything.
+   */
+  public static final TieredCompiler DISABLED = new TieredCompiler(0);
+
+  private final int invocationThreshold;
+  private final int backEdgeThreshold;
+  private ExecutorService executor;
+
+  private final AtomicInteger compiledCount = new AtomicInteger();
+  private final AtomicInteger failedCount = new AtomicInteger();
+  private final List<String> compiledNames = Collections.synchronizedList(Lists.<String>newArrayList());
+
+  /**
+   * @param invocationThreshold the number of invocations after which a closure is compiled,
+   *                            or zero to disable compilation.
+   */
+  public TieredCompiler(int invocationThreshold) {
+    this.invocationThreshold = invocationThreshold;
+    this.backEdgeThreshold = invocationThreshold * BACK_EDGES_PER_INVOCATION;
+  }
+
+  /**
+   * @return a {@code TieredCompiler} configured from the {@code renjin.compile.threshold} system
+   * property, or {@link #DISABLED} if the property is not set.
+   */
+  public static TieredCompiler fromSystemProperties() {
+    String threshold = System.getProperty(THRESHOLD_PROPERTY);
+    if(threshold == null) {
+      return DISABLED;
+    }
+    try {
+      return new TieredCompiler(Integer.parseInt(threshold));
+    } catch(NumberFormatException e) {
+      return DISABLED;
+    }
+  }
+
+  public boolean isEnabled() {
+    return invocationThreshold > 0;
+  }
+
+  /**
+   * Records an invocation of {@code closure}, scheduling it for compilation if it
+   * has crossed the threshold.
+   */
+  public void invoked(Closure closure) {
+    if(isEnabled() && closure.incrementInvocationCount() == invocationThreshold) {
+      schedule(closure);
+    }
+  }
+
+  /**
+   * Records {@code iterations} of a loop evaluated within the given context.
+   */
+  public void looped(Context context, int iterations) {
+    if(isEnabled() && context.getType() == Context.Type.FUNCTION) {
+      Closure closure = context.getClosure();
+      int count = closure.incrementBackEdgeCount(iterations);
+      if(count >= backEdgeThreshold && count - iterations < backEdgeThreshold) {
+        schedule(closure);
+      }
+    }
+  }
+
+  private void schedule(final Closure closure) {
+    if(!closure.beginCompilation()) {
+      return;
+    }
+    executor().submit(new Runnable() {
+      @Override
+      public void run() {
+        compile(closure);
+      }
+    });
+  }
+
+  private void compile(Closure closure) {
+    try {
+      Class<Closure> compiledClass = ClosureCompiler.compileAndLoad(closure);
+      Closure compiled = compiledClass.getConstructor(Environment.class)
+          .newInstance(closure.getEnclosingEnvironment());
+
+      closure.setCompiledClosure(compiled);
+      compiledCount.incrementAndGet();
+      compiledNames.add(closure.toString());
+
+    } catch(CannotBuildTacException e) {
+      closure.markUncompilable();
+      failedCount.incrementAndGet();
+
+    } catch(Throwable e) {
+      // The compiler does not yet support the full language: treat any
+      // failure as permanent for this closure.
+      closure.markUncompilable();
+      failedCount.incrementAndGet();
+    }
+  }
+
+  private synchronized ExecutorService executor() {
+    if(executor == null) {
+      executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "renjin-closure-compiler");
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
+  /**
+   * @return the number of closures successfully compiled
+   */
+  public int getCompiledCount() {
+    return compiledCount.get();
+  }
+
+  /**
+   * @return the number of closures which could not be compiled
+   */
+  public int getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * @return descriptions of the closures that have been compiled
+   */
+  public List<String> getCompiledClosures() {
+    synchronized (compiledNames) {
+      return Lists.newArrayList(compiledNames);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "TieredCompiler{threshold=" + invocationThreshold +
+        ", compiled=" + getCompiledCount() +
+        ", failed=" + getFailedCount() + "}";
+  }
+}
@@ -0,0 +1,152 @@
+package org.renjin.compiler.cfg;
+
+import java.util.List;
+import java.util.Map;
+
+import org.renjin.compiler.ir.ssa.TypeInference;
+import org.renjin.compiler.ir.tac.expressions.Constant;
+import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
+import org.renjin.compiler.ir.tac.expressions.Expression;
+import org.renjin.compiler.ir.tac.expressions.Length;
+import org.renjin.compiler.ir.tac.expressions.PrimitiveCall;
+import org.renjin.compiler.ir.tac.expressions.Variable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+import org.renjin.compiler.ir.tac.statements.Statement;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Replaces the recomputation of a pure expression with the value computed
+ * by an earlier, dominating, evaluation of the same expression.
+ *
+ * <p>The control flow graph must be in SSA form, and its types inferred: generic
+ * primitives like {@code length} and {@code [} are only treated as pure when their
+ * operands are proven not to be objects on which a method could be dispatched.</p>
+ */
+public class CommonSubexpressionElimination {
+
+  private final ControlFlowGraph cfg;
+  private final DominanceTree dtree;
+  private final Definitions definitions;
+  private final TypeInference types;
+
+  /**
+   * Maps eliminated variables to the variable holding the same value
+   */
+  private final Map<Variable, Variable> replacements = Maps.newHashMap();
+
+  /**
+   * True if the body contains any statement which may change
+   * the environment, in which case two reads of the same
+   * SSA version of an {@link EnvironmentVariable} may yield different values.
+   */
+  private boolean barrier;
+
+  public CommonSubexpressionElimination(ControlFlowGraph cfg, DominanceTree dtree, TypeInference types) {
+    this.cfg = cfg;
+    this.dtree = dtree;
+    this.definitions = new Definitions(cfg);
+    this.types = types;
+  }
+
+  public void optimize() {
+    barrier = false;
+    for(BasicBlock bb : cfg.getLiveBasicBlocks()) {
+      for(Statement stmt : bb.getStatements()) {
+        if(SideEffects.isBarrier(stmt, types)) {
+          barrier = true;
+        }
+      }
+    }
+
+    eliminate(cfg.getEntry(), Maps.<List<Object>, Variable>newHashMap());
+
+    if(!replacements.isEmpty()) {
+      for(BasicBlock bb : cfg.getLiveBasicBlocks()) {
+        for(Statement stmt : Lists.newArrayList(bb.getStatements())) {
+          Statement replaced = replaceOperands(stmt);
+          if(replaced != stmt) {
+            bb.replaceStatement(stmt, replaced);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of statements eliminated
+   */
+  public int getEliminatedCount() {
+    return replacements.size();
+  }
+
+  /**
+   * Walks the dominator tree, so that every expression in {@code available} has been
+   * computed on every path to {@code bb}.
+   */
+  private void eliminate(BasicBlock bb, Map<List<Object>, Variable> available) {
+    for(Statement stmt : Lists.newArrayList(bb.getStatements())) {
+      stmt = bb.replaceStatement(stmt, replaceOperands(stmt));
+
+      if(stmt instanceof Assignment && ((Assignment) stmt).getLHS() instanceof Variable) {
+        Variable lhs = (Variable) ((Assignment) stmt).getLHS();
+        List<Object> key = key(stmt.getRHS());
+        if(key != null && SideEffects.isTemp(lhs) && definitions.isAssignedOnce(lhs)) {
+          Variable existing = available.get(key);
+          if(existing == null) {
+            available.put(key, lhs);
+          } else {
+            replacements.put(lhs, existing);
+            bb.getStatements().remove(stmt);
+          }
+        }
+      }
+    }
+    for(BasicBlock child : dtree.getChildren(bb)) {
+      eliminate(child, Maps.newHashMap(available));
+    }
+  }
+
+  private Statement replaceOperands(Statement stmt) {
+    Expression rhs = stmt.getRHS();
+    for(Variable variable : rhs.variables()) {
+      Variable replacement = replacements.get(variable);
+      if(replacement != null) {
+        rhs = rhs.replaceVariable(variable, replacement);
+      }
+    }
+    return rhs == stmt.getRHS() ? stmt : stmt.withRHS(rhs);
+  }
+
+  /**
+   * @return a key which is equal for any two expressions which are guaranteed to
+   * compute the same value, or {@code null} if the expression is not a candidate
+   * for elimination
+   */
+  private List<Object> key(Expression expr) {
+    if(!(expr instanceof Length || expr instanceof PrimitiveCall) || !SideEffects.isPure(expr, types)) {
+      return null;
+    }
+    List<Object> key = Lists.newArrayList();
+    key.add(expr.getClass());
+    if(expr instanceof PrimitiveCall) {
+      key.add(((PrimitiveCall) expr).getName());
+      key.add(((PrimitiveCall) expr).getArgumentNames());
+    }
+    for(Expression operand : expr.getChildren()) {
+      if(operand instanceof Variable) {
+        if(barrier && SideEffects.innerVariable((Variable) operand) instanceof EnvironmentVariable) {
+          return null;
+        }
+        key.add(operand);
+      } else if(operand instanceof Constant) {
+        // Constants are compared by identity
+        key.add(operand);
+      } else {
+        return null;
+      }
+    }
+    return key;
+  }
+}
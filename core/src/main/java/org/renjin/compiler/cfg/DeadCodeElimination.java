@@ -0,0 +1,84 @@
+package org.renjin.compiler.cfg;
+
+import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
+import org.renjin.compiler.ir.tac.expressions.Variable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+import org.renjin.compiler.ir.tac.statements.Statement;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+
+/**
+ * Removes assignments to variables which are never used, provided
+ * that computing the value has no effects and can not fail.
+ *
+ * <p>Assignments to {@link EnvironmentVariable}s are always kept, as they
+ * are visible to calls and to the caller, but phi functions of environment
+ * variables can be removed, as they do not generate any code.</p>
+ *
+ * <p>The control flow graph must be in SSA form.</p>
+ */
+public class DeadCodeElimination {
+
+  private final ControlFlowGraph cfg;
+
+  private int removedCount = 0;
+
+  public DeadCodeElimination(ControlFlowGraph cfg) {
+    this.cfg = cfg;
+  }
+
+  public void optimize() {
+    boolean changed;
+    do {
+      changed = false;
+      Multiset<Variable> uses = countUses();
+      for(BasicBlock bb : cfg.getLiveBasicBlocks()) {
+        for(Statement stmt : Lists.newArrayList(bb.getStatements())) {
+          if(isDead(stmt, uses)) {
+            bb.getStatements().remove(stmt);
+            removedCount++;
+            changed = true;
+          }
+        }
+      }
+    } while(changed);
+  }
+
+  /**
+   * @return the number of statements removed
+   */
+  public int getRemovedCount() {
+    return removedCount;
+  }
+
+  private Multiset<Variable> countUses() {
+    Multiset<Variable> uses = HashMultiset.create();
+    for(BasicBlock bb : cfg.getLiveBasicBlocks()) {
+      for(Statement stmt : bb.getStatements()) {
+        uses.addAll(stmt.getRHS().variables());
+      }
+    }
+    return uses;
+  }
+
+  private boolean isDead(Statement stmt, Multiset<Variable> uses) {
+    if(!(stmt instanceof Assignment)) {
+      return false;
+    }
+    Assignment assignment = (Assignment) stmt;
+    if(!(assignment.getLHS() instanceof Variable)) {
+      return false;
+    }
+    Variable lhs = (Variable) assignment.getLHS();
+    if(uses.contains(lhs)) {
+      return false;
+    }
+    if(CfgPredicates.isPhiAssignment().apply(assignment)) {
+      return true;
+    }
+    return !(SideEffects.innerVariable(lhs) instanceof EnvironmentVariable) &&
+        SideEffects.isErrorFree(assignment.getRHS());
+  }
+}
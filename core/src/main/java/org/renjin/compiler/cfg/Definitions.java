@@ -0,0 +1,57 @@
+package org.renjin.compiler.cfg;
+
+import java.util.Map;
+
+import org.renjin.compiler.ir.tac.expressions.Variable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+
+/**
+ * Records the basic block in which each variable of a control flow graph
+ * in SSA form is defined.
+ */
+class Definitions {
+
+  private final Map<Variable, BasicBlock> blocks = Maps.newHashMap();
+
+  /**
+   * Counts the number of (non-phi) assignments to each variable before
+   * renaming. Each SSA version of a variable is stored in the same
+   * slot when the body is compiled, so moving or merging definitions is only
+   * safe when the underlying variable is assigned exactly once.
+   */
+  private final Multiset<Variable> assignmentCounts = HashMultiset.create();
+
+  public Definitions(ControlFlowGraph cfg) {
+    for(BasicBlock bb : cfg.getLiveBasicBlocks()) {
+      for(Assignment assignment : bb.assignments()) {
+        if(assignment.getLHS() instanceof Variable) {
+          Variable variable = (Variable) assignment.getLHS();
+          blocks.put(variable, bb);
+          if(!CfgPredicates.isPhiAssignment().apply(assignment)) {
+            assignmentCounts.add(SideEffects.innerVariable(variable));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the basic block in which {@code variable} is defined, or
+   * {@code null} if the variable's value is defined on entry to the body.
+   */
+  public BasicBlock getBlock(Variable variable) {
+    return blocks.get(variable);
+  }
+
+  public void setBlock(Variable variable, BasicBlock bb) {
+    blocks.put(variable, bb);
+  }
+
+  public boolean isAssignedOnce(Variable variable) {
+    return assignmentCounts.count(SideEffects.innerVariable(variable)) == 1;
+  }
+}
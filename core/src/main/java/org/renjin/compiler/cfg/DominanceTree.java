@@ -119,7 +119,7 @@ public class DominanceTree {
    * from the start node to n must go through d. 
    * By definition, every node dominates itself.
    */
-  private boolean dominates(BasicBlock d, BasicBlock n) {
+  public boolean dominates(BasicBlock d, BasicBlock n) {
     return Dom.containsEntry(n, d);
   }
   
@@ -0,0 +1,199 @@
+package org.renjin.compiler.cfg;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.renjin.compiler.ir.ssa.PhiFunction;
+import org.renjin.compiler.ir.ssa.TypeInference;
+import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
+import org.renjin.compiler.ir.tac.expressions.Expression;
+import org.renjin.compiler.ir.tac.expressions.Variable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+import org.renjin.compiler.ir.tac.statements.Statement;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Moves computations whose operands do not change within a loop to the
+ * loop's preheader, so that, for example, the {@code length(x)} in
+ * {@code while(i < length(x)) i <- i + 1} is only computed once.
+ *
+ * <p>The control flow graph must be in SSA form, and its types inferred: generic
+ * primitives like {@code length} and {@code [} are only treated as pure when their
+ * operands are proven not to be objects on which a method could be dispatched.</p>
+ */
+public class LoopInvariantCodeMotion {
+
+  private final ControlFlowGraph cfg;
+  private final DominanceTree dtree;
+  private final Definitions definitions;
+  private final TypeInference types;
+
+  private int hoistedCount = 0;
+
+  public LoopInvariantCodeMotion(ControlFlowGraph cfg, DominanceTree dtree, TypeInference types) {
+    this.cfg = cfg;
+    this.dtree = dtree;
+    this.definitions = new Definitions(cfg);
+    this.types = types;
+  }
+
+  public void optimize() {
+    // visit the headers in reverse order so that inner loops are
+    // processed before the loops which enclose them
+    for(BasicBlock header : Lists.reverse(cfg.getLiveBasicBlocks())) {
+      Set<BasicBlock> loop = findLoop(header);
+      if(!loop.isEmpty()) {
+        BasicBlock preheader = findPreheader(header, loop);
+        if(preheader != null) {
+          hoist(header, loop, preheader);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of statements moved out of loops
+   */
+  public int getHoistedCount() {
+    return hoistedCount;
+  }
+
+  /**
+   * @return the set of basic blocks in the natural loop(s) headed by {@code header}, or
+   * an empty set if {@code header} is not the target of a back edge
+   */
+  private Set<BasicBlock> findLoop(BasicBlock header) {
+    Set<BasicBlock> loop = Sets.newHashSet();
+    for(BasicBlock source : cfg.getPredecessors(header)) {
+      if(dtree.dominates(header, source)) {
+        loop.add(header);
+        addToLoop(loop, source);
+      }
+    }
+    return loop;
+  }
+
+  private void addToLoop(Set<BasicBlock> loop, BasicBlock bb) {
+    if(loop.add(bb)) {
+      for(BasicBlock predecessor : cfg.getPredecessors(bb)) {
+        addToLoop(loop, predecessor);
+      }
+    }
+  }
+
+  /**
+   * @return the block immediately preceding the loop, or {@code null} if the loop
+   * can be entered from more than one block, or the block is not laid out immediately
+   * before the header, so that there is nowhere to put the hoisted statements.
+   */
+  private BasicBlock findPreheader(BasicBlock header, Set<BasicBlock> loop) {
+    BasicBlock preheader = null;
+    for(BasicBlock predecessor : cfg.getPredecessors(header)) {
+      if(!loop.contains(predecessor)) {
+        if(preheader != null) {
+          return null;
+        }
+        preheader = predecessor;
+      }
+    }
+    if(preheader == null || preheader.getStatements().isEmpty() ||
+        !preheader.fallsThrough() || cfg.getSuccessors(preheader).size() != 1) {
+      return null;
+    }
+    return preheader;
+  }
+
+  private void hoist(BasicBlock header, Set<BasicBlock> loop, BasicBlock preheader) {
+    boolean barrier = containsBarrier(loop);
+    boolean changed;
+    do {
+      changed = false;
+      for(BasicBlock bb : cfg.getLiveBasicBlocks()) {
+        if(loop.contains(bb)) {
+          for(Statement stmt : Lists.newArrayList(bb.getStatements())) {
+            if(isInvariant(stmt, bb, header, loop, barrier)) {
+              Assignment assignment = (Assignment) stmt;
+              bb.getStatements().remove(assignment);
+              preheader.getStatements().add(assignment);
+              definitions.setBlock((Variable) assignment.getLHS(), preheader);
+              hoistedCount++;
+              changed = true;
+            }
+          }
+        }
+      }
+    } while(changed);
+  }
+
+  private boolean isInvariant(Statement stmt, BasicBlock bb, BasicBlock header,
+      Set<BasicBlock> loop, boolean barrier) {
+    if(!(stmt instanceof Assignment)) {
+      return false;
+    }
+    Assignment assignment = (Assignment) stmt;
+    if(!(assignment.getLHS() instanceof Variable)) {
+      return false;
+    }
+    Variable lhs = (Variable) assignment.getLHS();
+    if(!SideEffects.isTemp(lhs) || !definitions.isAssignedOnce(lhs)) {
+      return false;
+    }
+
+    Expression rhs = assignment.getRHS();
+    if(rhs instanceof PhiFunction) {
+      return false;
+
+    } else if(SideEffects.isErrorFree(rhs)) {
+      // can never fail, so we can evaluate it speculatively
+      // even if the loop body is never executed
+
+    } else if(SideEffects.isPure(rhs, types)) {
+      // could signal an error, so only move it if it would be
+      // the first thing evaluated on entry to the loop anyway
+      if(bb != header || !isFirstEvaluated(header, stmt)) {
+        return false;
+      }
+    } else {
+      return false;
+    }
+
+    for(Variable operand : rhs.variables()) {
+      BasicBlock definition = definitions.getBlock(operand);
+      if(definition != null && loop.contains(definition)) {
+        return false;
+      }
+      if(barrier && SideEffects.innerVariable(operand) instanceof EnvironmentVariable) {
+        // the binding may be changed by a call within the loop
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isFirstEvaluated(BasicBlock header, Statement stmt) {
+    for(Statement preceding : header.getStatements()) {
+      if(preceding == stmt) {
+        return true;
+      }
+      if(!CfgPredicates.isPhiAssignment().apply(preceding)) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private boolean containsBarrier(Collection<BasicBlock> loop) {
+    for(BasicBlock bb : loop) {
+      List<Statement> statements = bb.getStatements();
+      for(Statement stmt : statements) {
+        if(SideEffects.isBarrier(stmt, types)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
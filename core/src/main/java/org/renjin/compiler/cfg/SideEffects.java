@@ -0,0 +1,157 @@
+package org.renjin.compiler.cfg;
+
+import java.util.Set;
+
+import org.renjin.compiler.ir.ssa.PhiFunction;
+import org.renjin.compiler.ir.ssa.SsaVariable;
+import org.renjin.compiler.ir.ssa.TypeInference;
+import org.renjin.compiler.ir.tac.expressions.Constant;
+import org.renjin.compiler.ir.tac.expressions.DynamicCall;
+import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
+import org.renjin.compiler.ir.tac.expressions.Expression;
+import org.renjin.compiler.ir.tac.expressions.Increment;
+import org.renjin.compiler.ir.tac.expressions.Length;
+import org.renjin.compiler.ir.tac.expressions.MakeClosure;
+import org.renjin.compiler.ir.tac.expressions.PrimitiveCall;
+import org.renjin.compiler.ir.tac.expressions.Temp;
+import org.renjin.compiler.ir.tac.expressions.Variable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+import org.renjin.compiler.ir.tac.statements.ExprStatement;
+import org.renjin.compiler.ir.tac.statements.GotoStatement;
+import org.renjin.compiler.ir.tac.statements.IfStatement;
+import org.renjin.compiler.ir.tac.statements.ReturnStatement;
+import org.renjin.compiler.ir.tac.statements.Statement;
+import org.renjin.sexp.SEXP;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Classifies IR expressions and statements by the effects they
+ * may have, for the benefit of the optimization passes.
+ */
+class SideEffects {
+
+  /**
+   * Primitives which neither modify any environment nor call back into
+   * arbitrary R code, but which may signal an error.
+   */
+  private static final Set<String> PURE_PRIMITIVES = ImmutableSet.of(
+      "(", ":", "attr", "attributes", "inherits",
+      "is.null", "is.logical", "is.integer", "is.double", "is.complex",
+      "is.function", "is.list", "is.vector", "is.factor", "is.object", "is.pairlist",
+      "typeof", "mode", "identical", "list");
+
+  /**
+   * Generic primitives which dispatch to an S3 or S4 method, which may do anything at all,
+   * when one of their operands is an object, but are otherwise pure.
+   */
+  private static final Set<String> DISPATCHING_PRIMITIVES = ImmutableSet.of(
+      "+", "-", "*", "/", "^", "%%", "%/%",
+      "==", "!=", "<", "<=", ">", ">=", "!", "&", "|",
+      "[", "[[", "length", "dim", "names", "c",
+      "is.na", "is.numeric", "is.character", "is.matrix");
+
+  private SideEffects() { }
+
+  /**
+   * @return true if {@code expr} has no side effects, though it may still
+   * signal an error
+   */
+  public static boolean isPure(Expression expr, TypeInference types) {
+    if(expr instanceof PrimitiveCall) {
+      PrimitiveCall call = (PrimitiveCall) expr;
+      if(call.hasElipses()) {
+        return false;
+      }
+      String name = call.getName().getPrintName();
+      return PURE_PRIMITIVES.contains(name) ||
+          (DISPATCHING_PRIMITIVES.contains(name) && cannotDispatch(call, types));
+    }
+    return isErrorFree(expr);
+  }
+
+  /**
+   * @return true if the operands of {@code call} are proven to be plain vectors
+   * without a class attribute, so that no method can be dispatched
+   */
+  private static boolean cannotDispatch(PrimitiveCall call, TypeInference types) {
+    for(Expression operand : call.getArguments()) {
+      if(operand instanceof Constant) {
+        Object value = ((Constant) operand).getValue();
+        if(value instanceof SEXP && ((SEXP) value).isObject()) {
+          return false;
+        }
+      } else if(!types.typeOf(operand).isNumeric()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if {@code expr} has no side effects and can never
+   * signal an error, so that it can be freely removed or speculatively evaluated
+   */
+  public static boolean isErrorFree(Expression expr) {
+    if(expr instanceof Variable) {
+      // reading an unbound variable from the environment is an error
+      return !(innerVariable((Variable) expr) instanceof EnvironmentVariable);
+    }
+    if(expr instanceof Constant || expr instanceof PhiFunction || expr instanceof MakeClosure) {
+      return true;
+    }
+    if(expr instanceof Length || expr instanceof Increment) {
+      for(Expression operand : expr.getChildren()) {
+        if(!isErrorFree(operand)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return true if executing {@code stmt} might change the environment
+   * in ways not visible in the IR: for example, a call to a closure, or to an
+   * S3 method dispatched by a generic primitive, might call {@code assign()} on
+   * its caller's frame.
+   */
+  public static boolean isBarrier(Statement stmt, TypeInference types) {
+    if(!(stmt instanceof Assignment ||
+         stmt instanceof ExprStatement ||
+         stmt instanceof IfStatement ||
+         stmt instanceof GotoStatement ||
+         stmt instanceof ReturnStatement)) {
+      return true;
+    }
+    return containsCall(stmt.getRHS(), types);
+  }
+
+  private static boolean containsCall(Expression expr, TypeInference types) {
+    if(expr instanceof DynamicCall) {
+      return true;
+    }
+    if(expr instanceof PrimitiveCall && !isPure(expr, types)) {
+      return true;
+    }
+    for(Expression child : expr.getChildren()) {
+      if(containsCall(child, types)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static Variable innerVariable(Variable variable) {
+    if(variable instanceof SsaVariable) {
+      return ((SsaVariable) variable).getInner();
+    } else {
+      return variable;
+    }
+  }
+
+  public static boolean isTemp(Variable variable) {
+    return innerVariable(variable) instanceof Temp;
+  }
+}
@@ -0,0 +1,126 @@
+package org.renjin.compiler.ir.ssa;
+
+/**
+ * The lattice of value types computed by {@link TypeInference}.
+ *
+ * <p>{@code UNKNOWN} is the bottom of the lattice (no definition has been
+ * seen yet), {@code SEXP} is the top (nothing can be proven about the value),
+ * and the elements in between are the types for which the compiler can
+ * emit specialized code.</p>
+ */
+public enum InferredType {
+
+  UNKNOWN,
+
+  /**
+   * A JVM {@code int}, as used for the hidden counters and
+   * lengths of {@code for} loops
+   */
+  COUNTER,
+
+  /**
+   * A logical vector of length one without attributes
+   */
+  LOGICAL,
+
+  /**
+   * An integer vector of length one without attributes
+   */
+  INTEGER,
+
+  /**
+   * A double vector of length one without attributes
+   */
+  DOUBLE,
+
+  /**
+   * An integer vector of any length without attributes
+   */
+  INTEGER_VECTOR,
+
+  /**
+   * A double vector of any length without attributes
+   */
+  DOUBLE_VECTOR,
+
+  SEXP;
+
+  public InferredType join(InferredType other) {
+    if(this == other || other == UNKNOWN) {
+      return this;
+    } else if(this == UNKNOWN) {
+      return other;
+    } else if(this.vector() == other.vector() && this.vector() != SEXP) {
+      // a scalar is also a vector of length one
+      return this.vector();
+    } else {
+      return SEXP;
+    }
+  }
+
+  public boolean isScalarNumeric() {
+    return this == LOGICAL || this == INTEGER || this == DOUBLE;
+  }
+
+  /**
+   * @return true if values of this type are logical, integer or double vectors
+   * without attributes
+   */
+  public boolean isNumeric() {
+    return isScalarNumeric() || this == INTEGER_VECTOR || this == DOUBLE_VECTOR;
+  }
+
+  /**
+   * @return the type of a vector of any length with elements of this type
+   */
+  public InferredType vector() {
+    switch(this) {
+      case INTEGER:
+      case INTEGER_VECTOR:
+        return INTEGER_VECTOR;
+      case DOUBLE:
+      case DOUBLE_VECTOR:
+        return DOUBLE_VECTOR;
+      default:
+        return SEXP;
+    }
+  }
+
+  /**
+   * @return the type of a single element extracted from a value of this type
+   */
+  public InferredType element() {
+    switch(this) {
+      case LOGICAL:
+      case INTEGER:
+      case DOUBLE:
+        return this;
+      case INTEGER_VECTOR:
+        return INTEGER;
+      case DOUBLE_VECTOR:
+        return DOUBLE;
+      default:
+        return SEXP;
+    }
+  }
+
+  /**
+   *
+   * @return the type of the result of applying one of R's arithmetic
+   * operators ({@code +}, {@code -}, {@code *}) to numeric values of
+   * type {@code x} and {@code y}
+   */
+  public static InferredType arithmetic(InferredType x, InferredType y) {
+    InferredType scalar;
+    if(x.element() == DOUBLE || y.element() == DOUBLE) {
+      scalar = DOUBLE;
+    } else {
+      scalar = INTEGER;
+    }
+    if(x.isScalarNumeric() && y.isScalarNumeric()) {
+      return scalar;
+    } else {
+      return scalar.vector();
+    }
+  }
+}
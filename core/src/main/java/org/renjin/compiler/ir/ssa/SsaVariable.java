@@ -30,6 +30,10 @@ public class SsaVariable implements Variable {
     return inner;
   }
 
+  public int getVersion() {
+    return version;
+  }
+
   @Override
   public Object retrieveValue(Context context, Object[] temps) {
     return inner.retrieveValue(context, temps);
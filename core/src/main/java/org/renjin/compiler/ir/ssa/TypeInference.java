@@ -0,0 +1,241 @@
+package org.renjin.compiler.ir.ssa;
+
+import java.util.List;
+import java.util.Map;
+
+import org.renjin.compiler.cfg.BasicBlock;
+import org.renjin.compiler.cfg.ControlFlowGraph;
+import org.renjin.compiler.ir.tac.expressions.Constant;
+import org.renjin.compiler.ir.tac.expressions.ElementAccess;
+import org.renjin.compiler.ir.tac.expressions.Expression;
+import org.renjin.compiler.ir.tac.expressions.Increment;
+import org.renjin.compiler.ir.tac.expressions.Length;
+import org.renjin.compiler.ir.tac.expressions.PrimitiveCall;
+import org.renjin.compiler.ir.tac.expressions.Variable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+import org.renjin.compiler.ir.tac.statements.Statement;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.SEXP;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Infers the {@link InferredType} of each variable in a control flow
+ * graph that has been transformed into SSA form by {@link SsaTransformer}.
+ *
+ * <p>Starting from the optimistic assumption that every definition is {@code UNKNOWN},
+ * the types of assignments and phi functions are joined until a fixpoint is reached,
+ * so that a variable like {@code s} in {@code s <- 0; for(x in xs) s <- s + 1}
+ * is proven to be a scalar double through the loop's back edge. Vectors built from
+ * numeric constants are also tracked, so that an element {@code x[i]} of a double
+ * vector is known to be a scalar double.</p>
+ *
+ * <p>Variables in the environment can still be changed behind the compiler's back
+ * (by {@code assign()}, {@code <<-} from a nested closure, etc), so the inferred
+ * types are only a guide to where specialized code is worthwhile: the generated
+ * code must still guard its assumptions at runtime.</p>
+ */
+public class TypeInference {
+
+  private final ControlFlowGraph cfg;
+  private final Map<Variable, InferredType> types = Maps.newHashMap();
+
+  public TypeInference(ControlFlowGraph cfg) {
+    this.cfg = cfg;
+  }
+
+  public void infer() {
+    boolean changed;
+    do {
+      changed = false;
+      for(BasicBlock bb : cfg.getLiveBasicBlocks()) {
+        for(Statement stmt : bb.getStatements()) {
+          if(stmt instanceof Assignment) {
+            Assignment assignment = (Assignment) stmt;
+            if(assignment.getLHS() instanceof Variable) {
+              Variable variable = (Variable) assignment.getLHS();
+              InferredType current = getType(variable);
+              InferredType joined = current.join(typeOf(assignment.getRHS()));
+              if(joined != current) {
+                types.put(variable, joined);
+                changed = true;
+              }
+            }
+          }
+        }
+      }
+    } while(changed);
+  }
+
+  public ControlFlowGraph getControlFlowGraph() {
+    return cfg;
+  }
+
+  public InferredType getType(Variable variable) {
+    InferredType type = types.get(variable);
+    if(type != null) {
+      return type;
+    }
+    if(variable instanceof SsaVariable && ((SsaVariable) variable).getVersion() > 0) {
+      // not yet defined
+      return InferredType.UNKNOWN;
+    } else {
+      // either the value on entry to the function (version 0),
+      // or a variable that has not been renamed to SSA form
+      return InferredType.SEXP;
+    }
+  }
+
+  public InferredType typeOf(Expression expr) {
+    if(expr instanceof Variable) {
+      return getType((Variable) expr);
+
+    } else if(expr instanceof Constant) {
+      return typeOfConstant(((Constant) expr).getValue());
+
+    } else if(expr instanceof Increment || expr instanceof Length) {
+      return InferredType.COUNTER;
+
+    } else if(expr instanceof ElementAccess) {
+      InferredType vector = typeOf(((ElementAccess) expr).getVector());
+      return vector == InferredType.UNKNOWN ? vector : vector.element();
+
+    } else if(expr instanceof PhiFunction) {
+      InferredType type = InferredType.UNKNOWN;
+      for(Expression argument : expr.getChildren()) {
+        type = type.join(typeOf(argument));
+      }
+      return type;
+
+    } else if(expr instanceof PrimitiveCall) {
+      return typeOfPrimitive((PrimitiveCall) expr);
+
+    } else {
+      return InferredType.SEXP;
+    }
+  }
+
+  private InferredType typeOfConstant(Object value) {
+    if(value instanceof Integer) {
+      return InferredType.COUNTER;
+    }
+    if(value instanceof SEXP) {
+      SEXP sexp = (SEXP) value;
+      if(sexp.length() == 1 && !sexp.hasAttributes()) {
+        if(sexp instanceof DoubleVector) {
+          return InferredType.DOUBLE;
+        } else if(sexp instanceof IntVector) {
+          return InferredType.INTEGER;
+        } else if(sexp instanceof LogicalVector) {
+          return InferredType.LOGICAL;
+        }
+      } else if(!sexp.hasAttributes()) {
+        if(sexp instanceof DoubleVector) {
+          return InferredType.DOUBLE_VECTOR;
+        } else if(sexp instanceof IntVector) {
+          return InferredType.INTEGER_VECTOR;
+        }
+      }
+    }
+    return InferredType.SEXP;
+  }
+
+  private InferredType typeOfPrimitive(PrimitiveCall call) {
+    if(call.hasElipses()) {
+      return InferredType.SEXP;
+    }
+    List<Expression> arguments = call.getArguments();
+    InferredType operands[] = new InferredType[arguments.size()];
+    for(int i=0;i!=operands.length;++i) {
+      operands[i] = typeOf(arguments.get(i));
+      if(operands[i] == InferredType.UNKNOWN) {
+        return InferredType.UNKNOWN;
+      }
+      if(!operands[i].isNumeric() || call.getArgumentNames().get(i) != null) {
+        return InferredType.SEXP;
+      }
+    }
+
+    String name = call.getName().getPrintName();
+    if(name.equals("c")) {
+      return combine(operands);
+    }
+    if(operands.length == 1) {
+      if(name.equals("(")) {
+        return operands[0];
+      } else if(name.equals("-") || name.equals("+")) {
+        return InferredType.arithmetic(operands[0], InferredType.INTEGER);
+      } else if(name.equals("!") && operands[0].isScalarNumeric()) {
+        return InferredType.LOGICAL;
+      } else if(name.equals("length")) {
+        return InferredType.INTEGER;
+      }
+    } else if(operands.length == 2) {
+      if(name.equals("+") || name.equals("-") || name.equals("*")) {
+        return InferredType.arithmetic(operands[0], operands[1]);
+      } else if(name.equals("/") || name.equals("^")) {
+        return InferredType.arithmetic(InferredType.DOUBLE, InferredType.arithmetic(operands[0], operands[1]));
+      } else if(isComparison(name) && operands[0].isScalarNumeric() && operands[1].isScalarNumeric()) {
+        return InferredType.LOGICAL;
+      } else if((name.equals("[") || name.equals("[[")) && operands[1].isScalarNumeric()) {
+        // An index outside of 1..length(x) can yield an NA, an empty vector, or
+        // all but one element, but scalar indices within bounds are by far
+        // the common case, and the generated code guards the rest.
+        return operands[0].element();
+      } else if(name.equals(":") && operands[0].isScalarNumeric() && operands[1].isScalarNumeric()) {
+        return isWholeNumber(arguments.get(0), operands[0]) ?
+            InferredType.INTEGER_VECTOR : InferredType.DOUBLE_VECTOR;
+      }
+    }
+    return InferredType.SEXP;
+  }
+
+  private static boolean isComparison(String name) {
+    return name.equals("==") || name.equals("!=") ||
+           name.equals("<")  || name.equals("<=") ||
+           name.equals(">")  || name.equals(">=");
+  }
+
+  /**
+   * @return the type of {@code c(...)} applied to unnamed numeric arguments
+   */
+  private InferredType combine(InferredType[] operands) {
+    if(operands.length == 0) {
+      return InferredType.SEXP;
+    }
+    InferredType type = InferredType.INTEGER;
+    for(InferredType operand : operands) {
+      if(operand.element() == InferredType.LOGICAL) {
+        return InferredType.SEXP;
+      }
+      type = InferredType.arithmetic(type, operand);
+    }
+    return type.vector();
+  }
+
+  /**
+   * @return true if the {@code from} argument of {@code from:to} is an integer or a double
+   * constant with an integer value, in which case the sequence is (normally) an integer vector
+   */
+  private boolean isWholeNumber(Expression from, InferredType type) {
+    if(type == InferredType.INTEGER || type == InferredType.LOGICAL) {
+      return true;
+    }
+    if(from instanceof Constant && ((Constant) from).getValue() instanceof DoubleVector) {
+      double value = ((DoubleVector) ((Constant) from).getValue()).getElementAsDouble(0);
+      return value == Math.floor(value) && Math.abs(value) < Integer.MAX_VALUE;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for(Map.Entry<Variable, InferredType> entry : types.entrySet()) {
+      sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+    }
+    return sb.toString();
+  }
+}
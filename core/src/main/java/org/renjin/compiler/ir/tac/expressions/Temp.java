@@ -12,10 +12,10 @@ import org.renjin.sexp.SEXP;
 
 /**
  * A slot for a temporary value. 
- * A temporary value can only be assigned once, so it is not
- * have to be processed by the SSA transformation
+ * A temporary value is normally assigned once, but it is still renamed by the SSA
+ * transformation so that its definitions can be found, typed and moved by the optimization passes.
  */
-public class Temp implements LValue {
+public class Temp implements Variable {
   private static final String TAO = "\u03C4";
   private final int index;
   
@@ -46,7 +46,7 @@ public class Temp implements LValue {
 
   @Override
   public Set<Variable> variables() {
-    return Collections.emptySet();
+    return Collections.<Variable>singleton(this);
   }
 
   @Override
@@ -55,8 +55,8 @@ public class Temp implements LValue {
   }
 
   @Override
-  public Temp replaceVariable(Variable name, Variable newName) {
-    return this;
+  public Variable replaceVariable(Variable name, Variable newName) {
+    return this.equals(name) ? newName : this;
   }
 
   @Override
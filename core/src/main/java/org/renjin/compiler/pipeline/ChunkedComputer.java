@@ -0,0 +1,126 @@
+package org.renjin.compiler.pipeline;
+
+import com.google.common.collect.Lists;
+import org.renjin.sexp.Vector;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the computation of a single (large) vector into contiguous index-range
+ * chunks which are evaluated concurrently on an {@link ExecutorService}.
+ *
+ * <p>{@link MultiThreadedVectorPipeliner} only parallelises across independent memoized nodes,
+ * so an expression like {@code sum(x*y+z)} would otherwise run on a single core. Here
+ * each chunk walks its own range of the deferred operand, and the partial results are
+ * combined once all chunks have completed.</p>
+ */
+public class ChunkedComputer {
+
+  /**
+   * The minimum number of elements each chunk should cover; below this the
+   * overhead of scheduling outweighs the benefit.
+   */
+  public static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Number of chunks to create per available worker, so that
+   * faster workers can pick up the slack of slower ones.
+   */
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  private final ExecutorService executorService;
+  private final int parallelism;
+
+  public ChunkedComputer(ExecutorService executorService, int parallelism) {
+    this.executorService = executorService;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   *
+   * @param length the length of the vector to compute
+   * @return true if a vector of the given length is large enough to benefit from
+   * being split into chunks.
+   */
+  public boolean shouldChunk(int length) {
+    return parallelism > 1 && length >= MIN_CHUNK_SIZE * 2;
+  }
+
+  /**
+   * Computes the sum of all elements of {@code vector}, evaluating each chunk's partial
+   * sum in parallel.
+   */
+  public double sum(final Vector vector) throws InterruptedException, ExecutionException {
+    List<Future<Double>> partials = Lists.newArrayList();
+    for(final Range range : split(vector.length())) {
+      partials.add(executorService.submit(new Callable<Double>() {
+        @Override
+        public Double call() throws Exception {
+          double sum = 0;
+          for(int i=range.from;i!=range.to;++i) {
+            sum += vector.getElementAsDouble(i);
+          }
+          return sum;
+        }
+      }));
+    }
+    double sum = 0;
+    for(Future<Double> partial : partials) {
+      sum += partial.get();
+    }
+    return sum;
+  }
+
+  /**
+   * Computes all elements of {@code vector} into a new array, with each chunk
+   * writing its own disjoint range of the result.
+   */
+  public double[] toDoubleArray(final Vector vector) throws InterruptedException, ExecutionException {
+    final double[] result = new double[vector.length()];
+    List<Future<?>> chunks = Lists.newArrayList();
+    for(final Range range : split(vector.length())) {
+      chunks.add(executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          for(int i=range.from;i!=range.to;++i) {
+            result[i] = vector.getElementAsDouble(i);
+          }
+        }
+      }));
+    }
+    for(Future<?> chunk : chunks) {
+      chunk.get();
+    }
+    return result;
+  }
+
+  private List<Range> split(int length) {
+    int chunkCount = Math.min(parallelism * CHUNKS_PER_WORKER, length / MIN_CHUNK_SIZE);
+    if(chunkCount < 1) {
+      chunkCount = 1;
+    }
+    int chunkSize = length / chunkCount;
+    List<Range> ranges = Lists.newArrayList();
+    int from = 0;
+    for(int i=0;i!=chunkCount;++i) {
+      int to = (i == chunkCount - 1) ? length : from + chunkSize;
+      ranges.add(new Range(from, to));
+      from = to;
+    }
+    return ranges;
+  }
+
+  private static class Range {
+    private final int from;
+    private final int to;
+
+    private Range(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+  }
+}
@@ -3,16 +3,29 @@ package org.renjin.compiler.pipeline;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Maintains a cache of recently used JITted classes.
+ *
+ * <p>If the {@code renjin.jit.cache.dir} system property is set, generated bytecode
+ * is also persisted to a {@link DiskJitCache} and read back on an in-memory miss.</p>
  */
 public class DeferredJitCache {
 
-  public static final DeferredJitCache INSTANCE = new DeferredJitCache();
+  public static final DeferredJitCache INSTANCE = new DeferredJitCache(DiskJitCache.fromSystemProperties());
 
   private final Cache<JitKey, JittedComputation> cache;
 
-  private DeferredJitCache() {
+  private final DiskJitCache diskCache;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong compileTimeNanos = new AtomicLong();
+
+  DeferredJitCache(DiskJitCache diskCache) {
+    this.diskCache = diskCache;
     cache = CacheBuilder.newBuilder()
             .softValues()
             .maximumSize(100)
@@ -23,12 +36,94 @@ public class DeferredJitCache {
     JitKey key = node.jitKey();
     JittedComputation computation = cache.getIfPresent(key);
     if(computation != null) {
+      memoryHits.incrementAndGet();
       return computation;
     }
-    DeferredJitter jitter = new DeferredJitter();
-    computation = jitter.compile(node);
+
+    if(diskCache == null) {
+      computation = generate(new DeferredJitter(), node);
+
+    } else {
+      String className = DiskJitCache.className(key);
+      byte[] classBytes = diskCache.read(key);
+      if(classBytes != null) {
+        computation = loadPersisted(className, classBytes);
+      }
+      if(computation == null) {
+        DeferredJitter jitter = new DeferredJitter(className);
+        classBytes = generateBytes(jitter, node);
+        diskCache.write(key, classBytes);
+        computation = DeferredJitter.load(className, classBytes);
+      } else {
+        diskHits.incrementAndGet();
+      }
+    }
     cache.put(key, computation);
 
     return computation;
   }
+
+  private JittedComputation generate(DeferredJitter jitter, DeferredNode node) {
+    return DeferredJitter.load(jitter.getClassName(), generateBytes(jitter, node));
+  }
+
+  private byte[] generateBytes(DeferredJitter jitter, DeferredNode node) {
+    misses.incrementAndGet();
+    long start = System.nanoTime();
+    byte[] classBytes = jitter.generate(node);
+    compileTimeNanos.addAndGet(System.nanoTime() - start);
+    return classBytes;
+  }
+
+  private JittedComputation loadPersisted(String className, byte[] classBytes) {
+    try {
+      return DeferredJitter.load(className, classBytes);
+    } catch (Throwable e) {
+      // Corrupt or incompatible entry: fall back to recompiling
+      return null;
+    }
+  }
+
+  /**
+   * @return the persistent tier of this cache, or {@code null} if none is configured.
+   */
+  public DiskJitCache getDiskCache() {
+    return diskCache;
+  }
+
+  /**
+   * @return the number of computations found in the in-memory cache
+   */
+  public long getMemoryHitCount() {
+    return memoryHits.get();
+  }
+
+  /**
+   * @return the number of computations loaded from the persistent cache
+   */
+  public long getDiskHitCount() {
+    return diskHits.get();
+  }
+
+  /**
+   * @return the number of computations which had to be compiled
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the total time, in nanoseconds, spent generating bytecode
+   */
+  public long getCompileTimeNanos() {
+    return compileTimeNanos.get();
+  }
+
+  @Override
+  public String toString() {
+    return "DeferredJitCache{memoryHits=" + getMemoryHitCount() +
+        ", diskHits=" + getDiskHitCount() +
+        ", misses=" + getMissCount() +
+        ", compileTime=" + (getCompileTimeNanos() / 1e6) + "ms}";
+  }
 }
@@ -40,6 +40,13 @@ import static org.objectweb.asm.Opcodes.*;
  */
 public class DeferredJitter {
 
+  /**
+   * Version of the generated bytecode. This must be incremented whenever
+   * the code generated for a given {@link JitKey} changes, so that classes persisted
+   * by {@link DiskJitCache} by earlier versions are not reused.
+   */
+  public static final int FORMAT_VERSION = 1;
+
   private String className;
   private ClassVisitor cv;
 
@@ -47,7 +54,22 @@ public class DeferredJitter {
     className = "Jit" + System.identityHashCode(this);
   }
 
+  public DeferredJitter(String className) {
+    this.className = className;
+  }
+
+  public String getClassName() {
+    return className;
+  }
+
   public JittedComputation compile(DeferredNode node)  {
+    return load(className, generate(node));
+  }
+
+  /**
+   * Generates the bytecode of a {@link JittedComputation} for the given node.
+   */
+  public byte[] generate(DeferredNode node) {
     long startTime = System.nanoTime();
     ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
     cv = cw;
@@ -66,12 +88,24 @@ public class DeferredJitter {
     byte[] classBytes = cw.toByteArray();
     long compileTime = System.nanoTime() - startTime;
 
+    if(VectorPipeliner.DEBUG) {
+      System.out.println("compile: " + (compileTime/1e6) + "ms");
+    }
+    return classBytes;
+  }
+
+  /**
+   * Defines a class previously generated by {@link #generate(DeferredNode)} and
+   * returns a new instance.
+   */
+  public static JittedComputation load(String className, byte[] classBytes) {
+    long startTime = System.nanoTime();
+
     Class jitClass = new MyClassLoader().defineClass(className, classBytes);
 
-    long loadTime = System.nanoTime() - startTime - compileTime;
+    long loadTime = System.nanoTime() - startTime;
 
     if(VectorPipeliner.DEBUG) {
-      System.out.println("compile: " + (compileTime/1e6) + "ms");
       System.out.println("load: " + (loadTime/1e6) + "ms");
     }
 
@@ -115,7 +149,7 @@ public class DeferredJitter {
     }
   }
 
-  class MyClassLoader extends ClassLoader {
+  static class MyClassLoader extends ClassLoader {
     public Class defineClass(String name, byte[] b) {
       return defineClass(name, b, 0, b.length);
     }
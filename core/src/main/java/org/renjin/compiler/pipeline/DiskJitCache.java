@@ -0,0 +1,99 @@
+package org.renjin.compiler.pipeline;
+
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Persists the bytecode generated by {@link DeferredJitter} to a directory on disk, so that
+ * the same pipeline shapes do not need to be recompiled after a JVM restart.
+ *
+ * <p>Each class is stored in a file named after the {@link JitKey#getStableId() stable id} of its key.
+ * The class name is derived from the same id, so the bytes can be defined as-is when read back.</p>
+ *
+ * <p>The directory can be safely shared between processes: entries are written to a temporary file
+ * and then renamed into place, and unreadable entries are treated as misses.</p>
+ */
+public class DiskJitCache {
+
+  /**
+   * System property naming the directory in which to persist jitted classes. If
+   * not set, no persistent cache is used.
+   */
+  public static final String DIRECTORY_PROPERTY = "renjin.jit.cache.dir";
+
+  private static final String SUFFIX = ".class";
+
+  private final File directory;
+
+  public DiskJitCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return a {@code DiskJitCache} for the directory specified by the {@code renjin.jit.cache.dir}
+   * system property, or {@code null} if the property is not set or the directory cannot be created.
+   */
+  public static DiskJitCache fromSystemProperties() {
+    String path = System.getProperty(DIRECTORY_PROPERTY);
+    if(path == null || path.isEmpty()) {
+      return null;
+    }
+    File directory = new File(path);
+    if(!directory.isDirectory() && !directory.mkdirs()) {
+      return null;
+    }
+    return new DiskJitCache(directory);
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return the name of the class generated for the given {@code key}
+   */
+  public static String className(JitKey key) {
+    return "Jit" + key.getStableId();
+  }
+
+  /**
+   * @return the previously stored class bytes for {@code key}, or {@code null} if there is
+   * no (readable) entry.
+   */
+  public byte[] read(JitKey key) {
+    File file = file(key);
+    if(!file.exists()) {
+      return null;
+    }
+    try {
+      return Files.toByteArray(file);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Stores the class bytes for {@code key}. Failures are ignored, as the persistent tier is
+   * only an optimization.
+   */
+  public void write(JitKey key, byte[] classBytes) {
+    File file = file(key);
+    try {
+      File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+      Files.write(classBytes, tempFile);
+      if(!tempFile.renameTo(file)) {
+        tempFile.delete();
+      }
+    } catch (IOException e) {
+      if(VectorPipeliner.DEBUG) {
+        System.out.println("Failed to persist jitted class to " + file + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private File file(JitKey key) {
+    return new File(directory, className(key) + SUFFIX);
+  }
+}
@@ -1,12 +1,23 @@
 package org.renjin.compiler.pipeline;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
 import java.util.Arrays;
+import java.util.UUID;
 
 /**
  * Uniquely identifies a Jitted computation subgraph.
  */
 public class JitKey {
 
+  private static String buildId;
+
   private Class[] classes;
   private int hash;
 
@@ -15,6 +26,71 @@ public class JitKey {
     this.hash = Arrays.hashCode(classes);
   }
 
+  /**
+   * @return a serialization of this key which is stable across JVM instances, composed
+   * of the names of the classes in the flattened subgraph.
+   */
+  public String toStableString() {
+    StringBuilder sb = new StringBuilder();
+    for(Class clazz : classes) {
+      if(sb.length() > 0) {
+        sb.append(';');
+      }
+      sb.append(clazz.getName());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return a hexadecimal digest of this key's {@link #toStableString() stable serialization}
+   * and of the {@link #getBuildId() build} of the jitter, suitable for use as a class or file name.
+   */
+  public String getStableId() {
+    return getStableId(getBuildId());
+  }
+
+  String getStableId(String buildId) {
+    return Hashing.sha1()
+        .hashString(DeferredJitter.FORMAT_VERSION + ":" + buildId + ":" + toStableString(), Charsets.UTF_8)
+        .toString();
+  }
+
+  /**
+   * The generated bytecode depends on the jitter and on the runtime classes it calls into,
+   * which can change without any change to {@link DeferredJitter#FORMAT_VERSION}, so the
+   * persisted classes of one build must never be loaded by another.
+   *
+   * @return the checksum of the jar from which the jitter was loaded, or, if it was
+   * not loaded from a jar, a random id, so that classes are only reused within this JVM.
+   */
+  static synchronized String getBuildId() {
+    if(buildId == null) {
+      buildId = computeBuildId();
+    }
+    return buildId;
+  }
+
+  private static String computeBuildId() {
+    CodeSource codeSource = DeferredJitter.class.getProtectionDomain().getCodeSource();
+    if(codeSource != null && codeSource.getLocation() != null) {
+      try {
+        File location = new File(codeSource.getLocation().toURI());
+        if(location.isFile()) {
+          return Files.hash(location, Hashing.sha1()).toString();
+        }
+      } catch (URISyntaxException e) {
+        // not a file
+      } catch (IllegalArgumentException e) {
+        // not a file
+      } catch (IOException e) {
+        // unreadable
+      }
+    }
+    // Classes loaded from a directory, as in a development build,
+    // can change without any change to the version number
+    return UUID.randomUUID().toString();
+  }
+
   @Override
   public int hashCode() {
     return hash;
@@ -28,4 +104,9 @@ public class JitKey {
     JitKey other = (JitKey)obj;
     return Arrays.equals(classes, other.classes);
   }
+
+  @Override
+  public String toString() {
+    return toStableString();
+  }
 }
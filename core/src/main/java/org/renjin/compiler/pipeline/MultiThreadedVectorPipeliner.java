@@ -3,23 +3,46 @@ package org.renjin.compiler.pipeline;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
 import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.primitives.vector.MemoizedDoubleVector;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.Vector;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 
 
+/**
+ * Computes deferred graphs using a pool of worker threads.
+ *
+ * <p>Independent memoized nodes are computed concurrently, and individual nodes which are
+ * large enough are themselves split into index-range chunks by a {@link ChunkedComputer}, so
+ * that a single reduction like {@code sum(x*y+z)} can also make use of all workers.</p>
+ */
 public class MultiThreadedVectorPipeliner implements VectorPipeliner {
 
   private final ExecutorService executorService;
+  private final ChunkedComputer chunkedComputer;
 
   public MultiThreadedVectorPipeliner(ExecutorService executorService) {
+    this(executorService, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param executorService the executor on which nodes and chunks are computed
+   * @param parallelism the number of threads available in {@code executorService}
+   */
+  public MultiThreadedVectorPipeliner(ExecutorService executorService, int parallelism) {
     this.executorService = executorService;
+    this.chunkedComputer = new ChunkedComputer(executorService, parallelism);
   }
 
   @Override
@@ -52,7 +75,19 @@ public class MultiThreadedVectorPipeliner implements VectorPipeliner {
       graph.dumpGraph();
     }
 
-    return materialize(root);
+    Vector vector = materialize(root);
+    if(vector instanceof DeferredComputation && vector instanceof DoubleVector &&
+        !(vector instanceof MemoizedDoubleVector) &&
+        chunkedComputer.shouldChunk(vector.length())) {
+      try {
+        return DoubleArrayVector.unsafe(chunkedComputer.toDoubleArray(vector), vector.getAttributes());
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return vector;
   }
 
   private void forceMemoizedValues(DeferredGraph graph) throws InterruptedException, ExecutionException {
@@ -74,6 +109,7 @@ public class MultiThreadedVectorPipeliner implements VectorPipeliner {
     while(!toCompute.isEmpty() || running > 0) {
 
       // queue all memoized values with no remaining dependencies
+      List<DeferredNode> chunked = Lists.newArrayList();
       Iterator<DeferredNode> it = toCompute.iterator();
       while(it.hasNext()) {
         DeferredNode node = it.next();
@@ -81,17 +117,55 @@ public class MultiThreadedVectorPipeliner implements VectorPipeliner {
           if(VectorPipeliner.DEBUG) {
             System.out.println("Starting " + node);
           }
-          service.submit(new DeferredNodeComputer(node), node);
-          running ++;
+          if(isChunkable(node)) {
+            chunked.add(node);
+          } else {
+            service.submit(new DeferredNodeComputer(node), node);
+            running ++;
+          }
           it.remove();
         }
       }
-      DeferredNode computed = service.take().get();
-      running --;
-      if(VectorPipeliner.DEBUG) {
-        System.out.println("Completed " + computed);
+
+      // Large reductions are coordinated from this thread: their chunks are
+      // submitted to the same executor, and waiting on them from within a worker
+      // could starve a bounded pool.
+      for(DeferredNode node : chunked) {
+        computeChunked(node);
+        if(VectorPipeliner.DEBUG) {
+          System.out.println("Completed " + node + " in chunks");
+        }
       }
+
+      if(running > 0) {
+        DeferredNode computed = service.take().get();
+        running --;
+        if(VectorPipeliner.DEBUG) {
+          System.out.println("Completed " + computed);
+        }
+      }
+    }
+  }
+
+  private boolean isChunkable(DeferredNode node) {
+    String name = node.getComputation().getComputationName();
+    return (name.equals("sum") || name.equals("mean")) &&
+        node.getOperands().size() == 1 &&
+        chunkedComputer.shouldChunk(node.getOperand(0).getVector().length());
+  }
+
+  private void computeChunked(DeferredNode node) throws InterruptedException, ExecutionException {
+    Vector operand = node.getOperand(0).getVector();
+    double sum = chunkedComputer.sum(operand);
+    double value;
+    if(node.getComputation().getComputationName().equals("mean")) {
+      value = sum / operand.length();
+    } else {
+      value = sum;
     }
+    Vector result = new DoubleArrayVector(value);
+    ((MemoizedComputation)node.getVector()).setResult(result);
+    node.setResult(result);
   }
 
   private boolean allComputed(Collection<DeferredNode> deferredNodes) {
@@ -2,6 +2,9 @@ package org.renjin.compiler.runtime;
 
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
 import org.renjin.sexp.Logical;
 import org.renjin.sexp.PairList;
 import org.renjin.sexp.SEXP;
@@ -66,4 +69,55 @@ public class CompiledRuntime {
     }
     return spliced;
   }
+
+  /**
+   * Guards specialized scalar double arithmetic: 
+   * @return true if {@code s} is a double vector of length one without attributes
+   */
+  public static boolean isScalarDouble(SEXP s) {
+    return s instanceof DoubleVector && s.length() == 1 && !s.hasAttributes();
+  }
+  
+  public static double unboxDouble(SEXP s) {
+    return ((DoubleVector) s).getElementAsDouble(0);
+  }
+  
+  public static SEXP boxDouble(double value) {
+    return new DoubleArrayVector(value);
+  }
+
+  /**
+   * Guards specialized element access:
+   * @return true if {@code vector} is a double vector without attributes and {@code index}
+   * a scalar integer or double, without attributes, selecting one of its elements
+   */
+  public static boolean isDoubleElement(SEXP vector, SEXP index) {
+    return vector instanceof DoubleVector && !vector.hasAttributes() && elementIndex(vector, index) != -1;
+  }
+
+  public static double getDoubleElement(SEXP vector, SEXP index) {
+    return ((DoubleVector) vector).getElementAsDouble(elementIndex(vector, index));
+  }
+
+  /**
+   * @return the zero-based index of the element of {@code vector} selected by the
+   * one-based {@code index}, or -1 if {@code index} is not a positive scalar within bounds
+   */
+  private static int elementIndex(SEXP vector, SEXP index) {
+    if(index.length() != 1 || index.hasAttributes()) {
+      return -1;
+    }
+    double i;
+    if(index instanceof DoubleVector) {
+      i = ((DoubleVector) index).getElementAsDouble(0);
+    } else if(index instanceof IntVector) {
+      i = ((IntVector) index).getElementAsDouble(0);
+    } else {
+      return -1;
+    }
+    if(!(i >= 1 && i < vector.length() + 1)) {
+      return -1;
+    }
+    return (int) i - 1;
+  }
 }
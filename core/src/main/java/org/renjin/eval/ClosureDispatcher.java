@@ -71,7 +71,7 @@ public class ClosureDispatcher {
     Environment functionEnvironment = functionContext.getEnvironment();
 
     try {
-      matchArgumentsInto(closure.getFormals(), promisedArgs, functionContext, functionEnvironment);
+      matchArgumentsInto(call, closure.getFormals(), promisedArgs, functionContext, functionEnvironment);
 
       if(dispatchChain != null) {
         dispatchChain.populateEnvironment(functionEnvironment);
@@ -114,6 +114,29 @@ public class ClosureDispatcher {
     return null;
   }
   
+  /**
+   * Matches the actual arguments to the formals and binds them in {@code innerEnv}, reusing the
+   * {@link MatchPlan} cached on {@code call} if it was computed for the same formals and
+   * argument tags.
+   */
+  public static void matchArgumentsInto(FunctionCall call, PairList formals, PairList actuals,
+                                        Context innerContext, Environment innerEnv) {
+    if(call == null) {
+      matchArgumentsInto(formals, actuals, innerContext, innerEnv);
+      return;
+    }
+    MatchPlan plan = call.getMatchPlan();
+    if(plan == null || !plan.matches(formals, actuals)) {
+      plan = MatchPlan.compute(formals, actuals);
+      if(plan == null) {
+        matchArgumentsInto(formals, actuals, innerContext, innerEnv);
+        return;
+      }
+      call.setMatchPlan(plan);
+    }
+    plan.bind(actuals, innerEnv);
+  }
+
   public static void matchArgumentsInto(PairList formals, PairList actuals, 
       Context innerContext, Environment innerEnv) {
 
@@ -139,7 +139,7 @@ public class Context {
     context.parent = this;
     context.evaluationDepth = evaluationDepth+1;
     context.closure = closure;
-    context.environment = Environment.createChildEnvironment(closure.getEnclosingEnvironment());
+    context.environment = Environment.createChildEnvironment(closure.getEnclosingEnvironment(), closure.newFrame());
     context.session = session;
     context.arguments = arguments;
     context.call= call;
@@ -257,17 +257,23 @@ public class Context {
 
   private SEXP evaluateCall(FunctionCall call, Environment rho) {
     clearInvisibleFlag();
-    Function functionExpr = evaluateFunction(call.getFunction(), rho);
+    Function functionExpr = evaluateFunction(call, rho);
     return functionExpr.apply(this, rho, call, call.getArguments());
   }
 
-  private Function evaluateFunction(SEXP functionExp, Environment rho) {
+  private Function evaluateFunction(FunctionCall call, Environment rho) {
+    SEXP functionExp = call.getFunction();
     if(functionExp instanceof Symbol) {
+      Function fn = call.getCachedFunction(rho);
+      if(fn != null) {
+        return fn;
+      }
       Symbol symbol = (Symbol) functionExp;
-      Function fn = rho.findFunction(this, symbol);
+      fn = rho.findFunction(this, symbol);
       if(fn == null) {
         throw new EvalException("could not find function '%s'", symbol.getPrintName());      
       }
+      call.cacheFunction(rho, fn);
       return fn;
     } else {
       SEXP evaluated = evaluate(functionExp, rho).force(this);
@@ -48,17 +48,25 @@ public class DispatchChain {
       Symbol method = Symbol.get(generic + "." + classes.getElementAsString(i));
       SEXP function = callingEnvironment.findVariable(context, method, CollectionUtils.IS_FUNCTION, true);
       if(function != Symbol.UNBOUND_VALUE) {
-        DispatchChain chain = new DispatchChain(context);
-        chain.classes = classes;
-        chain.generic = generic;
-        chain.method = method.getPrintName();
-        chain.closure = (Closure) function;
-        return chain;
+        return newChain(context, generic, classes, method, (Closure) function);
       }
     }
     return null;
   }
 
+  /**
+   * Creates a chain for a method which has already been resolved
+   */
+  public static DispatchChain newChain(Context context, String generic, Vector classes, Symbol method,
+                                       Closure closure) {
+    DispatchChain chain = new DispatchChain(context);
+    chain.classes = classes;
+    chain.generic = generic;
+    chain.method = method.getPrintName();
+    chain.closure = closure;
+    return chain;
+  }
+
   public void populateEnvironment(Environment rho) {
     rho.setVariable(CLASS, classes);
     rho.setVariable(METHOD, new StringArrayVector(method));
@@ -0,0 +1,17 @@
+package org.renjin.eval;
+
+import org.renjin.sexp.EnvironmentForker;
+
+/**
+ * Implemented by session singletons whose state must be carried over to the sessions
+ * created by {@link Session#fork()}. Singletons which do not implement this interface
+ * are created afresh in the forked session when they are first needed.
+ */
+public interface ForkableSingleton {
+
+  /**
+   * @param forker maps the environments of the parent session to those of the forked session
+   * @return a copy of this singleton for the forked session
+   */
+  Object fork(EnvironmentForker forker);
+}
@@ -0,0 +1,216 @@
+package org.renjin.eval;
+
+import com.google.common.collect.Lists;
+import org.renjin.sexp.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * A precomputed plan for matching the actual arguments of a call to a closure's formals.
+ *
+ * <p>The outcome of the three-pass matching process described in
+ * {@link ClosureDispatcher#matchArguments(PairList, PairList)} depends only on the closure's
+ * formals and the sequence of tags of the actual arguments, not their values. A plan records,
+ * for each formal, which actual argument (if any) was matched, and can be replayed for any
+ * later call with the same formals and the same tag shape without repeating the matching
+ * or allocating an intermediate matched list.</p>
+ *
+ * <p>Plans are cached on the {@link FunctionCall} and validated against the formals and
+ * actual tags on each call, so calls which pass {@code ...} through with varying tags simply
+ * recompute their plan.</p>
+ */
+public class MatchPlan {
+
+  private static final int MISSING = -1;
+  private static final int ELLIPSES = -2;
+
+  private final PairList formals;
+  private final SEXP[] actualTags;
+
+  private final Symbol[] formalNames;
+  private final SEXP[] defaultValues;
+
+  /**
+   * For each formal, the index of the matched actual argument, or
+   * {@code MISSING} or {@code ELLIPSES}
+   */
+  private final int[] formalToActual;
+
+  /**
+   * The indices of the actual arguments matched to {@code ...}, in order
+   */
+  private final int[] ellipsesActuals;
+
+  private MatchPlan(PairList formals, SEXP[] actualTags, Symbol[] formalNames, SEXP[] defaultValues,
+                    int[] formalToActual, int[] ellipsesActuals) {
+    this.formals = formals;
+    this.actualTags = actualTags;
+    this.formalNames = formalNames;
+    this.defaultValues = defaultValues;
+    this.formalToActual = formalToActual;
+    this.ellipsesActuals = ellipsesActuals;
+  }
+
+  /**
+   * @return true if this plan can be replayed for the given formals and actuals.
+   */
+  public boolean matches(PairList formals, PairList actuals) {
+    if(this.formals != formals) {
+      return false;
+    }
+    int i = 0;
+    for(PairList.Node node : actuals.nodes()) {
+      if(i == actualTags.length || actualTags[i] != node.getRawTag()) {
+        return false;
+      }
+      i++;
+    }
+    return i == actualTags.length;
+  }
+
+  /**
+   * Binds the actual arguments to the formals in {@code innerEnv}, as planned.
+   */
+  public void bind(PairList actuals, Environment innerEnv) {
+    SEXP[] values = new SEXP[actualTags.length];
+    int i = 0;
+    for(PairList.Node node : actuals.nodes()) {
+      values[i++] = node.getValue();
+    }
+
+    for(int formal=0;formal!=formalNames.length;++formal) {
+      int actual = formalToActual[formal];
+      SEXP value;
+      if(actual == ELLIPSES) {
+        PromisePairList.Builder promises = new PromisePairList.Builder();
+        for(int j : ellipsesActuals) {
+          promises.add(actualTags[j], values[j]);
+        }
+        value = promises.build();
+      } else if(actual == MISSING) {
+        if(defaultValues[formal] != Symbol.MISSING_ARG) {
+          value = Promise.repromise(innerEnv, defaultValues[formal]);
+        } else {
+          value = Symbol.MISSING_ARG;
+        }
+      } else {
+        value = values[actual];
+      }
+      innerEnv.setVariable(formalNames[formal], value);
+    }
+  }
+
+  /**
+   * Computes a new plan for matching {@code actuals} to {@code formals}, following the same
+   * rules as {@link ClosureDispatcher#matchArguments(PairList, PairList)}.
+   *
+   * @return the plan, or {@code null} if the actuals have tags which are not symbols
+   * and so cannot be planned.
+   * @throws EvalException if the arguments cannot be matched.
+   */
+  public static MatchPlan compute(PairList formals, PairList actuals) {
+
+    List<PairList.Node> actualNodes = Lists.newArrayList(actuals.nodes());
+    SEXP[] actualTags = new SEXP[actualNodes.size()];
+    for(int i=0;i!=actualTags.length;++i) {
+      SEXP tag = actualNodes.get(i).getRawTag();
+      if(tag != Null.INSTANCE && !(tag instanceof Symbol)) {
+        return null;
+      }
+      actualTags[i] = tag;
+    }
+
+    List<PairList.Node> formalNodes = Lists.newArrayList(formals.nodes());
+    int formalCount = formalNodes.size();
+    Symbol[] formalNames = new Symbol[formalCount];
+    SEXP[] defaultValues = new SEXP[formalCount];
+    int[] formalToActual = new int[formalCount];
+    for(int i=0;i!=formalCount;++i) {
+      formalNames[i] = formalNodes.get(i).getTag();
+      defaultValues[i] = formalNodes.get(i).getValue();
+      formalToActual[i] = MISSING;
+    }
+
+    List<Integer> unmatchedActuals = Lists.newArrayList();
+    for(int i=0;i!=actualTags.length;++i) {
+      unmatchedActuals.add(i);
+    }
+    List<Integer> unmatchedFormals = Lists.newArrayList();
+    for(int i=0;i!=formalCount;++i) {
+      unmatchedFormals.add(i);
+    }
+
+    // do exact matching
+    for(ListIterator<Integer> formalIt = unmatchedFormals.listIterator(); formalIt.hasNext(); ) {
+      int formal = formalIt.next();
+      String name = formalNames[formal].getPrintName();
+      Integer match = null;
+      for(Integer actual : unmatchedActuals) {
+        if(actualTags[actual] instanceof Symbol && ((Symbol) actualTags[actual]).getPrintName().equals(name)) {
+          if(match != null) {
+            throw new EvalException(String.format("Multiple named values provided for argument '%s'", name));
+          }
+          match = actual;
+        }
+      }
+      if(match != null) {
+        formalToActual[formal] = match;
+        formalIt.remove();
+        unmatchedActuals.remove(match);
+      }
+    }
+
+    // do partial matching
+    for(Iterator<Integer> actualIt = unmatchedActuals.iterator(); actualIt.hasNext(); ) {
+      int actual = actualIt.next();
+      if(actualTags[actual] instanceof Symbol) {
+        String prefix = ((Symbol) actualTags[actual]).getPrintName();
+        List<Integer> matches = Lists.newArrayList();
+        for(Integer formal : unmatchedFormals) {
+          if(formalNames[formal].getPrintName().startsWith(prefix)) {
+            matches.add(formal);
+          }
+        }
+        if(matches.size() == 1) {
+          formalToActual[matches.get(0)] = actual;
+          actualIt.remove();
+          unmatchedFormals.remove(matches.get(0));
+
+        } else if(matches.size() > 1) {
+          StringBuilder names = new StringBuilder();
+          for(Integer formal : matches) {
+            if(names.length() > 0) {
+              names.append(", ");
+            }
+            names.append(formalNames[formal].getPrintName());
+          }
+          throw new EvalException(String.format("Provided argument '%s' matches multiple named formal arguments: %s",
+              prefix, names));
+        }
+      }
+    }
+
+    // match any unnamed args positionally
+    int[] ellipsesActuals = new int[0];
+    int next = 0;
+    for(Integer formal : unmatchedFormals) {
+      if(formalNames[formal] == Symbols.ELLIPSES) {
+        ellipsesActuals = new int[unmatchedActuals.size() - next];
+        for(int j=0;j!=ellipsesActuals.length;++j) {
+          ellipsesActuals[j] = unmatchedActuals.get(next++);
+        }
+        formalToActual[formal] = ELLIPSES;
+
+      } else if(next < unmatchedActuals.size() && actualTags[unmatchedActuals.get(next)] == Null.INSTANCE) {
+        formalToActual[formal] = unmatchedActuals.get(next++);
+      }
+    }
+    if(next < unmatchedActuals.size()) {
+      throw new EvalException(String.format("Unmatched positional arguments"));
+    }
+
+    return new MatchPlan(formals, actualTags, formalNames, defaultValues, formalToActual, ellipsesActuals);
+  }
+}
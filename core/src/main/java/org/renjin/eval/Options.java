@@ -4,6 +4,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.renjin.sexp.AtomicVector;
+import org.renjin.sexp.EnvironmentForker;
 import org.renjin.sexp.IntArrayVector;
 import org.renjin.sexp.LogicalArrayVector;
 import org.renjin.sexp.Null;
@@ -17,7 +18,7 @@ import com.google.common.collect.Maps;
  * @author Alex
  *
  */
-public class Options {
+public class Options implements ForkableSingleton {
   private Map<String, SEXP> map;
 
   public Options() {
@@ -58,4 +59,14 @@ public class Options {
     return map.keySet();
   }
 
+  @Override
+  public Options fork(EnvironmentForker forker) {
+    Options options = new Options();
+    options.map.clear();
+    for(Map.Entry<String, SEXP> option : map.entrySet()) {
+      options.map.put(option.getKey(), forker.translate(option.getValue()));
+    }
+    return options;
+  }
+
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemManager;
+import org.renjin.compiler.TieredCompiler;
 import org.renjin.compiler.pipeline.SimpleVectorPipeliner;
 import org.renjin.compiler.pipeline.VectorPipeliner;
 import org.renjin.primitives.io.connections.ConnectionTable;
@@ -81,6 +82,10 @@ public class Session {
   
   private VectorPipeliner vectorPipeliner;
 
+  private TieredCompiler tieredCompiler;
+
+  private StringPool stringPool;
+
   /**
    * Whether the result of the evaluation should be "invisible" in a
    * REPL
@@ -107,12 +112,67 @@ public class Session {
       vectorPipeliner = new SimpleVectorPipeliner();
     }
 
+    if(bindings.containsKey(TieredCompiler.class)) {
+      tieredCompiler = (TieredCompiler) bindings.get(TieredCompiler.class);
+    } else {
+      tieredCompiler = TieredCompiler.fromSystemProperties();
+    }
+
+    if(bindings.containsKey(StringPool.class)) {
+      stringPool = (StringPool) bindings.get(StringPool.class);
+    } else {
+      stringPool = StringPool.fromSystemProperties();
+    }
+
     // TODO(alex)
     // several packages rely on the presence of .Random.seed in the global
     // even though it's an implementation detail.
     globalEnvironment.setVariable(".Random.seed", IntVector.valueOf(1)); 
   }
 
+  private Session(Session parent, EnvironmentForker forker) {
+    this.fileSystemManager = parent.fileSystemManager;
+    this.homeDirectory = parent.homeDirectory;
+    this.workingDirectory = parent.workingDirectory;
+    this.systemEnvironment = Maps.newHashMap(parent.systemEnvironment);
+    this.globalEnvironment = forker.fork(parent.globalEnvironment);
+    this.baseEnvironment = globalEnvironment.getBaseEnvironment();
+    this.baseNamespaceEnv = forker.fork(parent.baseNamespaceEnv);
+    this.topLevelContext = new Context(this);
+
+    this.namespaceRegistry = parent.namespaceRegistry.fork(forker, topLevelContext);
+    this.securityManager = parent.securityManager;
+    this.vectorPipeliner = parent.vectorPipeliner;
+    this.tieredCompiler = parent.tieredCompiler;
+    this.stringPool = parent.stringPool;
+    this.commandLineArguments = parent.commandLineArguments;
+
+    for(Map.Entry<Class, Object> singleton : parent.singletons.entrySet()) {
+      if(singleton.getValue() instanceof ForkableSingleton) {
+        singletons.put(singleton.getKey(), ((ForkableSingleton) singleton.getValue()).fork(forker));
+      }
+    }
+  }
+
+  /**
+   * Creates a new session which shares the namespaces, packages and global environment
+   * of this session without copying them.
+   *
+   * <p>The environments of the forked session are copy-on-write views of this session's
+   * environments: assignments made in the forked session are not visible to this session,
+   * but assignments made in this session to bindings which the forked session has not
+   * yet read or replaced are. This session should therefore be treated as a read-only
+   * template once it has been forked: it may, for example, be loaded with the packages needed
+   * to serve requests, and then forked for each request.</p>
+   *
+   * <p>The forked session has its own connections, finalizers and random number generator,
+   * and begins with copies of the options and of the state of singletons which implement
+   * {@link ForkableSingleton}.</p>
+   */
+  public Session fork() {
+    return new Session(this, new EnvironmentForker());
+  }
+
   /** 
    * Sets the paths in which to search for libraries.
    *
@@ -181,6 +241,20 @@ public class Session {
     return vectorPipeliner;
   }
   
+  /**
+   * @return the compiler responsible for compiling frequently invoked closures. 
+   */
+  public TieredCompiler getTieredCompiler() {
+    return tieredCompiler;
+  }
+
+  /**
+   * @return the pool used to share equal strings read into this session
+   */
+  public StringPool getStringPool() {
+    return stringPool;
+  }
+
   public void setCommandLineArguments(String executableName, String... arguments) {
     commandLineArguments = new StringArrayVector(Lists.asList(executableName, arguments));
   }
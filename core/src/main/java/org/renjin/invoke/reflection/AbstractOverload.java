@@ -103,11 +103,15 @@ public abstract class AbstractOverload {
     return varArgs;
   }
   
+  /**
+   * @return true if this overload can be called with {@code count} R arguments
+   */
+  public boolean acceptsArgCount(int count) {
+    return count == baseArgCount || (varArgs && count > baseArgCount);
+  }
+
   public boolean accept(List<SEXP> args) {
-    if(args.size() < baseArgCount) {
-      return false;
-    }
-    if(!varArgs && args.size() > baseArgCount) {
+    if(!acceptsArgCount(args.size())) {
       return false;
     }
     for(int i=0; i!=baseArgCount;++i) {
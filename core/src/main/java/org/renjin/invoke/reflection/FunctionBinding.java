@@ -12,7 +12,6 @@ import org.renjin.sexp.ListVector;
 import org.renjin.sexp.PairList;
 import org.renjin.sexp.SEXP;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -24,12 +23,29 @@ public class FunctionBinding {
 
   private List<Overload> overloads = Lists.newArrayList();
   private int maxArgCount;
-  
+
+  /**
+   * The overloads which can be called with each number of arguments, in order of preference.
+   * The last element holds those which can be called with more than {@code maxArgCount} arguments.
+   */
+  private Overload[][] overloadsByArgCount;
+
   public FunctionBinding(Iterable<Method> overloads) {
     for(Method method : overloads) {
       addOverload(method);
     }
     AbstractOverload.sortOverloads(this.overloads);
+
+    overloadsByArgCount = new Overload[maxArgCount + 2][];
+    for(int argCount = 0; argCount != overloadsByArgCount.length; ++argCount) {
+      List<Overload> candidates = Lists.newArrayList();
+      for(Overload overload : this.overloads) {
+        if(overload.acceptsArgCount(argCount)) {
+          candidates.add(overload);
+        }
+      }
+      overloadsByArgCount[argCount] = candidates.toArray(new Overload[candidates.size()]);
+    }
   }
 
   /**
@@ -56,20 +72,30 @@ public class FunctionBinding {
   }
 
   public static class Overload extends AbstractOverload {
+
+    /**
+     * The number of calls made through reflection before a {@link MethodInvoker} is
+     * generated for the method. Generating and loading a class costs far more than a
+     * reflective call, so this is only worthwhile for methods which are called often.
+     */
+    private static final int GENERATE_THRESHOLD = 16;
+
     private Method method;
     private Converter returnValueConverter;
-    
+
+    private MethodInvoker invoker;
+    private int reflectiveCallCount;
+
     public Overload(Method method) {
       super(method.getParameterTypes(),
             method.getParameterAnnotations(), 
             method.isVarArgs());
       this.method = method;
       this.returnValueConverter = Converters.get(method.getReturnType());    
-    
-      // workaround reflection problem calling 
-      // public methods on private subclasses
-      // see http://download.oracle.com/javase/tutorial/reflect/member/methodTrouble.html
-      this.method.setAccessible(true);
+      this.invoker = InvokerGenerator.reflective(method);
+      if(!InvokerGenerator.canGenerate(method)) {
+        this.reflectiveCallCount = -1;
+      }
     }
     
     public Class getDeclaringClass() {
@@ -82,21 +108,28 @@ public class FunctionBinding {
     
     public SEXP invoke(Context context, Object instance, List<SEXP> args) {
       Object[] converted = convertArguments(context, args);
+      Object result;
       try {
-        Object result = method.invoke(instance, converted);
-        return returnValueConverter.convertToR(result);
-        
-      } catch (IllegalArgumentException e) {
-        throw new RuntimeException(e);
-      } catch (IllegalAccessException e) {
+        result = invoker().invoke(instance, converted);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
         throw new RuntimeException("Exception invoking " + method, e);
-      } catch (InvocationTargetException e) {
-        if(e.getCause() instanceof RuntimeException) {
-          throw (RuntimeException)e.getCause();
-        } else {
-          throw new RuntimeException(e);
+      }
+      return returnValueConverter.convertToR(result);
+    }
+
+    private MethodInvoker invoker() {
+      // Races between threads may at worst generate the invoker more than once
+      if(reflectiveCallCount >= 0 && ++reflectiveCallCount > GENERATE_THRESHOLD) {
+        reflectiveCallCount = -1;
+        try {
+          invoker = InvokerGenerator.generate(method);
+        } catch (LinkageError e) {
+          // the class could not be defined: keep calling through reflection
         }
       }
+      return invoker;
     }
     
     @Override
@@ -135,8 +168,9 @@ public class FunctionBinding {
   }
 
   private SEXP invoke(Object instance, Context context, List<SEXP> args) {
-    // find overload
-    for(Overload overload : overloads) {
+    // find overload, considering only those which can take this number of arguments
+    Overload[] candidates = overloadsByArgCount[Math.min(args.size(), maxArgCount + 1)];
+    for(Overload overload : candidates) {
       if(overload.accept(args)) {
         return overload.invoke(context, instance, args);
       }
@@ -0,0 +1,242 @@
+package org.renjin.invoke.reflection;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Provides {@link MethodInvoker}s for JVM methods.
+ *
+ * <p>{@link java.lang.reflect.Method#invoke(Object, Object...)} checks access and the
+ * types of the arguments on every call, and cannot be inlined by the JVM. For methods which
+ * are called often, we instead generate a class which unboxes the arguments and calls
+ * the method directly, that is, something like:</p>
+ *
+ * <pre>
+ *   public Object invoke(Object instance, Object[] args) {
+ *     return Double.valueOf(((Scorer)instance).score((String)args[0], ((Number)args[1]).intValue()));
+ *   }
+ * </pre>
+ */
+public class InvokerGenerator {
+
+  private static final AtomicInteger CLASS_COUNT = new AtomicInteger(0);
+
+  private static final String INVOKER_NAME = Type.getInternalName(MethodInvoker.class);
+
+  /**
+   * @return an invoker which calls {@code method} through reflection
+   */
+  public static MethodInvoker reflective(Method method) {
+    // workaround reflection problem calling
+    // public methods on private subclasses
+    // see http://download.oracle.com/javase/tutorial/reflect/member/methodTrouble.html
+    method.setAccessible(true);
+    return new ReflectiveInvoker(method);
+  }
+
+  /**
+   * @return true if a {@link MethodInvoker} which calls {@code method} directly can be generated.
+   * The method, its declaring class, and the types of its parameters must all be public.
+   */
+  public static boolean canGenerate(Method method) {
+    if(!Modifier.isPublic(method.getModifiers()) || !isPublic(method.getDeclaringClass())) {
+      return false;
+    }
+    if(method.getDeclaringClass().isInterface() && Modifier.isStatic(method.getModifiers())) {
+      // static interface methods cannot be invoked from bytecode of our version
+      return false;
+    }
+    for(Class parameterType : method.getParameterTypes()) {
+      if(!isPublic(parameterType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPublic(Class clazz) {
+    while(clazz.isArray()) {
+      clazz = clazz.getComponentType();
+    }
+    return clazz.isPrimitive() || Modifier.isPublic(clazz.getModifiers());
+  }
+
+  /**
+   * Generates and loads a class which calls {@code method} directly.
+   *
+   * @param method a method for which {@link #canGenerate(Method)} is true
+   */
+  public static MethodInvoker generate(Method method) {
+    String className = "Invoker" + CLASS_COUNT.incrementAndGet();
+    byte[] classBytes = generateClass(className, method);
+
+    Class invokerClass = new InvokerClassLoader(method.getDeclaringClass().getClassLoader())
+        .defineClass(className, classBytes);
+    try {
+      return (MethodInvoker) invokerClass.newInstance();
+    } catch (Exception e) {
+      throw new RuntimeException("Could not instantiate invoker for " + method, e);
+    }
+  }
+
+  private static byte[] generateClass(String className, Method method) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_6, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, "java/lang/Object",
+        new String[] { INVOKER_NAME });
+
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(1, 1);
+    mv.visitEnd();
+
+    mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", null,
+        new String[] { "java/lang/Exception" });
+    mv.visitCode();
+
+    Class declaringClass = method.getDeclaringClass();
+    String owner = Type.getInternalName(declaringClass);
+    boolean isStatic = Modifier.isStatic(method.getModifiers());
+    if(!isStatic) {
+      mv.visitVarInsn(ALOAD, 1);
+      mv.visitTypeInsn(CHECKCAST, owner);
+    }
+    Class[] parameterTypes = method.getParameterTypes();
+    for(int i = 0; i != parameterTypes.length; ++i) {
+      mv.visitVarInsn(ALOAD, 2);
+      mv.visitLdcInsn(i);
+      mv.visitInsn(AALOAD);
+      unbox(mv, parameterTypes[i]);
+    }
+
+    int opcode;
+    if(isStatic) {
+      opcode = INVOKESTATIC;
+    } else if(declaringClass.isInterface()) {
+      opcode = INVOKEINTERFACE;
+    } else {
+      opcode = INVOKEVIRTUAL;
+    }
+    mv.visitMethodInsn(opcode, owner, method.getName(), Type.getMethodDescriptor(method));
+
+    box(mv, method.getReturnType());
+    mv.visitInsn(ARETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  /**
+   * Converts the argument on top of the stack to the parameter type.
+   * Primitive numeric parameters accept any {@link Number}, as the converters
+   * do not necessarily produce the exact wrapper type.
+   */
+  private static void unbox(MethodVisitor mv, Class type) {
+    if(type == boolean.class) {
+      mv.visitTypeInsn(CHECKCAST, "java/lang/Boolean");
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z");
+    } else if(type == char.class) {
+      mv.visitTypeInsn(CHECKCAST, "java/lang/Character");
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Character", "charValue", "()C");
+    } else if(type.isPrimitive()) {
+      mv.visitTypeInsn(CHECKCAST, "java/lang/Number");
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Number", type.getName() + "Value",
+          "()" + Type.getDescriptor(type));
+    } else if(type != Object.class) {
+      mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+    }
+  }
+
+  /**
+   * Converts the return value on top of the stack to an {@code Object}
+   */
+  private static void box(MethodVisitor mv, Class type) {
+    if(type == void.class) {
+      mv.visitInsn(ACONST_NULL);
+    } else if(type.isPrimitive()) {
+      String wrapper = Type.getInternalName(wrapperType(type));
+      mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + Type.getDescriptor(type) + ")L" + wrapper + ";");
+    }
+  }
+
+  private static Class wrapperType(Class type) {
+    if(type == boolean.class) {
+      return Boolean.class;
+    } else if(type == char.class) {
+      return Character.class;
+    } else if(type == byte.class) {
+      return Byte.class;
+    } else if(type == short.class) {
+      return Short.class;
+    } else if(type == int.class) {
+      return Integer.class;
+    } else if(type == long.class) {
+      return Long.class;
+    } else if(type == float.class) {
+      return Float.class;
+    } else {
+      return Double.class;
+    }
+  }
+
+  /**
+   * Defines a generated invoker in a loader which can see both the invoked method's
+   * class and the {@link MethodInvoker} interface.
+   */
+  private static class InvokerClassLoader extends ClassLoader {
+
+    public InvokerClassLoader(ClassLoader parent) {
+      super(parent == null ? InvokerGenerator.class.getClassLoader() : parent);
+    }
+
+    public Class defineClass(String name, byte[] b) {
+      return defineClass(name, b, 0, b.length);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if(name.equals(MethodInvoker.class.getName())) {
+        return MethodInvoker.class;
+      }
+      return super.loadClass(name, resolve);
+    }
+  }
+
+  private static class ReflectiveInvoker implements MethodInvoker {
+    private final Method method;
+
+    public ReflectiveInvoker(Method method) {
+      this.method = method;
+    }
+
+    @Override
+    public Object invoke(Object instance, Object[] arguments) {
+      try {
+        return method.invoke(instance, arguments);
+
+      } catch (IllegalArgumentException e) {
+        throw new RuntimeException(e);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException("Exception invoking " + method, e);
+      } catch (InvocationTargetException e) {
+        if(e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException)e.getCause();
+        } else {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+  }
+}
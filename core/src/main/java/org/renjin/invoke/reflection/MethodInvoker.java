@@ -0,0 +1,17 @@
+package org.renjin.invoke.reflection;
+
+/**
+ * Calls a JVM method with arguments which have already been converted from R values.
+ *
+ * <p>This interface must be public, as it is implemented by the classes which
+ * {@link InvokerGenerator} defines in their own class loaders.</p>
+ */
+public interface MethodInvoker {
+
+  /**
+   * @param instance the instance on which to invoke the method, or {@code null} if the method is static
+   * @param arguments the converted arguments
+   * @return the method's return value, boxed if primitive, or {@code null} if the method is {@code void}
+   */
+  Object invoke(Object instance, Object[] arguments) throws Exception;
+}
@@ -43,11 +43,18 @@ public class Converters  {
       return BooleanArrayConverter.INSTANCE;
       
     } else if(IntegerArrayConverter.accept(clazz)) {
-      return IntegerArrayConverter.INSTANCE;
+      return new IntegerArrayConverter(clazz);
       
     }else if(DoubleArrayConverter.accept(clazz)) {
       return new DoubleArrayConverter(clazz);
       
+    } else if(DoubleBufferConverter.accept(clazz)) {
+      return DoubleBufferConverter.INSTANCE;
+
+    } else if(IntBufferConverter.accept(clazz)) {
+      return IntBufferConverter.INSTANCE;
+
+
     }else if(ObjectConverter.accept(clazz)) {
       return ObjectConverter.INSTANCE;
       
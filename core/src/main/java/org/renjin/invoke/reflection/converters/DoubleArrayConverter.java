@@ -8,6 +8,11 @@ import java.lang.reflect.Array;
 
 /**
  * Converts between {@code double[]} and {@link DoubleArrayVector}s
+ *
+ * <p>Arrays of primitive {@code double}s are copied in both directions with a single
+ * bulk copy, as the JVM method may modify or keep the array, and R vectors must never
+ * change once created. Use a {@code DoubleBuffer} to share storage without copying:
+ * see {@link DoubleBufferConverter}.</p>
  */
 public class DoubleArrayConverter implements Converter<Object> {
 
@@ -29,12 +34,14 @@ public class DoubleArrayConverter implements Converter<Object> {
   public SEXP convertToR(Object value) {
     if (value == null) {
       return new DoubleArrayVector(DoubleVector.NA);
+    } else if (value instanceof double[]) {
+      return new DoubleArrayVector((double[]) value);
     } else {
       double dArray[] = new double[Array.getLength(value)];
       for (int i = 0; i < Array.getLength(value); i++) {
         dArray[i] = ((Number)Array.get(value, i)).doubleValue();
       }
-      return new DoubleArrayVector(dArray);
+      return DoubleArrayVector.unsafe(dArray);
     }
   }
 
@@ -54,6 +61,8 @@ public class DoubleArrayConverter implements Converter<Object> {
   public Object convertToJava(SEXP value) {  
     if(!(value instanceof AtomicVector)) {
       throw new EvalException("It's not an AtomicVector", value.getTypeName());
+    } else if(componentClass == Double.TYPE) {
+      return ((AtomicVector) value).toDoubleArray();
     } else if(value.length() < 1) {
       //to keep its type info
       return new Double[0];
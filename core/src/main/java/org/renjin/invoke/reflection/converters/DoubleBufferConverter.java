@@ -0,0 +1,84 @@
+package org.renjin.invoke.reflection.converters;
+
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.*;
+
+import java.nio.DoubleBuffer;
+
+
+/**
+ * Converts between {@link DoubleBuffer}s and R {@code double} vectors.
+ *
+ * <p>A read-only buffer returned from a JVM method becomes a {@link DoubleBufferVector} which
+ * is a view of the buffer's remaining elements, so that large, possibly direct or memory-mapped,
+ * buffers are never copied onto the heap. The remaining elements of a writable buffer are
+ * copied, as the JVM code could otherwise change the vector later. A method opts in to sharing
+ * by returning {@link DoubleBuffer#asReadOnlyBuffer()}, and so undertakes not to modify the
+ * elements of the buffer afterwards.</p>
+ *
+ * <p>Vectors are passed to {@code DoubleBuffer} parameters as read-only views of their
+ * storage.</p>
+ */
+public class DoubleBufferConverter implements Converter<DoubleBuffer> {
+
+  public static final DoubleBufferConverter INSTANCE = new DoubleBufferConverter();
+
+  private DoubleBufferConverter() {
+  }
+
+  public static boolean accept(Class clazz) {
+    return DoubleBuffer.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public SEXP convertToR(DoubleBuffer value) {
+    if (value == null) {
+      return new DoubleArrayVector(DoubleVector.NA);
+    } else if(value.isReadOnly()) {
+      DoubleBuffer view = value.slice();
+      return new DoubleBufferVector(view, view.remaining());
+    } else {
+      double[] array = new double[value.remaining()];
+      value.duplicate().get(array);
+      return DoubleArrayVector.unsafe(array);
+    }
+  }
+
+  @Override
+  public boolean acceptsSEXP(SEXP exp) {
+    return  exp instanceof DoubleVector ||
+            exp instanceof IntVector ||
+            exp instanceof LogicalVector;
+  }
+
+  @Override
+  public int getSpecificity() {
+    return Specificity.DOUBLE;
+  }
+
+  @Override
+  public Object convertToJava(SEXP value) {
+    if(value instanceof DoubleBufferVector) {
+      return ((DoubleBufferVector) value).asReadOnlyBuffer();
+    } else if(value instanceof AtomicVector) {
+      return DoubleBuffer.wrap(storage((AtomicVector) value)).asReadOnlyBuffer();
+    } else {
+      throw new EvalException("It's not an AtomicVector", value.getTypeName());
+    }
+  }
+
+  /**
+   * @return the storage of {@code vector} if it is a {@code DoubleArrayVector}, or
+   * otherwise a copy of its elements
+   */
+  private static double[] storage(AtomicVector vector) {
+    if(vector instanceof DoubleArrayVector) {
+      // the JVM method may keep a reference to the buffer, so from now on
+      // the vector may never be updated in place
+      ((DoubleArrayVector) vector).markShared();
+      return ((DoubleArrayVector) vector).toDoubleArrayUnsafe();
+    } else {
+      return vector.toDoubleArray();
+    }
+  }
+}
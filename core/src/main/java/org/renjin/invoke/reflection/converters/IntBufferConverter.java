@@ -0,0 +1,77 @@
+package org.renjin.invoke.reflection.converters;
+
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.*;
+
+import java.nio.IntBuffer;
+
+
+/**
+ * Converts between {@link IntBuffer}s and R {@code integer} vectors.
+ *
+ * <p>As for {@link DoubleBufferConverter}, read-only buffers returned from JVM methods
+ * become {@link IntBufferVector} views, while the elements of writable buffers are copied.
+ * Vectors are passed to {@code IntBuffer} parameters as read-only views of their
+ * storage.</p>
+ */
+public class IntBufferConverter implements Converter<IntBuffer> {
+
+  public static final IntBufferConverter INSTANCE = new IntBufferConverter();
+
+  private IntBufferConverter() {
+  }
+
+  public static boolean accept(Class clazz) {
+    return IntBuffer.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public SEXP convertToR(IntBuffer value) {
+    if (value == null) {
+      return new IntArrayVector(IntVector.NA);
+    } else if(value.isReadOnly()) {
+      IntBuffer view = value.slice();
+      return new IntBufferVector(view, view.remaining());
+    } else {
+      int[] array = new int[value.remaining()];
+      value.duplicate().get(array);
+      return IntArrayVector.unsafe(array);
+    }
+  }
+
+  @Override
+  public boolean acceptsSEXP(SEXP exp) {
+    return exp instanceof IntVector;
+  }
+
+  @Override
+  public int getSpecificity() {
+    return Specificity.INTEGER;
+  }
+
+  @Override
+  public Object convertToJava(SEXP value) {
+    if(value instanceof IntBufferVector) {
+      return ((IntBufferVector) value).asReadOnlyBuffer();
+    } else if(value instanceof IntVector) {
+      return IntBuffer.wrap(storage((IntVector) value)).asReadOnlyBuffer();
+    } else {
+      throw new EvalException("It's not an integer vector", value.getTypeName());
+    }
+  }
+
+  /**
+   * @return the storage of {@code vector} if it is an {@code IntArrayVector}, or
+   * otherwise a copy of its elements
+   */
+  private static int[] storage(IntVector vector) {
+    if(vector instanceof IntArrayVector) {
+      // the JVM method may keep a reference to the buffer, so from now on
+      // the vector may never be updated in place
+      ((IntArrayVector) vector).markShared();
+      return ((IntArrayVector) vector).toIntArrayUnsafe();
+    } else {
+      return vector.toIntArray();
+    }
+  }
+}
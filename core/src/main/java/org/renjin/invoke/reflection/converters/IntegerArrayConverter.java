@@ -7,28 +7,37 @@ import org.renjin.sexp.IntVector;
 import org.renjin.sexp.SEXP;
 
 import java.lang.reflect.Array;
+import java.util.Arrays;
 
 
 /**
  * Converts between JVM {@code int[]} arrays and R {@code integer} vectors
+ *
+ * <p>Arrays of primitive {@code int}s are copied in both directions, in the same way
+ * as by {@link DoubleArrayConverter}.</p>
  */
 public class IntegerArrayConverter implements Converter<Object> {
 
-  public static final IntegerArrayConverter INSTANCE = new IntegerArrayConverter();
+  public static final IntegerArrayConverter INSTANCE = new IntegerArrayConverter(Integer[].class);
 
-  private IntegerArrayConverter() {
+  private final Class componentClass;
+
+  public IntegerArrayConverter(Class clazz) {
+    this.componentClass = clazz.getComponentType();
   }
 
   @Override
   public SEXP convertToR(Object value) {
     if (value == null) {
       return new IntArrayVector(IntArrayVector.NA);
+    } else if (value instanceof int[]) {
+      return new IntArrayVector((int[]) value);
     } else {
       int iArray[] = new int[Array.getLength(value)];
       for (int i = 0; i < Array.getLength(value); i++) {
         iArray[i] = ((Number)Array.get(value, i)).intValue();
       }
-      return new IntArrayVector(iArray);
+      return IntArrayVector.unsafe(iArray);
     }
   }
 
@@ -54,6 +63,8 @@ public class IntegerArrayConverter implements Converter<Object> {
   public Object convertToJava(SEXP value) {  
     if(!(value instanceof AtomicVector)) {
       throw new EvalException("It's not an AtomicVector", value.getTypeName());
+    } else if(componentClass == Integer.TYPE) {
+      return toIntArray((IntVector) value);
     } else if(value.length() < 1) {
       //to keep its type info
       return new Integer[0];
@@ -66,4 +77,16 @@ public class IntegerArrayConverter implements Converter<Object> {
     }
     return values;
   }
+
+  /**
+   * @return a copy of the elements of {@code vector}
+   */
+  private static int[] toIntArray(IntVector vector) {
+    if(vector instanceof IntArrayVector) {
+      int[] storage = ((IntArrayVector) vector).toIntArrayUnsafe();
+      return Arrays.copyOf(storage, storage.length);
+    } else {
+      return vector.toIntArray();
+    }
+  }
 }
@@ -1,31 +1,41 @@
 package org.renjin.methods;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.renjin.eval.Calls;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.eval.ForkableSingleton;
 import org.renjin.primitives.Evaluation;
 import org.renjin.invoke.annotations.SessionScoped;
 import org.renjin.sexp.Closure;
 import org.renjin.sexp.Environment;
+import org.renjin.sexp.EnvironmentForker;
 import org.renjin.sexp.Function;
 import org.renjin.sexp.FunctionCall;
 import org.renjin.sexp.HashFrame;
 import org.renjin.sexp.ListVector;
+import org.renjin.sexp.Logical;
+import org.renjin.sexp.LogicalVector;
 import org.renjin.sexp.Null;
 import org.renjin.sexp.PairList;
 import org.renjin.sexp.PrimitiveFunction;
+import org.renjin.sexp.S4Object;
 import org.renjin.sexp.SEXP;
 import org.renjin.sexp.StringArrayVector;
 import org.renjin.sexp.StringVector;
 import org.renjin.sexp.Symbol;
 import org.renjin.sexp.Symbols;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 @SessionScoped
-public class MethodDispatch {
+public class MethodDispatch implements ForkableSingleton {
   
 
   public static final Symbol DOT_METHOD = Symbol.get(".Method");
@@ -76,6 +86,13 @@ public class MethodDispatch {
   public static final Symbol R_sigargs = Symbol.get(".SigArgs");
   public static final Symbol R_siglength = Symbol.get(".SigLength");
 
+  private static final Symbol s_classTable = Symbol.get(".classTable");
+  private static final Symbol s_hasDuplicateClassNames = Symbol.get("#HAS_DUPLICATE_CLASS_NAMES");
+  private static final Symbol s_contains = Symbol.get("contains");
+  private static final Symbol s_simple = Symbol.get("simple");
+  private static final Symbol s_group = Symbol.get("group");
+  private static final Symbol s_signature = Symbol.get("signature");
+
   public static final StringVector s_missing = StringVector.valueOf("missing");
 
   /* create and preserve an object that is NOT R_NilValue, and is used
@@ -93,6 +110,21 @@ public class MethodDispatch {
   private HashMap<String, SEXP> extendsTable = Maps.newHashMap();
   private Environment methodsNamespace;
   private boolean tableDispatchEnabled = true;
+
+  /**
+   * The defined methods of each generic, keyed by the generic's {@code .MTable} environment
+   */
+  private final Cache<Environment, S4MethodTable> methodTables = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
+  /**
+   * The superclasses of each class through which methods may be inherited, or {@code null}
+   * if inherited methods for the class must be selected by the R code. The map is cleared
+   * whenever a class definition is added to or removed from {@code .classTable}.
+   */
+  private final HashMap<String, String[]> superclassTable = Maps.newHashMap();
+  private int classTableModCount = -1;
   
   
   
@@ -125,6 +157,18 @@ public class MethodDispatch {
     return methodsNamespace;
   }
 
+  @Override
+  public MethodDispatch fork(EnvironmentForker forker) {
+    MethodDispatch dispatch = new MethodDispatch();
+    dispatch.enabled = enabled;
+    dispatch.tableDispatchEnabled = tableDispatchEnabled;
+    dispatch.methodsNamespace = forker.fork(methodsNamespace);
+    for(Map.Entry<String, SEXP> entry : extendsTable.entrySet()) {
+      dispatch.extendsTable.put(entry.getKey(), forker.translate(entry.getValue()));
+    }
+    return dispatch;
+  }
+
   public SEXP standardGeneric(Context context, Symbol fname, Environment ev,
       SEXP fdef) {
     if(tableDispatchEnabled) {
@@ -197,9 +241,15 @@ public class MethodDispatch {
       buf.append(thisClass.asString());
     }
     ListVector classes = classListBuilder.build();
-    method = ((Environment)mtable).getVariable(buf.toString());
+    String label = buf.toString();
+    method = ((Environment)mtable).getVariable(label);
     if(method == Symbol.UNBOUND_VALUE) {
-      method = do_inherited_table(context, classes, fdef, mtable, (Environment)ev);
+      method = selectInheritedMethod(context, (Closure) fdef, f_env, classes);
+      if(method != null) {
+        ((Environment) mtable).setVariable(label, method);
+      } else {
+        method = do_inherited_table(context, classes, fdef, mtable, (Environment)ev);
+      }
     }
     /* the rest of this is identical to R_standardGeneric;
          hence the f=method to remind us  */
@@ -565,6 +615,128 @@ public class MethodDispatch {
   }
   
   
+  /**
+   * Selects the method inherited by arguments of the given classes from the methods defined
+   * for the generic, as {@code .InheritForDispatch} would, for the common cases of generics
+   * without group generics and of classes which extend their superclasses simply.
+   *
+   * @return the selected method, with its target set to {@code classes}, or {@code null} if the
+   * method must be selected by {@code .InheritForDispatch}
+   */
+  private SEXP selectInheritedMethod(Context context, Closure fdef, Environment f_env, ListVector classes) {
+    if(fdef.getAttribute(s_group).length() > 0) {
+      return null;
+    }
+    SEXP table = f_env.getVariable(R_mtable);
+    SEXP classTable = methodsNamespace == null ? Symbol.UNBOUND_VALUE :
+        methodsNamespace.getVariable(s_classTable).force(context);
+    if(!(table instanceof Environment) || !(classTable instanceof Environment) ||
+        hasDuplicateClassNames((Environment) classTable)) {
+      return null;
+    }
+
+    String[][] superclasses = new String[classes.length()][];
+    for(int i=0;i!=superclasses.length;++i) {
+      superclasses[i] = getSuperclasses((Environment) classTable, (StringVector) classes.getElementAsSEXP(i));
+      if(superclasses[i] == null) {
+        return null;
+      }
+    }
+
+    S4MethodTable methodTable = methodTables.getIfPresent(table);
+    if(methodTable == null) {
+      methodTable = new S4MethodTable((Environment) table);
+      methodTables.put((Environment) table, methodTable);
+    }
+    SEXP method = methodTable.selectInherited(superclasses);
+    if(method == null || method instanceof Environment) {
+      return null;
+    }
+    return withTarget(method, fdef, classes);
+  }
+
+  private static boolean hasDuplicateClassNames(Environment classTable) {
+    SEXP value = classTable.getVariable(s_hasDuplicateClassNames);
+    return !(value instanceof LogicalVector) || value.asLogical() != Logical.FALSE;
+  }
+
+  /**
+   * @return {@code className}, followed by each of its simple superclasses in order of
+   * distance, and then {@code "ANY"}, or {@code null} if the class is not defined in
+   * {@code .classTable} or has superclasses which it does not extend simply.
+   */
+  private String[] getSuperclasses(Environment classTable, StringVector className) {
+    if(classTable.getCumulativeModCount() != classTableModCount) {
+      superclassTable.clear();
+      classTableModCount = classTable.getCumulativeModCount();
+    }
+    String name = className.getElementAsString(0);
+    String packageName = className.getAttributes().getPackage();
+    String key = packageName == null ? name : name + ":" + packageName;
+    if(superclassTable.containsKey(key)) {
+      return superclassTable.get(key);
+    }
+    String[] superclasses = computeSuperclasses(classTable, className);
+    superclassTable.put(key, superclasses);
+    return superclasses;
+  }
+
+  private static String[] computeSuperclasses(Environment classTable, StringVector className) {
+    String name = className.getElementAsString(0);
+    if(name.equals("ANY")) {
+      return new String[] { name };
+    }
+    SEXP classDef = Methods.R_getClassFromCache(className, classTable);
+    if(!(classDef instanceof S4Object)) {
+      return null;
+    }
+    List<String> superclasses = Lists.newArrayList(name);
+    SEXP contains = classDef.getAttribute(s_contains);
+    if(contains instanceof ListVector) {
+      ListVector extensions = (ListVector) contains;
+      for(int i=0;i!=extensions.length();++i) {
+        SEXP extension = extensions.getElementAsSEXP(i);
+        SEXP simple = extension instanceof S4Object ? extension.getAttribute(s_simple) : extension;
+        if(!(simple instanceof LogicalVector) || simple.asLogical() != Logical.TRUE) {
+          return null;
+        }
+        superclasses.add(extensions.getName(i));
+      }
+    } else if(contains != Null.INSTANCE) {
+      return null;
+    }
+    if(!superclasses.contains("ANY")) {
+      superclasses.add("ANY");
+    }
+    return superclasses.toArray(new String[superclasses.size()]);
+  }
+
+  /**
+   * Sets the target of an inherited method to the classes for which it was selected, as
+   * {@code .findInheritedMethods} does before caching the method.
+   */
+  private static SEXP withTarget(SEXP method, Closure fdef, ListVector classes) {
+    SEXP target = method.getAttribute(R_target);
+    if(target == Null.INSTANCE) {
+      return method;
+    }
+    SEXP argNames = fdef.getAttribute(s_signature);
+    int n = Math.min(classes.length(), argNames.length());
+    String[] classNames = new String[n];
+    String[] names = new String[n];
+    String[] packages = new String[n];
+    for(int i=0;i!=n;++i) {
+      classNames[i] = classes.getElementAsSEXP(i).asString();
+      names[i] = ((StringVector) argNames).getElementAsString(i);
+      packages[i] = "methods";
+    }
+    SEXP newTarget = new StringArrayVector(classNames, target.getAttributes().copy()
+        .setNames(new StringArrayVector(names))
+        .set(Symbols.PACKAGE, new StringArrayVector(packages))
+        .build());
+    return method.setAttribute(R_target, newTarget);
+  }
+
   private  SEXP do_inherited_table(Context context, SEXP class_objs, SEXP fdef, SEXP mtable, Environment ev) {
     SEXP fun = methodsNamespace.findFunction(context, Symbol.get(".InheritForDispatch"));
     
@@ -1,9 +1,12 @@
 package org.renjin.methods;
 
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
+import org.renjin.eval.ForkableSingleton;
 import org.renjin.methods.PrimitiveMethodTable.prim_methods_t;
 import org.renjin.sexp.Closure;
+import org.renjin.sexp.EnvironmentForker;
 import org.renjin.sexp.Null;
 import org.renjin.sexp.PrimitiveFunction;
 import org.renjin.sexp.SEXP;
@@ -12,7 +15,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
-public class PrimitiveMethodTable {
+public class PrimitiveMethodTable implements ForkableSingleton {
 
   public enum prim_methods_t {NO_METHODS, NEEDS_RESET, HAS_METHODS, SUPPRESSED} ;
 
@@ -66,5 +69,18 @@ public class PrimitiveMethodTable {
   public void setPrimitiveMethodsAllowed(boolean primitiveMethodsAllowed) {
     this.primitiveMethodsAllowed = primitiveMethodsAllowed;
   }
+
+  @Override
+  public PrimitiveMethodTable fork(EnvironmentForker forker) {
+    PrimitiveMethodTable table = new PrimitiveMethodTable();
+    table.primitiveMethodsAllowed = primitiveMethodsAllowed;
+    for(Map.Entry<PrimitiveFunction, Entry> entry : map.asMap().entrySet()) {
+      Entry copy = table.get(entry.getKey());
+      copy.methods = entry.getValue().methods;
+      copy.generic = (Closure) forker.translate(entry.getValue().generic);
+      copy.methodList = forker.translate(entry.getValue().methodList);
+    }
+    return table;
+  }
  
 }
@@ -0,0 +1,163 @@
+package org.renjin.methods;
+
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.util.Collection;
+
+/**
+ * The methods defined for an S4 generic function, indexed by the classes of their signatures,
+ * from which the method inherited by a new combination of argument classes can be selected
+ * without calling back into {@code .InheritForDispatch}.
+ *
+ * <p>The table mirrors the generic's {@code .MTable} environment, and is rebuilt whenever
+ * a method is added to or removed from that environment.</p>
+ *
+ * <p>Selection follows {@code .findInheritedMethods}: each argument's class is listed with
+ * its superclasses in order of increasing distance, and then {@code "ANY"}, and a method
+ * is preferred to another if each class in its signature is at least as close to the
+ * class of the corresponding argument. Where no single method is preferred to all others,
+ * the selection is left to the R code, which reports the ambiguity.</p>
+ */
+class S4MethodTable {
+
+  private static final String ANY = "ANY";
+
+  private final Environment table;
+  private int modCount;
+
+  private String[][] signatures;
+  private SEXP[] methods;
+
+  S4MethodTable(Environment table) {
+    this.table = table;
+    this.modCount = -1;
+  }
+
+  /**
+   * Selects the method inherited by arguments of the given classes.
+   *
+   * @param superclasses for each argument in the signature of the generic, the class of
+   *                     the argument, followed by each of its superclasses in order of distance,
+   *                     and finally {@code "ANY"}
+   * @return the selected method, or {@code null} if there is no single best method
+   */
+  SEXP selectInherited(String[][] superclasses) {
+    if(table.getCumulativeModCount() != modCount) {
+      build();
+    }
+
+    int nargs = superclasses.length;
+    int[][] positions = new int[signatures.length][];
+    int[] candidates = new int[signatures.length];
+    int candidateCount = 0;
+    int defaultMethod = -1;
+
+    for(int i=0;i!=signatures.length;++i) {
+      int[] distance = positions(signatures[i], superclasses);
+      if(distance != null && !isExact(distance)) {
+        if(isDefault(signatures[i])) {
+          defaultMethod = i;
+        } else {
+          positions[i] = distance;
+          candidates[candidateCount++] = i;
+        }
+      }
+    }
+
+    if(candidateCount == 0) {
+      return defaultMethod == -1 ? null : methods[defaultMethod];
+    }
+
+    int best = -1;
+    for(int i=0;i!=candidateCount;++i) {
+      if(isPreferred(positions[candidates[i]], candidates, candidateCount, positions, nargs)) {
+        if(best != -1) {
+          return null;
+        }
+        best = candidates[i];
+      }
+    }
+    return best == -1 ? null : methods[best];
+  }
+
+  private void build() {
+    Collection<Symbol> labels = table.getSymbolNames();
+    signatures = new String[labels.size()][];
+    methods = new SEXP[labels.size()];
+    int i = 0;
+    for(Symbol label : labels) {
+      signatures[i] = label.getPrintName().split("#", -1);
+      methods[i] = table.getVariable(label);
+      i++;
+    }
+    modCount = table.getCumulativeModCount();
+  }
+
+  /**
+   * @return the position of each class of {@code signature} among the superclasses
+   * of the corresponding argument, or {@code null} if the signature does not apply
+   */
+  private static int[] positions(String[] signature, String[][] superclasses) {
+    if(signature.length != superclasses.length) {
+      return null;
+    }
+    int[] positions = new int[signature.length];
+    for(int i=0;i!=signature.length;++i) {
+      positions[i] = indexOf(superclasses[i], signature[i]);
+      if(positions[i] == -1) {
+        return null;
+      }
+    }
+    return positions;
+  }
+
+  private static int indexOf(String[] classes, String className) {
+    for(int i=0;i!=classes.length;++i) {
+      if(classes[i].equals(className)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * A method defined for exactly these classes would have been found in the
+   * {@code .AllMTable} of the generic, and is excluded as {@code .findInheritedMethods} does.
+   */
+  private static boolean isExact(int[] positions) {
+    for(int position : positions) {
+      if(position != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDefault(String[] signature) {
+    for(String className : signature) {
+      if(!className.equals(ANY)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if each class in the signature at {@code positions} is at least as close
+   * to its argument's class as that of every other candidate
+   */
+  private static boolean isPreferred(int[] positions, int[] candidates, int candidateCount,
+                                     int[][] candidatePositions, int nargs) {
+    for(int i=0;i!=candidateCount;++i) {
+      int[] other = candidatePositions[candidates[i]];
+      for(int arg=0;arg!=nargs;++arg) {
+        if(other[arg] < positions[arg]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,190 @@
+package org.renjin.packaging;
+
+import com.google.common.io.ByteStreams;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.primitives.io.serialization.RDataReader;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.ListVector;
+import org.renjin.sexp.NamedValue;
+import org.renjin.sexp.Null;
+import org.renjin.sexp.Promise;
+import org.renjin.sexp.SEXP;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable image of a serialized frame, in which all values are stored in a single
+ * resource following an index of their names, offsets and lengths.
+ *
+ * <p>Snapshots on the file system are mapped into memory rather than read, and snapshots
+ * opened by {@link #open(URL)} are shared by all sessions within the JVM, so that creating
+ * a new {@code Session} only requires a new promise for each value. Each value is
+ * deserialized when it is first forced, within the session which forces it.</p>
+ */
+public class FrameSnapshot {
+
+  private static final ConcurrentMap<String, FrameSnapshot> OPENED = new ConcurrentHashMap<String, FrameSnapshot>();
+
+  private final String[] names;
+  private final int[] offsets;
+  private final int[] lengths;
+
+  /**
+   * The serialized values, positioned at the first value
+   */
+  private final ByteBuffer values;
+
+  /**
+   * Reads the index of a snapshot from {@code buffer}, which must be positioned
+   * immediately after the format version.
+   */
+  FrameSnapshot(ByteBuffer buffer) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+    int count = in.readInt();
+    names = new String[count];
+    offsets = new int[count];
+    lengths = new int[count];
+    for(int i=0;i!=count;++i) {
+      names[i] = in.readUTF();
+      offsets[i] = in.readInt();
+      lengths[i] = in.readInt();
+    }
+    values = buffer.slice();
+  }
+
+  /**
+   * Returns the snapshot at {@code url}, opening it if it has not already been opened
+   * by this JVM.
+   */
+  public static FrameSnapshot open(URL url) throws IOException {
+    String key = url.toExternalForm();
+    FrameSnapshot snapshot = OPENED.get(key);
+    if(snapshot == null) {
+      ByteBuffer buffer = map(url);
+      int version = buffer.getInt();
+      if(version != LazyLoadFrame.SNAPSHOT_VERSION) {
+        throw new IOException("Not a frame snapshot: " + url);
+      }
+      snapshot = new FrameSnapshot(buffer);
+      FrameSnapshot existing = OPENED.putIfAbsent(key, snapshot);
+      if(existing != null) {
+        snapshot = existing;
+      }
+    }
+    return snapshot;
+  }
+
+  private static ByteBuffer map(URL url) throws IOException {
+    if("file".equals(url.getProtocol())) {
+      File file;
+      try {
+        file = new File(url.toURI());
+      } catch(URISyntaxException e) {
+        file = new File(url.getPath());
+      }
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = raf.getChannel();
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } finally {
+        // the mapping remains valid after the channel is closed
+        raf.close();
+      }
+    }
+    InputStream in = url.openStream();
+    try {
+      return ByteBuffer.wrap(ByteStreams.toByteArray(in));
+    } finally {
+      in.close();
+    }
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * @return the names of the values in the snapshot, each bound to a new promise
+   * which deserializes the value when forced
+   */
+  public Iterable<NamedValue> namedValues() {
+    ListVector.NamedBuilder vector = new ListVector.NamedBuilder(0, names.length);
+    for(int i=0;i!=names.length;++i) {
+      vector.add(names[i], new SnapshotPromise(this, i));
+    }
+    return vector.build().namedValues();
+  }
+
+  private InputStream openValue(int index) {
+    ByteBuffer value = values.duplicate();
+    value.position(offsets[index]);
+    value.limit(offsets[index] + lengths[index]);
+    return new ByteBufferInputStream(value);
+  }
+
+  private static class SnapshotPromise extends Promise {
+    private final FrameSnapshot snapshot;
+    private final int index;
+
+    private SnapshotPromise(FrameSnapshot snapshot, int index) {
+      super(Environment.EMPTY, Null.INSTANCE);
+      this.snapshot = snapshot;
+      this.index = index;
+    }
+
+    @Override
+    protected SEXP doEval(Context context) {
+      try {
+        RDataReader reader = new RDataReader(context, snapshot.openValue(index));
+        return reader.readFile();
+      } catch (IOException e) {
+        throw new EvalException(e);
+      }
+    }
+  }
+
+  /**
+   * Reads from a buffer without copying it, advancing the buffer's position.
+   */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if(len == 0) {
+        return 0;
+      }
+      if(!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(b, off, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
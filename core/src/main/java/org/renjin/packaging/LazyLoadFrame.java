@@ -4,8 +4,12 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
 
 import com.google.common.base.Function;
+import com.google.common.io.ByteStreams;
 import org.renjin.eval.Context;
 import org.renjin.primitives.io.serialization.RDataReader;
 import org.renjin.sexp.ListVector;
@@ -16,6 +20,36 @@ public class LazyLoadFrame {
   
   private static final int OLD_VERSION = 1;
   private static final int VERSION = 2;
+  static final int SNAPSHOT_VERSION = 3;
+
+  /**
+   * Loads the frame whose index is at {@code indexUrl}. Snapshots are shared with
+   * all other sessions which load the same frame.
+   */
+  public static Iterable<NamedValue> load(Context context, final URL indexUrl) throws IOException {
+    DataInputStream din = new DataInputStream(indexUrl.openStream());
+    int version;
+    try {
+      version = din.readInt();
+    } finally {
+      din.close();
+    }
+    if(version == SNAPSHOT_VERSION) {
+      return FrameSnapshot.open(indexUrl).namedValues();
+    }
+    return load(context, new Function<String, InputStream>() {
+      @Override
+      public InputStream apply(String name) {
+        try {
+          return new URL(indexUrl, name).openStream();
+        } catch (MalformedURLException e) {
+          throw new RuntimeException(e);
+        } catch (IOException e) {
+          throw new RuntimeException("Could not open resource " + name, e);
+        }
+      }
+    });
+  }
 
   
   public static Iterable<NamedValue> load(Context context,
@@ -26,6 +60,13 @@ public class LazyLoadFrame {
     if(version == OLD_VERSION) {
       return readOldVersion(din);
     }
+    if(version == SNAPSHOT_VERSION) {
+      try {
+        return new FrameSnapshot(ByteBuffer.wrap(ByteStreams.toByteArray(din))).namedValues();
+      } finally {
+        din.close();
+      }
+    }
     if(version != VERSION) {
       throw new IOException("Unsupported version: " + version);
     }
@@ -1,8 +1,8 @@
 package org.renjin.packaging;
 
 import java.io.*;
+import java.util.List;
 
-import com.google.common.io.Files;
 import org.renjin.eval.Context;
 import org.renjin.primitives.io.serialization.RDataWriter;
 import org.renjin.sexp.Environment;
@@ -11,11 +11,13 @@ import org.renjin.sexp.NamedValue;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 public class LazyLoadFrameBuilder {
 
   private static final int VERSION_1 = 1;
   private static final int VERSION_2 = 2;
+  private static final int VERSION_3 = LazyLoadFrame.SNAPSHOT_VERSION;
 
   private File outputDir;
 
@@ -38,36 +40,39 @@ public class LazyLoadFrameBuilder {
     return this;
   }
   
+  /**
+   * Writes the values of {@code env} to a single snapshot resource named "environment",
+   * which can be mapped by {@link FrameSnapshot}: an index of the name, offset and length
+   * of each value is followed by the serialized values themselves.
+   */
   public void build(Environment env) throws IOException {
 
-    Iterable<NamedValue> toWrite = Iterables.filter(env.namedValues(), filter);
+    List<NamedValue> toWrite = Lists.newArrayList(Iterables.filter(env.namedValues(), filter));
 
+    ByteArrayOutputStream values = new ByteArrayOutputStream();
+    int[] offsets = new int[toWrite.size()];
+    int[] lengths = new int[toWrite.size()];
+    for(int i=0;i!=toWrite.size();++i) {
+      byte[] bytes = serializeSymbol(toWrite.get(i));
+      offsets[i] = values.size();
+      lengths[i] = bytes.length;
+      values.write(bytes);
+    }
 
-    // Now write an index of symbols
     File indexFile = new File(outputDir, "environment");
-    DataOutputStream indexOut = new DataOutputStream(new FileOutputStream(indexFile));
-
-    // mark this format as version 2
-    indexOut.writeInt(VERSION_2);
-
-    // write out each (large) symbols to a separate resource file.
-    // Small values will be serialized directly in the index file
-
-    indexOut.writeInt(Iterables.size(toWrite));
-    for(NamedValue namedValue : toWrite) {
-
-      indexOut.writeUTF(namedValue.getName());
-      byte[] bytes = serializeSymbol(namedValue);
-
-      if(bytes.length > 1024) {
-        indexOut.writeInt(-1);
-        Files.write(bytes, new File(outputDir, namedValue.getName() + ".RData"));
-      } else {
-        indexOut.writeInt(bytes.length);
-        indexOut.write(bytes);
+    DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+    try {
+      indexOut.writeInt(VERSION_3);
+      indexOut.writeInt(toWrite.size());
+      for(int i=0;i!=toWrite.size();++i) {
+        indexOut.writeUTF(toWrite.get(i).getName());
+        indexOut.writeInt(offsets[i]);
+        indexOut.writeInt(lengths[i]);
       }
+      values.writeTo(indexOut);
+    } finally {
+      indexOut.close();
     }
-    indexOut.close();
   }
 
   private byte[] serializeSymbol(NamedValue namedValue) throws IOException {
@@ -0,0 +1,284 @@
+package org.renjin.primitives;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.*;
+import org.renjin.util.Parallel;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Groups the elements of vectors by the codes of a factor, for {@code split()} and the
+ * functions built upon it, such as {@code tapply()}, {@code aggregate()} and {@code unsplit()}.
+ *
+ * <p>The grouping is computed in two passes over the codes: the first counts the size of
+ * each group, and the second scatters the position of each element into a single array,
+ * in which the positions of each group are contiguous and in their original order. Large
+ * factors are counted and scattered in parallel chunks, each of which is given its own
+ * offset within each group.</p>
+ *
+ * <p>Vectors are then split by gathering their elements into presized primitive arrays.
+ * As the grouping depends only on the factor, it is cached by the identity of the factor
+ * vector, so that splitting several vectors by the same factor, as {@code aggregate()}
+ * does for each column of a data frame, only groups the factor once.</p>
+ */
+class Grouping {
+
+  /**
+   * Factors shorter than this are grouped on the calling thread
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 20;
+
+  private static final Cache<Vector, Grouping> CACHE = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .maximumSize(64)
+      .build();
+
+  /**
+   * The positions of the elements of each group, group by group
+   */
+  private final int[] positions;
+
+  /**
+   * The offset in {@code positions} of each group, followed by the total number of
+   * grouped elements
+   */
+  private final int[] starts;
+
+  private Grouping(int[] positions, int[] starts) {
+    this.positions = positions;
+    this.starts = starts;
+  }
+
+  /**
+   * Returns the grouping of the elements of {@code factor}, computing it if it is not
+   * already cached.
+   *
+   * @param factor one-based group codes. {@code NA}s and codes outside of
+   *               {@code [1, numGroups]} do not belong to any group
+   */
+  static Grouping get(IntVector factor, int numGroups) {
+    Grouping grouping = CACHE.getIfPresent(factor);
+    if(grouping == null || grouping.getGroupCount() != numGroups) {
+      grouping = compute(factor, numGroups);
+      CACHE.put(factor, grouping);
+    }
+    return grouping;
+  }
+
+  static Grouping compute(IntVector factor, int numGroups) {
+    int[] codes = codes(factor);
+    int numChunks = 1;
+    if(codes.length >= PARALLEL_THRESHOLD) {
+      numChunks = Math.min(Runtime.getRuntime().availableProcessors(), codes.length / (PARALLEL_THRESHOLD / 4));
+    }
+    if(numChunks <= 1) {
+      int[][] counts = new int[][] { count(codes, 0, codes.length, numGroups) };
+      int[] starts = offsets(counts, numGroups);
+      int[] positions = new int[starts[numGroups]];
+      scatter(codes, 0, codes.length, counts[0], positions);
+      return new Grouping(positions, starts);
+    }
+    return computeParallel(codes, numGroups, numChunks);
+  }
+
+  private static Grouping computeParallel(final int[] codes, final int numGroups, int numChunks) {
+    final int[] chunkStarts = new int[numChunks + 1];
+    for(int i=0;i<=numChunks;++i) {
+      chunkStarts[i] = (int) ((long) codes.length * i / numChunks);
+    }
+
+    List<Callable<int[]>> countTasks = Lists.newArrayList();
+    for(int i=0;i!=numChunks;++i) {
+      final int chunk = i;
+      countTasks.add(new Callable<int[]>() {
+        @Override
+        public int[] call() {
+          return count(codes, chunkStarts[chunk], chunkStarts[chunk + 1], numGroups);
+        }
+      });
+    }
+    final int[][] counts = invokeAll(countTasks).toArray(new int[numChunks][]);
+    int[] starts = offsets(counts, numGroups);
+
+    final int[] positions = new int[starts[numGroups]];
+    List<Callable<int[]>> scatterTasks = Lists.newArrayList();
+    for(int i=0;i!=numChunks;++i) {
+      final int chunk = i;
+      scatterTasks.add(new Callable<int[]>() {
+        @Override
+        public int[] call() {
+          scatter(codes, chunkStarts[chunk], chunkStarts[chunk + 1], counts[chunk], positions);
+          return null;
+        }
+      });
+    }
+    invokeAll(scatterTasks);
+
+    return new Grouping(positions, starts);
+  }
+
+  /**
+   * @return the zero-based group of each element, or -1 if it belongs to none
+   */
+  private static int[] codes(IntVector factor) {
+    int[] codes = factor.toIntArray();
+    for(int i=0;i!=codes.length;++i) {
+      codes[i] = codes[i] - 1;
+    }
+    return codes;
+  }
+
+  private static int[] count(int[] codes, int start, int end, int numGroups) {
+    int[] counts = new int[numGroups];
+    for(int i=start;i!=end;++i) {
+      int code = codes[i];
+      if(code >= 0 && code < numGroups) {
+        counts[code]++;
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Replaces the count of each group within each chunk with the offset at which the
+   * chunk's elements of the group begin.
+   *
+   * @return the offset at which each group begins, followed by the total count
+   */
+  private static int[] offsets(int[][] counts, int numGroups) {
+    int[] starts = new int[numGroups + 1];
+    int offset = 0;
+    for(int group=0;group!=numGroups;++group) {
+      starts[group] = offset;
+      for(int[] chunkCounts : counts) {
+        int count = chunkCounts[group];
+        chunkCounts[group] = offset;
+        offset += count;
+      }
+    }
+    starts[numGroups] = offset;
+    return starts;
+  }
+
+  private static void scatter(int[] codes, int start, int end, int[] offsets, int[] positions) {
+    int numGroups = offsets.length;
+    for(int i=start;i!=end;++i) {
+      int code = codes[i];
+      if(code >= 0 && code < numGroups) {
+        positions[offsets[code]++] = i;
+      }
+    }
+  }
+
+  public int getGroupCount() {
+    return starts.length - 1;
+  }
+
+  public int getGroupSize(int group) {
+    return starts[group + 1] - starts[group];
+  }
+
+  /**
+   * @return the elements of {@code source} which belong to the zero-based {@code group},
+   * with the corresponding names, if {@code source} has names
+   */
+  public Vector group(Vector source, int group) {
+    Vector values = gather(source, group);
+    SEXP names = source.getAttribute(Symbols.NAMES);
+    if(names instanceof StringVector) {
+      values = (Vector) values.setAttribute(Symbols.NAMES, gather((StringVector) names, group));
+    }
+    return values;
+  }
+
+  private Vector gather(Vector source, int group) {
+    int start = starts[group];
+    int size = getGroupSize(group);
+
+    if(source instanceof StringDictionaryVector) {
+      StringDictionaryVector dictionary = (StringDictionaryVector) source;
+      int[] codes = new int[size];
+      for(int i=0;i!=size;++i) {
+        codes[i] = dictionary.getCode(positions[start + i]);
+      }
+      return dictionary.withCodes(codes);
+
+    } else if(source instanceof StringVector) {
+      String[] values = new String[size];
+      for(int i=0;i!=size;++i) {
+        values[i] = source.getElementAsString(positions[start + i]);
+      }
+      return new StringArrayVector(values);
+
+    } else if(source instanceof DoubleVector) {
+      double[] values = new double[size];
+      for(int i=0;i!=size;++i) {
+        values[i] = source.getElementAsDouble(positions[start + i]);
+      }
+      return new DoubleArrayVector(values);
+
+    } else if(source instanceof IntVector || source instanceof LogicalVector) {
+      int[] values = new int[size];
+      for(int i=0;i!=size;++i) {
+        values[i] = source.getElementAsInt(positions[start + i]);
+      }
+      return source instanceof IntVector ? new IntArrayVector(values) : new LogicalArrayVector(values);
+
+    } else {
+      Vector.Builder builder = source.newBuilderWithInitialCapacity(size);
+      for(int i=0;i!=size;++i) {
+        builder.addFrom(source, positions[start + i]);
+      }
+      return builder.build();
+    }
+  }
+
+  /**
+   * Scatters the elements of {@code groups} back into the positions of the elements of
+   * each group, as {@code split(x, f) <- value} does. The groups of {@code value} are
+   * recycled if there are fewer than the groups of the factor, and the elements of each
+   * group are recycled to the group's size.
+   */
+  public Vector unsplit(ListVector groups, int length) {
+    Vector.Builder result = ((Vector) groups.getElementAsSEXP(0)).newBuilderWithInitialSize(length);
+    for(int i=0;i!=length;++i) {
+      result.setNA(i);
+    }
+    for(int group=0;group!=getGroupCount();++group) {
+      Vector values = (Vector) groups.getElementAsSEXP(group % groups.length());
+      int size = getGroupSize(group);
+      if(size > 0 && values.length() == 0) {
+        throw new EvalException("replacement has length zero");
+      }
+      for(int i=0;i!=size;++i) {
+        result.setFrom(positions[starts[group] + i], values, i % values.length());
+      }
+    }
+    return result.build();
+  }
+
+  private static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+    List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+    try {
+      for(Future<T> future : Parallel.executor().invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EvalException("Interrupted while grouping");
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new EvalException(e.getCause());
+    }
+    return results;
+  }
+}
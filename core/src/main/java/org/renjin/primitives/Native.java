@@ -41,7 +41,8 @@ public class Native {
                           @NamedFlag("DUP") boolean dup,
                           @NamedFlag("ENCODING") boolean encoding) {
 
-    Method method;
+    NativeRoutineRegistry registry = context.getSession().getSingleton(NativeRoutineRegistry.class);
+    NativeRoutine routine;
 
     if(methodExp instanceof StringVector) {
       String methodName = ((StringVector) methodExp).getElementAsString(0);
@@ -51,35 +52,50 @@ public class Native {
         return delegateToJavaMethod(context, Base.class, methodName, callArguments);
       }
 
-      List<Method> methods = findMethod(getPackageClass(packageName, context), methodName);
-      if (methods.isEmpty()) {
-         throw new EvalException("Can't find method %s in package %s", methodName, packageName);
-      } 
-
-      method = Iterables.getOnlyElement(methods);
+      routine = registry.get(".C", packageName, methodName);
+      if(routine == null) {
+        List<Method> methods = findMethod(getPackageClass(packageName, context), methodName);
+        if (methods.isEmpty()) {
+           throw new EvalException("Can't find method %s in package %s", methodName, packageName);
+        }
+        routine = registry.register(".C", packageName, methodName, Iterables.getOnlyElement(methods));
+      }
 
     } else if(methodExp instanceof ExternalPtr && ((ExternalPtr) methodExp).getInstance() instanceof Method) {
-      method = (Method) ((ExternalPtr) methodExp).getInstance();
+      routine = registry.get((Method) ((ExternalPtr) methodExp).getInstance());
 
     } else {
       throw new EvalException("Invalid method argument of type %s", methodExp.getTypeName());
     }
 
-    Object[] nativeArguments = new Object[method.getParameterTypes().length];
+    Class<?>[] parameterTypes = routine.getParameterTypes();
+    Object[] nativeArguments = new Object[parameterTypes.length];
+    SEXP[] unchanged = new SEXP[parameterTypes.length];
     for(int i=0;i!=nativeArguments.length;++i) {
-      Type type = method.getParameterTypes()[i];
+      Type type = parameterTypes[i];
+      SEXP argument = callArguments.get(i);
       if(type.equals(IntPtr.class)) {
-        nativeArguments[i] = intPtrFromVector(callArguments.get(i));
+        if(!routine.mayWrite(i) && argument instanceof IntArrayVector) {
+          nativeArguments[i] = new IntPtr(pinnedIntArray((IntArrayVector) argument), 0);
+          unchanged[i] = argument;
+        } else {
+          nativeArguments[i] = intPtrFromVector(argument);
+        }
       } else if(type.equals(DoublePtr.class)) {
-        nativeArguments[i] = doublePtrFromVector(callArguments.get(i));
+        if(!routine.mayWrite(i) && argument instanceof DoubleArrayVector) {
+          nativeArguments[i] = new DoublePtr(pinnedDoubleArray((DoubleArrayVector) argument), 0);
+          unchanged[i] = argument;
+        } else {
+          nativeArguments[i] = doublePtrFromVector(argument);
+        }
       } else {
-         throw new EvalException("Don't know how to marshall type " + callArguments.get(i).getClass().getName() +
-                 " to for C argument " +  type + " in call to " + method.getName());
+         throw new EvalException("Don't know how to marshall type " + argument.getClass().getName() +
+                 " to for C argument " +  type + " in call to " + routine.getName());
       }
     }
 
     try {
-      method.invoke(null, nativeArguments);
+      routine.invoke(nativeArguments);
     } catch (Exception e) {
       throw new EvalException(e);
     }
@@ -89,7 +105,14 @@ public class Native {
       if(DEBUG) {
         java.lang.System.out.println(callArguments.getName(i) + " = " + nativeArguments[i].toString());
       }
-      builder.add(callArguments.getName(i), sexpFromPointer(nativeArguments[i]));
+      if(unchanged[i] != null && unchanged[i].getAttributes().empty()) {
+        builder.add(callArguments.getName(i), unchanged[i]);
+      } else if(unchanged[i] != null) {
+        // .C() drops the attributes of its arguments
+        builder.add(callArguments.getName(i), copyFromPointer(nativeArguments[i]));
+      } else {
+        builder.add(callArguments.getName(i), sexpFromPointer(nativeArguments[i]));
+      }
     }
     return builder.build();
   }
@@ -118,6 +141,29 @@ public class Native {
     }
   }
 
+  private static SEXP copyFromPointer(Object ptr) {
+    if(ptr instanceof DoublePtr) {
+      return new DoubleArrayVector(((DoublePtr) ptr).array);
+    } else {
+      return new IntArrayVector(((IntPtr) ptr).array);
+    }
+  }
+
+  /**
+   * Returns the storage of a vector which is to be passed to a routine which does not
+   * write to it. The vector is returned unchanged from the call, and so may
+   * never be updated in place again.
+   */
+  private static double[] pinnedDoubleArray(DoubleArrayVector vector) {
+    vector.markShared();
+    return vector.toDoubleArrayUnsafe();
+  }
+
+  private static int[] pinnedIntArray(IntArrayVector vector) {
+    vector.markShared();
+    return vector.toIntArrayUnsafe();
+  }
+
   public static DoublePtr doublePtrFromVector(SEXP sexp) {
     if(!(sexp instanceof AtomicVector)) {
       throw new EvalException("expected atomic vector");
@@ -167,21 +213,25 @@ public class Native {
     // TODO: map package names to implementation classes
 
 
-    Method method;
+    NativeRoutineRegistry registry = context.getSession().getSingleton(NativeRoutineRegistry.class);
+    NativeRoutine routine;
     if(methodExp instanceof StringVector) {
       if("base".equals(packageName)) {
         className = "org.renjin.appl.Appl";
       }
       String methodName = ((StringVector) methodExp).getElementAsString(0);
-      method = findFortranMethod(className, methodName);
+      routine = registry.get(".Fortran", className, methodName);
+      if(routine == null) {
+        routine = registry.register(".Fortran", className, methodName, findFortranMethod(className, methodName));
+      }
 
     } else if(methodExp instanceof ExternalPtr && ((ExternalPtr) methodExp).getInstance() instanceof Method) {
-      method = (Method) ((ExternalPtr) methodExp).getInstance();
+      routine = registry.get((Method) ((ExternalPtr) methodExp).getInstance());
     } else {
       throw new EvalException("Invalid argument type for method = %s", methodExp.getTypeName());
     }
 
-    Class<?>[] fortranTypes = method.getParameterTypes();
+    Class<?>[] fortranTypes = routine.getParameterTypes();
     if(fortranTypes.length != callArguments.length()) {
       throw new EvalException("Invalid number of args");
     }
@@ -191,11 +241,20 @@ public class Native {
 
     // For .Fortran() calls, we make a copy of the arguments, pass them by
     // reference to the fortran subroutine, and then return the modified arguments
-    // as a ListVector.
+    // as a ListVector. Arguments which the subroutine does not modify are passed
+    // and returned as they are.
 
     for(int i=0;i!=callArguments.length();++i) {
       AtomicVector vector = (AtomicVector) callArguments.get(i);
-      if(fortranTypes[i].equals(DoublePtr.class)) {
+      if(fortranTypes[i].equals(DoublePtr.class) && !routine.mayWrite(i) && vector instanceof DoubleArrayVector) {
+        fortranArgs[i] = new DoublePtr(pinnedDoubleArray((DoubleArrayVector) vector), 0);
+        returnValues.add(callArguments.getName(i), vector);
+
+      } else if(fortranTypes[i].equals(IntPtr.class) && !routine.mayWrite(i) && vector instanceof IntArrayVector) {
+        fortranArgs[i] = new IntPtr(pinnedIntArray((IntArrayVector) vector), 0);
+        returnValues.add(callArguments.getName(i), vector);
+
+      } else if(fortranTypes[i].equals(DoublePtr.class)) {
         double[] array = vector.toDoubleArray();
         fortranArgs[i] = new DoublePtr(array, 0);
         returnValues.add(callArguments.getName(i), DoubleArrayVector.unsafe(array, vector.getAttributes()));
@@ -210,9 +269,9 @@ public class Native {
     }
 
     try {
-      method.invoke(null, fortranArgs);
+      routine.invoke(fortranArgs);
     } catch (Exception e) {
-      throw new EvalException("Exception thrown while executing " + method.getName(), e);
+      throw new EvalException("Exception thrown while executing " + routine.getName(), e);
     }
 
     return returnValues.build();
@@ -270,13 +329,13 @@ public class Native {
                                           String methodName,
                                           ListVector arguments) {
 
-    List<Method> overloads = findMethod(clazz, methodName);
+    FunctionBinding binding = context.getSession().getSingleton(NativeRoutineRegistry.class)
+        .getBinding(clazz, methodName);
 
-    if(overloads.isEmpty()) {
+    if(binding == null) {
       throw new EvalException("Method " + methodName + " not defined in " + clazz.getName());
     }
 
-    FunctionBinding binding = new FunctionBinding(overloads);
     return binding.invoke(null, context, arguments);
   }
 
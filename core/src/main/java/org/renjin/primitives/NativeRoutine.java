@@ -0,0 +1,208 @@
+package org.renjin.primitives;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.renjin.gcc.runtime.DoublePtr;
+import org.renjin.gcc.runtime.IntPtr;
+import org.renjin.invoke.reflection.InvokerGenerator;
+import org.renjin.invoke.reflection.MethodInvoker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * A "native" routine, compiled from C or Fortran to JVM bytecode, which has been
+ * resolved for calls through {@code .C} or {@code .Fortran}.
+ *
+ * <p>When a routine is resolved, its bytecode is scanned to establish whether it can
+ * write to the arrays passed to it. If a routine never stores to a {@code double[]}, nor passes
+ * a {@code DoublePtr} or array on to another method or field, then its {@code DoublePtr}
+ * arguments can point directly to the storage of the R vectors rather than to copies,
+ * and likewise for {@code IntPtr} arguments. The scan is conservative: a routine which
+ * stores to any double array, even one it allocated itself, is assumed to write
+ * to its {@code DoublePtr} arguments.</p>
+ */
+public class NativeRoutine {
+
+  /**
+   * The number of calls through reflection after which a direct invoker is generated.
+   */
+  private static final int GENERATE_THRESHOLD = 16;
+
+  private static final String DOUBLE_PTR = Type.getInternalName(DoublePtr.class);
+  private static final String INT_PTR = Type.getInternalName(IntPtr.class);
+
+  private final Method method;
+  private final Class<?>[] parameterTypes;
+
+  private boolean writesDoubleArrays;
+  private boolean writesIntArrays;
+
+  private MethodInvoker invoker;
+  private int reflectiveCallCount;
+
+  NativeRoutine(Method method) {
+    this.method = method;
+    this.parameterTypes = method.getParameterTypes();
+    this.invoker = InvokerGenerator.reflective(method);
+    if(!InvokerGenerator.canGenerate(method)) {
+      this.reflectiveCallCount = -1;
+    }
+    scanForWrites();
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  public String getName() {
+    return method.getName();
+  }
+
+  public Class<?>[] getParameterTypes() {
+    return parameterTypes;
+  }
+
+  /**
+   * @return true if the routine may modify the contents of its {@code index}-th argument,
+   * or if this cannot be established.
+   */
+  public boolean mayWrite(int index) {
+    Class<?> type = parameterTypes[index];
+    if(type.equals(DoublePtr.class)) {
+      return writesDoubleArrays;
+    } else if(type.equals(IntPtr.class)) {
+      return writesIntArrays;
+    } else {
+      return true;
+    }
+  }
+
+  public void invoke(Object[] arguments) throws Exception {
+    invoker().invoke(null, arguments);
+  }
+
+  private MethodInvoker invoker() {
+    // Races between threads may at worst generate the invoker more than once
+    if(reflectiveCallCount >= 0 && ++reflectiveCallCount > GENERATE_THRESHOLD) {
+      reflectiveCallCount = -1;
+      try {
+        invoker = InvokerGenerator.generate(method);
+      } catch (LinkageError e) {
+        // the class could not be defined: keep calling through reflection
+      }
+    }
+    return invoker;
+  }
+
+  private void scanForWrites() {
+    // until proven otherwise
+    writesDoubleArrays = true;
+    writesIntArrays = true;
+
+    Class<?> declaringClass = method.getDeclaringClass();
+    ClassLoader loader = declaringClass.getClassLoader();
+    if(loader == null) {
+      return;
+    }
+    InputStream in = loader.getResourceAsStream(Type.getInternalName(declaringClass) + ".class");
+    if(in == null) {
+      return;
+    }
+    try {
+      try {
+        WriteScanner scanner = new WriteScanner(method.getName(), Type.getMethodDescriptor(method));
+        new ClassReader(in).accept(scanner, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        if(scanner.found) {
+          writesDoubleArrays = scanner.writesDoubleArrays;
+          writesIntArrays = scanner.writesIntArrays;
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      // assume the worst
+    }
+  }
+
+  @Override
+  public String toString() {
+    return method.toString();
+  }
+
+  private static class WriteScanner extends ClassVisitor {
+    private final String name;
+    private final String desc;
+
+    private boolean found;
+    private boolean writesDoubleArrays;
+    private boolean writesIntArrays;
+
+    public WriteScanner(String name, String desc) {
+      super(ASM4);
+      this.name = name;
+      this.desc = desc;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      if(!name.equals(this.name) || !desc.equals(this.desc)) {
+        return null;
+      }
+      found = true;
+      return new MethodVisitor(ASM4) {
+        @Override
+        public void visitInsn(int opcode) {
+          if(opcode == DASTORE) {
+            writesDoubleArrays = true;
+          } else if(opcode == IASTORE) {
+            writesIntArrays = true;
+          } else if(opcode == AASTORE) {
+            // a pointer or array stored in an array may be written through later
+            writesDoubleArrays = true;
+            writesIntArrays = true;
+          }
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+          if(opcode == PUTFIELD || opcode == PUTSTATIC) {
+            escapes(desc);
+          }
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc) {
+          if(owner.equals(DOUBLE_PTR) && name.equals("set")) {
+            writesDoubleArrays = true;
+          } else if(owner.equals(INT_PTR) && name.equals("set")) {
+            writesIntArrays = true;
+          }
+          escapes(desc);
+        }
+      };
+    }
+
+    /**
+     * Treats a pointer or array which is passed on to another method, or stored
+     * in a field, as written to.
+     */
+    private void escapes(String desc) {
+      if(desc.contains("Ljava/lang/Object;") || desc.contains("Lorg/renjin/gcc/runtime/Ptr;")) {
+        writesDoubleArrays = true;
+        writesIntArrays = true;
+      }
+      if(desc.contains("[D") || desc.contains(DOUBLE_PTR)) {
+        writesDoubleArrays = true;
+      }
+      if(desc.contains("[I") || desc.contains(INT_PTR)) {
+        writesIntArrays = true;
+      }
+    }
+  }
+}
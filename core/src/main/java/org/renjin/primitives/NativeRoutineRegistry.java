@@ -0,0 +1,77 @@
+package org.renjin.primitives;
+
+import com.google.common.collect.Maps;
+import org.renjin.invoke.reflection.FunctionBinding;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the "native" routines which have been resolved in a {@link org.renjin.eval.Session},
+ * much as GNU R's {@code R_registerRoutines} does for a package's DLL, so that
+ * repeated calls through {@code .C}, {@code .Fortran} and {@code .Call} do not
+ * search the implementing class for the routine each time.
+ *
+ * <p>The registry belongs to a {@link org.renjin.eval.Session}, and, like the session,
+ * is not thread-safe.</p>
+ */
+public class NativeRoutineRegistry {
+
+  private final Map<String, NativeRoutine> routines = Maps.newHashMap();
+  private final Map<Method, NativeRoutine> routinesByMethod = Maps.newHashMap();
+  private final Map<String, FunctionBinding> bindings = Maps.newHashMap();
+
+  /**
+   * @param convention the calling convention, for example ".C" or ".Fortran"
+   * @return the routine previously registered under the given name, or {@code null}
+   */
+  public NativeRoutine get(String convention, String packageName, String routineName) {
+    return routines.get(key(convention, packageName, routineName));
+  }
+
+  /**
+   * Registers the method which implements a routine, so that later calls to
+   * {@link #get(String, String, String)} with the same names will find it.
+   */
+  public NativeRoutine register(String convention, String packageName, String routineName, Method method) {
+    NativeRoutine routine = get(method);
+    routines.put(key(convention, packageName, routineName), routine);
+    return routine;
+  }
+
+  /**
+   * @return the routine implemented by {@code method}, for example a method passed to
+   * {@code .C} as an external pointer
+   */
+  public NativeRoutine get(Method method) {
+    NativeRoutine routine = routinesByMethod.get(method);
+    if(routine == null) {
+      routine = new NativeRoutine(method);
+      routinesByMethod.put(method, routine);
+    }
+    return routine;
+  }
+
+  /**
+   * @return a binding to the public methods named {@code methodName} in {@code clazz}, or
+   * {@code null} if there are none
+   */
+  public FunctionBinding getBinding(Class clazz, String methodName) {
+    String key = clazz.getName() + "." + methodName;
+    FunctionBinding binding = bindings.get(key);
+    if(binding == null) {
+      List<Method> overloads = Native.findMethod(clazz, methodName);
+      if(overloads.isEmpty()) {
+        return null;
+      }
+      binding = new FunctionBinding(overloads);
+      bindings.put(key, binding);
+    }
+    return binding;
+  }
+
+  private static String key(String convention, String packageName, String routineName) {
+    return convention + ":" + packageName + ":" + routineName;
+  }
+}
@@ -659,6 +659,7 @@ public class Primitives {
     f("seq_along", Sequences.class, "seqAlong", 1);
     f("list", Vectors.class, "list", 1);
     f("split",  Split.class, 11);
+    f("unsplit", Split.class, 11);
     f("is.loaded", /*isloaded*/ null, -1);
     f(".C", Native.class, -1);
     f(".Fortran", Native.class, -1);
@@ -693,9 +694,9 @@ public class Primitives {
     f("is.unsorted", Sort.class, 11);
     f("psort", Sort.class, null, 11);
     f("qsort", Sort.class, 11);
-    f("radixsort", /*radixsort*/ null, 11);
+    f("radixsort", Sort.class, 11);
     f("order", Sort.class, 11);
-    f("rank", /*rank*/ null, 11);
+    f("rank", Sort.class, 11);
     f("missing", Evaluation.class, "missing", 0);
     f("nargs", Evaluation.class, 0);
     f("scan", Scan.class, 11);
@@ -11,6 +11,8 @@ import org.renjin.sexp.*;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Primitives used in the implementation of the S3 object system
@@ -19,6 +21,17 @@ public class S3 {
 
   public static Symbol METHODS_TABLE = Symbol.get(".__S3MethodsTable__.");
 
+  /**
+   * Implicit class vectors, which depend only on the type and number of dimensions of an
+   * object, indexed by no dimensions, matrix or array, and then by type name
+   */
+  @SuppressWarnings("unchecked")
+  private static final Map<String, StringVector>[] IMPLICIT_CLASSES = new Map[] {
+      new ConcurrentHashMap<String, StringVector>(),
+      new ConcurrentHashMap<String, StringVector>(),
+      new ConcurrentHashMap<String, StringVector>()
+  };
+
   @Builtin
   public static SEXP UseMethod(@Current Context context, String genericMethodName) {
     /*
@@ -82,21 +95,32 @@ public class S3 {
       /*
        * Compute implicit class based on DIM attribute and type
        */
-      StringArrayVector.Builder dataClass = new StringArrayVector.Builder();
-      SEXP dim = exp.getAttribute(Symbols.DIM);
-      if(dim.length() == 2) {
-        dataClass.add("matrix");
-      } else if(dim.length() == 1) {
-        dataClass.add("array");
-      }
-      if(exp instanceof IntVector || exp instanceof DoubleVector) {
-        dataClass.add(exp.getTypeName());
-        dataClass.add("numeric");
-      } else {
-         dataClass.add(exp.getImplicitClass());
+      int dimLength = exp.getAttribute(Symbols.DIM).length();
+      int dimKind = dimLength == 2 ? 1 : (dimLength == 1 ? 2 : 0);
+      String typeName = (exp instanceof IntVector || exp instanceof DoubleVector) ?
+          exp.getTypeName() : exp.getImplicitClass();
+
+      StringVector dataClass = IMPLICIT_CLASSES[dimKind].get(typeName);
+      if(dataClass == null) {
+        dataClass = implicitClass(dimKind, exp, typeName);
+        IMPLICIT_CLASSES[dimKind].put(typeName, dataClass);
       }
-      return dataClass.build();
+      return dataClass;
+    }
+  }
+
+  private static StringVector implicitClass(int dimKind, SEXP exp, String typeName) {
+    StringArrayVector.Builder dataClass = new StringArrayVector.Builder();
+    if(dimKind == 1) {
+      dataClass.add("matrix");
+    } else if(dimKind == 2) {
+      dataClass.add("array");
     }
+    dataClass.add(typeName);
+    if(exp instanceof IntVector || exp instanceof DoubleVector) {
+      dataClass.add("numeric");
+    }
+    return dataClass.build();
   }
 
   public static SEXP dispatchGroup(String group, FunctionCall call, String opName, PairList args, Context context, Environment rho) {
@@ -248,10 +272,15 @@ public class S3 {
       return null;
     }
 
-    DispatchChain chain = DispatchChain.newChain(context, rho, name, classVector);
-    if(chain == null) {
+    GenericMethod method = Resolver
+      .start(context, name, arguments[0])
+      .withCallingEnvironment(rho)
+      .findNext();
+    if(method == null || !(method.function instanceof Closure)) {
       return null;
     }
+    DispatchChain chain = DispatchChain.newChain(context, name, classVector, method.method,
+        (Closure) method.function);
 
     PairList.Builder newArgsBuilder = new PairList.Builder();
     for(int i=0;i!=arguments.length;++i) {
@@ -430,6 +459,11 @@ public class S3 {
       return this;
     }
 
+    public Resolver withCallingEnvironment(Environment rho) {
+      this.callingEnvironment = rho;
+      return this;
+    }
+
     public Resolver withDefinitionEnvironment(Environment rho) {
       this.definitionEnvironment = rho;
       return this;
@@ -462,40 +496,74 @@ public class S3 {
     }
 
     private GenericMethod findNextOrDefault() {
-      GenericMethod next = findNext();
+      return lookup(true);
+    }
 
-      if(next != null) {
-        return next;
-      } else {
-        Environment methodTable = getMethodTable();
-        GenericMethod function = findNext(methodTable, genericMethodName, "default");
-        if(function != null) {
-          return function;
-        }
+    public GenericMethod findNext() {
+      return lookup(false);
+    }
 
-        // as a last step, we call BACK into the primitive
-        // to get the default implementation  - ~ YECK ~
-        PrimitiveFunction primitive = Primitives.getBuiltin(genericMethodName);
-        if(primitive != null) {
-          return new GenericMethod(this, Symbol.get(genericMethodName + ".default"), null, primitive);
+    /**
+     * Resolves the method for the first of the remaining classes, using the session's
+     * {@link S3DispatchCache} if this generic has already been resolved for these classes.
+     *
+     * @param withDefault true to fall back to the default method if no class matches
+     */
+    private GenericMethod lookup(boolean withDefault) {
+      S3DispatchCache cache = context.getSession().getSingleton(S3DispatchCache.class);
+      S3DispatchCache.Key key = new S3DispatchCache.Key(genericMethodName, group, classes,
+          callingEnvironment.getParent(), definitionEnvironment, withDefault);
+
+      S3DispatchCache.Entry entry = cache.get(key, callingEnvironment);
+      if(entry == null) {
+        entry = search(key, withDefault);
+        // a method bound in the calling frame itself is only
+        // visible from this frame, which is not part of the key
+        if(entry.method == null ||
+            callingEnvironment.getFrame().getVariable(entry.method) == Symbol.UNBOUND_VALUE) {
+          cache.put(key, entry);
         }
-
+      }
+      if(entry.method == null) {
         return null;
       }
+      return new GenericMethod(this, entry.method, entry.className, entry.function);
     }
 
-    public GenericMethod findNext() {
+    private S3DispatchCache.Entry search(S3DispatchCache.Key key, boolean withDefault) {
       Environment methodTable = getMethodTable();
+      List<Symbol> candidates = Lists.newArrayList();
+      GenericMethod method = findNext(methodTable, candidates);
+
+      if(method == null && withDefault) {
+        method = findNext(methodTable, genericMethodName, "default", candidates);
+        if(method == null) {
+          // as a last step, we call BACK into the primitive
+          // to get the default implementation  - ~ YECK ~
+          PrimitiveFunction primitive = Primitives.getBuiltin(genericMethodName);
+          if(primitive != null) {
+            method = new GenericMethod(this, Symbol.get(genericMethodName + ".default"), null, primitive);
+          }
+        }
+      }
+      if(method == null) {
+        return new S3DispatchCache.Entry(key, null, null, null, candidates, methodTable);
+      }
+      return new S3DispatchCache.Entry(key, method.method, method.className, method.function,
+          candidates, methodTable);
+    }
+
+    private GenericMethod findNext(Environment methodTable, List<Symbol> candidates) {
       GenericMethod method;
       
       for(String className : classes) {
         
-        method = findNext(methodTable, genericMethodName, className);
+        method = findNext(methodTable, genericMethodName, className, candidates);
         if(method != null) {
           return method;
         }
         if(group != null) {
-          method = findNext(methodTable, group, className);
+          method = findNext(methodTable, group, className, candidates);
           if(method != null) {
             return method;
           }
@@ -504,8 +572,10 @@ public class S3 {
       return null;
     }
 
-    private GenericMethod findNext(Environment methodTable, String name, String className) {
+    private GenericMethod findNext(Environment methodTable, String name, String className,
+                                   List<Symbol> candidates) {
       Symbol method = Symbol.get(name + "." + className);
+      candidates.add(method);
       SEXP function = callingEnvironment.findFunction(context, method);
       if(function != null) {
         return new GenericMethod(this, method, className, (Function) function);
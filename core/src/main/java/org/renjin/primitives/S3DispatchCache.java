@@ -0,0 +1,212 @@
+package org.renjin.primitives;
+
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Function;
+import org.renjin.sexp.Symbol;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the methods to which S3 generics have been resolved, so that repeated calls
+ * of a generic on objects of the same classes skip the search for each candidate
+ * {@code generic.class} function through the environment chain and the
+ * {@code .__S3MethodsTable__.}.
+ *
+ * <p>Entries are keyed on the generic, its group, the contents of the class vector, the
+ * environment enclosing the calling frame and the environment in which the generic was
+ * defined. The calling frame itself is usually new for each call, and so is not part of the
+ * key: instead, an entry records every candidate symbol that was tried, and is only used if
+ * none of them is bound in the calling frame. Methods which are themselves found in the
+ * calling frame are never cached.</p>
+ *
+ * <p>An entry is invalidated when any binding changes in the environments from which the
+ * method was resolved, as measured by {@link Environment#getCumulativeModCount()}.</p>
+ *
+ * <p>The cache belongs to a {@link org.renjin.eval.Session}, and, like the session,
+ * is not thread-safe.</p>
+ */
+public class S3DispatchCache {
+
+  /**
+   * The maximum number of entries, beyond which the least recently used are discarded
+   */
+  private static final int MAX_SIZE = 2048;
+
+  private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+      return size() > MAX_SIZE;
+    }
+  };
+
+  private long hitCount;
+  private long missCount;
+  private long invalidationCount;
+
+  /**
+   * @return the number of lookups which were answered from the cache
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups which required a search, including those which found
+   * an invalidated entry
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of entries which were found to be invalid
+   */
+  public long getInvalidationCount() {
+    return invalidationCount;
+  }
+
+  public double getHitRate() {
+    long total = hitCount + missCount;
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * @return the valid entry for {@code key}, or {@code null} if the method must be resolved
+   */
+  Entry get(Key key, Environment callingEnvironment) {
+    Entry entry = entries.get(key);
+    if(entry == null) {
+      missCount++;
+      return null;
+    }
+    if(!entry.isValid(key, callingEnvironment)) {
+      entries.remove(key);
+      invalidationCount++;
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return entry;
+  }
+
+  void put(Key key, Entry entry) {
+    entries.put(key, entry);
+  }
+
+  static final class Key {
+    private final String generic;
+    private final String group;
+    private final List<String> classes;
+    private final Environment enclosingEnvironment;
+    private final Environment definitionEnvironment;
+    private final boolean withDefault;
+    private final int hashCode;
+
+    /**
+     * @param enclosingEnvironment the enclosure of the calling environment
+     * @param withDefault true if the default method is to be resolved if no class matches
+     */
+    Key(String generic, String group, List<String> classes, Environment enclosingEnvironment,
+        Environment definitionEnvironment, boolean withDefault) {
+      this.generic = generic;
+      this.group = group;
+      this.classes = classes;
+      this.enclosingEnvironment = enclosingEnvironment;
+      this.definitionEnvironment = definitionEnvironment;
+      this.withDefault = withDefault;
+
+      int hash = generic.hashCode();
+      hash = 31 * hash + (group == null ? 0 : group.hashCode());
+      hash = 31 * hash + classes.hashCode();
+      hash = 31 * hash + java.lang.System.identityHashCode(enclosingEnvironment);
+      hash = 31 * hash + java.lang.System.identityHashCode(definitionEnvironment);
+      hash = 31 * hash + (withDefault ? 1 : 0);
+      this.hashCode = hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(this == obj) {
+        return true;
+      }
+      if(!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hashCode == other.hashCode &&
+          enclosingEnvironment == other.enclosingEnvironment &&
+          definitionEnvironment == other.definitionEnvironment &&
+          withDefault == other.withDefault &&
+          generic.equals(other.generic) &&
+          (group == null ? other.group == null : group.equals(other.group)) &&
+          classes.equals(other.classes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The outcome of a method search: either the method found, or no method at all.
+   */
+  static final class Entry {
+
+    /**
+     * The symbol of the selected method, or {@code null} if no method was found
+     */
+    final Symbol method;
+    final String className;
+    final Function function;
+
+    /**
+     * The symbols which were looked up, and which must not be bound in the calling frame
+     */
+    private final Symbol[] candidates;
+
+    private final int enclosingModCount;
+    private final int definitionModCount;
+
+    private final Environment methodTable;
+    private final int methodTableModCount;
+
+    Entry(Key key, Symbol method, String className, Function function, List<Symbol> candidates,
+          Environment methodTable) {
+      this.method = method;
+      this.className = className;
+      this.function = function;
+      this.candidates = candidates.toArray(new Symbol[candidates.size()]);
+      this.enclosingModCount = key.enclosingEnvironment.getCumulativeModCount();
+      this.definitionModCount = key.definitionEnvironment.getCumulativeModCount();
+      this.methodTable = methodTable;
+      this.methodTableModCount = methodTable == null ? 0 : methodTable.getCumulativeModCount();
+    }
+
+    private boolean isValid(Key key, Environment callingEnvironment) {
+      if(key.enclosingEnvironment.getCumulativeModCount() != enclosingModCount ||
+         key.definitionEnvironment.getCumulativeModCount() != definitionModCount) {
+        return false;
+      }
+      if(methodTable != null && methodTable.getCumulativeModCount() != methodTableModCount) {
+        return false;
+      }
+      for(Symbol candidate : candidates) {
+        if(callingEnvironment.getFrame().getVariable(candidate) != Symbol.UNBOUND_VALUE) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
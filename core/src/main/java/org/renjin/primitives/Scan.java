@@ -38,11 +38,16 @@ import java.util.Set;
 
 import com.google.common.collect.Sets;
 import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.parser.ParseUtil;
 import org.renjin.invoke.annotations.Current;
+import org.renjin.primitives.io.TableScanner;
+import org.renjin.primitives.io.connections.Connection;
 import org.renjin.primitives.io.connections.Connections;
+import org.renjin.primitives.io.connections.FileConnection;
 import org.renjin.primitives.io.connections.PushbackBufferedReader;
+import org.renjin.sexp.AttributeMap;
 import org.renjin.sexp.DoubleArrayVector;
 import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.IntArrayVector;
@@ -50,7 +55,9 @@ import org.renjin.sexp.IntVector;
 import org.renjin.sexp.ListVector;
 import org.renjin.sexp.LogicalArrayVector;
 import org.renjin.sexp.LogicalArrayVector.Builder;
+import org.renjin.sexp.ParsedStringVector;
 import org.renjin.sexp.SEXP;
+import org.renjin.sexp.StringDictionaryVector;
 import org.renjin.sexp.StringVector;
 import org.renjin.sexp.Symbols;
 import org.renjin.sexp.Vector;
@@ -99,19 +106,30 @@ public class Scan {
                             String encoding) throws IOException {
     
     
-    PushbackBufferedReader lineReader;
+    Connection connection;
     if(file instanceof StringVector) {
       String fileName = ((StringVector) file).getElementAsString(0);
       if(fileName.length() == 0) {
-        lineReader = context.getSession().getConnectionTable().getStdin().getReader();
+        connection = context.getSession().getConnectionTable().getStdin();
       } else {
         SEXP fileConn = Connections.file(context,fileName,"o",true,encoding,false);
-        lineReader = Connections.getConnection(context, fileConn).getReader();
+        connection = Connections.getConnection(context, fileConn);
       }
     } else {
-      lineReader = Connections.getConnection(context, file).getReader();
+      connection = Connections.getConnection(context, file);
     }
 
+    if(connection instanceof FileConnection && nlines <= 0) {
+      // read large delimited files in parallel
+      Vector table = TableScanner.tryScan((FileConnection) connection, what, seperator, quote, skip, blankLinesSkip,
+          commentChar, context.getSession().getStringPool());
+      if(table != null) {
+        return table;
+      }
+    }
+
+    PushbackBufferedReader lineReader = connection.getReader();
+
     Splitter splitter;
     if(Strings.isNullOrEmpty(seperator)) {
       splitter = new WhitespaceSplitter(quote);
@@ -136,6 +154,9 @@ public class Scan {
         continue;
       }
       linesRead ++;
+      if(blankLinesSkip && line.length() == 0) {
+        continue;
+      }
       if(!Strings.isNullOrEmpty(commentChar)) {
         if(line.startsWith(commentChar)) {
           continue;
@@ -255,6 +276,9 @@ public class Scan {
     @Override
     public void read(String line) {
       List<String> fields = splitter.split(line);
+      if(fields.size() > columnReaders.size()) {
+        throw new EvalException("scan() expected %d fields per line, but found more", columnReaders.size());
+      }
       for(int i=0;i!=fields.size();++i) {
         columnReaders.get(i).read(fields.get(i));
       }
@@ -356,6 +380,16 @@ public class Scan {
   public static Vector typeConvert(StringVector vector, StringVector naStrings, boolean asIs, String dec) {
 
     Set<String> naSet = createHashSet(naStrings);
+    if(vector instanceof StringDictionaryVector) {
+      return typeConvert((StringDictionaryVector) vector, naSet, asIs);
+    }
+    if(vector instanceof ParsedStringVector) {
+      // numbers already parsed by the TableScanner
+      Vector parsed = ((ParsedStringVector) vector).getParsedValues(naSet);
+      if(parsed != null) {
+        return parsed;
+      }
+    }
     Converter<?> converter = getConverter(vector, naSet);
     if(converter != null) {
       return converter.build(vector, naSet);
@@ -366,6 +400,31 @@ public class Scan {
     }
   }
 
+  /**
+   * Converts each distinct string of a dictionary-encoded vector only once
+   */
+  private static Vector typeConvert(StringDictionaryVector vector, Set<String> naSet, boolean asIs) {
+    StringVector levels = vector.getLevelVector();
+    Converter<?> converter = getConverter(levels, naSet);
+    if(converter != null) {
+      Vector converted = converter.build(levels, naSet);
+      Vector.Builder builder = converted.newBuilderWithInitialSize(vector.length());
+      for(int i=0;i!=vector.length();++i) {
+        int code = vector.getCode(i);
+        if(code == StringDictionaryVector.NA_CODE) {
+          builder.setNA(i);
+        } else {
+          builder.setFrom(i, converted, code);
+        }
+      }
+      return builder.build();
+    } else if(asIs) {
+      return vector;
+    } else {
+      return buildFactor(vector, naSet);
+    }
+  }
+
   private static Set<String> createHashSet(StringVector strings) {
     java.util.HashSet<String> set = Sets.newHashSet();
 
@@ -402,6 +461,35 @@ public class Scan {
       return factor.build();
   }
 
+  private static Vector buildFactor(StringDictionaryVector vector, Set<String> naStrings) {
+    // factor codes are assigned to levels in the order in which they first appear
+    int[] factorCodes = new int[vector.getLevelCount()];
+    for(int code=0;code!=factorCodes.length;++code) {
+      if(isNa(vector.getLevel(code), naStrings)) {
+        factorCodes[code] = IntVector.NA;
+      }
+    }
+    StringVector.Builder levels = StringVector.newBuilder();
+    int[] factor = new int[vector.length()];
+    for(int i=0;i!=factor.length;++i) {
+      int code = vector.getCode(i);
+      if(code == StringDictionaryVector.NA_CODE) {
+        factor[i] = IntVector.NA;
+      } else {
+        if(factorCodes[code] == 0) {
+          levels.add(vector.getLevel(code));
+          factorCodes[code] = levels.length();
+        }
+        factor[i] = factorCodes[code];
+      }
+    }
+    AttributeMap attributes = AttributeMap.builder()
+        .setClass("factor")
+        .set(Symbols.LEVELS, levels.build())
+        .build();
+    return new IntArrayVector(factor, attributes);
+  }
+
   private static boolean isNa(String string, Set<String> naStrings) {
     return Strings.isNullOrEmpty(string) || naStrings.contains(string);
   }
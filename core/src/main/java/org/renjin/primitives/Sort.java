@@ -24,11 +24,10 @@ import com.google.common.collect.Lists;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
+import org.renjin.primitives.sort.Ordering;
 import org.renjin.sexp.*;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 public class Sort {
@@ -42,10 +41,10 @@ public class Sort {
 
     String sorted[] = x.toArray();
 
+    Ordering.sort(sorted);
+
     if(decreasing) {
-      Arrays.sort(sorted, Collections.reverseOrder());
-    }else{
-      Arrays.sort(sorted);
+      reverse(sorted);
     }
 
     return new StringArrayVector(sorted, x.getAttributes());
@@ -60,7 +59,7 @@ public class Sort {
 
     double sorted[] = x.toDoubleArray();
 
-    Arrays.sort(sorted);
+    Ordering.sort(sorted);
 
     if(decreasing) {
       reverse(sorted);
@@ -84,6 +83,20 @@ public class Sort {
     }
   }
 
+  private static void reverse(String[] b) {
+    int left  = 0;
+    int right = b.length-1;
+
+    while (left < right) {
+      String temp = b[left];
+      b[left]  = b[right];
+      b[right] = temp;
+
+      left++;
+      right--;
+    }
+  }
+
   @Internal
   public static Vector sort(IntVector x, boolean decreasing) {
 
@@ -93,7 +106,7 @@ public class Sort {
 
     int sorted[] = x.toIntArray();
     
-    Arrays.sort(sorted);
+    Ordering.sort(sorted);
 
     if(decreasing) {
       reverse(sorted);
@@ -104,15 +117,7 @@ public class Sort {
 
   @Internal("is.unsorted")
   public static boolean isUnsorted(AtomicVector x, boolean strictly) {
-    for(int i=1;i<x.length();++i) {
-      int z = x.compare(i-1, i);
-      if(z > 0) {
-        return true;
-      } else if(strictly && z == 0) {
-        return true;
-      }
-    }
-    return false;
+    return Ordering.isUnsorted(x, strictly);
   }
   
   @Internal("is.unsorted")
@@ -205,37 +210,70 @@ public class Sort {
       }
     }
 
-    List<Integer> ordering = Lists.newArrayListWithCapacity(numRows);
-    for (int i = 0; i != numRows; ++i) {
-      ordering.add(i);
+    List<AtomicVector> keys = Lists.newArrayListWithCapacity(columns.length());
+    for (int i = 0; i != columns.length(); ++i) {
+      SEXP column = columns.getElementAsSEXP(i);
+      if (!(column instanceof AtomicVector)) {
+        throw new EvalException("argument %d is not a vector", i + 1);
+      }
+      keys.add((AtomicVector) column);
     }
 
-    Collections.sort(ordering, new Comparator<Integer>() {
-
-      @Override
-      public int compare(Integer row1, Integer row2) {
-        int col = 0;
-        int rel;
-        while ((rel = compare(row1, row2, col)) == 0) {
-          col++;
-          if (col == columns.length()) {
-            return 0;
-          }
-        }
-        return decreasing ? -rel : rel;
-      }
+    return oneBased(Ordering.order(keys, decreasing, naLast));
+  }
 
-      private int compare(Integer row1, Integer row2, int col) {
-        return ((AtomicVector)columns.get(col)).compare(row1, row2);
-      }
-    });
+  @Internal
+  public static IntVector radixsort(IntVector x, boolean naLast, boolean decreasing) {
+    return oneBased(Ordering.order(x, decreasing, naLast));
+  }
 
-    IntArrayVector.Builder result = new IntArrayVector.Builder();
-    for (Integer index : ordering) {
-      result.add(index + 1);
+  private static IntVector oneBased(int[] ordering) {
+    for (int i = 0; i != ordering.length; ++i) {
+      ordering[i]++;
     }
+    return IntArrayVector.unsafe(ordering);
+  }
 
-    return result.build();
+  /**
+   * Returns the sample ranks of the values in {@code x}, which must not contain {@code NA}s.
+   * Ties are given the average, minimum or maximum of the ranks they span,
+   * depending on {@code tiesMethod}.
+   */
+  @Internal
+  public static Vector rank(AtomicVector x, String tiesMethod) {
+    boolean average = tiesMethod.equals("average");
+    boolean max = tiesMethod.equals("max");
+    if (!average && !max && !tiesMethod.equals("min")) {
+      throw new EvalException("invalid ties.method for rank() [should never happen]");
+    }
+
+    int[] ordering = Ordering.order(x, false, true);
+    int n = ordering.length;
+    double[] averageRanks = average ? new double[n] : null;
+    int[] ranks = average ? null : new int[n];
+
+    int start = 0;
+    while (start < n) {
+      int end = start + 1;
+      while (end < n && Ordering.equal(x, ordering[start], ordering[end])) {
+        end++;
+      }
+      // the elements ordering[start, end) are tied, with ranks start+1 to end
+      for (int i = start; i != end; ++i) {
+        if (average) {
+          averageRanks[ordering[i]] = (start + 1 + end) / 2d;
+        } else {
+          ranks[ordering[i]] = max ? end : start + 1;
+        }
+      }
+      start = end;
+    }
+
+    if (average) {
+      return DoubleArrayVector.unsafe(averageRanks);
+    } else {
+      return IntArrayVector.unsafe(ranks);
+    }
   }   
 
   @Internal("which.min")
@@ -1,64 +1,52 @@
 package org.renjin.primitives;
 
-import com.google.common.collect.Maps;
-import org.renjin.invoke.annotations.Builtin;
+import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.sexp.*;
 
-import java.util.Map;
-import java.util.Set;
-
 public class Split {
   private Split() {}
   
   /**
-   * Splits the 
-   * @param indices
-   * @param factors
-   * @return
+   * Splits the elements of {@code toSplit}, and their names, into groups defined by a factor.
+   *
+   * @param toSplit the vector to split
+   * @param factors an integer factor of the same length as {@code toSplit}
+   * @return a list with one element for each level of {@code factors}, named by the levels
    */
   @Internal
   public static ListVector split(Vector toSplit, IntVector factors) {
-    assert toSplit.length() == factors.length();
-    
-    SplitMap map = new SplitMap(toSplit);
-    for(int i=0;i!=factors.length();++i) {
-      int split = factors.getElementAsInt(i);
-      if(!IntVector.isNA(split)) {
-        map.getSplitBuilder(split)
-            .addFrom(toSplit, i);
-      }
+    if(toSplit.length() != factors.length()) {
+      throw new EvalException("group length is %d but data length is %d", factors.length(), toSplit.length());
     }
+    StringVector levels = levels(factors);
+    Grouping grouping = Grouping.get(factors, levels.length());
 
-    StringVector levels = (StringVector) factors.getAttributes().get(Symbols.LEVELS);
-    
     ListVector.NamedBuilder resultList = new ListVector.NamedBuilder();
-    for(Integer split : map.getKeys()) {
-      resultList.add(levels.getElementAsString(split-1),
-          map.getSplitBuilder(split).build());
+    for(int group=0;group!=grouping.getGroupCount();++group) {
+      resultList.add(levels.getElementAsString(group), grouping.group(toSplit, group));
     }
     return resultList.build();
   }
-  
-  private static class SplitMap {
-    private Vector sourceVector;
-    private Map<Integer, Vector.Builder> splits = Maps.newHashMap();
-    
-    public SplitMap(Vector sourceVector) {
-      this.sourceVector = sourceVector;
-    }
-    
-    public Vector.Builder getSplitBuilder(int value) {
-      Vector.Builder builder = splits.get(value);
-      if(builder == null) {
-        builder = sourceVector.newBuilderWithInitialSize(0);
-        splits.put(value, builder);
-      }
-      return builder;
+
+  /**
+   * Reverses {@code split()}, scattering the elements of each group of {@code value} into the
+   * positions of the corresponding group of {@code factors}.
+   */
+  @Internal
+  public static Vector unsplit(ListVector value, IntVector factors) {
+    if(value.length() == 0) {
+      throw new EvalException("'value' must not be empty");
     }
-    
-    public Set<Integer> getKeys() {
-      return splits.keySet();
+    Grouping grouping = Grouping.get(factors, levels(factors).length());
+    return grouping.unsplit(value, factors.length());
+  }
+
+  private static StringVector levels(IntVector factors) {
+    SEXP levels = factors.getAttribute(Symbols.LEVELS);
+    if(!(levels instanceof StringVector)) {
+      throw new EvalException("'f' must be a factor");
     }
+    return (StringVector) levels;
   }
 }
@@ -165,7 +165,7 @@ public class Vectors {
           .convertToR((Number) instance);
     } else if (IntegerArrayConverter.accept(clazz)) {
       return (IntVector) IntegerArrayConverter.INSTANCE
-          .convertToR((Number[]) instance);
+          .convertToR(instance);
     } else {
       return IntVector.valueOf(IntVector.NA);
     }
@@ -0,0 +1,1207 @@
+package org.renjin.primitives.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.renjin.eval.EvalException;
+import org.renjin.parser.ParseUtil;
+import org.renjin.primitives.io.connections.FileConnection;
+import org.renjin.sexp.*;
+import org.renjin.util.Parallel;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Reads delimited files for {@code scan()}, and so {@code read.table()}, in large blocks,
+ * using all available processors.
+ *
+ * <p>The file is read through a {@link FileChannel} in blocks of {@link #BLOCK_SIZE} bytes,
+ * which are processed in two parallel passes:</p>
+ * <ol>
+ *   <li>Each block is scanned for quotes and newlines. As a quote toggles the quoted state,
+ *   whether a block begins within a quoted field depends only on the parity of the number
+ *   of quotes before it, so each block records its parity and its first newline for
+ *   either starting state. Once all blocks have been scanned, the start of the first row
+ *   in each block is resolved in a single sequential step.</li>
+ *   <li>The rows of each block are split into fields, and numeric fields are parsed
+ *   directly from the bytes into primitive arrays. The arrays of each block are then
+ *   concatenated in order.</li>
+ * </ol>
+ *
+ * <p>Fields are split exactly as they are by {@code scan()}'s line-at-a-time reader,
+ * except that newlines within quoted fields are part of the field, unless a comment character
+ * is given.</p>
+ *
+ * <p>The scan can begin part way through the file, after lines that have already been read through
+ * the connection's reader, such as those read by {@code read.table()} to count the columns and
+ * find the header. Any text pushed back onto the connection is read first.</p>
+ *
+ * <p>Character columns whose values look numeric in a sample from the start of the data are also
+ * parsed as numbers, and read into a {@link ParsedStringVector}, so that {@code type.convert()}
+ * does not need to parse them again.</p>
+ */
+public class TableScanner {
+
+  static final int BLOCK_SIZE = 4 * 1024 * 1024;
+
+  /**
+   * The number of bytes from the start of the data used to guess the type of character columns
+   */
+  static final int SAMPLE_SIZE = 64 * 1024;
+
+  private static final byte NEWLINE = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  /**
+   * Powers of ten which are exactly representable as doubles
+   */
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for(int i=1;i!=POWERS_OF_TEN.length;++i) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+    }
+  }
+
+  private enum ColumnType {
+    STRING,
+    DOUBLE,
+    INT,
+
+    /**
+     * A character column which is also parsed as numbers
+     */
+    PARSED
+  }
+
+  private final FileChannel channel;
+  private final byte separator;
+  private final boolean quoting;
+  private final byte quote;
+  private final boolean commenting;
+  private final byte comment;
+
+  /**
+   * True if quoted fields may contain newlines
+   */
+  private final boolean quotedNewlines;
+  private final boolean blankLinesSkip;
+  private final Charset charset;
+  private final StringPool stringPool;
+  private final int blockSize;
+
+  /**
+   * @param quote the quote character, or -1 if fields are not quoted
+   * @param comment the comment character, or -1 if there are no comment lines
+   */
+  TableScanner(FileChannel channel, byte separator, int quote, int comment, boolean blankLinesSkip,
+               Charset charset, StringPool stringPool, int blockSize) {
+    this.channel = channel;
+    this.separator = separator;
+    this.quoting = quote != -1;
+    this.quote = (byte) quote;
+    this.commenting = comment != -1;
+    this.comment = (byte) comment;
+    // as in the line reader, quotes do not span lines when comments are recognized, as
+    // the start of a comment line can otherwise only be found by scanning from the start
+    this.quotedNewlines = quoting && !commenting;
+    this.blankLinesSkip = blankLinesSkip;
+    this.charset = charset;
+    this.stringPool = stringPool;
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Reads the fields of a file connection from its current position, in the connection's encoding.
+   *
+   * @return the fields read, in the same form as {@code scan()} returns them, or {@code null} if
+   * the file, its encoding, the position of the connection or the arguments can not be handled by
+   * this scanner, in which case nothing has been read.
+   */
+  public static Vector tryScan(FileConnection connection, Vector what, String separator,
+                               String quote, int skip, boolean blankLinesSkip, String commentChar,
+                               StringPool stringPool) throws IOException {
+
+    Charset charset = connection.getCharset();
+    if(!isAsciiCompatible(charset) ||
+       separator == null || separator.length() != 1 || Character.isWhitespace(separator.charAt(0)) ||
+       !isSingleByte(separator.charAt(0), charset) || !columnTypesSupported(what)) {
+      return null;
+    }
+    int quoteByte = -1;
+    if(quote != null && quote.length() > 0) {
+      if(quote.charAt(0) == separator.charAt(0) || !isSingleByte(quote.charAt(0), charset)) {
+        return null;
+      }
+      quoteByte = quote.charAt(0);
+    }
+    int commentByte = -1;
+    if(commentChar != null && commentChar.length() > 0) {
+      if(commentChar.length() != 1 || commentChar.charAt(0) == separator.charAt(0) ||
+         commentChar.charAt(0) == quoteByte || !isSingleByte(commentChar.charAt(0), charset)) {
+        return null;
+      }
+      commentByte = commentChar.charAt(0);
+    }
+
+    FileChannel channel = connection.openChannel();
+    if(channel == null) {
+      return null;
+    }
+    try {
+      byte[] header = new byte[8];
+      int headerLength = Math.max(0, channel.read(ByteBuffer.wrap(header), 0));
+      if(FileConnection.isCompressed(header, headerLength)) {
+        return null;
+      }
+      long linesRead = connection.getLinesRead();
+      if(linesRead == -1) {
+        return null;
+      }
+      byte[] pushedBack = connection.getReader().getPushedBack().getBytes(charset);
+      if(pushedBack.length > 0 && skip > 0) {
+        // the lines to skip would start with the pushed back text
+        return null;
+      }
+      TableScanner scanner = new TableScanner(channel, (byte) separator.charAt(0), quoteByte, commentByte,
+          blankLinesSkip, charset, stringPool, BLOCK_SIZE);
+      Vector result = scanner.scan(what, pushedBack, scanner.skipLines(0, linesRead + skip));
+
+      // leave the connection positioned at the end of the file, as if it had been read
+      connection.skipToEnd(channel.size());
+
+      return result;
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * @return true if the digits, signs, decimal point, exponent markers and line endings that
+   * are matched against the bytes of the file are encoded by {@code charset} as the same single
+   * bytes as in ASCII, and those bytes never occur within the encoding of another character.
+   * This is true of UTF-8, and of the ASCII-based single byte encodings such as ISO-8859-1, but
+   * not of multibyte encodings like UTF-16, Shift_JIS or GBK.
+   */
+  private static boolean isAsciiCompatible(Charset charset) {
+    if(!(charset.name().equals("UTF-8") || charset.newEncoder().maxBytesPerChar() == 1)) {
+      return false;
+    }
+    String ascii = "0123456789+-.eE\r\n";
+    return Arrays.equals(ascii.getBytes(charset), ascii.getBytes(Charsets.US_ASCII));
+  }
+
+  /**
+   * @return true if {@code c} is encoded as the single byte {@code c} by an
+   * {@link #isAsciiCompatible(Charset) ASCII compatible} {@code charset}
+   */
+  private static boolean isSingleByte(char c, Charset charset) {
+    if(c >= 128) {
+      return false;
+    }
+    byte[] bytes = String.valueOf(c).getBytes(charset);
+    return bytes.length == 1 && bytes[0] == c;
+  }
+
+  private static boolean columnTypesSupported(Vector what) {
+    if(what instanceof ListVector) {
+      for(SEXP column : (ListVector) what) {
+        if(columnType(column) == null) {
+          return false;
+        }
+      }
+      return what.length() > 0;
+    } else {
+      return columnType(what) != null;
+    }
+  }
+
+  private static ColumnType columnType(SEXP exp) {
+    if(exp instanceof StringVector) {
+      return ColumnType.STRING;
+    } else if(exp instanceof DoubleVector) {
+      return ColumnType.DOUBLE;
+    } else if(exp instanceof IntVector) {
+      return ColumnType.INT;
+    } else {
+      return null;
+    }
+  }
+
+  Vector scan(Vector what, byte[] prefix, long start) throws IOException {
+    final ColumnType[] types;
+    if(what instanceof ListVector) {
+      types = new ColumnType[what.length()];
+      for(int i=0;i!=types.length;++i) {
+        types[i] = columnType(((ListVector) what).getElementAsSEXP(i));
+      }
+    } else {
+      types = new ColumnType[] { columnType(what) };
+    }
+    final boolean list = what instanceof ListVector;
+
+    guessParsedColumns(types, list, prefix, start);
+
+    List<long[]> segments = findRows(start, countQuotes(prefix, 0, prefix.length, false));
+    if(segments.isEmpty() && prefix.length > 0) {
+      segments.add(new long[] { start, start });
+    }
+    List<Callable<Column[]>> tasks = Lists.newArrayList();
+    for(int i=0;i!=segments.size();++i) {
+      final long[] segment = segments.get(i);
+      final byte[] segmentPrefix = i == 0 ? prefix : new byte[0];
+      tasks.add(new Callable<Column[]>() {
+        @Override
+        public Column[] call() throws Exception {
+          return readRows(read(segmentPrefix, segment[0], segment[1] - segment[0]), newColumns(types), list);
+        }
+      });
+    }
+    List<Column[]> blocks = invokeAll(tasks);
+
+    if(list) {
+      ListVector.Builder result = new ListVector.Builder();
+      for(int i=0;i!=types.length;++i) {
+        result.add(concat(blocks, i, types[i]));
+      }
+      SEXP names = what.getAttribute(Symbols.NAMES);
+      if(names != Null.INSTANCE) {
+        result.setAttribute(Symbols.NAMES, names);
+      }
+      return result.build();
+    } else {
+      return concat(blocks, 0, types[0]);
+    }
+  }
+
+  /**
+   * Changes the type of the character columns whose non-empty values are all decimal numbers
+   * in the first {@link #SAMPLE_SIZE} bytes of the data to {@link ColumnType#PARSED}
+   */
+  private void guessParsedColumns(ColumnType[] types, boolean list, byte[] prefix, long start) throws IOException {
+    if(!Arrays.asList(types).contains(ColumnType.STRING)) {
+      return;
+    }
+    long size = channel.size();
+    byte[] sample = read(prefix, start, Math.min(SAMPLE_SIZE, size - start));
+    int length = sample.length;
+    if(start + SAMPLE_SIZE < size) {
+      // only sample whole rows
+      while(length > 0 && sample[length - 1] != NEWLINE) {
+        length--;
+      }
+    }
+    Column[] columns = new Column[types.length];
+    for(int i=0;i!=types.length;++i) {
+      columns[i] = new SampleColumn();
+    }
+    readRows(Arrays.copyOf(sample, length), columns, list);
+    for(int i=0;i!=types.length;++i) {
+      SampleColumn column = (SampleColumn) columns[i];
+      if(types[i] == ColumnType.STRING && column.numbers > 0 && !column.text) {
+        types[i] = ColumnType.PARSED;
+      }
+    }
+  }
+
+  /**
+   * @return the offset of the first byte after the {@code count} lines following {@code position}.
+   * Lines end with a newline, a carriage return and a newline, or a carriage return alone, as they
+   * do for {@link java.io.BufferedReader#readLine()}
+   */
+  long skipLines(long position, long count) throws IOException {
+    long size = channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    boolean carriageReturn = false;
+    while(count > 0 && position < size) {
+      buffer.clear();
+      int length = channel.read(buffer, position);
+      if(length <= 0) {
+        break;
+      }
+      byte[] bytes = buffer.array();
+      for(int i=0;i!=length;++i) {
+        if(carriageReturn && bytes[i] != NEWLINE) {
+          // the line ended with the carriage return alone
+          if(--count == 0) {
+            return position + i;
+          }
+        }
+        carriageReturn = bytes[i] == CARRIAGE_RETURN;
+        if(bytes[i] == NEWLINE) {
+          if(--count == 0) {
+            return position + i + 1;
+          }
+        }
+      }
+      position += length;
+    }
+    return count == 0 ? position : size;
+  }
+
+  /**
+   * The first pass over a block
+   */
+  private static class Boundaries {
+    private boolean oddQuotes;
+
+    /**
+     * The offset of the first newline that ends a row if the block begins outside
+     * of a quoted field (index 0) or within one (index 1), or -1 if there is none.
+     */
+    private final long[] firstRowEnd = { -1, -1 };
+  }
+
+  /**
+   * Divides the file from {@code start} into segments of whole rows, one per block.
+   *
+   * @param quoted true if the file at {@code start} is within a quoted field
+   * @return the start and end offsets of each segment
+   */
+  private List<long[]> findRows(long start, boolean quoted) throws IOException {
+    long size = channel.size();
+    List<Callable<Boundaries>> tasks = Lists.newArrayList();
+    for(long blockStart = start; blockStart < size; blockStart += blockSize) {
+      final long offset = blockStart;
+      final int length = (int) Math.min(blockSize, size - blockStart);
+      tasks.add(new Callable<Boundaries>() {
+        @Override
+        public Boundaries call() throws Exception {
+          return findBoundaries(offset, length);
+        }
+      });
+    }
+    List<Boundaries> blocks = invokeAll(tasks);
+
+    List<long[]> segments = Lists.newArrayList();
+    long segmentStart = start;
+    for(int i=0;i!=blocks.size();++i) {
+      if(i > 0) {
+        long rowEnd = blocks.get(i).firstRowEnd[quoted ? 1 : 0];
+        if(rowEnd != -1) {
+          segments.add(new long[] { segmentStart, rowEnd + 1 });
+          segmentStart = rowEnd + 1;
+        }
+      }
+      quoted ^= blocks.get(i).oddQuotes;
+    }
+    if(segmentStart < size) {
+      segments.add(new long[] { segmentStart, size });
+    }
+    return segments;
+  }
+
+  private Boundaries findBoundaries(long offset, int length) throws IOException {
+    byte[] bytes = read(offset, length);
+    Boundaries boundaries = new Boundaries();
+    boolean odd = false;
+    for(int i=0;i!=length;++i) {
+      byte b = bytes[i];
+      if(quotedNewlines && b == quote) {
+        odd = !odd;
+      } else if(b == NEWLINE) {
+        // a block which began outside of quotes is now outside of quotes if odd is false
+        int startState = odd ? 1 : 0;
+        if(boundaries.firstRowEnd[startState] == -1) {
+          boundaries.firstRowEnd[startState] = offset + i;
+          if(boundaries.firstRowEnd[1 - startState] != -1) {
+            // only the parity remains to be found
+            odd = countQuotes(bytes, i + 1, length, odd);
+            break;
+          }
+        }
+      }
+    }
+    boundaries.oddQuotes = odd;
+    return boundaries;
+  }
+
+  /**
+   * @return the quoted state after {@code bytes[from:to]}, which began in the quoted state {@code odd}
+   */
+  private boolean countQuotes(byte[] bytes, int from, int to, boolean odd) {
+    if(quotedNewlines) {
+      for(int i=from;i<to;++i) {
+        if(bytes[i] == quote) {
+          odd = !odd;
+        }
+      }
+    }
+    return odd;
+  }
+
+  private byte[] read(long offset, long length) throws IOException {
+    return read(new byte[0], offset, length);
+  }
+
+  /**
+   * @return {@code prefix} followed by {@code length} bytes of the file from {@code offset}
+   */
+  private byte[] read(byte[] prefix, long offset, long length) throws IOException {
+    if(prefix.length + length > Integer.MAX_VALUE) {
+      throw new IOException("Row is too long");
+    }
+    byte[] bytes = Arrays.copyOf(prefix, prefix.length + (int) length);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, prefix.length, (int) length);
+    while(buffer.hasRemaining()) {
+      int count = channel.read(buffer, offset + buffer.position() - prefix.length);
+      if(count < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Splits the whole rows in {@code bytes} into fields, which are added to {@code columns}
+   */
+  private Column[] readRows(byte[] bytes, Column[] columns, boolean list) {
+    byte[] unquoted = null;
+    int length = bytes.length;
+    int pos = 0;
+    while(pos < length) {
+      if(blankLinesSkip && isBlankLine(bytes, pos, length)) {
+        pos = bytes[pos] == CARRIAGE_RETURN ? pos + 2 : pos + 1;
+        continue;
+      }
+      if(commenting && bytes[pos] == comment) {
+        while(pos < length && bytes[pos] != NEWLINE) {
+          pos++;
+        }
+        pos++;
+        continue;
+      }
+      int field = 0;
+      boolean endOfRow = false;
+      while(!endOfRow) {
+        int fieldStart = pos;
+        boolean quoted = false;
+        int quotes = 0;
+        while(pos < length) {
+          byte b = bytes[pos];
+          if(quoting && b == quote) {
+            quoted = !quoted;
+            quotes++;
+          } else if(b == NEWLINE && !(quoted && quotedNewlines)) {
+            break;
+          } else if(!quoted && b == separator) {
+            break;
+          }
+          pos++;
+        }
+        int fieldEnd = pos;
+        if(pos == length || bytes[pos] == NEWLINE) {
+          endOfRow = true;
+          if(fieldEnd > fieldStart && bytes[fieldEnd - 1] == CARRIAGE_RETURN) {
+            fieldEnd--;
+          }
+        }
+        pos++;
+
+        byte[] fieldBytes = bytes;
+        if(quotes > 0) {
+          if(unquoted == null || unquoted.length < fieldEnd - fieldStart) {
+            unquoted = new byte[Math.max(256, fieldEnd - fieldStart)];
+          }
+          int unquotedLength = 0;
+          for(int i=fieldStart;i!=fieldEnd;++i) {
+            if(bytes[i] != quote) {
+              unquoted[unquotedLength++] = bytes[i];
+            }
+          }
+          fieldBytes = unquoted;
+          fieldStart = 0;
+          fieldEnd = unquotedLength;
+        }
+
+        if(!list) {
+          columns[0].add(fieldBytes, fieldStart, fieldEnd - fieldStart);
+        } else if(field < columns.length) {
+          columns[field].add(fieldBytes, fieldStart, fieldEnd - fieldStart);
+        } else {
+          throw new EvalException("scan() expected %d fields per line, but found more", columns.length);
+        }
+        field++;
+      }
+    }
+    return columns;
+  }
+
+  private static boolean isBlankLine(byte[] bytes, int pos, int length) {
+    return bytes[pos] == NEWLINE ||
+        (bytes[pos] == CARRIAGE_RETURN && pos + 1 < length && bytes[pos + 1] == NEWLINE);
+  }
+
+  private Column[] newColumns(ColumnType[] types) {
+    Column[] columns = new Column[types.length];
+    for(int i=0;i!=types.length;++i) {
+      columns[i] = newColumn(types[i]);
+    }
+    return columns;
+  }
+
+  private Column newColumn(ColumnType type) {
+    switch (type) {
+      case STRING:
+        return new StringColumn(charset, stringPool);
+      case DOUBLE:
+        return new DoubleColumn(charset);
+      case INT:
+        return new IntColumn(charset);
+      case PARSED:
+        return new ParsedColumn(charset);
+    }
+    throw new IllegalArgumentException("type: " + type);
+  }
+
+  private Vector concat(List<Column[]> blocks, int index, ColumnType type) {
+    if(blocks.isEmpty()) {
+      return newColumn(type).concat(new Column[0]);
+    }
+    Column[] columns = new Column[blocks.size()];
+    for(int i=0;i!=columns.length;++i) {
+      columns[i] = blocks.get(i)[index];
+    }
+    return columns[0].concat(columns);
+  }
+
+  private static abstract class Column {
+    protected int size;
+
+    abstract void add(byte[] bytes, int offset, int length);
+
+    abstract Vector concat(Column[] columns);
+
+    protected static int totalSize(Column[] columns) {
+      long total = 0;
+      for(Column column : columns) {
+        total += column.size;
+      }
+      if(total > Integer.MAX_VALUE) {
+        throw new EvalException("Too many elements to read into a single vector");
+      }
+      return (int) total;
+    }
+
+    protected static int grow(int capacity) {
+      return Math.max(16, capacity + (capacity >> 1));
+    }
+  }
+
+  /**
+   * Encodes the strings of a block against a dictionary of the block's distinct values, so
+   * that a String is only created for the first occurrence of each value. Should the block turn
+   * out to have mostly distinct values, the dictionary is dropped and Strings are created
+   * for every value.
+   */
+  private static class StringColumn extends Column {
+
+    /**
+     * Dictionaries are kept while they have fewer levels than this, or fewer than half as many
+     * levels as there are elements
+     */
+    private static final int MAX_LEVELS = 4096;
+
+    private final Charset charset;
+    private final StringPool pool;
+
+    private int[] codes = new int[16];
+    private String[] levels = new String[16];
+    private int levelCount;
+
+    /**
+     * The bytes of each level, concatenated
+     */
+    private byte[] levelBytes = new byte[256];
+    private int[] levelOffsets = new int[17];
+
+    /**
+     * Open-addressed hash table of level codes + 1, or zero if empty
+     */
+    private int[] table = new int[32];
+
+    /**
+     * The decoded values, once the dictionary has been dropped
+     */
+    private String[] values;
+
+    private StringColumn(Charset charset, StringPool pool) {
+      this.charset = charset;
+      this.pool = pool;
+    }
+
+    @Override
+    void add(byte[] bytes, int offset, int length) {
+      if(values != null) {
+        if(size == values.length) {
+          values = Arrays.copyOf(values, grow(size));
+        }
+        values[size++] = new String(bytes, offset, length, charset);
+        return;
+      }
+      int mask = table.length - 1;
+      int slot = hash(bytes, offset, length) & mask;
+      while(table[slot] != 0) {
+        int code = table[slot] - 1;
+        if(levelEquals(code, bytes, offset, length)) {
+          addCode(code);
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if(levelCount >= MAX_LEVELS && levelCount * 2 > size) {
+        decode();
+        add(bytes, offset, length);
+        return;
+      }
+      table[slot] = addLevel(bytes, offset, length) + 1;
+      if(levelCount * 2 > table.length) {
+        rehash();
+      }
+      addCode(levelCount - 1);
+    }
+
+    private void addCode(int code) {
+      if(size == codes.length) {
+        codes = Arrays.copyOf(codes, grow(size));
+      }
+      codes[size++] = code;
+    }
+
+    private int addLevel(byte[] bytes, int offset, int length) {
+      if(levelCount == levels.length) {
+        levels = Arrays.copyOf(levels, levelCount * 2);
+        levelOffsets = Arrays.copyOf(levelOffsets, levelCount * 2 + 1);
+      }
+      int start = levelOffsets[levelCount];
+      if(start + length > levelBytes.length) {
+        levelBytes = Arrays.copyOf(levelBytes, Math.max(start + length, levelBytes.length * 2));
+      }
+      System.arraycopy(bytes, offset, levelBytes, start, length);
+      levelOffsets[levelCount + 1] = start + length;
+      levels[levelCount] = pool.intern(new String(bytes, offset, length, charset));
+      return levelCount++;
+    }
+
+    private boolean levelEquals(int code, byte[] bytes, int offset, int length) {
+      int start = levelOffsets[code];
+      if(levelOffsets[code + 1] - start != length) {
+        return false;
+      }
+      for(int i=0;i!=length;++i) {
+        if(levelBytes[start + i] != bytes[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void rehash() {
+      table = new int[table.length * 2];
+      int mask = table.length - 1;
+      for(int code=0;code!=levelCount;++code) {
+        int start = levelOffsets[code];
+        int slot = hash(levelBytes, start, levelOffsets[code + 1] - start) & mask;
+        while(table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = code + 1;
+      }
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+      int h = 0;
+      for(int i=0;i!=length;++i) {
+        h = 31 * h + bytes[offset + i];
+      }
+      h *= 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    /**
+     * Drops the dictionary, replacing codes with values
+     */
+    private void decode() {
+      values = new String[grow(size)];
+      for(int i=0;i!=size;++i) {
+        values[i] = levels[codes[i]];
+      }
+      codes = null;
+      levels = null;
+      levelBytes = null;
+      levelOffsets = null;
+      table = null;
+    }
+
+    @Override
+    Vector concat(Column[] columns) {
+      int totalSize = totalSize(columns);
+      int totalLevels = 0;
+      for(Column column : columns) {
+        StringColumn block = (StringColumn) column;
+        if(block.values != null) {
+          return concatValues(columns, totalSize);
+        }
+        totalLevels += block.levelCount;
+      }
+
+      // blocks' levels are merged in the order in which they first appear
+      Map<String, Integer> levelMap = Maps.newHashMapWithExpectedSize(totalLevels);
+      int[] codes = new int[totalSize];
+      int offset = 0;
+      for(Column column : columns) {
+        StringColumn block = (StringColumn) column;
+        int[] recode = new int[block.levelCount];
+        for(int i=0;i!=block.levelCount;++i) {
+          Integer code = levelMap.get(block.levels[i]);
+          if(code == null) {
+            code = levelMap.size();
+            levelMap.put(block.levels[i], code);
+          }
+          recode[i] = code;
+        }
+        for(int i=0;i!=block.size;++i) {
+          codes[offset++] = recode[block.codes[i]];
+        }
+      }
+      if(totalSize == 0 || levelMap.size() * 2 > totalSize) {
+        return concatValues(columns, totalSize);
+      }
+      String[] levels = new String[levelMap.size()];
+      for(Map.Entry<String, Integer> entry : levelMap.entrySet()) {
+        levels[entry.getValue()] = entry.getKey();
+      }
+      return new StringDictionaryVector(codes, levels);
+    }
+
+    private Vector concatValues(Column[] columns, int totalSize) {
+      String[] result = new String[totalSize];
+      int offset = 0;
+      for(Column column : columns) {
+        StringColumn block = (StringColumn) column;
+        if(block.values != null) {
+          System.arraycopy(block.values, 0, result, offset, block.size);
+        } else {
+          for(int i=0;i!=block.size;++i) {
+            result[offset + i] = block.levels[block.codes[i]];
+          }
+        }
+        offset += block.size;
+      }
+      return new StringArrayVector(result);
+    }
+  }
+
+  private static class DoubleColumn extends Column {
+    private final Charset charset;
+    private double[] values = new double[16];
+
+    private DoubleColumn(Charset charset) {
+      this.charset = charset;
+    }
+
+    @Override
+    void add(byte[] bytes, int offset, int length) {
+      if(size == values.length) {
+        values = Arrays.copyOf(values, grow(size));
+      }
+      values[size++] = parseDouble(bytes, offset, length, charset);
+    }
+
+    @Override
+    Vector concat(Column[] columns) {
+      double[] result = new double[totalSize(columns)];
+      int offset = 0;
+      for(Column column : columns) {
+        System.arraycopy(((DoubleColumn) column).values, 0, result, offset, column.size);
+        offset += column.size;
+      }
+      return DoubleArrayVector.unsafe(result);
+    }
+  }
+
+  private static class IntColumn extends Column {
+    private final Charset charset;
+    private int[] values = new int[16];
+
+    private IntColumn(Charset charset) {
+      this.charset = charset;
+    }
+
+    @Override
+    void add(byte[] bytes, int offset, int length) {
+      if(size == values.length) {
+        values = Arrays.copyOf(values, grow(size));
+      }
+      values[size++] = parseInt(bytes, offset, length, charset);
+    }
+
+    @Override
+    Vector concat(Column[] columns) {
+      int[] result = new int[totalSize(columns)];
+      int offset = 0;
+      for(Column column : columns) {
+        System.arraycopy(((IntColumn) column).values, 0, result, offset, column.size);
+        offset += column.size;
+      }
+      return IntArrayVector.unsafe(result);
+    }
+  }
+
+  /**
+   * Classifies the fields of a column sampled from the start of the data
+   */
+  private static class SampleColumn extends Column {
+    private int numbers;
+    private boolean text;
+
+    @Override
+    void add(byte[] bytes, int offset, int length) {
+      int kind = classify(bytes, offset, length);
+      if(kind == TEXT) {
+        text = true;
+      } else if(kind != EMPTY) {
+        numbers++;
+      }
+    }
+
+    @Override
+    Vector concat(Column[] columns) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Keeps the text of each field of a character column, and parses each field as a number
+   * until one is found that is not.
+   */
+  private static class ParsedColumn extends Column {
+    private final Charset charset;
+
+    /**
+     * The text of each field, concatenated
+     */
+    private byte[] bytes = new byte[256];
+    private int[] offsets = new int[17];
+
+    private double[] values = new double[16];
+
+    /**
+     * The bitwise or of the kinds of the fields
+     */
+    private int kinds;
+
+    private ParsedColumn(Charset charset) {
+      this.charset = charset;
+    }
+
+    @Override
+    void add(byte[] fieldBytes, int offset, int length) {
+      if(size + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, grow(offsets.length));
+      }
+      int start = offsets[size];
+      if(start + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(start + length, grow(bytes.length)));
+      }
+      System.arraycopy(fieldBytes, offset, bytes, start, length);
+      offsets[size + 1] = start + length;
+
+      if((kinds & TEXT) == 0) {
+        int kind = classify(fieldBytes, offset, length);
+        kinds |= kind;
+        if(size == values.length) {
+          values = Arrays.copyOf(values, grow(size));
+        }
+        if(kind == INTEGER) {
+          values[size] = parseInt(fieldBytes, offset, length, charset);
+        } else if(kind != EMPTY && kind != TEXT) {
+          values[size] = parseDouble(fieldBytes, offset, length, charset);
+        }
+      }
+      size++;
+    }
+
+    @Override
+    Vector concat(Column[] columns) {
+      int totalSize = totalSize(columns);
+      int columnKinds = 0;
+      byte[][] blockBytes = new byte[columns.length][];
+      int[][] blockOffsets = new int[columns.length][];
+      int[] blockStarts = new int[columns.length];
+      int blockStart = 0;
+      for(int i=0;i!=columns.length;++i) {
+        ParsedColumn block = (ParsedColumn) columns[i];
+        columnKinds |= block.kinds;
+        blockBytes[i] = block.bytes;
+        blockOffsets[i] = block.offsets;
+        blockStarts[i] = blockStart;
+        blockStart += block.size;
+      }
+
+      // type.convert() would read integer fields as integers, unless there is a field which
+      // only parses as a double. Fields like 1e3 or 2147483648 may be either, so are left to it.
+      AtomicVector parsed;
+      if((columnKinds & (TEXT | OTHER_NUMBER | FRACTION)) == 0 && (columnKinds & INTEGER) != 0) {
+        int[] result = new int[totalSize];
+        int offset = 0;
+        for(Column column : columns) {
+          ParsedColumn block = (ParsedColumn) column;
+          for(int i=0;i!=block.size;++i) {
+            result[offset++] = block.isEmpty(i) ? IntVector.NA : (int) block.values[i];
+          }
+        }
+        parsed = IntArrayVector.unsafe(result);
+      } else if((columnKinds & TEXT) == 0 && (columnKinds & FRACTION) != 0) {
+        double[] result = new double[totalSize];
+        int offset = 0;
+        for(Column column : columns) {
+          ParsedColumn block = (ParsedColumn) column;
+          for(int i=0;i!=block.size;++i) {
+            result[offset++] = block.isEmpty(i) ? DoubleVector.NA : block.values[i];
+          }
+        }
+        parsed = DoubleArrayVector.unsafe(result);
+      } else {
+        return concatStrings(columns, totalSize);
+      }
+      return new ParsedStringVector(blockBytes, blockOffsets, blockStarts, charset, parsed);
+    }
+
+    private boolean isEmpty(int index) {
+      return offsets[index + 1] == offsets[index];
+    }
+
+    private Vector concatStrings(Column[] columns, int totalSize) {
+      String[] result = new String[totalSize];
+      int offset = 0;
+      for(Column column : columns) {
+        ParsedColumn block = (ParsedColumn) column;
+        for(int i=0;i!=block.size;++i) {
+          int start = block.offsets[i];
+          result[offset++] = new String(block.bytes, start, block.offsets[i + 1] - start, charset);
+        }
+      }
+      return new StringArrayVector(result);
+    }
+  }
+
+  /**
+   * Kinds of field, which are distinct bits so that the kinds of a column's fields can be combined
+   */
+  private static final int EMPTY = 0;
+
+  /**
+   * A decimal integer of at most nine digits, with an optional minus sign, such as {@code -12}
+   */
+  private static final int INTEGER = 1;
+
+  /**
+   * A decimal number with a decimal point, such as {@code 1.5e-3}
+   */
+  private static final int FRACTION = 2;
+
+  /**
+   * Any other decimal number, such as {@code 1e3}, {@code +4} or {@code 12345678901}
+   */
+  private static final int OTHER_NUMBER = 4;
+  private static final int TEXT = 8;
+
+  /**
+   * @return the kind of the field in {@code bytes[offset:offset+length]}
+   */
+  static int classify(byte[] bytes, int offset, int length) {
+    if(length == 0) {
+      return EMPTY;
+    }
+    int pos = offset;
+    int end = offset + length;
+    boolean sign = bytes[pos] == '-' || bytes[pos] == '+';
+    if(sign) {
+      pos++;
+    }
+    int digits = 0;
+    while(pos < end && isDigit(bytes[pos])) {
+      pos++;
+      digits++;
+    }
+    boolean point = pos < end && bytes[pos] == '.';
+    if(point) {
+      pos++;
+      while(pos < end && isDigit(bytes[pos])) {
+        pos++;
+        digits++;
+      }
+    }
+    if(digits == 0) {
+      return TEXT;
+    }
+    boolean exponent = pos < end && (bytes[pos] == 'e' || bytes[pos] == 'E');
+    if(exponent) {
+      pos++;
+      if(pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+        pos++;
+      }
+      int exponentStart = pos;
+      while(pos < end && isDigit(bytes[pos])) {
+        pos++;
+      }
+      if(pos == exponentStart) {
+        return TEXT;
+      }
+    }
+    if(pos != end) {
+      return TEXT;
+    } else if(point) {
+      return FRACTION;
+    } else if(!exponent && bytes[offset] != '+' && digits <= 9) {
+      return INTEGER;
+    } else {
+      return OTHER_NUMBER;
+    }
+  }
+
+  /**
+   * Parses a decimal number such as {@code -12.5e3} without creating a String, giving the same
+   * result as {@link ParseUtil#parseDouble(String)}. Numbers with more than 15 significant digits
+   * or large exponents, which can not be converted exactly with a single rounding, and anything
+   * other than a plain decimal number, are passed on to {@code ParseUtil}.
+   */
+  static double parseDouble(byte[] bytes, int offset, int length, Charset charset) {
+    int pos = offset;
+    int end = offset + length;
+    boolean negative = false;
+    if(pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+      negative = bytes[pos] == '-';
+      pos++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    while(pos < end && isDigit(bytes[pos])) {
+      mantissa = mantissa * 10 + (bytes[pos++] - '0');
+      digits++;
+    }
+    if(pos < end && bytes[pos] == '.') {
+      pos++;
+      while(pos < end && isDigit(bytes[pos])) {
+        mantissa = mantissa * 10 + (bytes[pos++] - '0');
+        digits++;
+        exponent--;
+      }
+    }
+    if(pos < end && (bytes[pos] == 'e' || bytes[pos] == 'E')) {
+      pos++;
+      boolean negativeExponent = false;
+      if(pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+        negativeExponent = bytes[pos] == '-';
+        pos++;
+      }
+      int exponentStart = pos;
+      int explicitExponent = 0;
+      while(pos < end && isDigit(bytes[pos]) && pos - exponentStart < 4) {
+        explicitExponent = explicitExponent * 10 + (bytes[pos++] - '0');
+      }
+      if(pos == exponentStart) {
+        return parseDoubleSlowly(bytes, offset, length, charset);
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+    if(pos != end || digits == 0 || digits > 15 ||
+        exponent < -(POWERS_OF_TEN.length - 1) || exponent > POWERS_OF_TEN.length - 1) {
+      return parseDoubleSlowly(bytes, offset, length, charset);
+    }
+    double value = mantissa;
+    if(exponent < 0) {
+      value /= POWERS_OF_TEN[-exponent];
+    } else {
+      value *= POWERS_OF_TEN[exponent];
+    }
+    return negative ? -value : value;
+  }
+
+  private static double parseDoubleSlowly(byte[] bytes, int offset, int length, Charset charset) {
+    return ParseUtil.parseDouble(new String(bytes, offset, length, charset));
+  }
+
+  /**
+   * Parses a decimal integer without creating a String, giving the same result
+   * as {@link ParseUtil#parseInt(String)}.
+   */
+  static int parseInt(byte[] bytes, int offset, int length, Charset charset) {
+    int pos = offset;
+    int end = offset + length;
+    boolean negative = pos < end && bytes[pos] == '-';
+    if(negative) {
+      pos++;
+    }
+    // nine digits can not overflow
+    if(pos == end || end - pos > 9) {
+      return parseIntSlowly(bytes, offset, length, charset);
+    }
+    int value = 0;
+    while(pos < end) {
+      if(!isDigit(bytes[pos])) {
+        return parseIntSlowly(bytes, offset, length, charset);
+      }
+      value = value * 10 + (bytes[pos++] - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  private static int parseIntSlowly(byte[] bytes, int offset, int length, Charset charset) {
+    return ParseUtil.parseInt(new String(bytes, offset, length, charset));
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  /**
+   * Runs {@code tasks}, in parallel if there is more than one
+   *
+   * @return their results, in order
+   */
+  private static <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+    List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+    try {
+      if(tasks.size() == 1) {
+        results.add(tasks.get(0).call());
+      } else {
+        for(Future<T> future : Parallel.executor().invokeAll(tasks)) {
+          results.add(future.get());
+        }
+      }
+    } catch(InterruptedException e) {
+      throw new InterruptedIOException();
+    } catch(ExecutionException e) {
+      throw propagate(e.getCause());
+    } catch(Exception e) {
+      throw propagate(e);
+    }
+    return results;
+  }
+
+  private static IOException propagate(Throwable e) {
+    if(e instanceof IOException) {
+      return (IOException) e;
+    } else if(e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if(e instanceof Error) {
+      throw (Error) e;
+    } else {
+      return new IOException(e);
+    }
+  }
+}
@@ -1,20 +1,24 @@
 package org.renjin.primitives.io.connections;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
 
 public abstract class AbstractConnection implements Connection {
 
   private PushbackBufferedReader reader;
   private PrintWriter writer;
+  private Charset charset = Charset.defaultCharset();
   
   @Override
   public final PushbackBufferedReader getReader() throws IOException {
     if(this.reader == null) {
       this.reader =
           new PushbackBufferedReader(
-          new InputStreamReader(getInputStream()));
+          new InputStreamReader(getReaderInputStream(), charset));
     }
     return this.reader;
   }
@@ -22,11 +26,33 @@ public abstract class AbstractConnection implements Connection {
   @Override
   public final PrintWriter getPrintWriter() throws IOException {
     if(writer == null) {
-      this.writer = new PrintWriter(getOutputStream());
+      this.writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
     }
     return this.writer;
   }
 
+  /**
+   * @return the stream from which {@link #getReader()} reads
+   */
+  protected InputStream getReaderInputStream() throws IOException {
+    return getInputStream();
+  }
+
+  /**
+   * @return the encoding in which text is read from and written to this connection
+   */
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Sets the encoding of text read from or written to this connection. This has no effect
+   * once the connection has been read from or written to as text.
+   */
+  public void setCharset(Charset charset) {
+    this.charset = charset;
+  }
+
   @Override
   public void close() throws IOException {
     if(reader != null) {
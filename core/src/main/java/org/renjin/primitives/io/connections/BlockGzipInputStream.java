@@ -0,0 +1,254 @@
+package org.renjin.primitives.io.connections;
+
+import com.google.common.io.ByteStreams;
+import org.renjin.util.Parallel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates a multi-member gzip file whose members record their own
+ * compressed size, using all available processors.
+ *
+ * <p>This is the "blocked" gzip format written by {@code bgzip} and other tools (BGZF),
+ * in which each member carries a {@code BC} extra subfield holding the size of the member.
+ * Because the boundaries of the members are known without inflating them, the
+ * compressed members can be read ahead and inflated in parallel, and are then
+ * returned in order. The output is identical to that of a {@link java.util.zip.GZIPInputStream}.</p>
+ */
+public class BlockGzipInputStream extends InputStream {
+
+  /**
+   * The number of bytes needed by {@link #isBlocked(byte[], int)} to recognize a blocked file
+   */
+  public static final int HEADER_LENGTH = 18;
+
+  private static final int FEXTRA = 4;
+  private static final int TRAILER_LENGTH = 8;
+
+  /**
+   * The maximum compression ratio achievable by deflate, used to reject
+   * corrupt sizes before allocating buffers for them
+   */
+  private static final int MAX_DEFLATE_RATIO = 1032;
+
+  private final InputStream source;
+  private final int maxPending;
+  private final Queue<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+  private boolean sourceExhausted;
+
+  private byte[] current;
+  private int pos;
+
+  public BlockGzipInputStream(InputStream source) {
+    this.source = source;
+    this.maxPending = Runtime.getRuntime().availableProcessors() * 4;
+  }
+
+  /**
+   * @return true if {@code header} begins with a gzip member that records its size
+   * in a {@code BC} extra subfield
+   */
+  public static boolean isBlocked(byte[] header, int length) {
+    return length >= HEADER_LENGTH &&
+        (header[0] & 0xFF) == GzFileConnection.GZIP_MAGIC_BYTE1 &&
+        (header[1] & 0xFF) == GzFileConnection.GZIP_MAGIC_BYTE2 &&
+        header[2] == 8 &&
+        (header[3] & FEXTRA) != 0 &&
+        header[12] == 'B' &&
+        header[13] == 'C' &&
+        header[14] == 2 &&
+        header[15] == 0;
+  }
+
+  /**
+   * Ensures that {@code current} has bytes remaining to be read
+   *
+   * @return false if the end of the stream has been reached
+   */
+  private boolean fill() throws IOException {
+    while(current == null || pos == current.length) {
+      while(!sourceExhausted && pending.size() < maxPending) {
+        Callable<byte[]> member = readMember();
+        if(member == null) {
+          sourceExhausted = true;
+        } else {
+          pending.add(Parallel.executor().submit(member));
+        }
+      }
+      Future<byte[]> next = pending.poll();
+      if(next == null) {
+        return false;
+      }
+      current = get(next);
+      pos = 0;
+    }
+    return true;
+  }
+
+  private byte[] get(Future<byte[]> future) throws IOException {
+    try {
+      return future.get();
+    } catch(InterruptedException e) {
+      throw new InterruptedIOException();
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Reads the next compressed member from the source
+   *
+   * @return a task which inflates the member, or {@code null} if the end
+   * of the source has been reached
+   */
+  private Callable<byte[]> readMember() throws IOException {
+    byte[] header = new byte[12];
+    int headerLength = ByteStreams.read(source, header, 0, header.length);
+    if(headerLength == 0) {
+      return null;
+    }
+    if(headerLength < header.length) {
+      throw new EOFException("Unexpected end of gzip file");
+    }
+    if((header[0] & 0xFF) != GzFileConnection.GZIP_MAGIC_BYTE1 ||
+       (header[1] & 0xFF) != GzFileConnection.GZIP_MAGIC_BYTE2 ||
+        header[2] != 8) {
+      throw new IOException("Not in gzip format");
+    }
+    if((header[3] & FEXTRA) == 0) {
+      throw new IOException("gzip member does not record its size");
+    }
+    int extraLength = readUnsignedShort(header, 10);
+    byte[] extra = new byte[extraLength];
+    ByteStreams.readFully(source, extra);
+
+    int blockSize = findBlockSize(extra);
+    int compressedLength = blockSize - header.length - extraLength - TRAILER_LENGTH;
+    if(compressedLength < 0) {
+      throw new IOException("Invalid gzip member size: " + blockSize);
+    }
+    final byte[] compressed = new byte[compressedLength];
+    ByteStreams.readFully(source, compressed);
+
+    byte[] trailer = new byte[TRAILER_LENGTH];
+    ByteStreams.readFully(source, trailer);
+    final long expectedCrc = readUnsignedInt(trailer, 0);
+    final int uncompressedLength = (int) readUnsignedInt(trailer, 4);
+    if(uncompressedLength < 0 || uncompressedLength > MAX_DEFLATE_RATIO * (compressedLength + 1)) {
+      throw new IOException("Invalid gzip member size: " + uncompressedLength);
+    }
+
+    return new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws Exception {
+        return inflate(compressed, uncompressedLength, expectedCrc);
+      }
+    };
+  }
+
+  private static int findBlockSize(byte[] extra) throws IOException {
+    int offset = 0;
+    while(offset + 4 <= extra.length) {
+      int subfieldLength = readUnsignedShort(extra, offset + 2);
+      if(extra[offset] == 'B' && extra[offset + 1] == 'C' && subfieldLength == 2) {
+        return readUnsignedShort(extra, offset + 4) + 1;
+      }
+      offset += 4 + subfieldLength;
+    }
+    throw new IOException("gzip member does not record its size");
+  }
+
+  private static byte[] inflate(byte[] compressed, int uncompressedLength, long expectedCrc) throws IOException {
+    byte[] uncompressed = new byte[uncompressedLength];
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      int length = 0;
+      while(!inflater.finished()) {
+        if(length == uncompressed.length) {
+          // the deflate stream should end here
+          if(inflater.inflate(new byte[1]) != 0 || !inflater.finished()) {
+            throw new IOException("Corrupt gzip member: size mismatch");
+          }
+          break;
+        }
+        int count = inflater.inflate(uncompressed, length, uncompressed.length - length);
+        if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Corrupt gzip member: unexpected end of data");
+        }
+        length += count;
+      }
+      if(length != uncompressedLength) {
+        throw new IOException("Corrupt gzip member: size mismatch");
+      }
+    } catch(DataFormatException e) {
+      throw new IOException("Corrupt gzip member", e);
+    } finally {
+      inflater.end();
+    }
+    CRC32 crc = new CRC32();
+    crc.update(uncompressed);
+    if(crc.getValue() != expectedCrc) {
+      throw new IOException("Corrupt gzip member: CRC mismatch");
+    }
+    return uncompressed;
+  }
+
+  private static int readUnsignedShort(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+  }
+
+  private static long readUnsignedInt(byte[] bytes, int offset) {
+    return readUnsignedShort(bytes, offset) | ((long) readUnsignedShort(bytes, offset + 2) << 16);
+  }
+
+  @Override
+  public int read() throws IOException {
+    if(!fill()) {
+      return -1;
+    }
+    return current[pos++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if(len == 0) {
+      return 0;
+    }
+    if(!fill()) {
+      return -1;
+    }
+    int count = Math.min(len, current.length - pos);
+    System.arraycopy(current, pos, b, off, count);
+    pos += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return current == null ? 0 : current.length - pos;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for(Future<byte[]> future : pending) {
+      future.cancel(false);
+    }
+    pending.clear();
+    source.close();
+  }
+}
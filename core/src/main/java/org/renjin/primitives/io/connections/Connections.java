@@ -39,6 +39,9 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 
 /**
  * 
@@ -79,7 +82,9 @@ public class Connections {
       final String path, String open, String encoding, double compressionLevel)
       throws IOException {
 
-    return newConnection(context, open, new GzFileConnection(context.resolveFile(path)));
+    GzFileConnection connection = new GzFileConnection(context.resolveFile(path));
+    connection.setCharset(charset(encoding));
+    return newConnection(context, open, connection);
   }
   
   /**
@@ -118,7 +123,29 @@ public class Connections {
     } else if(STD_ERR.equals(path)) {
       return stderr(context);
     } else {
-      return newConnection(context, open, new FileConnection(context.resolveFile(path)));
+      FileConnection connection = new FileConnection(context.resolveFile(path));
+      connection.setCharset(charset(encoding));
+      return newConnection(context, open, connection);
+    }
+  }
+
+  /**
+   * @return the charset named by an R {@code encoding} argument, or the default charset
+   * if the encoding is empty, "native.enc" or "unknown"
+   */
+  public static Charset charset(String encoding) {
+    if(Strings.isNullOrEmpty(encoding) || encoding.equals("native.enc") || encoding.equals("unknown")) {
+      return Charset.defaultCharset();
+    }
+    if(encoding.equals("UTF-8-BOM")) {
+      encoding = "UTF-8";
+    }
+    try {
+      return Charset.forName(encoding);
+    } catch(IllegalCharsetNameException e) {
+      throw new EvalException("unsupported encoding '%s'", encoding);
+    } catch(UnsupportedCharsetException e) {
+      throw new EvalException("unsupported encoding '%s'", encoding);
     }
   }
   
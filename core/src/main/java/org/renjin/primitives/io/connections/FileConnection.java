@@ -1,20 +1,42 @@
 
 package org.renjin.primitives.io.connections;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.renjin.eval.EvalException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.util.zip.GZIPInputStream;
 
 
 public class FileConnection extends AbstractConnection {
 
-  private InputStream in;  
+  /**
+   * Compressed files at least this large are decompressed on a background thread
+   */
+  private static final long READ_AHEAD_THRESHOLD = 1024 * 1024;
+
+  private static final int INFLATER_BUFFER_SIZE = 64 * 1024;
+  
+  private static final byte[] XZ_MAGIC = { (byte)0xFD, '7', 'z', 'X', 'Z', 0 };
+
+  private CountingInputStream in;  
+
+  /**
+   * True if the input stream has been read from other than through the reader
+   */
+  private boolean streamReadDirectly;
   private OutputStream out;
   
   private FileObject file;
@@ -50,22 +72,140 @@ public class FileConnection extends AbstractConnection {
       throw new EvalException("connection is already opened for output, cannot open for input");
     }
     if(in == null) {
-      this.in = doOpenForInput();
+      this.in = new CountingInputStream(doOpenForInput());
     }
     return this.in;
   }
 
+  /**
+   * Opens a channel to the underlying file, so that it can be read without copying
+   * it through this connection's stream.
+   * 
+   * @return a channel positioned at the start of the file, or {@code null} if the file is not on
+   * the local file system, or if this connection has been written to.
+   */
+  public FileChannel openChannel() throws IOException {
+    if(out != null) {
+      return null;
+    }
+    URL url = file.getURL();
+    if(!"file".equals(url.getProtocol())) {
+      return null;
+    }
+    File localFile;
+    try {
+      localFile = new File(url.toURI());
+    } catch (URISyntaxException e) {
+      return null;
+    }
+    return new RandomAccessFile(localFile, "r").getChannel();
+  }
+
+  /**
+   * @return a channel as for {@link #openChannel()}, or {@code null} if this connection
+   * has already been read from.
+   */
+  public FileChannel openUnreadChannel() throws IOException {
+    if(in != null && in.getCount() > 0) {
+      return null;
+    }
+    return openChannel();
+  }
+
+  /**
+   * @return the number of whole lines of the file which have been read through this
+   * connection's reader, not counting any text since pushed back, or -1 if the connection has
+   * been read from in any other way, so that its position in the file is not known.
+   */
+  public long getLinesRead() throws IOException {
+    if(streamReadDirectly) {
+      return -1;
+    }
+    return getReader().getLinesRead();
+  }
+
+  /**
+   * Positions this connection at the end of the file, discarding any pushed back or
+   * buffered text, after the file has been read through a {@link #openChannel() channel}.
+   *
+   * @param size the size of the file
+   */
+  public void skipToEnd(long size) throws IOException {
+    PushbackBufferedReader reader = getReader();
+    long remaining = size - in.getCount();
+    if(remaining > 0) {
+      ByteStreams.skipFully(in, remaining);
+    }
+    reader.skipToEnd();
+  }
+
+  @Override
+  protected InputStream getReaderInputStream() throws IOException {
+    return assureOpenForInput();
+  }
+
   protected InputStream doOpenForInput() throws IOException {
     // We want to automatically decompress if the underlying file is gzipped
-    int pushBackBufferSize = 2;
+    int pushBackBufferSize = BlockGzipInputStream.HEADER_LENGTH;
     PushbackInputStream in = new PushbackInputStream(file.getContent().getInputStream(),
         pushBackBufferSize);
-    int b1 = in.read();
-    int b2 = in.read();
-    in.unread(b2);
-    in.unread(b1);
-    if(b1 == GzFileConnection.GZIP_MAGIC_BYTE1 && b2 == GzFileConnection.GZIP_MAGIC_BYTE2) {
-      return new GZIPInputStream(in);
+    byte[] header = new byte[pushBackBufferSize];
+    int headerLength = ByteStreams.read(in, header, 0, header.length);
+    in.unread(header, 0, headerLength);
+    
+    if(BlockGzipInputStream.isBlocked(header, headerLength)) {
+      return new BlockGzipInputStream(in);
+    
+    } else if(isGzip(header, headerLength)) {
+      return readAhead(new GZIPInputStream(in, INFLATER_BUFFER_SIZE));
+    
+    } else if(isXz(header, headerLength)) {
+      return readAhead(new XZCompressorInputStream(in));
+    
+    } else {
+      return in;
+    }
+  }
+
+  /**
+   * @return true if {@code header}, the first bytes of a file, begins with the magic
+   * number of a format which is decompressed when the file is read through this connection
+   */
+  public static boolean isCompressed(byte[] header, int length) {
+    return isGzip(header, length) || isXz(header, length);
+  }
+
+  private static boolean isGzip(byte[] header, int length) {
+    return length >= 2 &&
+        (header[0] & 0xFF) == GzFileConnection.GZIP_MAGIC_BYTE1 &&
+        (header[1] & 0xFF) == GzFileConnection.GZIP_MAGIC_BYTE2;
+  }
+
+  private static boolean isXz(byte[] header, int length) {
+    if(length < XZ_MAGIC.length) {
+      return false;
+    }
+    for(int i=0;i!=XZ_MAGIC.length;++i) {
+      if(header[i] != XZ_MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves decompression to a background thread if the file is large
+   * enough to make it worthwhile
+   */
+  private InputStream readAhead(InputStream in) {
+    long size;
+    try {
+      size = file.getContent().getSize();
+    } catch(FileSystemException e) {
+      size = -1;
+    }
+    if(size >= READ_AHEAD_THRESHOLD) {
+      return new PipelinedInputStream(in);
     } else {
       return in;
     }
@@ -87,6 +227,7 @@ public class FileConnection extends AbstractConnection {
   
   @Override
   public final InputStream getInputStream() throws IOException {
+    streamReadDirectly = true;
     return assureOpenForInput();
   }
 
@@ -0,0 +1,194 @@
+package org.renjin.primitives.io.connections;
+
+import com.google.common.io.ByteStreams;
+import org.renjin.util.Parallel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads ahead from an underlying stream on a background thread, so that
+ * expensive work done by the underlying stream, such as inflating a gzipped file,
+ * overlaps with the parsing done by the reader of this stream.
+ *
+ * <p>The background thread fills a fixed ring of reusable buffers, and blocks
+ * when all of them are waiting to be read.</p>
+ */
+public class PipelinedInputStream extends InputStream {
+
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+  public static final int DEFAULT_BUFFER_COUNT = 4;
+
+  /**
+   * The background threads spend most of their time blocked on the underlying
+   * stream, so unlike CPU-bound work they do not share {@link Parallel#executor()}
+   */
+  private static final ExecutorService READ_AHEAD =
+      Executors.newCachedThreadPool(Parallel.daemonThreadFactory("renjin-read-ahead"));
+
+  private static class Chunk {
+    private final byte[] bytes;
+    private int length;
+    private IOException error;
+
+    private Chunk(byte[] bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Marks the end of the underlying stream
+   */
+  private static final Chunk END = new Chunk(new byte[0]);
+
+  private final InputStream source;
+  private final BlockingQueue<Chunk> free;
+  private final BlockingQueue<Chunk> filled;
+  private final Future<?> producer;
+
+  private Chunk current;
+  private int pos;
+  private boolean finished;
+  private boolean closed;
+  private volatile boolean started;
+
+  public PipelinedInputStream(InputStream source) {
+    this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+  }
+
+  public PipelinedInputStream(InputStream source, int bufferSize, int bufferCount) {
+    this.source = source;
+    this.free = new ArrayBlockingQueue<Chunk>(bufferCount);
+    // leave room for the END marker
+    this.filled = new ArrayBlockingQueue<Chunk>(bufferCount + 1);
+    for(int i=0;i!=bufferCount;++i) {
+      free.add(new Chunk(new byte[bufferSize]));
+    }
+    this.producer = READ_AHEAD.submit(new Runnable() {
+      @Override
+      public void run() {
+        produce();
+      }
+    });
+  }
+
+  private void produce() {
+    started = true;
+    try {
+      while(true) {
+        Chunk chunk = free.take();
+        try {
+          chunk.length = ByteStreams.read(source, chunk.bytes, 0, chunk.bytes.length);
+        } catch(IOException e) {
+          chunk.error = e;
+        } catch(RuntimeException e) {
+          chunk.error = new IOException(e);
+        }
+        if(chunk.error != null) {
+          filled.put(chunk);
+          return;
+        }
+        if(chunk.length > 0) {
+          filled.put(chunk);
+        }
+        if(chunk.length < chunk.bytes.length) {
+          filled.put(END);
+          return;
+        }
+      }
+    } catch(InterruptedException e) {
+      // closed by the reader
+    } finally {
+      try {
+        source.close();
+      } catch(IOException ignored) {
+      }
+    }
+  }
+
+  /**
+   * Ensures that {@code current} has bytes remaining to be read
+   *
+   * @return false if the end of the stream has been reached
+   */
+  private boolean fill() throws IOException {
+    if(closed) {
+      throw new IOException("Stream closed");
+    }
+    if(current != null) {
+      if(pos < current.length) {
+        return true;
+      }
+      free.add(current);
+      current = null;
+    }
+    if(finished) {
+      return false;
+    }
+    Chunk next;
+    try {
+      next = filled.take();
+    } catch(InterruptedException e) {
+      throw new InterruptedIOException();
+    }
+    if(next == END) {
+      finished = true;
+      return false;
+    }
+    if(next.error != null) {
+      finished = true;
+      throw next.error;
+    }
+    current = next;
+    pos = 0;
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if(!fill()) {
+      return -1;
+    }
+    return current.bytes[pos++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if(len == 0) {
+      return 0;
+    }
+    if(!fill()) {
+      return -1;
+    }
+    int count = Math.min(len, current.length - pos);
+    System.arraycopy(current.bytes, pos, b, off, count);
+    pos += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if(current == null || closed) {
+      return 0;
+    }
+    return current.length - pos;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(!closed) {
+      closed = true;
+      // the producer closes the underlying stream when it exits
+      producer.cancel(true);
+      if(!started) {
+        source.close();
+      }
+    }
+  }
+}
@@ -16,6 +16,16 @@ public class PushbackBufferedReader extends Reader {
 
   private BufferedReader reader;
   private StringBuilder pushbackStack = new StringBuilder();
+
+  /**
+   * The number of lines read from the underlying reader
+   */
+  private long linesRead;
+
+  /**
+   * True if characters have been read from the underlying reader other than by line
+   */
+  private boolean readByCharacter;
   
   
   public PushbackBufferedReader(Reader reader) {
@@ -30,6 +40,7 @@ public class PushbackBufferedReader extends Reader {
   @Override
   public int read(char[] cbuf, int off, int len) throws IOException {
     if(pushbackStack.length() == 0) {
+      readByCharacter = true;
       return reader.read(cbuf, off, len);
     } else {
       int toRead = Math.min( pushbackStack.length(), len);
@@ -45,17 +56,52 @@ public class PushbackBufferedReader extends Reader {
   
   public String readLine() throws IOException {
     if(pushbackStack.length()==0) {
-      return reader.readLine();
+      return readUnderlyingLine();
     } else {
       int newLine = nextNewline(pushbackStack);
       if(newLine == -1) {
-        return popStack() + Strings.nullToEmpty(reader.readLine());
+        return popStack() + Strings.nullToEmpty(readUnderlyingLine());
       } else {
         return popStack(newLine);
       }
     }
   }
 
+  private String readUnderlyingLine() throws IOException {
+    String line = reader.readLine();
+    if(line != null) {
+      linesRead++;
+    }
+    return line;
+  }
+
+  /**
+   * @return the number of whole lines which have been read from the underlying reader, or -1
+   * if it has also been read from by character, so that its position is not known.
+   */
+  public long getLinesRead() {
+    return readByCharacter ? -1 : linesRead;
+  }
+
+  /**
+   * @return the text which has been pushed back, and which will be read before any more
+   * of the underlying reader
+   */
+  public String getPushedBack() {
+    return pushbackStack.toString();
+  }
+
+  /**
+   * Discards the pushed back text and the rest of the underlying reader.
+   */
+  public void skipToEnd() throws IOException {
+    pushbackStack.setLength(0);
+    char[] buffer = new char[8192];
+    while(reader.read(buffer) != -1) {
+      readByCharacter = true;
+    }
+  }
+
   private int nextNewline(StringBuilder stack) {
     for(int i=0;i!=stack.length();++i) {
       if(stack.charAt(i) == '\n') {
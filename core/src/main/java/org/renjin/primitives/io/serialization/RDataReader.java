@@ -34,8 +34,10 @@ import org.renjin.sexp.*;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
@@ -45,6 +47,8 @@ import static org.renjin.primitives.io.serialization.SerializationFormat.*;
 public class RDataReader {
   
   private InputStream conn;
+  private FileChannel channel;
+  private long channelPosition;
   private StreamReader in;
 
   private int version;
@@ -71,13 +75,73 @@ public class RDataReader {
     this.conn = conn;
   }
 
+  /**
+   * Creates a reader for an uncompressed XDR file which maps large numeric vectors
+   * directly from the file rather than copying them onto the heap.
+   * The channel is closed once the file has been read.
+   *
+   * @see #isMappable(FileChannel)
+   */
+  public RDataReader(Context context, FileChannel channel) {
+    this.readContext = new SessionReadContext(context.getSession());
+    this.channel = channel;
+  }
+
+  public RDataReader(FileChannel channel) {
+    this.readContext = new NullReadContext();
+    this.channel = channel;
+  }
+
   public SEXP readFile() throws IOException {
+    if(channel != null) {
+      return readMappedFile();
+    }
     byte streamType = readStreamType(conn);
     in = createStreamReader(streamType, conn);
     readAndVerifyVersion();
     return readExp();
   }
 
+  private SEXP readMappedFile() throws IOException {
+    try {
+      channel.position(0);
+      byte streamType = readStreamType(Channels.newInputStream(channel));
+      if(streamType != XDR_FORMAT) {
+        throw new IOException("Only uncompressed files in XDR format can be mapped");
+      }
+      MappedXdrReader reader = new MappedXdrReader(channel, channel.position());
+      in = reader;
+      readAndVerifyVersion();
+      SEXP exp = readExp();
+      channelPosition = reader.position();
+      return exp;
+    } finally {
+      // existing mappings remain valid after the channel is closed
+      channel.close();
+    }
+  }
+
+  /**
+   * @return the offset in the file which follows the object read through the channel
+   * passed to {@link #RDataReader(Context, FileChannel)}
+   */
+  public long getChannelPosition() {
+    return channelPosition;
+  }
+
+  /**
+   * @return true if {@code channel} is positioned at the start of an uncompressed
+   * XDR file, which can be read with {@link #RDataReader(FileChannel)}
+   */
+  public static boolean isMappable(FileChannel channel) throws IOException {
+    long start = channel.position();
+    try {
+      return readStreamType(Channels.newInputStream(channel)) == XDR_FORMAT;
+    } finally {
+      channel.position(start);
+    }
+  }
+
   protected void readAndVerifyVersion() throws IOException {
     version = in.readInt();
     writerVersion = new Version(in.readInt());
@@ -428,11 +492,12 @@ public class RDataReader {
 
   private SEXP readDoubleExp(int flags) throws IOException {
     int length = in.readInt();
-    double[] values = new double[length];
-    for(int i=0;i!=length;++i) {
-      values[i] = in.readDouble();
+    DoubleBuffer buffer = in.readDoubleBuffer(length);
+    if(buffer.hasArray()) {
+      return new DoubleArrayVector(buffer.array(), readAttributes(flags));
+    } else {
+      return new DoubleBufferVector(buffer, length, readAttributes(flags));
     }
-    return new DoubleArrayVector(values, readAttributes(flags));
   }
 
   private SEXP readIntVector(int flags) throws IOException {
@@ -510,6 +575,7 @@ public class RDataReader {
   private interface StreamReader {
     int readInt() throws IOException;
     IntBuffer readIntBuffer(int size) throws IOException;
+    DoubleBuffer readDoubleBuffer(int size) throws IOException;
     byte[] readString(int length) throws IOException;
     double readDouble() throws IOException;
   }
@@ -562,6 +628,15 @@ public class RDataReader {
       return IntBuffer.wrap(array);
     }
 
+    @Override
+    public DoubleBuffer readDoubleBuffer(int size) throws IOException {
+      double[] array = new double[size];
+      for(int i=0;i!=size;++i) {
+        array[i] = readDouble();
+      }
+      return DoubleBuffer.wrap(array);
+    }
+
     @Override
     public double readDouble() throws IOException {
       String word = readWord();
@@ -660,6 +735,15 @@ public class RDataReader {
       return intBuffer;
     }
 
+    @Override
+    public DoubleBuffer readDoubleBuffer(int size) throws IOException {
+      double[] array = new double[size];
+      for(int i=0;i!=size;++i) {
+        array[i] = readDouble();
+      }
+      return DoubleBuffer.wrap(array);
+    }
+
     @Override
     public byte[] readString(int length) throws IOException {
       byte buf[] = new byte[length];
@@ -674,6 +758,135 @@ public class RDataReader {
     }
   }
 
+  /**
+   * Reads an uncompressed XDR file through a {@link FileChannel}. Large int and double
+   * payloads are mapped directly from the file, so that they are paged in by the
+   * operating system only as they are accessed, and do not occupy the heap.
+   * Everything else is read through a small window buffer.
+   */
+  private static class MappedXdrReader implements StreamReader {
+
+    /**
+     * Payloads smaller than this are copied onto the heap, as the
+     * cost of establishing a mapping would exceed the cost of the copy.
+     */
+    private static final int MAPPING_THRESHOLD = 64 * 1024;
+
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    /**
+     * The file offset corresponding to the start of {@code window}
+     */
+    private long windowStart;
+    private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+
+    private MappedXdrReader(FileChannel channel, long position) {
+      this.channel = channel;
+      this.windowStart = position;
+      this.window.limit(0);
+    }
+
+    private long position() {
+      return windowStart + window.position();
+    }
+
+    private void seek(long position) {
+      windowStart = position;
+      window.clear();
+      window.limit(0);
+    }
+
+    /**
+     * Ensures that at least {@code bytes} bytes are available in the window.
+     */
+    private void fill(int bytes) throws IOException {
+      if(window.remaining() >= bytes) {
+        return;
+      }
+      long start = position();
+      window.clear();
+      while(window.position() < bytes) {
+        if(channel.read(window, start + window.position()) == -1) {
+          throw new EOFException();
+        }
+      }
+      window.flip();
+      windowStart = start;
+    }
+
+    private ByteBuffer map(long bytes) throws IOException {
+      long start = position();
+      if(start + bytes > channel.size()) {
+        throw new EOFException();
+      }
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, bytes);
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      seek(start + bytes);
+      return buffer;
+    }
+
+    private boolean shouldMap(long bytes) {
+      return bytes >= MAPPING_THRESHOLD && bytes <= Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      fill(4);
+      return window.getInt();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+      fill(8);
+      return window.getDouble();
+    }
+
+    @Override
+    public IntBuffer readIntBuffer(int size) throws IOException {
+      if(shouldMap(size * 4L)) {
+        return map(size * 4L).asIntBuffer();
+      }
+      int[] array = new int[size];
+      for(int i=0;i!=size;++i) {
+        array[i] = readInt();
+      }
+      return IntBuffer.wrap(array);
+    }
+
+    @Override
+    public DoubleBuffer readDoubleBuffer(int size) throws IOException {
+      if(shouldMap(size * 8L)) {
+        return map(size * 8L).asDoubleBuffer();
+      }
+      double[] array = new double[size];
+      for(int i=0;i!=size;++i) {
+        array[i] = readDouble();
+      }
+      return DoubleBuffer.wrap(array);
+    }
+
+    @Override
+    public byte[] readString(int length) throws IOException {
+      byte buf[] = new byte[length];
+      if(length <= WINDOW_SIZE) {
+        fill(length);
+        window.get(buf);
+      } else {
+        long start = position();
+        ByteBuffer target = ByteBuffer.wrap(buf);
+        while(target.hasRemaining()) {
+          if(channel.read(target, start + target.position()) == -1) {
+            throw new EOFException();
+          }
+        }
+        seek(start + length);
+      }
+      return buf;
+    }
+  }
+
   /**
    * Interface that allows Renjin containers to restore objects
    * previously stored by {@link RDataWriter.PersistenceHook}
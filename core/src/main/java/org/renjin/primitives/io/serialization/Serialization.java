@@ -1,5 +1,6 @@
 package org.renjin.primitives.io.serialization;
 
+import com.google.common.io.ByteStreams;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Current;
@@ -7,6 +8,7 @@ import org.renjin.invoke.annotations.DotCall;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.primitives.io.connections.Connection;
 import org.renjin.primitives.io.connections.Connections;
+import org.renjin.primitives.io.connections.FileConnection;
 import org.renjin.primitives.io.connections.OpenSpec;
 import org.renjin.primitives.io.serialization.RDataWriter.PersistenceHook;
 import org.renjin.sexp.*;
@@ -14,6 +16,7 @@ import org.renjin.sexp.*;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 import static org.renjin.util.CDefines.*;
 
@@ -29,17 +32,38 @@ public class Serialization {
   public static SEXP unserializeFromConn(@Current Context context,
       SEXP conn, Environment rho) throws IOException {
     
-    RDataReader reader = new RDataReader(context, Connections.getConnection(context, conn).getInputStream());
-    return reader.readFile();
+    return readFrom(context, Connections.getConnection(context, conn));
   }
 
   @Internal
   public static SEXP unserializeFromConn(@Current Context context,
       SEXP conn, Null nz) throws IOException {
     
-    RDataReader reader = new RDataReader(context, 
-        Connections.getConnection(context, conn).getInputStream());
-    return reader.readFile();
+    return readFrom(context, Connections.getConnection(context, conn));
+  }
+
+  /**
+   * Reads the next object from the given connection, mapping the file into memory
+   * if the connection is to an uncompressed XDR file which has not yet been read from.
+   */
+  private static SEXP readFrom(Context context, Connection connection) throws IOException {
+    if(connection instanceof FileConnection) {
+      FileChannel channel = ((FileConnection) connection).openUnreadChannel();
+      if(channel != null) {
+        if(RDataReader.isMappable(channel)) {
+          RDataReader reader = new RDataReader(context, channel);
+          SEXP result = reader.readFile();
+
+          // leave the connection positioned after the object, as if it had been read,
+          // so that the next read from the connection starts at the following object
+          ByteStreams.skipFully(connection.getInputStream(), reader.getChannelPosition());
+
+          return result;
+        }
+        channel.close();
+      }
+    }
+    return new RDataReader(context, connection.getInputStream()).readFile();
   }
 
   /**
@@ -185,9 +209,7 @@ public class Serialization {
   public static SEXP loadFromConn2(@Current Context context, SEXP conn,
       Environment env) throws IOException {
 
-    RDataReader reader = new RDataReader(context,
-        Connections.getConnection(context, conn).getInputStream());
-    HasNamedValues data = EvalException.checkedCast(reader.readFile());
+    HasNamedValues data = EvalException.checkedCast(readFrom(context, Connections.getConnection(context, conn)));
 
     StringArrayVector.Builder names = new StringArrayVector.Builder();
 
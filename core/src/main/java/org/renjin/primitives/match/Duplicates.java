@@ -9,6 +9,7 @@ import org.renjin.sexp.AtomicVector;
 import org.renjin.sexp.Logical;
 import org.renjin.sexp.LogicalVector;
 import org.renjin.sexp.Null;
+import org.renjin.sexp.StringDictionaryVector;
 import org.renjin.sexp.Vector;
 
 import com.google.common.collect.Maps;
@@ -70,6 +71,10 @@ public class Duplicates {
       DuplicateSearchAlgorithm<ResultType> algorithm) {
    
     algorithm.init(x);
+
+    if(x instanceof StringDictionaryVector) {
+      return searchCodes((StringDictionaryVector) x, fromLast, algorithm);
+    }
     
     /** Maps elements -> first encountered index */
     HashMap<Object, Integer> seen = Maps.newHashMap();
@@ -92,4 +97,31 @@ public class Duplicates {
     }
     return algorithm.getResult();
   }  
+
+  /**
+   * Searches a dictionary-encoded vector by the codes of its elements rather than their values
+   */
+  private static <ResultType> ResultType searchCodes(
+      StringDictionaryVector x,
+      boolean fromLast,
+      DuplicateSearchAlgorithm<ResultType> algorithm) {
+
+    /** Maps code + 1 -> first encountered index + 1, with NA at zero */
+    int[] seen = new int[x.getLevelCount() + 1];
+
+    int length = x.length();
+    for(int i=0;i!=length;++i) {
+      int index = fromLast ? length - 1 - i : i;
+      int key = x.getCode(index) + 1;
+      if(seen[key] == 0) {
+        algorithm.onUnique(index);
+        seen[key] = index + 1;
+      } else {
+        if(algorithm.onDuplicate(index, seen[key] - 1) == Action.STOP) {
+          return algorithm.getResult();
+        }
+      }
+    }
+    return algorithm.getResult();
+  }
 }
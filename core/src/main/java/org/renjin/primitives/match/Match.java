@@ -32,6 +32,8 @@ import org.renjin.primitives.Contexts;
 import org.renjin.sexp.*;
 import org.renjin.util.NamesBuilder;
 
+import java.util.Arrays;
+
 
 /**
  * Default implementations of match() related functions.
@@ -41,6 +43,11 @@ public class Match {
   private static final int UNMATCHED = -1;
   private static final int MULTIPLE_MATCH = -2;
 
+  /**
+   * Larger tables are searched linearly, as the hash table would not fit in an array
+   */
+  private static final int MAX_INDEXED_LENGTH = 1 << 28;
+
   private Match() { }
 
   /**
@@ -62,6 +69,7 @@ public class Match {
     // We need to handle factors specially here -
     // treat them as strings if one of the other arguments
     // is a string
+    Vector tableKey = table;
     if(search instanceof StringVector || table instanceof StringVector) {
       if(search.inherits("factor")) {
         search = new FactorString(search);
@@ -71,6 +79,15 @@ public class Match {
       }
     }
 
+    if(search instanceof StringDictionaryVector && incomparables.length() == 0) {
+      return matchCodes((StringDictionaryVector) search, table, tableKey, noMatch);
+    }
+
+    MatchIndex.KeyType keyType = MatchIndex.keyType(search, table);
+    if(keyType != null && table.length() >= MatchIndex.MIN_TABLE_LENGTH && table.length() <= MAX_INDEXED_LENGTH) {
+      return matchIndexed(search, MatchIndex.get(tableKey, table, keyType), noMatch, incomparables);
+    }
+
     int[] matches = new int[search.length()];
     for(int i=0;i!=search.length();++i) {
       if( incomparables.contains(search, i)) {
@@ -87,6 +104,55 @@ public class Match {
     }
     return matches;
   }
+
+  /**
+   * Matches each distinct string of {@code search} only once
+   */
+  private static int[] matchCodes(StringDictionaryVector search, Vector table, Vector tableKey, int noMatch) {
+    int[] levelMatches;
+    if(table instanceof StringDictionaryVector && search.hasSameLevels((StringDictionaryVector) table)) {
+      StringDictionaryVector tableCodes = (StringDictionaryVector) table;
+      levelMatches = new int[search.getLevelCount()];
+      Arrays.fill(levelMatches, noMatch);
+      for(int i=tableCodes.length()-1;i>=0;--i) {
+        int code = tableCodes.getCode(i);
+        if(code != StringDictionaryVector.NA_CODE) {
+          levelMatches[code] = i + 1;
+        }
+      }
+    } else {
+      StringVector levels = search.getLevelVector();
+      MatchIndex.KeyType keyType = MatchIndex.keyType(levels, table);
+      if(keyType != null && table.length() >= MatchIndex.MIN_TABLE_LENGTH && table.length() <= MAX_INDEXED_LENGTH) {
+        levelMatches = matchIndexed(levels, MatchIndex.get(tableKey, table, keyType), noMatch, Null.INSTANCE);
+      } else {
+        levelMatches = match(levels, table, noMatch, Null.INSTANCE);
+      }
+    }
+    int naPos = indexOfNA(table);
+    int naMatch = naPos >= 0 ? naPos + 1 : noMatch;
+
+    int[] matches = new int[search.length()];
+    for(int i=0;i!=matches.length;++i) {
+      int code = search.getCode(i);
+      matches[i] = code == StringDictionaryVector.NA_CODE ? naMatch : levelMatches[code];
+    }
+    return matches;
+  }
+
+  private static int[] matchIndexed(Vector search, MatchIndex index, int noMatch, AtomicVector incomparables) {
+    boolean checkIncomparables = incomparables.length() > 0;
+    int[] matches = new int[search.length()];
+    for(int i=0;i!=search.length();++i) {
+      if(checkIncomparables && incomparables.contains(search, i)) {
+        matches[i] = noMatch;
+      } else {
+        int pos = index.indexOf(search, i);
+        matches[i] = pos >= 0 ? pos+1 : noMatch;
+      }
+    }
+    return matches;
+  }
   
 
   private static int indexOfNA(Vector table) {
@@ -0,0 +1,294 @@
+package org.renjin.primitives.match;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.StringDictionaryVector;
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * A hash index over the elements of a {@code match()} table, mapping each distinct value
+ * to the position of its first occurrence.
+ *
+ * <p>Values are compared after coercion to a common type, as R does: logical, integer
+ * and double tables are indexed without boxing in open-addressed tables of primitive keys.
+ * Dictionary-encoded string tables are indexed by their distinct strings only.
+ * {@code NA} matches only {@code NA}, and {@code NaN} matches only {@code NaN}.</p>
+ *
+ * <p>Indexes are cached by the identity of the table vector, so that repeated lookups
+ * against the same table, for example {@code x %in% validCodes} within a loop, only build
+ * the index once.</p>
+ */
+abstract class MatchIndex {
+
+  enum KeyType {
+    INT,
+    DOUBLE,
+    STRING
+  }
+
+  /**
+   * Tables shorter than this are searched linearly
+   */
+  static final int MIN_TABLE_LENGTH = 8;
+
+  private static final Cache<Vector, MatchIndex> CACHE = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .maximumSize(256)
+      .build();
+
+  private static final int EMPTY = 0;
+
+  /**
+   * Bit pattern used for all NaN values which are not NA
+   */
+  private static final long NAN_BITS = Double.doubleToLongBits(Double.NaN);
+
+  private final KeyType keyType;
+
+  /**
+   * One-based positions in the table, or {@code EMPTY}
+   */
+  protected final int[] positions;
+  protected final int mask;
+
+  private MatchIndex(KeyType keyType, int tableLength) {
+    this.keyType = keyType;
+    int capacity = Integer.highestOneBit(Math.max(tableLength, 2) * 2 - 1) << 1;
+    this.positions = new int[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * @return the type to which both vectors must be coerced in order to be compared, or
+   * {@code null} if they can not be compared by this index
+   */
+  static KeyType keyType(Vector search, Vector table) {
+    KeyType searchType = keyType(search);
+    KeyType tableType = keyType(table);
+    if(searchType == null || tableType == null) {
+      return null;
+    }
+    return searchType.ordinal() > tableType.ordinal() ? searchType : tableType;
+  }
+
+  private static KeyType keyType(Vector vector) {
+    if(vector instanceof StringVector) {
+      return KeyType.STRING;
+    } else if(vector instanceof DoubleVector) {
+      return KeyType.DOUBLE;
+    } else if(vector instanceof IntVector || vector instanceof LogicalVector) {
+      return KeyType.INT;
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the index of {@code table}, building it if it is not already cached.
+   *
+   * @param cacheKey the vector by which the index is cached: this is the table itself,
+   *                 unless the table is a temporary view of another vector.
+   */
+  static MatchIndex get(Vector cacheKey, Vector table, KeyType keyType) {
+    MatchIndex index = CACHE.getIfPresent(cacheKey);
+    if(index == null || index.keyType != keyType) {
+      index = build(table, keyType);
+      CACHE.put(cacheKey, index);
+    }
+    return index;
+  }
+
+  /**
+   * Discards any cached index of {@code table}. This must be called if
+   * the contents of a vector are modified in place.
+   */
+  static void invalidate(Vector table) {
+    CACHE.invalidate(table);
+  }
+
+  static MatchIndex build(Vector table, KeyType keyType) {
+    switch (keyType) {
+      case INT:
+        return new IntIndex(table);
+      case DOUBLE:
+        return new DoubleIndex(table);
+      case STRING:
+        return new StringIndex(table);
+    }
+    throw new IllegalArgumentException("keyType: " + keyType);
+  }
+
+  /**
+   * @return the zero-based position of the first element of the table equal to
+   * the element {@code index} of {@code search}, or -1 if there is no such element.
+   */
+  abstract int indexOf(Vector search, int index);
+
+  private static int hash(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static class IntIndex extends MatchIndex {
+    private final int[] keys;
+
+    private IntIndex(Vector table) {
+      super(KeyType.INT, table.length());
+      keys = new int[positions.length];
+      for(int i=0;i!=table.length();++i) {
+        int key = table.getElementAsInt(i);
+        int slot = hash(key) & mask;
+        while(positions[slot] != EMPTY && keys[slot] != key) {
+          slot = (slot + 1) & mask;
+        }
+        if(positions[slot] == EMPTY) {
+          keys[slot] = key;
+          positions[slot] = i + 1;
+        }
+      }
+    }
+
+    @Override
+    int indexOf(Vector search, int index) {
+      int key = search.getElementAsInt(index);
+      int slot = hash(key) & mask;
+      while(positions[slot] != EMPTY) {
+        if(keys[slot] == key) {
+          return positions[slot] - 1;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+  }
+
+  private static class DoubleIndex extends MatchIndex {
+    private final long[] keys;
+
+    private DoubleIndex(Vector table) {
+      super(KeyType.DOUBLE, table.length());
+      keys = new long[positions.length];
+      for(int i=0;i!=table.length();++i) {
+        long key = key(table.getElementAsDouble(i));
+        int slot = hash(key) & mask;
+        while(positions[slot] != EMPTY && keys[slot] != key) {
+          slot = (slot + 1) & mask;
+        }
+        if(positions[slot] == EMPTY) {
+          keys[slot] = key;
+          positions[slot] = i + 1;
+        }
+      }
+    }
+
+    /**
+     * @return a key which is equal for two doubles if R considers them equal
+     * for the purposes of matching
+     */
+    private static long key(double value) {
+      if(value == 0) {
+        // -0 == 0
+        return 0L;
+      } else if(Double.isNaN(value)) {
+        return DoubleVector.isNA(value) ? Double.doubleToRawLongBits(DoubleVector.NA) : NAN_BITS;
+      } else {
+        return Double.doubleToRawLongBits(value);
+      }
+    }
+
+    private static int hash(long key) {
+      return MatchIndex.hash((int)(key ^ (key >>> 32)));
+    }
+
+    @Override
+    int indexOf(Vector search, int index) {
+      long key = key(search.getElementAsDouble(index));
+      int slot = hash(key) & mask;
+      while(positions[slot] != EMPTY) {
+        if(keys[slot] == key) {
+          return positions[slot] - 1;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+  }
+
+  private static class StringIndex extends MatchIndex {
+    private final String[] keys;
+    private int naPosition = -1;
+
+    private StringIndex(Vector table) {
+      super(KeyType.STRING, table instanceof StringDictionaryVector ?
+          ((StringDictionaryVector) table).getLevelCount() : table.length());
+      keys = new String[positions.length];
+      if(table instanceof StringDictionaryVector) {
+        addLevels((StringDictionaryVector) table);
+        return;
+      }
+      for(int i=0;i!=table.length();++i) {
+        String key = table.getElementAsString(i);
+        if(key == null) {
+          if(naPosition == -1) {
+            naPosition = i;
+          }
+        } else {
+          int slot = hash(key.hashCode()) & mask;
+          while(positions[slot] != EMPTY && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+          }
+          if(positions[slot] == EMPTY) {
+            keys[slot] = key;
+            positions[slot] = i + 1;
+          }
+        }
+      }
+    }
+
+    private void addLevels(StringDictionaryVector table) {
+      int[] firstPositions = new int[table.getLevelCount()];
+      for(int i=0;i!=table.length();++i) {
+        int code = table.getCode(i);
+        if(code == StringDictionaryVector.NA_CODE) {
+          if(naPosition == -1) {
+            naPosition = i;
+          }
+        } else if(firstPositions[code] == EMPTY) {
+          firstPositions[code] = i + 1;
+        }
+      }
+      for(int code=0;code!=firstPositions.length;++code) {
+        if(firstPositions[code] != EMPTY) {
+          String key = table.getLevel(code);
+          int slot = hash(key.hashCode()) & mask;
+          while(positions[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+          }
+          keys[slot] = key;
+          positions[slot] = firstPositions[code];
+        }
+      }
+    }
+
+    @Override
+    int indexOf(Vector search, int index) {
+      String key = search.getElementAsString(index);
+      if(key == null) {
+        return naPosition;
+      }
+      int slot = hash(key.hashCode()) & mask;
+      while(positions[slot] != EMPTY) {
+        if(keys[slot].equals(key)) {
+          return positions[slot] - 1;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package org.renjin.primitives.match;
 
+import org.renjin.sexp.StringDictionaryVector;
 import org.renjin.sexp.Vector;
 
 public class UniqueAlgorithm implements DuplicateSearchAlgorithm<Vector> {
@@ -27,6 +28,18 @@ public class UniqueAlgorithm implements DuplicateSearchAlgorithm<Vector> {
 
   @Override
   public Vector getResult() {
+    if(source instanceof StringDictionaryVector) {
+      // share the level table, so that the result can be matched against the source by code
+      StringDictionaryVector dictionary = (StringDictionaryVector) source;
+      int[] codes = new int[uniqueCount];
+      int count = 0;
+      for(int i=0;i!=unique.length;++i) {
+        if(unique[i]) {
+          codes[count++] = dictionary.getCode(i);
+        }
+      }
+      return dictionary.withCodes(codes);
+    }
     Vector.Builder result = source.newBuilderWithInitialCapacity(uniqueCount);
     for(int i=0;i!=unique.length;++i) {
       if(unique[i]) {
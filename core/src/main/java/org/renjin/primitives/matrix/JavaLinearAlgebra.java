@@ -0,0 +1,310 @@
+package org.renjin.primitives.matrix;
+
+import com.google.common.collect.Lists;
+import org.renjin.eval.EvalException;
+import org.renjin.util.Parallel;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Pure-Java implementations of {@code dgemm} and {@code dsyrk} which, unlike the reference
+ * BLAS translation, work on blocks of the operands that fit in the processor's cache, and
+ * divide larger products between the available processors by columns of the result.
+ *
+ * <p>The LAPACK routines are inherited from {@link NetlibLinearAlgebra}.</p>
+ *
+ * <p>Results may differ from those of the reference BLAS in the last bits, as
+ * the products are summed in a different order. Unlike the reference {@code dgemm}, zero
+ * elements of B are not skipped, so that their products with infinite elements of A are
+ * {@code NaN}.</p>
+ */
+public class JavaLinearAlgebra extends NetlibLinearAlgebra {
+
+  public static final JavaLinearAlgebra INSTANCE = new JavaLinearAlgebra();
+
+  /**
+   * Products with fewer multiplications than this are computed on the calling thread
+   */
+  static final long PARALLEL_THRESHOLD = 1 << 20;
+
+  /**
+   * The number of rows of op(A) in a block
+   */
+  private static final int ROW_BLOCK = 128;
+
+  /**
+   * The number of columns of op(A), and rows of op(B), in a block
+   */
+  private static final int INNER_BLOCK = 256;
+
+  private static final int FULL = 0;
+  private static final int UPPER = 1;
+  private static final int LOWER = 2;
+
+  @Override
+  public void dgemm(String transa, String transb, int m, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double[] b, int ldb,
+                    double beta, double[] c, int ldc) {
+    if(m <= 0 || n <= 0) {
+      return;
+    }
+    multiply(FULL, isTransposed(transa), isTransposed(transb), m, n, k, alpha, a, lda, b, ldb, beta, c, ldc);
+  }
+
+  @Override
+  public void dsyrk(String uplo, String trans, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double beta, double[] c, int ldc) {
+    if(n <= 0) {
+      return;
+    }
+    int triangle = Character.toUpperCase(uplo.charAt(0)) == 'U' ? UPPER : LOWER;
+    if(isTransposed(trans)) {
+      // C := alpha*A'*A + beta*C
+      multiply(triangle, true, false, n, n, k, alpha, a, lda, a, lda, beta, c, ldc);
+    } else {
+      // C := alpha*A*A' + beta*C
+      multiply(triangle, false, true, n, n, k, alpha, a, lda, a, lda, beta, c, ldc);
+    }
+  }
+
+  private static boolean isTransposed(String trans) {
+    char t = Character.toUpperCase(trans.charAt(0));
+    return t == 'T' || t == 'C';
+  }
+
+  /**
+   * Updates the given triangle of C, or all of C, with {@code alpha*op(A)*op(B) + beta*C}.
+   */
+  private void multiply(final int triangle, final boolean transA, final boolean transB,
+                        final int m, final int n, final int k,
+                        final double alpha, final double[] a, final int lda,
+                        final double[] b, final int ldb,
+                        final double beta, final double[] c, final int ldc) {
+
+    int taskCount = 1;
+    if((long) m * n * k >= PARALLEL_THRESHOLD) {
+      // the columns of a triangle are of unequal lengths, so we make more,
+      // smaller tasks to balance the work between threads
+      taskCount = Math.min(n, Runtime.getRuntime().availableProcessors() * (triangle == FULL ? 1 : 4));
+    }
+
+    if(taskCount <= 1) {
+      new Columns(triangle, transA, transB, m, k, alpha, a, lda, b, ldb, beta, c, ldc, 0, n).call();
+      return;
+    }
+
+    List<Callable<Void>> tasks = Lists.newArrayList();
+    for(int task = 0; task != taskCount; ++task) {
+      int firstColumn = (int) ((long) n * task / taskCount);
+      int endColumn = (int) ((long) n * (task + 1) / taskCount);
+      if(firstColumn < endColumn) {
+        tasks.add(new Columns(triangle, transA, transB, m, k, alpha, a, lda, b, ldb, beta, c, ldc,
+            firstColumn, endColumn));
+      }
+    }
+    invokeAll(tasks);
+  }
+
+  /**
+   * Computes the columns {@code [firstColumn, endColumn)} of the result.
+   */
+  private static class Columns implements Callable<Void> {
+    private final int triangle;
+    private final boolean transA;
+    private final boolean transB;
+    private final int m;
+    private final int k;
+    private final double alpha;
+    private final double[] a;
+    private final int lda;
+    private final double[] b;
+    private final int ldb;
+    private final double beta;
+    private final double[] c;
+    private final int ldc;
+    private final int firstColumn;
+    private final int endColumn;
+
+    public Columns(int triangle, boolean transA, boolean transB, int m, int k,
+                   double alpha, double[] a, int lda, double[] b, int ldb,
+                   double beta, double[] c, int ldc, int firstColumn, int endColumn) {
+      this.triangle = triangle;
+      this.transA = transA;
+      this.transB = transB;
+      this.m = m;
+      this.k = k;
+      this.alpha = alpha;
+      this.a = a;
+      this.lda = lda;
+      this.b = b;
+      this.ldb = ldb;
+      this.beta = beta;
+      this.c = c;
+      this.ldc = ldc;
+      this.firstColumn = firstColumn;
+      this.endColumn = endColumn;
+    }
+
+    @Override
+    public Void call() {
+      scale();
+      if(alpha == 0 || k <= 0) {
+        return null;
+      }
+
+      // Work on a copy of the columns of op(B) if B is transposed, so that the
+      // elements of each column of op(B) are contiguous.
+      double[] panel = b;
+      int ldp = ldb;
+      int panelOffset = 0;
+      if(transB) {
+        int columns = endColumn - firstColumn;
+        panel = new double[k * columns];
+        for(int j = 0; j != columns; ++j) {
+          for(int p = 0; p != k; ++p) {
+            panel[p + j * k] = b[(firstColumn + j) + p * ldb];
+          }
+        }
+        ldp = k;
+        panelOffset = firstColumn;
+      }
+
+      if(transA) {
+        multiplyTransposed(panel, ldp, panelOffset);
+      } else {
+        multiplyNormal(panel, ldp, panelOffset);
+      }
+      return null;
+    }
+
+    private int firstRow(int j) {
+      return triangle == LOWER ? j : 0;
+    }
+
+    private int endRow(int j) {
+      return triangle == UPPER ? j + 1 : m;
+    }
+
+    private void scale() {
+      if(beta == 1) {
+        return;
+      }
+      for(int j = firstColumn; j != endColumn; ++j) {
+        int end = endRow(j);
+        for(int i = firstRow(j); i < end; ++i) {
+          c[i + j * ldc] = (beta == 0) ? 0 : beta * c[i + j * ldc];
+        }
+      }
+    }
+
+    /**
+     * C += alpha * A * op(B), adding multiples of the columns of A to each column of C
+     */
+    private void multiplyNormal(double[] panel, int ldp, int panelOffset) {
+      for(int i0 = 0; i0 < m; i0 += ROW_BLOCK) {
+        int i1 = Math.min(m, i0 + ROW_BLOCK);
+        for(int p0 = 0; p0 < k; p0 += INNER_BLOCK) {
+          int p1 = Math.min(k, p0 + INNER_BLOCK);
+          for(int j = firstColumn; j != endColumn; ++j) {
+            int lo = Math.max(i0, firstRow(j));
+            int hi = Math.min(i1, endRow(j));
+            if(lo >= hi) {
+              continue;
+            }
+            int cj = j * ldc;
+            int bj = (j - panelOffset) * ldp;
+            int p = p0;
+            // four columns of A at a time, so that C is loaded and stored a quarter as often
+            for(; p + 4 <= p1; p += 4) {
+              double b0 = alpha * panel[bj + p];
+              double b1 = alpha * panel[bj + p + 1];
+              double b2 = alpha * panel[bj + p + 2];
+              double b3 = alpha * panel[bj + p + 3];
+              int a0 = p * lda;
+              int a1 = a0 + lda;
+              int a2 = a1 + lda;
+              int a3 = a2 + lda;
+              for(int i = lo; i != hi; ++i) {
+                c[cj + i] += b0 * a[a0 + i] + b1 * a[a1 + i] + b2 * a[a2 + i] + b3 * a[a3 + i];
+              }
+            }
+            for(; p != p1; ++p) {
+              double bpj = alpha * panel[bj + p];
+              int ap = p * lda;
+              for(int i = lo; i != hi; ++i) {
+                c[cj + i] += bpj * a[ap + i];
+              }
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * C += alpha * A' * op(B), as the dot products of the columns of A and op(B)
+     */
+    private void multiplyTransposed(double[] panel, int ldp, int panelOffset) {
+      for(int p0 = 0; p0 < k; p0 += INNER_BLOCK) {
+        int p1 = Math.min(k, p0 + INNER_BLOCK);
+        for(int i0 = 0; i0 < m; i0 += ROW_BLOCK) {
+          int i1 = Math.min(m, i0 + ROW_BLOCK);
+          for(int j = firstColumn; j != endColumn; ++j) {
+            int lo = Math.max(i0, firstRow(j));
+            int hi = Math.min(i1, endRow(j));
+            int cj = j * ldc;
+            int bj = (j - panelOffset) * ldp;
+            int i = lo;
+            // four columns of A at a time, so that op(B) is loaded a quarter as often
+            for(; i + 4 <= hi; i += 4) {
+              int a0 = i * lda;
+              int a1 = a0 + lda;
+              int a2 = a1 + lda;
+              int a3 = a2 + lda;
+              double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+              for(int p = p0; p != p1; ++p) {
+                double bpj = panel[bj + p];
+                sum0 += a[a0 + p] * bpj;
+                sum1 += a[a1 + p] * bpj;
+                sum2 += a[a2 + p] * bpj;
+                sum3 += a[a3 + p] * bpj;
+              }
+              c[cj + i] += alpha * sum0;
+              c[cj + i + 1] += alpha * sum1;
+              c[cj + i + 2] += alpha * sum2;
+              c[cj + i + 3] += alpha * sum3;
+            }
+            for(; i < hi; ++i) {
+              int ai = i * lda;
+              double sum = 0;
+              for(int p = p0; p != p1; ++p) {
+                sum += a[ai + p] * panel[bj + p];
+              }
+              c[cj + i] += alpha * sum;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static void invokeAll(List<Callable<Void>> tasks) {
+    try {
+      for(Future<Void> future : Parallel.executor().invokeAll(tasks)) {
+        future.get();
+      }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EvalException("Interrupted while multiplying matrices");
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new EvalException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package org.renjin.primitives.matrix;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.ForkableSingleton;
+import org.renjin.sexp.EnvironmentForker;
+
+/**
+ * Holds the {@link LinearAlgebraBackend} used by a {@link org.renjin.eval.Session}. Unless
+ * another is set, the session uses a {@link JavaLinearAlgebra}.
+ *
+ * <pre>
+ *   session.getSingleton(LinearAlgebra.class).setBackend(new NetlibLinearAlgebra());
+ * </pre>
+ */
+public class LinearAlgebra implements ForkableSingleton {
+
+  private LinearAlgebraBackend backend;
+
+  public LinearAlgebra() {
+    this(JavaLinearAlgebra.INSTANCE);
+  }
+
+  private LinearAlgebra(LinearAlgebraBackend backend) {
+    this.backend = backend;
+  }
+
+  public LinearAlgebraBackend getBackend() {
+    return backend;
+  }
+
+  public void setBackend(LinearAlgebraBackend backend) {
+    if(backend == null) {
+      throw new NullPointerException("backend");
+    }
+    this.backend = backend;
+  }
+
+  /**
+   * @return the backend of the session in which {@code context} is evaluated
+   */
+  public static LinearAlgebraBackend backend(Context context) {
+    return context.getSession().getSingleton(LinearAlgebra.class).getBackend();
+  }
+
+  @Override
+  public Object fork(EnvironmentForker forker) {
+    return new LinearAlgebra(backend);
+  }
+}
@@ -0,0 +1,49 @@
+package org.renjin.primitives.matrix;
+
+import org.netlib.util.intW;
+
+/**
+ * The BLAS and LAPACK routines used by Renjin's matrix primitives.
+ *
+ * <p>Arguments follow the Fortran reference implementations: matrices are stored in
+ * column-major order in {@code double} arrays with the given leading dimensions, and
+ * character options are passed as strings of which only the first character is
+ * significant.</p>
+ *
+ * <p>The backend used by a {@link org.renjin.eval.Session} is selected through
+ * {@link LinearAlgebra#setBackend(LinearAlgebraBackend)}.</p>
+ */
+public interface LinearAlgebraBackend {
+
+  /**
+   * Computes {@code C := alpha*op(A)*op(B) + beta*C}, where {@code op(X)} is either {@code X}
+   * or its transpose, {@code op(A)} is an m by k matrix, and {@code op(B)} is a k by n matrix.
+   */
+  void dgemm(String transa, String transb, int m, int n, int k,
+             double alpha, double[] a, int lda,
+             double[] b, int ldb,
+             double beta, double[] c, int ldc);
+
+  /**
+   * Computes {@code C := alpha*A*A' + beta*C} if {@code trans} is "N", or
+   * {@code C := alpha*A'*A + beta*C} if {@code trans} is "T", where C is an n by n symmetric
+   * matrix of which only the triangle given by {@code uplo} is referenced and updated.
+   */
+  void dsyrk(String uplo, String trans, int n, int k,
+             double alpha, double[] a, int lda,
+             double beta, double[] c, int ldc);
+
+  /**
+   * Solves {@code A * X = B} through the LU decomposition of A, overwriting A with its factors
+   * and B with the solution.
+   */
+  void dgesv(int n, int nrhs, double[] a, int lda, int[] ipiv, double[] b, int ldb, intW info);
+
+  /**
+   * Computes selected eigenvalues and, optionally, eigenvectors of the symmetric matrix A.
+   */
+  void dsyevr(String jobz, String range, String uplo, int n, double[] a, int lda,
+              double vl, double vu, int il, int iu, double abstol, intW m,
+              double[] w, double[] z, int ldz, int[] isuppz,
+              double[] work, int lwork, int[] iwork, int liwork, intW info);
+}
@@ -71,20 +71,20 @@ public class Matrices {
   }
 
   @Builtin("%*%")
-  public static SEXP matrixproduct(AtomicVector x, AtomicVector y) {
-    return new MatrixProduct(MatrixProduct.PROD, x, y)
+  public static SEXP matrixproduct(@Current Context context, AtomicVector x, AtomicVector y) {
+    return new MatrixProduct(LinearAlgebra.backend(context), MatrixProduct.PROD, x, y)
             .matprod();
   }
 
   @Internal("crossprod")
-  public static SEXP crossprod(AtomicVector x, AtomicVector y) {
-    return new MatrixProduct(MatrixProduct.CROSSPROD, x, y)
+  public static SEXP crossprod(@Current Context context, AtomicVector x, AtomicVector y) {
+    return new MatrixProduct(LinearAlgebra.backend(context), MatrixProduct.CROSSPROD, x, y)
             .crossprod();
   }
 
   @Internal("tcrossprod")
-  public static SEXP tcrossprod(AtomicVector x, AtomicVector y) {
-    return new MatrixProduct(MatrixProduct.TCROSSPROD, x, y)
+  public static SEXP tcrossprod(@Current Context context, AtomicVector x, AtomicVector y) {
+    return new MatrixProduct(LinearAlgebra.backend(context), MatrixProduct.TCROSSPROD, x, y)
             .tcrossprod();
   }
 
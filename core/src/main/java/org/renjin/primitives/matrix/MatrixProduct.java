@@ -1,6 +1,5 @@
 package org.renjin.primitives.matrix;
 
-import org.netlib.blas.BLAS;
 import org.renjin.eval.EvalException;
 import org.renjin.sexp.*;
 
@@ -27,11 +26,14 @@ class MatrixProduct {
   private int ldy;
 
   private boolean sym;
+
+  private final LinearAlgebraBackend blas;
   
   private ListVector.Builder dimnames = new ListVector.Builder(2);
 
-  public MatrixProduct(int primop, AtomicVector x, AtomicVector y) {
+  public MatrixProduct(LinearAlgebraBackend blas, int primop, AtomicVector x, AtomicVector y) {
     super();
+    this.blas = blas;
     this.x = x;
     this.y = y;
 
@@ -333,7 +335,7 @@ class MatrixProduct {
     double one = 1.0, zero = 0.0;
     int i, j;
     if (nr > 0 && nc > 0) {
-      BLAS.getInstance().dsyrk(uplo, trans, nc, nr, one, x, nr, zero, z, nc);  
+      blas.dsyrk(uplo, trans, nc, nr, one, x, nr, zero, z, nc);  
       for (i = 1; i < nc; i++)
         for (j = 0; j < i; j++) z[i + nc *j] = z[j + nc * i];
     } else { /* zero-extent operations should return zeroes */
@@ -391,7 +393,7 @@ class MatrixProduct {
           }
         }
       } else {
-        BLAS.getInstance().dgemm(transa, transb, nrx, ncy, ncx, one,
+        blas.dgemm(transa, transb, nrx, ncy, ncx, one,
             x, nrx, y, nry, zero, z, nrx);
       }
     } else { /* zero-extent operations should return zeroes */
@@ -409,7 +411,7 @@ class MatrixProduct {
     double one = 1.0, zero = 0.0;
     int i, j;
     if (nr > 0 && nc > 0) {
-      BLAS.getInstance().dsyrk(uplo, trans, nr, nc, one, x, nr, zero, z, nr);
+      blas.dsyrk(uplo, trans, nr, nc, one, x, nr, zero, z, nr);
       for (i = 1; i < nr; i++) {
         for (j = 0; j < i; j++) {
           z[i + nr *j] = z[j + nr * i];
@@ -430,7 +432,7 @@ class MatrixProduct {
     String transb = "T";
     double one = 1.0, zero = 0.0;
     if (nrx > 0 && ncx > 0 && nry > 0 && ncy > 0) {
-      BLAS.getInstance().dgemm(transa, transb, nrx, nry, ncx, one,
+      blas.dgemm(transa, transb, nrx, nry, ncx, one,
           x, nrx, y, nry, zero, z, nrx);
     } else { /* zero-extent operations should return zeroes */
       int i;
@@ -448,7 +450,7 @@ class MatrixProduct {
     String transb = "N";
     double one = 1.0, zero = 0.0;
     if (nrx > 0 && ncx > 0 && nry > 0 && ncy > 0) {
-      BLAS.getInstance().dgemm(transa, transb, ncx, ncy, nrx, one,
+      blas.dgemm(transa, transb, ncx, ncy, nrx, one,
           x, nrx, y, nry, zero, z, ncx);
     } else { /* zero-extent operations should return zeroes */
       int i;
@@ -0,0 +1,41 @@
+package org.renjin.primitives.matrix;
+
+import org.netlib.blas.BLAS;
+import org.netlib.lapack.LAPACK;
+import org.netlib.util.intW;
+
+/**
+ * Delegates to the BLAS and LAPACK implementations chosen by netlib-java, which are
+ * the reference Java translations unless a native library has been configured.
+ */
+public class NetlibLinearAlgebra implements LinearAlgebraBackend {
+
+  @Override
+  public void dgemm(String transa, String transb, int m, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double[] b, int ldb,
+                    double beta, double[] c, int ldc) {
+    BLAS.getInstance().dgemm(transa, transb, m, n, k, alpha, a, lda, b, ldb, beta, c, ldc);
+  }
+
+  @Override
+  public void dsyrk(String uplo, String trans, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double beta, double[] c, int ldc) {
+    BLAS.getInstance().dsyrk(uplo, trans, n, k, alpha, a, lda, beta, c, ldc);
+  }
+
+  @Override
+  public void dgesv(int n, int nrhs, double[] a, int lda, int[] ipiv, double[] b, int ldb, intW info) {
+    LAPACK.getInstance().dgesv(n, nrhs, a, lda, ipiv, b, ldb, info);
+  }
+
+  @Override
+  public void dsyevr(String jobz, String range, String uplo, int n, double[] a, int lda,
+                     double vl, double vu, int il, int iu, double abstol, intW m,
+                     double[] w, double[] z, int ldz, int[] isuppz,
+                     double[] work, int lwork, int[] iwork, int liwork, intW info) {
+    LAPACK.getInstance().dsyevr(jobz, range, uplo, n, a, lda, vl, vu, il, iu, abstol, m,
+        w, z, ldz, isuppz, work, lwork, iwork, liwork, info);
+  }
+}
@@ -2,7 +2,10 @@ package org.renjin.primitives.packaging;
 
 import com.google.common.io.ByteSource;
 import com.google.common.io.Resources;
+import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.packaging.LazyLoadFrame;
+import org.renjin.sexp.NamedValue;
 
 import java.io.IOException;
 import java.net.URL;
@@ -27,6 +30,15 @@ public class ClasspathPackage extends FileBasedPackage {
     return resourceExists("environment");
   }
 
+  @Override
+  public Iterable<NamedValue> loadSymbols(Context context) throws IOException {
+    URL index = classLoader.getResource(qualifyResourceName("environment"));
+    if(index == null) {
+      throw new IOException(String.format("Could not find environment (%s)", qualifyResourceName("environment")));
+    }
+    return LazyLoadFrame.load(context, index);
+  }
+
   @Override
   public ByteSource getResource(String name) throws IOException {
     String qualifiedName = qualifyResourceName(name);
@@ -18,6 +18,14 @@ public class Namespace {
     this.pkg = pkg;
     this.namespaceEnvironment = namespaceEnvironment;
   }
+
+  /**
+   * Creates a copy of {@code namespace} for a forked session
+   */
+  Namespace(Namespace namespace, Environment namespaceEnvironment) {
+    this(namespace.pkg, namespaceEnvironment);
+    this.exports.addAll(namespace.exports);
+  }
   
   public String getName() {
     return pkg.getName().getPackageName();
@@ -54,6 +54,22 @@ public class NamespaceRegistry {
 	  envirMap.put(baseNamespaceEnv, baseNamespace);
 	}
 
+  /**
+   * Creates the registry of a session forked from this registry's session, in which
+   * each loaded namespace is a copy-on-write view of the corresponding namespace in
+   * this registry.
+   */
+  public NamespaceRegistry fork(EnvironmentForker forker, Context context) {
+    NamespaceRegistry forked = new NamespaceRegistry(loader, context, forker.fork(getBaseNamespaceEnv()));
+    for(Namespace namespace : namespaceMap.values()) {
+      Namespace copy = new Namespace(namespace, forker.fork(namespace.getNamespaceEnvironment()));
+      forked.localNameMap.put(copy.getFullyQualifiedName().getPackageSymbol(), copy);
+      forked.namespaceMap.put(copy.getFullyQualifiedName(), copy);
+      forked.envirMap.put(copy.getNamespaceEnvironment(), copy);
+    }
+    return forked;
+  }
+
 	public Namespace getBaseNamespace() {
 	  return baseNamespace;
 	}
@@ -0,0 +1,58 @@
+package org.renjin.primitives.sort;
+
+/**
+ * Stable merge sort of row indexes, used for keys which have no radix representation.
+ */
+final class MergeSort {
+
+  /**
+   * Ranges shorter than this are sorted by insertion
+   */
+  private static final int INSERTION_LENGTH = 7;
+
+  interface RowComparator {
+    int compare(int row1, int row2);
+  }
+
+  private MergeSort() { }
+
+  static void sortRows(int[] perm, RowComparator comparator) {
+    int[] scratch = perm.clone();
+    sort(scratch, perm, 0, perm.length, comparator);
+  }
+
+  /**
+   * Sorts {@code dest[low, high)}, using {@code src}, which must hold the same
+   * elements in that range, as scratch space.
+   */
+  private static void sort(int[] src, int[] dest, int low, int high, RowComparator comparator) {
+    int length = high - low;
+    if(length < INSERTION_LENGTH) {
+      for(int i=low+1;i<high;++i) {
+        int row = dest[i];
+        int j = i - 1;
+        while(j >= low && comparator.compare(dest[j], row) > 0) {
+          dest[j + 1] = dest[j];
+          j--;
+        }
+        dest[j + 1] = row;
+      }
+      return;
+    }
+    int mid = (low + high) >>> 1;
+    sort(dest, src, low, mid, comparator);
+    sort(dest, src, mid, high, comparator);
+
+    if(comparator.compare(src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, low, dest, low, length);
+      return;
+    }
+    for(int i=low, p=low, q=mid; i<high; ++i) {
+      if(q >= high || (p < mid && comparator.compare(src[p], src[q]) <= 0)) {
+        dest[i] = src[p++];
+      } else {
+        dest[i] = src[q++];
+      }
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package org.renjin.primitives.sort;
+
+import org.renjin.sexp.AtomicVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.StringVector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorting and ordering of atomic vectors without boxing, shared by {@code sort()},
+ * {@code order()}, {@code rank()} and {@code is.unsorted()}.
+ *
+ * <p>Each key is transformed into an unsigned integer whose order is the desired order
+ * of the key, including the direction of the sort and the placement of {@code NA}s,
+ * and rows are then ordered by a stable radix sort of these integers:</p>
+ * <ul>
+ *   <li>integers, logicals and factor codes by their value,</li>
+ *   <li>doubles by their IEEE 754 bits, with the sign bit flipped for positive numbers
+ *   and all bits flipped for negative numbers,</li>
+ *   <li>strings by the rank of each distinct string among all string keys, which are
+ *   sorted only once by a string radix sort.</li>
+ * </ul>
+ * <p>Keys of other types are sorted by a stable merge sort. Orderings over several
+ * keys are built by sorting stably by each key in turn, starting from the last.</p>
+ */
+public final class Ordering {
+
+  private Ordering() { }
+
+  /**
+   * Computes the permutation which rearranges the rows of {@code keys} into order.
+   *
+   * @param keys vectors of equal length, each breaking the ties of the previous
+   * @param decreasing true to order rows in decreasing order. Ties are still
+   *                   kept in their original order.
+   * @param naLast true to place {@code NA}s last, false to place them first
+   * @return the zero-based permutation
+   */
+  public static int[] order(List<? extends AtomicVector> keys, boolean decreasing, boolean naLast) {
+    int numRows = keys.isEmpty() ? 0 : keys.get(0).length();
+    int[] perm = new int[numRows];
+    for(int i=0;i!=numRows;++i) {
+      perm[i] = i;
+    }
+    if(numRows < 2) {
+      return perm;
+    }
+
+    // all string keys share one ranking of their distinct values
+    StringSort.Ranks ranks = null;
+    int[][] stringIds = new int[keys.size()][];
+    for(int i=0;i!=keys.size();++i) {
+      if(keys.get(i) instanceof StringVector) {
+        if(ranks == null) {
+          ranks = new StringSort.Ranks();
+        }
+        stringIds[i] = ranks.add((StringVector) keys.get(i));
+      }
+    }
+
+    for(int i=keys.size()-1;i>=0;--i) {
+      AtomicVector key = keys.get(i);
+      if(stringIds[i] != null) {
+        RadixSort.sortRows(perm, stringKeys(stringIds[i], ranks, decreasing, naLast));
+      } else if(key instanceof IntVector || key instanceof LogicalVector) {
+        RadixSort.sortRows(perm, intKeys(key, decreasing, naLast));
+      } else if(key instanceof DoubleVector) {
+        RadixSort.sortRows(perm, doubleKeys((DoubleVector) key, decreasing, naLast));
+      } else {
+        MergeSort.sortRows(perm, comparator(key, decreasing, naLast));
+      }
+    }
+    return perm;
+  }
+
+  public static int[] order(AtomicVector key, boolean decreasing, boolean naLast) {
+    return order(Arrays.asList(key), decreasing, naLast);
+  }
+
+  private static int[] intKeys(AtomicVector vector, boolean decreasing, boolean naLast) {
+    int[] keys = new int[vector.length()];
+    for(int i=0;i!=keys.length;++i) {
+      keys[i] = vector.isElementNA(i) ? naKey(naLast) : intKey(vector.getElementAsInt(i), decreasing, naLast);
+    }
+    return keys;
+  }
+
+  private static int[] stringKeys(int[] ids, StringSort.Ranks ranks, boolean decreasing, boolean naLast) {
+    int[] keys = new int[ids.length];
+    for(int i=0;i!=keys.length;++i) {
+      int rank = ranks.rank(ids[i]);
+      keys[i] = rank < 0 ? naKey(naLast) : intKey(rank, decreasing, naLast);
+    }
+    return keys;
+  }
+
+  private static int naKey(boolean naLast) {
+    return naLast ? 0xFFFFFFFF : 0;
+  }
+
+  /**
+   * Maps a non-NA integer to an unsigned key in the range [0, 0xFFFFFFFE] if {@code naLast},
+   * or [1, 0xFFFFFFFF] otherwise, leaving the other end of the range free for {@code NA}.
+   * This is possible because {@code NA} is {@code Integer.MIN_VALUE}.
+   */
+  private static int intKey(int value, boolean decreasing, boolean naLast) {
+    int key = (value ^ Integer.MIN_VALUE) - 1;
+    if(decreasing) {
+      key = 0xFFFFFFFE - key;
+    }
+    if(!naLast) {
+      key++;
+    }
+    return key;
+  }
+
+  private static long[] doubleKeys(DoubleVector vector, boolean decreasing, boolean naLast) {
+    long[] keys = new long[vector.length()];
+    for(int i=0;i!=keys.length;++i) {
+      double value = vector.getElementAsDouble(i);
+      if(Double.isNaN(value)) {
+        keys[i] = naLast ? -1L : 0L;
+      } else {
+        // -0 == 0
+        long key = doubleKey(value == 0 ? 0d : value);
+        keys[i] = decreasing ? ~key : key;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Maps a double to an unsigned key with the same order. Non-NaN doubles map to keys
+   * strictly between 0 and 0xFFFFFFFFFFFFFFFF, in a range which is closed under complement.
+   */
+  private static long doubleKey(double value) {
+    long bits = Double.doubleToRawLongBits(value);
+    return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+  }
+
+  private static double fromDoubleKey(long key) {
+    return Double.longBitsToDouble(key < 0 ? key ^ Long.MIN_VALUE : ~key);
+  }
+
+  private static MergeSort.RowComparator comparator(final AtomicVector vector,
+                                                    final boolean decreasing, final boolean naLast) {
+    return new MergeSort.RowComparator() {
+      @Override
+      public int compare(int row1, int row2) {
+        boolean na1 = vector.isElementNA(row1);
+        boolean na2 = vector.isElementNA(row2);
+        if(na1 || na2) {
+          if(na1 == na2) {
+            return 0;
+          }
+          return na1 == naLast ? 1 : -1;
+        }
+        int rel = vector.compare(row1, row2);
+        return decreasing ? -rel : rel;
+      }
+    };
+  }
+
+  /**
+   * Sorts {@code values} in place in ascending order
+   */
+  public static void sort(int[] values) {
+    RadixSort.sort(values);
+  }
+
+  /**
+   * Sorts {@code values} in place in ascending order, with {@code NaN}s last, in the same
+   * order as {@link Arrays#sort(double[])}.
+   */
+  public static void sort(double[] values) {
+    if(values.length < RadixSort.MIN_LENGTH) {
+      Arrays.sort(values);
+      return;
+    }
+    long[] keys = new long[values.length];
+    int numNaN = 0;
+    for(int i=0;i!=values.length;++i) {
+      if(Double.isNaN(values[i])) {
+        values[numNaN++] = values[i];
+      } else {
+        keys[i - numNaN] = doubleKey(values[i]);
+      }
+    }
+    int numKeys = values.length - numNaN;
+    System.arraycopy(values, 0, values, numKeys, numNaN);
+    if(numKeys > 0) {
+      if(numNaN > 0) {
+        keys = Arrays.copyOf(keys, numKeys);
+      }
+      RadixSort.sort(keys);
+      for(int i=0;i!=numKeys;++i) {
+        values[i] = fromDoubleKey(keys[i]);
+      }
+    }
+  }
+
+  /**
+   * Sorts {@code values}, which must not contain {@code null}s, in place in the
+   * order of {@link String#compareTo(String)}
+   */
+  public static void sort(String[] values) {
+    StringSort.sort(values);
+  }
+
+  /**
+   * @return true if any element of {@code x}, which must not contain {@code NA}s, is
+   * greater than its successor, or, if {@code strictly}, greater than or equal to it.
+   */
+  public static boolean isUnsorted(AtomicVector x, boolean strictly) {
+    int limit = strictly ? 1 : 0;
+    if(x instanceof IntVector || x instanceof LogicalVector) {
+      for(int i=1;i<x.length();++i) {
+        if(compare(x.getElementAsInt(i), x.getElementAsInt(i-1)) < limit) {
+          return true;
+        }
+      }
+    } else if(x instanceof DoubleVector) {
+      for(int i=1;i<x.length();++i) {
+        double previous = x.getElementAsDouble(i-1);
+        double current = x.getElementAsDouble(i);
+        if(current < previous || (strictly && current == previous)) {
+          return true;
+        }
+      }
+    } else if(x instanceof StringVector) {
+      for(int i=1;i<x.length();++i) {
+        if(x.getElementAsString(i).compareTo(x.getElementAsString(i-1)) < limit) {
+          return true;
+        }
+      }
+    } else {
+      for(int i=1;i<x.length();++i) {
+        if(x.compare(i, i-1) < limit) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static int compare(int a, int b) {
+    return a < b ? -1 : (a == b ? 0 : 1);
+  }
+
+  /**
+   * @return true if the elements {@code i} and {@code j} of {@code x} are equal, with
+   * {@code -0} equal to {@code 0}
+   */
+  public static boolean equal(AtomicVector x, int i, int j) {
+    if(x instanceof IntVector || x instanceof LogicalVector) {
+      return x.getElementAsInt(i) == x.getElementAsInt(j);
+    } else if(x instanceof DoubleVector) {
+      return x.getElementAsDouble(i) == x.getElementAsDouble(j);
+    } else if(x instanceof StringVector) {
+      return x.getElementAsString(i).equals(x.getElementAsString(j));
+    } else {
+      return x.compare(i, j) == 0;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package org.renjin.primitives.sort;
+
+import java.util.Arrays;
+
+/**
+ * Stable least-significant-digit radix sorts over unsigned integer keys.
+ *
+ * <p>Keys are sorted 11 bits at a time, so that an {@code int} key takes at most three
+ * passes over the data, and a {@code long} key six. Passes in which every key has the
+ * same digit, for example the high digits of small integers, are skipped.</p>
+ */
+final class RadixSort {
+
+  private static final int BITS = 11;
+  private static final int RADIX = 1 << BITS;
+  private static final int MASK = RADIX - 1;
+
+  /**
+   * Arrays shorter than this are sorted by insertion
+   */
+  static final int MIN_LENGTH = 64;
+
+  private RadixSort() { }
+
+  /**
+   * Stably reorders the row indexes in {@code perm} so that {@code keys[perm[i]]} is ascending,
+   * comparing keys as unsigned integers.
+   *
+   * @param keys the sort key of each row, indexed by row
+   */
+  static void sortRows(int[] perm, int[] keys) {
+    int n = perm.length;
+    if(n < MIN_LENGTH) {
+      insertionSortRows(perm, keys);
+      return;
+    }
+    int[] k = new int[n];
+    for(int i=0;i!=n;++i) {
+      k[i] = keys[perm[i]];
+    }
+    int[] p = perm;
+    int[] p2 = new int[n];
+    int[] k2 = new int[n];
+    int[] counts = new int[RADIX + 1];
+
+    for(int shift=0;shift<32;shift+=BITS) {
+      Arrays.fill(counts, 0);
+      for(int i=0;i!=n;++i) {
+        counts[((k[i] >>> shift) & MASK) + 1]++;
+      }
+      if(counts[((k[0] >>> shift) & MASK) + 1] == n) {
+        continue;
+      }
+      for(int d=0;d!=RADIX;++d) {
+        counts[d + 1] += counts[d];
+      }
+      for(int i=0;i!=n;++i) {
+        int pos = counts[(k[i] >>> shift) & MASK]++;
+        p2[pos] = p[i];
+        k2[pos] = k[i];
+      }
+      int[] t = p; p = p2; p2 = t;
+      t = k; k = k2; k2 = t;
+    }
+    if(p != perm) {
+      System.arraycopy(p, 0, perm, 0, n);
+    }
+  }
+
+  /**
+   * Stably reorders the row indexes in {@code perm} so that {@code keys[perm[i]]} is ascending,
+   * comparing keys as unsigned integers.
+   *
+   * @param keys the sort key of each row, indexed by row
+   */
+  static void sortRows(int[] perm, long[] keys) {
+    int n = perm.length;
+    if(n < MIN_LENGTH) {
+      insertionSortRows(perm, keys);
+      return;
+    }
+    long[] k = new long[n];
+    for(int i=0;i!=n;++i) {
+      k[i] = keys[perm[i]];
+    }
+    int[] p = perm;
+    int[] p2 = new int[n];
+    long[] k2 = new long[n];
+    int[] counts = new int[RADIX + 1];
+
+    for(int shift=0;shift<64;shift+=BITS) {
+      Arrays.fill(counts, 0);
+      for(int i=0;i!=n;++i) {
+        counts[(int)((k[i] >>> shift) & MASK) + 1]++;
+      }
+      if(counts[(int)((k[0] >>> shift) & MASK) + 1] == n) {
+        continue;
+      }
+      for(int d=0;d!=RADIX;++d) {
+        counts[d + 1] += counts[d];
+      }
+      for(int i=0;i!=n;++i) {
+        int pos = counts[(int)((k[i] >>> shift) & MASK)]++;
+        p2[pos] = p[i];
+        k2[pos] = k[i];
+      }
+      int[] t = p; p = p2; p2 = t;
+      long[] tk = k; k = k2; k2 = tk;
+    }
+    if(p != perm) {
+      System.arraycopy(p, 0, perm, 0, n);
+    }
+  }
+
+  /**
+   * Sorts {@code keys} in place, comparing them as unsigned integers.
+   */
+  static void sort(long[] keys) {
+    int n = keys.length;
+    long[] k = keys;
+    long[] k2 = new long[n];
+    int[] counts = new int[RADIX + 1];
+
+    for(int shift=0;shift<64;shift+=BITS) {
+      Arrays.fill(counts, 0);
+      for(int i=0;i!=n;++i) {
+        counts[(int)((k[i] >>> shift) & MASK) + 1]++;
+      }
+      if(counts[(int)((k[0] >>> shift) & MASK) + 1] == n) {
+        continue;
+      }
+      for(int d=0;d!=RADIX;++d) {
+        counts[d + 1] += counts[d];
+      }
+      for(int i=0;i!=n;++i) {
+        k2[counts[(int)((k[i] >>> shift) & MASK)]++] = k[i];
+      }
+      long[] t = k; k = k2; k2 = t;
+    }
+    if(k != keys) {
+      System.arraycopy(k, 0, keys, 0, n);
+    }
+  }
+
+  /**
+   * Sorts {@code values} in place, in ascending signed order.
+   */
+  static void sort(int[] values) {
+    int n = values.length;
+    if(n < MIN_LENGTH) {
+      Arrays.sort(values);
+      return;
+    }
+    int[] k = values;
+    int[] k2 = new int[n];
+    int[] counts = new int[RADIX + 1];
+
+    for(int shift=0;shift<32;shift+=BITS) {
+      Arrays.fill(counts, 0);
+      for(int i=0;i!=n;++i) {
+        counts[(((k[i] ^ Integer.MIN_VALUE) >>> shift) & MASK) + 1]++;
+      }
+      if(counts[(((k[0] ^ Integer.MIN_VALUE) >>> shift) & MASK) + 1] == n) {
+        continue;
+      }
+      for(int d=0;d!=RADIX;++d) {
+        counts[d + 1] += counts[d];
+      }
+      for(int i=0;i!=n;++i) {
+        k2[counts[((k[i] ^ Integer.MIN_VALUE) >>> shift) & MASK]++] = k[i];
+      }
+      int[] t = k; k = k2; k2 = t;
+    }
+    if(k != values) {
+      System.arraycopy(k, 0, values, 0, n);
+    }
+  }
+
+  private static void insertionSortRows(int[] perm, int[] keys) {
+    for(int i=1;i<perm.length;++i) {
+      int row = perm[i];
+      int key = keys[row] ^ Integer.MIN_VALUE;
+      int j = i - 1;
+      while(j >= 0 && (keys[perm[j]] ^ Integer.MIN_VALUE) > key) {
+        perm[j + 1] = perm[j];
+        j--;
+      }
+      perm[j + 1] = row;
+    }
+  }
+
+  private static void insertionSortRows(int[] perm, long[] keys) {
+    for(int i=1;i<perm.length;++i) {
+      int row = perm[i];
+      long key = keys[row] ^ Long.MIN_VALUE;
+      int j = i - 1;
+      while(j >= 0 && (keys[perm[j]] ^ Long.MIN_VALUE) > key) {
+        perm[j + 1] = perm[j];
+        j--;
+      }
+      perm[j + 1] = row;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package org.renjin.primitives.sort;
+
+import org.renjin.sexp.StringDictionaryVector;
+import org.renjin.sexp.StringVector;
+
+/**
+ * Sorts strings by three-way radix quicksort, a most-significant-digit radix sort which
+ * examines each character of a common prefix only once, rather than once per comparison.
+ *
+ * <p>Strings are ordered as by {@link String#compareTo(String)}.</p>
+ */
+final class StringSort {
+
+  /**
+   * Ranges shorter than this are sorted by insertion
+   */
+  private static final int INSERTION_LENGTH = 12;
+
+  private StringSort() { }
+
+  static void sort(String[] strings) {
+    sort(strings, 0, strings.length - 1, 0);
+  }
+
+  /**
+   * Sorts {@code a[lo, hi]}, all of whose elements share their first {@code d} characters
+   */
+  private static void sort(String[] a, int lo, int hi, int d) {
+    while(hi - lo >= INSERTION_LENGTH) {
+      exchange(a, lo, (lo + hi) >>> 1);
+      int pivot = charAt(a[lo], d);
+      int lt = lo;
+      int gt = hi;
+      int i = lo + 1;
+      while(i <= gt) {
+        int c = charAt(a[i], d);
+        if(c < pivot) {
+          exchange(a, lt++, i++);
+        } else if(c > pivot) {
+          exchange(a, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      sort(a, lo, lt - 1, d);
+      sort(a, gt + 1, hi, d);
+      if(pivot < 0) {
+        // a[lt, gt] are all equal
+        return;
+      }
+      lo = lt;
+      hi = gt;
+      d++;
+    }
+    for(int i=lo+1;i<=hi;++i) {
+      String s = a[i];
+      int j = i - 1;
+      while(j >= lo && a[j].compareTo(s) > 0) {
+        a[j + 1] = a[j];
+        j--;
+      }
+      a[j + 1] = s;
+    }
+  }
+
+  private static int charAt(String s, int d) {
+    return d < s.length() ? s.charAt(d) : -1;
+  }
+
+  private static void exchange(String[] a, int i, int j) {
+    String t = a[i];
+    a[i] = a[j];
+    a[j] = t;
+  }
+
+  /**
+   * Assigns each distinct string in a set of vectors its rank among all of them, so
+   * that several string keys can be sorted as integers after sorting each distinct
+   * string only once.
+   */
+  static class Ranks {
+
+    private static final int NA = -1;
+
+    private String[] table = new String[16];
+    private int[] ids = new int[16];
+    private String[] distinct = new String[16];
+    private int size;
+    private int[] ranks;
+
+    /**
+     * Adds the elements of {@code vector} to the cache.
+     *
+     * @return the id of each element of {@code vector}, to be passed
+     * to {@link #rank(int)} once all vectors have been added.
+     */
+    int[] add(StringVector vector) {
+      if(vector instanceof StringDictionaryVector) {
+        return add((StringDictionaryVector) vector);
+      }
+      int[] result = new int[vector.length()];
+      for(int i=0;i!=result.length;++i) {
+        String s = vector.getElementAsString(i);
+        result[i] = s == null ? NA : id(s);
+      }
+      ranks = null;
+      return result;
+    }
+
+    private int[] add(StringDictionaryVector vector) {
+      int[] levelIds = new int[vector.getLevelCount()];
+      for(int code=0;code!=levelIds.length;++code) {
+        levelIds[code] = id(vector.getLevel(code));
+      }
+      int[] result = new int[vector.length()];
+      for(int i=0;i!=result.length;++i) {
+        int code = vector.getCode(i);
+        result[i] = code == StringDictionaryVector.NA_CODE ? NA : levelIds[code];
+      }
+      ranks = null;
+      return result;
+    }
+
+    private int id(String s) {
+      int mask = table.length - 1;
+      int slot = hash(s) & mask;
+      while(table[slot] != null) {
+        if(table[slot].equals(s)) {
+          return ids[slot];
+        }
+        slot = (slot + 1) & mask;
+      }
+      if(size == distinct.length) {
+        String[] grown = new String[size * 2];
+        System.arraycopy(distinct, 0, grown, 0, size);
+        distinct = grown;
+      }
+      distinct[size] = s;
+      table[slot] = s;
+      ids[slot] = size;
+      size++;
+      if(size * 2 > table.length) {
+        rehash();
+      }
+      return size - 1;
+    }
+
+    private void rehash() {
+      String[] newTable = new String[table.length * 2];
+      int[] newIds = new int[newTable.length];
+      int mask = newTable.length - 1;
+      for(int i=0;i!=table.length;++i) {
+        if(table[i] != null) {
+          int slot = hash(table[i]) & mask;
+          while(newTable[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          newTable[slot] = table[i];
+          newIds[slot] = ids[i];
+        }
+      }
+      table = newTable;
+      ids = newIds;
+    }
+
+    private static int hash(String s) {
+      int h = s.hashCode() * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the zero-based rank of the string with the given {@code id} among all
+     * distinct strings added, or -1 for {@code NA}
+     */
+    int rank(int id) {
+      if(id == NA) {
+        return NA;
+      }
+      if(ranks == null) {
+        String[] sorted = new String[size];
+        System.arraycopy(distinct, 0, sorted, 0, size);
+        sort(sorted);
+        ranks = new int[size];
+        for(int i=0;i!=size;++i) {
+          ranks[id(sorted[i])] = i;
+        }
+      }
+      return ranks[id];
+    }
+  }
+}
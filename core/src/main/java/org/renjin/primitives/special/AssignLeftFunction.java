@@ -23,6 +23,7 @@ package org.renjin.primitives.special;
 
 import org.renjin.compiler.ir.exception.InvalidSyntaxException;
 import org.renjin.eval.Context;
+import org.renjin.primitives.subset.InPlaceReplacement;
 import org.renjin.sexp.*;
 
 
@@ -60,6 +61,11 @@ public class AssignLeftFunction extends SpecialFunction {
     SEXP evaluatedValue = context.evaluate( value, rho);
     SEXP rhs = new Promise(value, evaluatedValue);
 
+    if(lhs instanceof FunctionCall && assignInPlace(context, rho, (FunctionCall) lhs, rhs, evaluatedValue)) {
+      context.setInvisibleFlag();
+      return evaluatedValue;
+    }
+
     while(lhs instanceof FunctionCall) {
       FunctionCall call = (FunctionCall) lhs;
       Symbol getter = (Symbol) call.getFunction();
@@ -97,6 +103,16 @@ public class AssignLeftFunction extends SpecialFunction {
     return evaluatedValue;
   }
 
+  /**
+   * Attempts to make a simple replacement such as {@code x[i] <- value} by updating
+   * the value of {@code x} in place.
+   *
+   * @return true if the assignment has been made
+   */
+  protected boolean assignInPlace(Context context, Environment rho, FunctionCall lhs, SEXP rhs, SEXP evaluatedValue) {
+    return InPlaceReplacement.tryAssign(context, rho, lhs, rhs, evaluatedValue);
+  }
+
   protected void assignResult(Context context, Environment rho, Symbol target, SEXP rhs) {
     rho.setVariable(target, rhs);
   }
@@ -53,7 +53,8 @@ public class ForFunction extends SpecialFunction {
     }
     Vector elements = (Vector) elementsExp;
     SEXP statement = args.getElementAsSEXP(2);
-    for(int i=0; i!=elements.length(); ++i) {
+    int i;
+    for(i=0; i!=elements.length(); ++i) {
       try {
         rho.setVariable(symbol, elements.getElementAsSEXP(i));
         context.evaluate( statement, rho);
@@ -63,6 +64,7 @@ public class ForFunction extends SpecialFunction {
         // next iteration
       }
     }
+    context.getSession().getTieredCompiler().looped(context, i);
 
     context.setInvisibleFlag();
     return Null.INSTANCE;
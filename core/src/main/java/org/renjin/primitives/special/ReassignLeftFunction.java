@@ -23,6 +23,7 @@ package org.renjin.primitives.special;
 
 import org.renjin.eval.Context;
 import org.renjin.sexp.Environment;
+import org.renjin.sexp.FunctionCall;
 import org.renjin.sexp.SEXP;
 import org.renjin.sexp.Symbol;
 
@@ -32,6 +33,12 @@ public class ReassignLeftFunction extends AssignLeftFunction {
     super("<<-");
   }
   
+  @Override
+  protected boolean assignInPlace(Context context, Environment rho, FunctionCall lhs, SEXP rhs, SEXP evaluatedValue) {
+    // the target is not in the local frame
+    return false;
+  }
+
   @Override
   protected void assignResult(Context context, Environment rho, Symbol lhs, SEXP rhs) {
 
@@ -39,7 +39,9 @@ public class RepeatFunction extends SpecialFunction {
   public SEXP apply(Context context, Environment rho, FunctionCall call, PairList args) {
     SEXP statement = args.getElementAsSEXP(0);
 
+    int iterations = 0;
     while(true) {
+      iterations++;
       try {
         context.evaluate( statement, rho);
       } catch(BreakException e) {
@@ -48,6 +50,7 @@ public class RepeatFunction extends SpecialFunction {
         // next loop iteration
       }
     }
+    context.getSession().getTieredCompiler().looped(context, iterations);
     context.setInvisibleFlag();
     return Null.INSTANCE;
   }
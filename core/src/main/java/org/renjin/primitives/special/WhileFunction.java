@@ -40,7 +40,9 @@ public class WhileFunction extends SpecialFunction {
     SEXP condition = args.getElementAsSEXP(0);
     SEXP statement = args.getElementAsSEXP(1);
 
+    int iterations = 0;
     while(asLogicalNoNA(context, call, context.evaluate( condition, rho))) {
+      iterations++;
 
       try {
 
@@ -52,6 +54,7 @@ public class WhileFunction extends SpecialFunction {
         // next loop iteration
       }
     }
+    context.getSession().getTieredCompiler().looped(context, iterations);
     context.setInvisibleFlag();
     return Null.INSTANCE;
   }
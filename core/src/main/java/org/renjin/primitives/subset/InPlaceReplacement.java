@@ -0,0 +1,168 @@
+package org.renjin.primitives.subset;
+
+import org.renjin.eval.Context;
+import org.renjin.primitives.Primitives;
+import org.renjin.sexp.*;
+
+/**
+ * Performs simple replacements of the form {@code x[i] <- value} and {@code x[[i]] <- value}
+ * by updating the vector bound to {@code x} in place, rather than building a new copy
+ * of the vector for every assignment.
+ *
+ * <p>The vector is copied once, the first time it is updated, and the copy is marked as
+ * unshared before it is bound to {@code x}. As long as nothing else reads {@code x} in the
+ * meantime, subsequent assignments update the copy directly, so that a loop
+ * like {@code for(i in 1:n) x[i] <- f(i)} runs in linear time.
+ *
+ * @see ReferenceTracked
+ */
+public final class InPlaceReplacement {
+
+  private static final Symbol SINGLE_BRACKET = Symbol.get("[");
+  private static final Symbol DOUBLE_BRACKET = Symbol.get("[[");
+  private static final Symbol SET_SINGLE_BRACKET = Symbol.get("[<-");
+  private static final Symbol SET_DOUBLE_BRACKET = Symbol.get("[[<-");
+  private static final Symbol VALUE = Symbol.get("value");
+
+  private InPlaceReplacement() { }
+
+  /**
+   * Attempts to evaluate the assignment {@code lhs <- value} in place.
+   *
+   * @param lhs the target of the assignment, for example {@code x[i]}
+   * @param value the promised value of the right hand side, which has already been evaluated
+   * @param evaluatedValue the value of the right hand side
+   * @return true if the assignment has been made, or false if it is not a simple replacement,
+   * in which case nothing has been evaluated.
+   */
+  public static boolean tryAssign(Context context, Environment rho, FunctionCall lhs,
+                                  SEXP value, SEXP evaluatedValue) {
+
+    Symbol setter;
+    if(lhs.getFunction() == SINGLE_BRACKET) {
+      setter = SET_SINGLE_BRACKET;
+    } else if(lhs.getFunction() == DOUBLE_BRACKET) {
+      setter = SET_DOUBLE_BRACKET;
+    } else {
+      return false;
+    }
+
+    if(lhs.getArguments().length() != 2) {
+      return false;
+    }
+    for(PairList.Node node : lhs.getArguments().nodes()) {
+      if(node.hasTag()) {
+        return false;
+      }
+    }
+    SEXP targetExp = lhs.getArgument(0);
+    SEXP indexExp = lhs.getArgument(1);
+    if(!(targetExp instanceof Symbol) || indexExp == Symbol.MISSING_ARG || indexExp == Symbols.ELLIPSES) {
+      return false;
+    }
+    Symbol target = (Symbol) targetExp;
+
+    SEXP vector = rho.getFrame().getVariableForUpdate(target);
+    if(!canReplace(vector, evaluatedValue, setter == SET_DOUBLE_BRACKET) ||
+        rho.bindingIsLocked(target) ||
+        rho.findFunction(context, setter) != Primitives.getBuiltin(setter)) {
+      return false;
+    }
+
+    // from here on we are committed, as evaluating the index may have side effects
+    SEXP index = context.evaluate(indexExp, rho);
+    int position = position(index, vector.length());
+
+    ReferenceTracked tracked = (ReferenceTracked) vector;
+    if(position == -1) {
+      // not a simple subscript: apply [<- to the values we have already evaluated
+      tracked.markShared();
+      PairList setterArgs = PairList.Node.newBuilder()
+          .add(new Promise(target, vector))
+          .add(new Promise(indexExp, index))
+          .add(VALUE, value)
+          .build();
+      SEXP result = context.evaluate(new FunctionCall(setter, setterArgs), rho);
+      rho.setVariable(target, result.force(context));
+      return true;
+    }
+
+    // reading the variable while evaluating the index or the value
+    // would have marked the vector as shared
+    if(tracked.isShared()) {
+      tracked = unsharedCopy(tracked);
+    }
+    setElement(tracked, position, evaluatedValue);
+
+    if(rho.getFrame().getVariableForUpdate(target) != tracked) {
+      rho.setVariable(target, tracked);
+    }
+    return true;
+  }
+
+  private static boolean canReplace(SEXP vector, SEXP value, boolean single) {
+    if(vector.isObject() || value.isObject()) {
+      return false;
+    }
+    if(vector.getClass() == ListVector.class) {
+      // x[i] <- value on a list has different semantics
+      return single && value != Null.INSTANCE;
+    }
+    if(value.length() != 1) {
+      return false;
+    }
+    if(vector.getClass() == DoubleArrayVector.class) {
+      return value instanceof DoubleVector || value instanceof IntVector || value instanceof LogicalVector;
+    }
+    if(vector.getClass() == IntArrayVector.class) {
+      return value instanceof IntVector || value instanceof LogicalVector;
+    }
+    return false;
+  }
+
+  /**
+   * @return the zero-based position selected by {@code index}, or -1 if the
+   * index does not select a single existing element
+   */
+  private static int position(SEXP index, int length) {
+    if(index.length() != 1 || index.isObject()) {
+      return -1;
+    }
+    double position;
+    if(index instanceof IntVector) {
+      if(((IntVector) index).isElementNA(0)) {
+        return -1;
+      }
+      position = ((IntVector) index).getElementAsInt(0);
+    } else if(index instanceof DoubleVector) {
+      position = ((DoubleVector) index).getElementAsDouble(0);
+    } else {
+      return -1;
+    }
+    // NaN fails both comparisons
+    if(position >= 1 && position < length + 1) {
+      return (int) position - 1;
+    }
+    return -1;
+  }
+
+  private static ReferenceTracked unsharedCopy(ReferenceTracked vector) {
+    if(vector instanceof DoubleArrayVector) {
+      return ((DoubleArrayVector) vector).unsharedCopy();
+    } else if(vector instanceof IntArrayVector) {
+      return ((IntArrayVector) vector).unsharedCopy();
+    } else {
+      return ((ListVector) vector).unsharedCopy();
+    }
+  }
+
+  private static void setElement(ReferenceTracked vector, int position, SEXP value) {
+    if(vector instanceof DoubleArrayVector) {
+      ((DoubleArrayVector) vector).setElementInPlace(position, ((AtomicVector) value).getElementAsDouble(0));
+    } else if(vector instanceof IntArrayVector) {
+      ((IntArrayVector) vector).setElementInPlace(position, ((AtomicVector) value).getElementAsInt(0));
+    } else {
+      ((ListVector) vector).setElementInPlace(position, value);
+    }
+  }
+}
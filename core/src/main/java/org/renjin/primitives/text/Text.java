@@ -51,6 +51,10 @@ public class Text {
     int resultLength = arguments.maxElementLength();
 
     if(collapse == null) {
+      int dictionaryIndex = dictionaryArgument(arguments, resultLength);
+      if(dictionaryIndex != -1) {
+        return pasteLevels(arguments, separator, dictionaryIndex);
+      }
       String results[] = new String[resultLength];
       for(int index=0; index!=resultLength; ++index) {
         results[index] = Joiner.on(separator).join(
@@ -71,6 +75,54 @@ public class Text {
     }
   }
 
+  /**
+   * @return the index of the only argument which is a dictionary-encoded string vector of
+   * the full result length without {@code NA}s, if all other arguments have at most one
+   * element, or -1 otherwise
+   */
+  private static int dictionaryArgument(ListVector arguments, int resultLength) {
+    int dictionaryIndex = -1;
+    for(int i=0;i!=arguments.length();++i) {
+      SEXP argument = arguments.getElementAsSEXP(i);
+      if(argument instanceof StringDictionaryVector && argument.length() == resultLength &&
+          dictionaryIndex == -1 && resultLength > 1) {
+        dictionaryIndex = i;
+      } else if(argument.length() > 1) {
+        return -1;
+      }
+    }
+    if(dictionaryIndex != -1) {
+      StringDictionaryVector dictionary = (StringDictionaryVector) arguments.getElementAsSEXP(dictionaryIndex);
+      for(int i=0;i!=resultLength;++i) {
+        if(dictionary.getCode(i) == StringDictionaryVector.NA_CODE) {
+          return -1;
+        }
+      }
+    }
+    return dictionaryIndex;
+  }
+
+  /**
+   * Pastes each distinct string of a dictionary-encoded argument only once. As all other
+   * arguments are constant, the pasted levels are still distinct.
+   */
+  private static StringVector pasteLevels(ListVector arguments, String separator, int dictionaryIndex) {
+    StringDictionaryVector dictionary = (StringDictionaryVector) arguments.getElementAsSEXP(dictionaryIndex);
+    List<SEXP> levelArguments = Lists.newArrayList(arguments);
+    levelArguments.set(dictionaryIndex, dictionary.getLevelVector());
+
+    String levels[] = new String[dictionary.getLevelCount()];
+    for(int code=0; code!=levels.length; ++code) {
+      levels[code] = Joiner.on(separator).join(
+          transform(levelArguments, new StringElementAt(code)));
+    }
+    int codes[] = new int[dictionary.length()];
+    for(int i=0; i!=codes.length; ++i) {
+      codes[i] = dictionary.getCode(i);
+    }
+    return new StringDictionaryVector(codes, levels);
+  }
+
   @Internal("encodeString")
   public static StringVector encodeString(StringVector x, int width, String quote, 
       int justify, boolean naEncode) {
@@ -355,7 +407,7 @@ public class Text {
     if(value) {
       StringVector.Builder result = new StringVector.Builder();
       for(String string : x) {
-        if(re.match(string)) {
+        if(re.test(string)) {
           result.add(string);
         }
       }
@@ -364,7 +416,7 @@ public class Text {
 
       IntArrayVector.Builder result = new IntArrayVector.Builder(0);
       for(int i=0;i!=x.length();++i) {
-        if(re.match(x.getElementAsString(i))) {
+        if(re.test(x.getElementAsString(i))) {
           result.add(i+1);
         }
       }
@@ -398,7 +450,7 @@ public class Text {
     RE re = REFactory.compile(pattern, ignoreCase,  perl, fixed, useBytes);
     LogicalArrayVector.Builder result = new LogicalArrayVector.Builder();
     for(String string : x) {
-      result.add( ! StringVector.isNA(string) && re.match(string ));
+      result.add( ! StringVector.isNA(string) && re.test(string ));
     }
     return result.build();
   }
@@ -1151,132 +1151,9 @@ public class ExtendedRE implements Serializable, RE {
                             return -1;
                         }
 
-                        switch (opdata)
+                        if (!isPosixClassMember((char) opdata, search.charAt(idx)))
                         {
-                            case POSIX_CLASS_ALNUM:
-                                if (!Character.isLetterOrDigit(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_ALPHA:
-                                if (!Character.isLetter(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_DIGIT:
-                                if (!Character.isDigit(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_BLANK: // JWL - bugbug: is this right??
-                                if (!Character.isSpaceChar(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_SPACE:
-                                if (!Character.isWhitespace(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_CNTRL:
-                                if (Character.getType(search.charAt(idx)) != Character.CONTROL)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_GRAPH: // JWL - bugbug???
-                                switch (Character.getType(search.charAt(idx)))
-                                {
-                                    case Character.MATH_SYMBOL:
-                                    case Character.CURRENCY_SYMBOL:
-                                    case Character.MODIFIER_SYMBOL:
-                                    case Character.OTHER_SYMBOL:
-                                        break;
-
-                                    default:
-                                        return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_LOWER:
-                                if (Character.getType(search.charAt(idx)) != Character.LOWERCASE_LETTER)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_UPPER:
-                                if (Character.getType(search.charAt(idx)) != Character.UPPERCASE_LETTER)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_PRINT:
-                                if (Character.getType(search.charAt(idx)) == Character.CONTROL)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_PUNCT:
-                            {
-                                int type = Character.getType(search.charAt(idx));
-                                switch(type)
-                                {
-                                    case Character.DASH_PUNCTUATION:
-                                    case Character.START_PUNCTUATION:
-                                    case Character.END_PUNCTUATION:
-                                    case Character.CONNECTOR_PUNCTUATION:
-                                    case Character.OTHER_PUNCTUATION:
-                                        break;
-
-                                    default:
-                                        return -1;
-                                }
-                            }
-                            break;
-
-                            case POSIX_CLASS_XDIGIT: // JWL - bugbug??
-                            {
-                                boolean isXDigit = ((search.charAt(idx) >= '0' && search.charAt(idx) <= '9') ||
-                                                    (search.charAt(idx) >= 'a' && search.charAt(idx) <= 'f') ||
-                                                    (search.charAt(idx) >= 'A' && search.charAt(idx) <= 'F'));
-                                if (!isXDigit)
-                                {
-                                    return -1;
-                                }
-                            }
-                            break;
-
-                            case POSIX_CLASS_JSTART:
-                                if (!Character.isJavaIdentifierStart(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_JPART:
-                                if (!Character.isJavaIdentifierPart(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            default:
-                                internalError("Bad posix class");
-                                break;
+                            return -1;
                         }
 
                         // Matched.
@@ -1386,6 +1263,83 @@ public class ExtendedRE implements Serializable, RE {
         return -1;
     }
 
+    /**
+     * @return true if character <code>c</code> is a member of the given POSIX character class
+     */
+    static boolean isPosixClassMember(char posixClass, char c)
+    {
+        switch (posixClass)
+        {
+            case POSIX_CLASS_ALNUM:
+                return Character.isLetterOrDigit(c);
+
+            case POSIX_CLASS_ALPHA:
+                return Character.isLetter(c);
+
+            case POSIX_CLASS_DIGIT:
+                return Character.isDigit(c);
+
+            case POSIX_CLASS_BLANK: // JWL - bugbug: is this right??
+                return Character.isSpaceChar(c);
+
+            case POSIX_CLASS_SPACE:
+                return Character.isWhitespace(c);
+
+            case POSIX_CLASS_CNTRL:
+                return Character.getType(c) == Character.CONTROL;
+
+            case POSIX_CLASS_GRAPH: // JWL - bugbug???
+                switch (Character.getType(c))
+                {
+                    case Character.MATH_SYMBOL:
+                    case Character.CURRENCY_SYMBOL:
+                    case Character.MODIFIER_SYMBOL:
+                    case Character.OTHER_SYMBOL:
+                        return true;
+
+                    default:
+                        return false;
+                }
+
+            case POSIX_CLASS_LOWER:
+                return Character.getType(c) == Character.LOWERCASE_LETTER;
+
+            case POSIX_CLASS_UPPER:
+                return Character.getType(c) == Character.UPPERCASE_LETTER;
+
+            case POSIX_CLASS_PRINT:
+                return Character.getType(c) != Character.CONTROL;
+
+            case POSIX_CLASS_PUNCT:
+                switch (Character.getType(c))
+                {
+                    case Character.DASH_PUNCTUATION:
+                    case Character.START_PUNCTUATION:
+                    case Character.END_PUNCTUATION:
+                    case Character.CONNECTOR_PUNCTUATION:
+                    case Character.OTHER_PUNCTUATION:
+                        return true;
+
+                    default:
+                        return false;
+                }
+
+            case POSIX_CLASS_XDIGIT: // JWL - bugbug??
+                return ((c >= '0' && c <= '9') ||
+                        (c >= 'a' && c <= 'f') ||
+                        (c >= 'A' && c <= 'F'));
+
+            case POSIX_CLASS_JSTART:
+                return Character.isJavaIdentifierStart(c);
+
+            case POSIX_CLASS_JPART:
+                return Character.isJavaIdentifierPart(c);
+
+            default:
+                throw new Error("RE internal error: Bad posix class");
+        }
+    }
+
     /**
      * Match the current regular expression program against the current
      * input string, starting at index i of the input string.  This method
@@ -1548,6 +1502,41 @@ public class ExtendedRE implements Serializable, RE {
         return match(search, 0);
     }
 
+    /**
+     * Tests whether the current regular expression program matches any part of a String.
+     * Unlike {@link #match(String)}, the position of the match is not recorded, so
+     * programs without backreferences or word boundaries are run by a {@link LazyDFA}
+     * rather than by the backtracking matcher.
+     *
+     * @param search String to match against
+     * @return True if string matched
+     */
+    @Override
+    public boolean test(String search)
+    {
+        LazyDFA dfa = getDFA();
+        if (dfa != null)
+        {
+            return dfa.matches(search);
+        }
+        return match(search, 0);
+    }
+
+    /**
+     * @return false if the current regular expression program certainly does not match any
+     * part of <code>search</code>, so that the backtracking matcher need not be run at all.
+     */
+    private boolean mayMatch(String search)
+    {
+        LazyDFA dfa = getDFA();
+        return dfa == null || dfa.matches(search);
+    }
+
+    private LazyDFA getDFA()
+    {
+        return program == null ? null : program.getDFA(matchFlags);
+    }
+
     /**
      * Splits a string into an array of strings on regular expression boundaries.
      * This function works the same way as the Perl function of the same name.
@@ -1565,6 +1554,12 @@ public class ExtendedRE implements Serializable, RE {
     @Override
     public String[] split(String s)
     {
+        // Don't bother with the backtracking matcher if there is no match at all
+        if (!mayMatch(s))
+        {
+            return s.length() == 0 ? new String[0] : new String[] { s };
+        }
+
         // Create new vector
         Vector v = new Vector();
 
@@ -1619,6 +1614,12 @@ public class ExtendedRE implements Serializable, RE {
     @Override
     public String subst(String substituteIn, String substitution, int flags)
     {
+        // Don't bother with the backtracking matcher if there is no match at all
+        if (!mayMatch(substituteIn))
+        {
+            return substituteIn;
+        }
+
         // String to return
         StringBuffer ret = new StringBuffer();
 
@@ -1740,10 +1741,16 @@ public class ExtendedRE implements Serializable, RE {
      */
     private boolean isNewline(int i)
     {
-        char nextChar = search.charAt(i);
+        return isNewline(search.charAt(i));
+    }
 
-        return nextChar == '\n' || nextChar == '\r' || nextChar == '\u0085' ||
-               nextChar == '\u2028' || nextChar == '\u2029';
+    /**
+     * @return true if <code>c</code> is a newline character
+     */
+    static boolean isNewline(char c)
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' ||
+               c == '\u2028' || c == '\u2029';
     }
 
     /**
@@ -1755,7 +1762,7 @@ public class ExtendedRE implements Serializable, RE {
      * @return negative, 0, or positive integer as the first character
      *         less than, equal to, or greater then the second.
      */
-    private int compareChars(char c1, char c2, boolean caseIndependent)
+    static int compareChars(char c1, char c2, boolean caseIndependent)
     {
         if (caseIndependent)
         {
@@ -43,6 +43,11 @@ public class FixedRE implements RE {
 		return matchStart != -1;
 	}
 
+	@Override
+	public boolean test(String search) {
+		return search.contains(pattern);
+	}
+
 	@Override
 	public String subst(String substituteIn, String substitution) {
 		return substituteIn.replace(pattern, substitution);
@@ -0,0 +1,512 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997--2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.renjin.primitives.text.regex;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests whether a compiled {@link REProgram} matches anywhere in a string by running
+ * a lazily-built deterministic automaton over it, so that each character of the input
+ * is examined exactly once, however the pattern is written.
+ *
+ * <p>The program's nodes are translated to a Thompson NFA when the automaton is created.
+ * The states of the DFA, which are sets of NFA states, and the transitions between them
+ * are built as they are first reached and then reused for every subsequent string.</p>
+ *
+ * <p>Only programs without backreferences or word boundaries can be executed this way
+ * (see {@link #isSupported(REProgram)}), and the automaton only reports <em>whether</em> the
+ * program matches: the positions of the match and of its groups are still found by the
+ * backtracking matcher in {@link ExtendedRE}.</p>
+ *
+ * <p>Instances may be shared between threads.</p>
+ */
+class LazyDFA {
+
+  /**
+   * NFA state which consumes a character of an atom
+   */
+  private static final int CONSUME_CHAR = 0;
+
+  /**
+   * NFA state which consumes a character matched by an ANY, ANYOF, POSIXCLASS or ESCAPE node
+   */
+  private static final int CONSUME_NODE = 1;
+
+  private static final int EPSILON = 2;
+  private static final int BOL = 3;
+  private static final int EOL = 4;
+  private static final int ACCEPT = 5;
+
+  /**
+   * Maximum number of DFA states to cache; beyond this, transitions are computed afresh
+   * each time they are taken.
+   */
+  private static final int MAX_STATES = 4096;
+
+  private final char[] instruction;
+  private final boolean caseIndependent;
+  private final boolean singleLine;
+
+  private final int[] kind;
+  private final int[] operand;
+  private final int[] out1;
+  private final int[] out2;
+  private final int stateCount;
+
+  private final DState start;
+  private final int[] restart;
+
+  private final Map<List<Integer>, DState> states = Maps.newHashMap();
+
+  /**
+   * @return true if {@code program} can be executed by a {@code LazyDFA}
+   */
+  static boolean isSupported(REProgram program) {
+    char[] instruction = program.instruction;
+    for (int node = 0; node < program.lenInstruction; node += ExtendedRE.nodeSize) {
+      char opdata = instruction[node + ExtendedRE.offsetOpdata];
+      switch (instruction[node + ExtendedRE.offsetOpcode]) {
+        case ExtendedRE.OP_ANYOF:
+          node += opdata * 2;
+          break;
+
+        case ExtendedRE.OP_ATOM:
+          node += opdata;
+          break;
+
+        case ExtendedRE.OP_BACKREF:
+          return false;
+
+        case ExtendedRE.OP_ESCAPE:
+          if (opdata == ExtendedRE.E_BOUND || opdata == ExtendedRE.E_NBOUND) {
+            return false;
+          }
+          break;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param program a program for which {@link #isSupported(REProgram)} is true
+   * @param matchFlags the {@code ExtendedRE.MATCH_*} flags, which may not include {@code MATCH_MULTILINE}
+   */
+  LazyDFA(REProgram program, int matchFlags) {
+    this.instruction = program.instruction;
+    this.caseIndependent = (matchFlags & ExtendedRE.MATCH_CASEINDEPENDENT) != 0;
+    this.singleLine = (matchFlags & ExtendedRE.MATCH_SINGLELINE) != 0;
+
+    NfaBuilder builder = new NfaBuilder(program.lenInstruction);
+    builder.build();
+    this.stateCount = builder.count;
+    this.kind = Arrays.copyOf(builder.kind, stateCount);
+    this.operand = Arrays.copyOf(builder.operand, stateCount);
+    this.out1 = Arrays.copyOf(builder.out1, stateCount);
+    this.out2 = Arrays.copyOf(builder.out2, stateCount);
+
+    // The first node of the program is always NFA state 0. An unanchored search may
+    // begin a match at any position, so state 0 is re-entered after every character.
+    this.restart = new int[] { 0 };
+    this.start = newState(closure(restart, true, false), true);
+  }
+
+  /**
+   * @return true if the program matches any part of {@code search}
+   */
+  boolean matches(String search) {
+    DState state = start;
+    int length = search.length();
+    for (int i = 0; i < length; i++) {
+      if (state.accepting) {
+        return true;
+      }
+      if (state.dead) {
+        return false;
+      }
+      char c = search.charAt(i);
+      DState next = c < DState.DIRECT ? state.direct[c] : null;
+      if (next == null) {
+        next = transition(state, c);
+      }
+      state = next;
+    }
+    return state.acceptingAtEnd;
+  }
+
+  private synchronized DState transition(DState from, char c) {
+    DState to;
+    if (c < DState.DIRECT) {
+      to = from.direct[c];
+    } else {
+      to = from.other == null ? null : from.other.get(c);
+    }
+    if (to != null) {
+      return to;
+    }
+
+    int[] seeds = new int[from.states.length + restart.length];
+    int seedCount = 0;
+    for (int state : from.states) {
+      if (kind[state] < EPSILON && accepts(state, c)) {
+        seeds[seedCount++] = out1[state];
+      }
+    }
+    for (int state : restart) {
+      seeds[seedCount++] = state;
+    }
+    int[] closure = closure(Arrays.copyOf(seeds, seedCount), false, false);
+
+    List<Integer> key = Ints.asList(closure);
+    to = states.get(key);
+    if (to == null) {
+      to = newState(closure, false);
+      if (states.size() >= MAX_STATES) {
+        return to;
+      }
+      states.put(key, to);
+    }
+    if (c < DState.DIRECT) {
+      from.direct[c] = to;
+    } else {
+      if (from.other == null) {
+        from.other = Maps.newHashMap();
+      }
+      from.other.put(c, to);
+    }
+    return to;
+  }
+
+  private DState newState(int[] closure, boolean atStart) {
+    boolean accepting = false;
+    boolean pendingEol = false;
+    for (int state : closure) {
+      if (kind[state] == ACCEPT) {
+        accepting = true;
+      } else if (kind[state] == EOL) {
+        pendingEol = true;
+      }
+    }
+    boolean acceptingAtEnd = accepting;
+    if (!accepting && pendingEol) {
+      for (int state : closure(closure, atStart, true)) {
+        if (kind[state] == ACCEPT) {
+          acceptingAtEnd = true;
+        }
+      }
+    }
+    return new DState(closure, accepting, acceptingAtEnd);
+  }
+
+  /**
+   * Computes the set of NFA states reachable from {@code seeds} without consuming any input.
+   *
+   * @return the sorted consuming, EOL and ACCEPT states reached. EOL states are only included
+   * if {@code atEnd} is false; otherwise the states which follow them are.
+   */
+  private int[] closure(int[] seeds, boolean atStart, boolean atEnd) {
+    boolean[] visited = new boolean[stateCount];
+    int[] stack = new int[stateCount];
+    int[] result = new int[stateCount];
+    int top = 0;
+    int count = 0;
+    for (int seed : seeds) {
+      if (!visited[seed]) {
+        visited[seed] = true;
+        stack[top++] = seed;
+      }
+    }
+    while (top > 0) {
+      int state = stack[--top];
+      int successor1 = -1;
+      int successor2 = -1;
+      switch (kind[state]) {
+        case EPSILON:
+          successor1 = out1[state];
+          successor2 = out2[state];
+          break;
+
+        case BOL:
+          if (atStart) {
+            successor1 = out1[state];
+          }
+          break;
+
+        case EOL:
+          if (atEnd) {
+            successor1 = out1[state];
+          } else {
+            result[count++] = state;
+          }
+          break;
+
+        default:
+          result[count++] = state;
+          break;
+      }
+      if (successor1 != -1 && !visited[successor1]) {
+        visited[successor1] = true;
+        stack[top++] = successor1;
+      }
+      if (successor2 != -1 && !visited[successor2]) {
+        visited[successor2] = true;
+        stack[top++] = successor2;
+      }
+    }
+    int[] closure = Arrays.copyOf(result, count);
+    Arrays.sort(closure);
+    return closure;
+  }
+
+  /**
+   * @return true if the consuming NFA state {@code state} matches the character {@code c}.
+   * This mirrors the corresponding cases of {@link ExtendedRE#matchNodes(int, int, int)}.
+   */
+  private boolean accepts(int state, char c) {
+    if (kind[state] == CONSUME_CHAR) {
+      return ExtendedRE.compareChars(c, instruction[operand[state]], caseIndependent) == 0;
+    }
+    int node = operand[state];
+    char opdata = instruction[node + ExtendedRE.offsetOpdata];
+    switch (instruction[node + ExtendedRE.offsetOpcode]) {
+      case ExtendedRE.OP_ANY:
+        return singleLine || !ExtendedRE.isNewline(c);
+
+      case ExtendedRE.OP_ANYOF:
+        int idxRange = node + ExtendedRE.nodeSize;
+        int idxEnd = idxRange + (opdata * 2);
+        for (int i = idxRange; i < idxEnd; i += 2) {
+          if (ExtendedRE.compareChars(c, instruction[i], caseIndependent) >= 0 &&
+              ExtendedRE.compareChars(c, instruction[i + 1], caseIndependent) <= 0) {
+            return true;
+          }
+        }
+        return false;
+
+      case ExtendedRE.OP_POSIXCLASS:
+        return ExtendedRE.isPosixClassMember(opdata, c);
+
+      case ExtendedRE.OP_ESCAPE:
+        switch (opdata) {
+          case ExtendedRE.E_ALNUM:
+          case ExtendedRE.E_NALNUM:
+            return (Character.isLetterOrDigit(c) || c == '_') == (opdata == ExtendedRE.E_ALNUM);
+          case ExtendedRE.E_DIGIT:
+          case ExtendedRE.E_NDIGIT:
+            return Character.isDigit(c) == (opdata == ExtendedRE.E_DIGIT);
+          case ExtendedRE.E_SPACE:
+          case ExtendedRE.E_NSPACE:
+            return Character.isWhitespace(c) == (opdata == ExtendedRE.E_SPACE);
+        }
+    }
+    throw new Error("RE internal error: Invalid consuming node at " + node);
+  }
+
+  /**
+   * Translates the nodes of the program into NFA states. Each node is given a state
+   * when it is first reached, and each character of an atom is given its own state.
+   */
+  private class NfaBuilder {
+    private final int[] stateOfNode;
+    private int[] kind = new int[16];
+    private int[] operand = new int[16];
+    private int[] out1 = new int[16];
+    private int[] out2 = new int[16];
+    private int count;
+
+    private int[] pending = new int[16];
+    private int pendingCount;
+
+    NfaBuilder(int lenInstruction) {
+      stateOfNode = new int[lenInstruction];
+      Arrays.fill(stateOfNode, -1);
+    }
+
+    void build() {
+      stateOf(0);
+      while (pendingCount > 0) {
+        translate(pending[--pendingCount]);
+      }
+    }
+
+    private int stateOf(int node) {
+      if (stateOfNode[node] == -1) {
+        int states = 1;
+        if (instruction[node + ExtendedRE.offsetOpcode] == ExtendedRE.OP_ATOM) {
+          states = Math.max(1, (int) instruction[node + ExtendedRE.offsetOpdata]);
+        }
+        stateOfNode[node] = allocate(states);
+        if (pendingCount == pending.length) {
+          pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = node;
+      }
+      return stateOfNode[node];
+    }
+
+    private int allocate(int states) {
+      int first = count;
+      count += states;
+      if (count > kind.length) {
+        int capacity = Math.max(count, kind.length * 2);
+        kind = Arrays.copyOf(kind, capacity);
+        operand = Arrays.copyOf(operand, capacity);
+        out1 = Arrays.copyOf(out1, capacity);
+        out2 = Arrays.copyOf(out2, capacity);
+      }
+      return first;
+    }
+
+    private void set(int state, int stateKind, int stateOperand, int successor1, int successor2) {
+      kind[state] = stateKind;
+      operand[state] = stateOperand;
+      out1[state] = successor1;
+      out2[state] = successor2;
+    }
+
+    private void translate(int node) {
+      int state = stateOfNode[node];
+      int opcode = instruction[node + ExtendedRE.offsetOpcode];
+      int opdata = instruction[node + ExtendedRE.offsetOpdata];
+      int next = node + (short) instruction[node + ExtendedRE.offsetNext];
+
+      switch (opcode) {
+        case ExtendedRE.OP_ATOM:
+          if (opdata == 0) {
+            set(state, EPSILON, 0, stateOf(next), -1);
+          } else {
+            int following = stateOf(next);
+            for (int i = 0; i < opdata; i++) {
+              int successor = (i + 1 < opdata) ? state + i + 1 : following;
+              set(state + i, CONSUME_CHAR, node + ExtendedRE.nodeSize + i, successor, -1);
+            }
+          }
+          break;
+
+        case ExtendedRE.OP_ANY:
+        case ExtendedRE.OP_ANYOF:
+        case ExtendedRE.OP_POSIXCLASS:
+        case ExtendedRE.OP_ESCAPE:
+          set(state, CONSUME_NODE, node, stateOf(next), -1);
+          break;
+
+        case ExtendedRE.OP_MAYBE:
+        case ExtendedRE.OP_STAR:
+        case ExtendedRE.OP_RELUCTANTMAYBE:
+        case ExtendedRE.OP_RELUCTANTSTAR:
+          // either the subexpression which follows this node, or the rest of the expression
+          set(state, EPSILON, 0, stateOf(node + ExtendedRE.nodeSize), stateOf(next));
+          break;
+
+        case ExtendedRE.OP_PLUS:
+        case ExtendedRE.OP_RELUCTANTPLUS:
+          // either the subexpression again (by way of the preceding OP_CONTINUE node),
+          // or the rest of the expression, which follows that OP_CONTINUE node
+          set(state, EPSILON, 0, stateOf(next), stateOf(next + (short) instruction[next + ExtendedRE.offsetNext]));
+          break;
+
+        case ExtendedRE.OP_CONTINUE:
+          set(state, EPSILON, 0, stateOf(node + ExtendedRE.nodeSize), -1);
+          break;
+
+        case ExtendedRE.OP_BRANCH: {
+          // this branch, or the next one in the chain of branches
+          int nextBranch = -1;
+          if ((short) instruction[node + ExtendedRE.offsetNext] != 0 &&
+              instruction[next + ExtendedRE.offsetOpcode] == ExtendedRE.OP_BRANCH) {
+            nextBranch = stateOf(next);
+          }
+          set(state, EPSILON, 0, stateOf(node + ExtendedRE.nodeSize), nextBranch);
+          break;
+        }
+
+        case ExtendedRE.OP_OPEN:
+        case ExtendedRE.OP_CLOSE:
+        case ExtendedRE.OP_OPEN_CLUSTER:
+        case ExtendedRE.OP_CLOSE_CLUSTER:
+        case ExtendedRE.OP_NOTHING:
+        case ExtendedRE.OP_GOTO:
+          set(state, EPSILON, 0, stateOf(next), -1);
+          break;
+
+        case ExtendedRE.OP_BOL:
+          set(state, BOL, 0, stateOf(next), -1);
+          break;
+
+        case ExtendedRE.OP_EOL:
+          set(state, EOL, 0, stateOf(next), -1);
+          break;
+
+        case ExtendedRE.OP_END:
+          set(state, ACCEPT, 0, -1, -1);
+          break;
+
+        default:
+          throw new Error("RE internal error: Invalid opcode '" + (char) opcode + "'");
+      }
+    }
+  }
+
+  /**
+   * A state of the DFA: the set of NFA states in which the automaton may be after
+   * reading some prefix of the input.
+   */
+  private static final class DState {
+
+    /**
+     * Transitions on characters below this value are stored in an array
+     */
+    static final int DIRECT = 128;
+
+    final int[] states;
+
+    /**
+     * True if the program has matched once this state is reached
+     */
+    final boolean accepting;
+
+    /**
+     * True if the program has matched if the input ends in this state
+     */
+    final boolean acceptingAtEnd;
+
+    /**
+     * True if no match can follow this state
+     */
+    final boolean dead;
+
+    final DState[] direct = new DState[DIRECT];
+
+    Map<Character, DState> other;
+
+    DState(int[] states, boolean accepting, boolean acceptingAtEnd) {
+      this.states = states;
+      this.accepting = accepting;
+      this.acceptingAtEnd = acceptingAtEnd;
+      this.dead = states.length == 0;
+    }
+  }
+}
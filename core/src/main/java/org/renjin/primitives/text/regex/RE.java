@@ -50,6 +50,16 @@ public interface RE {
    */
   boolean match(String search);
 
+  /**
+   * Tests whether this regular expression matches any part of a string, without
+   * recording the position of the match. This may be much faster than
+   * {@link #match(String)} when only the result is needed.
+   *
+   * @param search String to match against
+   * @return True if string matched
+   */
+  boolean test(String search);
+
   /**
    * Substitutes a string for this regular expression in another string.
    * This method works like the Perl function of the same name.
@@ -21,13 +21,26 @@
 
 package org.renjin.primitives.text.regex;
 
-import org.renjin.eval.EvalException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * Compiles a regular expression based on the supplied options.
  */
 public class REFactory {
 
+  /**
+   * Compiled programs, which are immutable and can be shared by any number of matchers.
+   * Vectorised functions such as {@code gsub} compile their pattern once for each
+   * element, so without this cache compilation can dominate the cost of matching.
+   *
+   * <p>Case folding is a property of the matcher rather than of the program, so the
+   * pattern alone is the key.</p>
+   */
+  private static final Cache<String, REProgram> PROGRAMS = CacheBuilder.newBuilder()
+      .maximumSize(500)
+      .build();
+
   /**
    * Compiles the pattern based on the supplied arguments.
    *
@@ -44,7 +57,17 @@ public class REFactory {
     if(fixed) {
       return new FixedRE(pattern);
     } else {
-      return new ExtendedRE(pattern, ignoreCase);
+      return new ExtendedRE(program(pattern),
+          ignoreCase ? ExtendedRE.MATCH_CASEINDEPENDENT : ExtendedRE.MATCH_NORMAL);
     } 
   }
+
+  private static REProgram program(String pattern) {
+    REProgram program = PROGRAMS.getIfPresent(pattern);
+    if(program == null) {
+      program = new RECompiler().compile(pattern);
+      PROGRAMS.put(pattern, program);
+    }
+    return program;
+  }
 }
@@ -42,6 +42,10 @@ public class REProgram implements Serializable
     int flags;                  // Optimization flags (REProgram.OPT_*)
     int maxParens = -1;
 
+    // Lazily-built automata, indexed by the MATCH_CASEINDEPENDENT and MATCH_SINGLELINE flags
+    private transient volatile LazyDFA[] dfas;
+    private transient volatile Boolean dfaSupported;
+
     /**
      * Constructs a program object from a character array
      * @param instruction Character array with RE opcode instructions in it
@@ -153,6 +157,48 @@ public class REProgram implements Serializable
         }
     }
 
+    /**
+     * Returns the automaton which tests whether this program matches a string with the
+     * given match flags, building it when it is first needed. Programs are shared between
+     * matchers, so that the automaton, and its cache of states, is built only once.
+     *
+     * @param matchFlags The RE match behaviour flags (ExtendedRE.MATCH_*)
+     * @return the automaton, or null if this program must be run by the backtracking matcher
+     */
+    LazyDFA getDFA(int matchFlags)
+    {
+        if ((matchFlags & ExtendedRE.MATCH_MULTILINE) != 0 || Boolean.FALSE.equals(dfaSupported))
+        {
+            return null;
+        }
+        int index = matchFlags & (ExtendedRE.MATCH_CASEINDEPENDENT | ExtendedRE.MATCH_SINGLELINE);
+        LazyDFA[] dfas = this.dfas;
+        if (dfas != null && dfas[index] != null)
+        {
+            return dfas[index];
+        }
+        synchronized (this)
+        {
+            if (dfaSupported == null)
+            {
+                dfaSupported = LazyDFA.isSupported(this);
+            }
+            if (!dfaSupported)
+            {
+                return null;
+            }
+            if (this.dfas == null)
+            {
+                this.dfas = new LazyDFA[(ExtendedRE.MATCH_CASEINDEPENDENT | ExtendedRE.MATCH_SINGLELINE) + 1];
+            }
+            if (this.dfas[index] == null)
+            {
+                this.dfas[index] = new LazyDFA(this, matchFlags);
+            }
+            return this.dfas[index];
+        }
+    }
+
     /**
      * Returns a copy of the prefix of current regular expression program
      * in a character array.  If there is no prefix, or there is no program
@@ -0,0 +1,238 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997--2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.renjin.sexp;
+
+import com.google.common.collect.Sets;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+
+import java.util.IdentityHashMap;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Compact {@link Frame} implementation for function environments.
+ *
+ * <p>Most function environments hold only a handful of bindings: the formal arguments
+ * and a few local variables. Rather than allocating an {@code IdentityHashMap} for each call,
+ * bindings are stored in parallel arrays of symbols and values, presized from the number of formals,
+ * and looked up by identity with a linear scan. If the frame grows beyond
+ * {@link #MAX_LINEAR_SIZE} bindings, it falls back to hashing.</p>
+ */
+public class ArrayFrame implements Frame {
+
+  /**
+   * The number of bindings above which lookups are done through an
+   * {@code IdentityHashMap} rather than by scanning.
+   */
+  static final int MAX_LINEAR_SIZE = 16;
+
+  private Symbol[] symbols;
+  private SEXP[] values;
+  private int size;
+
+  /**
+   * Bindings, once this frame has grown beyond {@code MAX_LINEAR_SIZE}
+   */
+  private IdentityHashMap<Symbol, SEXP> map;
+
+  /**
+   * Bloom-esque filter keeping track of which functions have
+   * been (potentially) set into this frame.
+   */
+  private int functionFilter = 0;
+
+  public ArrayFrame(int initialCapacity) {
+    if(initialCapacity < 1) {
+      initialCapacity = 1;
+    } else if(initialCapacity > MAX_LINEAR_SIZE) {
+      initialCapacity = MAX_LINEAR_SIZE;
+    }
+    symbols = new Symbol[initialCapacity];
+    values = new SEXP[initialCapacity];
+  }
+
+  public ArrayFrame() {
+    this(4);
+  }
+
+  @Override
+  public Set<Symbol> getSymbols() {
+    if(map != null) {
+      return map.keySet();
+    }
+    Set<Symbol> set = Sets.newIdentityHashSet();
+    for(int i=0;i!=size;++i) {
+      set.add(symbols[i]);
+    }
+    return set;
+  }
+
+  private SEXP get(Symbol name) {
+    if(map != null) {
+      return map.get(name);
+    }
+    for(int i=0;i!=size;++i) {
+      if(symbols[i] == name) {
+        return values[i];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public SEXP getVariable(Symbol name) {
+    SEXP value = get(name);
+    if(value == null) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    if(value instanceof ReferenceTracked) {
+      ((ReferenceTracked) value).markShared();
+    }
+    return value;
+  }
+
+  @Override
+  public SEXP getVariableForUpdate(Symbol name) {
+    SEXP value = get(name);
+    return value == null ? Symbol.UNBOUND_VALUE : value;
+  }
+
+  @Override
+  public Function getFunction(Context context, Symbol name) {
+    if(functionFilter != 0 && (functionFilter & name.hashBit()) != 0) {
+      SEXP value = get(name);
+      if(value != null) {
+        value = value.force(context);
+        if(value == Symbol.MISSING_ARG) {
+          throw new EvalException("argument '%s' is missing with no default", name.toString());
+        }
+        if(value instanceof Function) {
+          return (Function)value;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isMissingArgument(Symbol name) {
+    if(functionFilter != 0 && (functionFilter & name.hashBit()) != 0) {
+      return get(name) == Symbol.MISSING_ARG;
+    }
+    return false;
+  }
+
+  @Override
+  public void setVariable(Symbol name, SEXP value) {
+    put(name, value);
+    // we add Promises to the function filter because they *could* be
+    // functions
+    if(value instanceof Function || value instanceof Promise ||
+        value == Symbol.MISSING_ARG) {
+      functionFilter |= name.hashBit();
+    }
+  }
+
+  private void put(Symbol name, SEXP value) {
+    if(map != null) {
+      map.put(name, value);
+      return;
+    }
+    for(int i=0;i!=size;++i) {
+      if(symbols[i] == name) {
+        values[i] = value;
+        return;
+      }
+    }
+    if(size == MAX_LINEAR_SIZE) {
+      map = new IdentityHashMap<Symbol, SEXP>();
+      for(int i=0;i!=size;++i) {
+        map.put(symbols[i], values[i]);
+      }
+      map.put(name, value);
+      symbols = null;
+      values = null;
+      size = 0;
+      return;
+    }
+    if(size == symbols.length) {
+      int newCapacity = Math.min(symbols.length * 2, MAX_LINEAR_SIZE);
+      Symbol[] newSymbols = new Symbol[newCapacity];
+      SEXP[] newValues = new SEXP[newCapacity];
+      System.arraycopy(symbols, 0, newSymbols, 0, size);
+      System.arraycopy(values, 0, newValues, 0, size);
+      symbols = newSymbols;
+      values = newValues;
+    }
+    symbols[size] = name;
+    values[size] = value;
+    size++;
+  }
+
+  @Override
+  public void remove(Symbol name) {
+    if(map != null) {
+      map.remove(name);
+      return;
+    }
+    for(int i=0;i!=size;++i) {
+      if(symbols[i] == name) {
+        int tail = size - i - 1;
+        System.arraycopy(symbols, i + 1, symbols, i, tail);
+        System.arraycopy(values, i + 1, values, i, tail);
+        size--;
+        symbols[size] = null;
+        values[size] = null;
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    if(map != null) {
+      map.clear();
+    } else {
+      for(int i=0;i!=size;++i) {
+        symbols[i] = null;
+        values[i] = null;
+      }
+      size = 0;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    if(map != null) {
+      for(Entry<Symbol,SEXP> entry : map.entrySet()) {
+        sb.append(entry.getKey()).append(" = ").append(entry.getValue()).append("\n");
+      }
+    } else {
+      for(int i=0;i!=size;++i) {
+        sb.append(symbols[i]).append(" = ").append(values[i]).append("\n");
+      }
+    }
+    return sb.toString();
+  }
+}
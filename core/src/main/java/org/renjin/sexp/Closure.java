@@ -40,15 +40,39 @@ import org.renjin.primitives.special.ReturnException;
 public class Closure extends AbstractSEXP implements Function {
 
   public static final String TYPE_NAME = "closure";
+
+  /**
+   * Number of local variables, in addition to the formals, for which
+   * space is reserved in new function frames.
+   */
+  private static final int LOCAL_VARIABLE_CAPACITY = 4;
+
   private Environment enclosingEnvironment;
   private SEXP body;
   private PairList formals;
+  private final int frameCapacity;
+
+  private static final int NOT_COMPILED = 0;
+  private static final int COMPILING = 1;
+  private static final int COMPILED = 2;
+  private static final int UNCOMPILABLE = 3;
+
+  /**
+   * Invocation and loop iteration counts, used by the
+   * {@link org.renjin.compiler.TieredCompiler} to identify hot closures.
+   */
+  private int invocationCount;
+  private int backEdgeCount;
+
+  private volatile int compilationState = NOT_COMPILED;
+  private volatile Closure compiledClosure;
 
   public Closure(Environment enclosingEnvironment, PairList formals, SEXP body, AttributeMap attributes) {
     super(attributes);
     this.enclosingEnvironment = enclosingEnvironment;
     this.body = body;
     this.formals = formals; 
+    this.frameCapacity = formals.length() + LOCAL_VARIABLE_CAPACITY;
   }
  
   public Closure(Environment environment, PairList formals, SEXP body) {
@@ -88,7 +112,7 @@ public class Closure extends AbstractSEXP implements Function {
     Context functionContext = callingContext.beginFunction(callingEnvironment, call, this, promisedArgs);
     Environment functionEnvironment = functionContext.getEnvironment();    
 
-    ClosureDispatcher.matchArgumentsInto(getFormals(), promisedArgs, functionContext, functionEnvironment);
+    ClosureDispatcher.matchArgumentsInto(call, getFormals(), promisedArgs, functionContext, functionEnvironment);
 
     SEXP result;
     try {
@@ -104,9 +128,75 @@ public class Closure extends AbstractSEXP implements Function {
     return result;
   }
 
+  /**
+   * Creates a new, empty frame for this closure's function environment, sized
+   * to hold its formal arguments and a few local variables.
+   */
+  public Frame newFrame() {
+    return new ArrayFrame(frameCapacity);
+  }
+
   public SEXP doApply(Context functionContext) {
+    Closure compiled = compiledClosure;
+    if(compiled != null) {
+      return compiled.doApply(functionContext);
+    }
+    functionContext.getSession().getTieredCompiler().invoked(this);
     return functionContext.evaluate(body);
   }
+
+  /**
+   * @return the number of times this closure has been invoked, including this one.
+   */
+  public int incrementInvocationCount() {
+    return ++invocationCount;
+  }
+
+  /**
+   * @return the number of loop iterations evaluated within this closure, including these ones.
+   */
+  public int incrementBackEdgeCount(int iterations) {
+    backEdgeCount += iterations;
+    return backEdgeCount;
+  }
+
+  /**
+   * Marks this closure as being compiled.
+   *
+   * @return false if this closure has already been scheduled for compilation,
+   * compiled, or found to be uncompilable.
+   */
+  public synchronized boolean beginCompilation() {
+    if(compilationState != NOT_COMPILED) {
+      return false;
+    }
+    compilationState = COMPILING;
+    return true;
+  }
+
+  /**
+   * Swaps in a compiled version of this closure, which will be used
+   * for all subsequent invocations.
+   */
+  public void setCompiledClosure(Closure compiled) {
+    this.compiledClosure = compiled;
+    this.compilationState = COMPILED;
+  }
+
+  /**
+   * Marks this closure as one that cannot be compiled, so that compilation is never retried.
+   */
+  public void markUncompilable() {
+    this.compilationState = UNCOMPILABLE;
+  }
+
+  public boolean isCompiled() {
+    return compilationState == COMPILED;
+  }
+
+  public boolean isUncompilable() {
+    return compilationState == UNCOMPILABLE;
+  }
    
 
   /**
@@ -0,0 +1,125 @@
+package org.renjin.sexp;
+
+import com.google.common.collect.Sets;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * A frame of a forked session which overlays the frame of the corresponding environment
+ * in the session from which it was forked.
+ *
+ * <p>The shared frame is never modified: bindings made in the forked session are stored
+ * in this frame, and removals are recorded so that they hide the shared binding. Values
+ * read from the shared frame are translated by the {@link EnvironmentForker} so that
+ * closures and promises refer to the environments of the forked session, and are then
+ * stored in this frame, so that each is translated at most once.</p>
+ */
+public class CopyOnWriteFrame implements Frame {
+
+  private final Frame shared;
+  private final EnvironmentForker forker;
+
+  private final IdentityHashMap<Symbol, SEXP> values = new IdentityHashMap<Symbol, SEXP>();
+
+  /**
+   * Symbols bound in the shared frame which have been removed from this frame
+   */
+  private Set<Symbol> removed = null;
+
+  CopyOnWriteFrame(Frame shared, EnvironmentForker forker) {
+    this.shared = shared;
+    this.forker = forker;
+  }
+
+  @Override
+  public Set<Symbol> getSymbols() {
+    Set<Symbol> symbols = Sets.newIdentityHashSet();
+    symbols.addAll(shared.getSymbols());
+    if(removed != null) {
+      symbols.removeAll(removed);
+    }
+    symbols.addAll(values.keySet());
+    return symbols;
+  }
+
+  @Override
+  public SEXP getVariable(Symbol name) {
+    SEXP value = getVariableForUpdate(name);
+    if(value instanceof ReferenceTracked) {
+      ((ReferenceTracked) value).markShared();
+    }
+    return value;
+  }
+
+  @Override
+  public SEXP getVariableForUpdate(Symbol name) {
+    SEXP value = values.get(name);
+    if(value != null) {
+      return value;
+    }
+    if(removed != null && removed.contains(name)) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    // values of the shared frame are shared with the parent session,
+    // and so must never be updated in place
+    value = shared.getVariable(name);
+    if(value == Symbol.UNBOUND_VALUE) {
+      return value;
+    }
+    SEXP translated = forker.translate(value);
+    if(translated != value) {
+      values.put(name, translated);
+    }
+    return translated;
+  }
+
+  @Override
+  public Function getFunction(Context context, Symbol name) {
+    SEXP value = getVariableForUpdate(name);
+    if(value == Symbol.UNBOUND_VALUE) {
+      return null;
+    }
+    value = value.force(context);
+    if(value == Symbol.MISSING_ARG) {
+      throw new EvalException("argument '%s' is missing with no default", name.toString());
+    }
+    if(value instanceof Function) {
+      return (Function) value;
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isMissingArgument(Symbol name) {
+    return getVariableForUpdate(name) == Symbol.MISSING_ARG;
+  }
+
+  @Override
+  public void setVariable(Symbol name, SEXP value) {
+    values.put(name, value);
+    if(removed != null) {
+      removed.remove(name);
+    }
+  }
+
+  @Override
+  public void remove(Symbol name) {
+    values.remove(name);
+    if(shared.getVariable(name) != Symbol.UNBOUND_VALUE) {
+      if(removed == null) {
+        removed = Sets.newIdentityHashSet();
+      }
+      removed.add(name);
+    }
+  }
+
+  @Override
+  public void clear() {
+    values.clear();
+    removed = Sets.newIdentityHashSet();
+    removed.addAll(shared.getSymbols());
+  }
+}
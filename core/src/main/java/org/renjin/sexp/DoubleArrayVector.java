@@ -27,10 +27,12 @@ import java.util.Arrays;
 import java.util.Collection;
 
 
-public final class DoubleArrayVector extends DoubleVector {
+public final class DoubleArrayVector extends DoubleVector implements ReferenceTracked {
 
   private double[] values;
 
+  private transient boolean unshared;
+
   private DoubleArrayVector(AttributeMap attributes) {
     super(attributes);
   }
@@ -154,6 +156,34 @@ public final class DoubleArrayVector extends DoubleVector {
     }
   }
 
+  @Override
+  public boolean isShared() {
+    return !unshared;
+  }
+
+  @Override
+  public void markShared() {
+    unshared = false;
+  }
+
+  /**
+   * @return a copy of this vector with its own storage, which can be
+   * updated in place with {@link #setElementInPlace(int, double)}
+   */
+  public DoubleArrayVector unsharedCopy() {
+    DoubleArrayVector copy = new DoubleArrayVector(values, getAttributes());
+    copy.unshared = true;
+    return copy;
+  }
+
+  /**
+   * Replaces the element at {@code index}. This vector must not be shared.
+   */
+  public void setElementInPlace(int index, double value) {
+    assert unshared : "vector is shared";
+    values[index] = value;
+  }
+
   /**
    * @return a pointer to the underlying array. DO NOT MODIFY!!
    */
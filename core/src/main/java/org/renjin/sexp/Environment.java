@@ -134,6 +134,25 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     return ns;
   }
 
+  /**
+   * Creates the environment of a forked session which mirrors {@code original},
+   * with a copy-on-write view of its frame.
+   */
+  static Environment fork(Environment original, EnvironmentForker forker) {
+    Environment forked = new Environment();
+    forker.register(original, forked);
+    forked.name = original.name;
+    forked.attributes = original.attributes;
+    forked.locked = original.locked;
+    if(original.lockedBindings != null) {
+      forked.lockedBindings = Sets.newHashSet(original.lockedBindings);
+    }
+    forked.baseEnvironment = forker.fork(original.baseEnvironment);
+    forked.parent = forker.fork(original.parent);
+    forked.frame = forker.fork(original.frame);
+    return forked;
+  }
+
   public static Environment createChildEnvironment(Environment parent, Frame frame) {
     Environment child = new Environment();
     child.baseEnvironment = parent.baseEnvironment;
@@ -154,10 +173,12 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
 
   public void remove(Symbol symbol) {
     frame.remove(symbol);
+    modified();
   }
   
   public void clear() {
     frame.clear();
+    modified();
   }
 
 
@@ -178,7 +199,7 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
 
   public void setParent(Environment parent) {
     this.parent = parent;
-    modCount ++;
+    modified();
   }
 
   public Environment getBaseEnvironment() {
@@ -223,7 +244,17 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
       throw new EvalException("cannot add bindings to a locked environment");
     }
     frame.setVariable(symbol, value);
+    modified();
+  }
+
+  private void modified() {
     modCount++;
+
+    // The base namespace shares its frame with the base environment, so changes
+    // made through one must also be visible in the other's modification count
+    if(baseEnvironment != null && baseEnvironment != this && frame == baseEnvironment.frame) {
+      baseEnvironment.modCount++;
+    }
   }
 
   /**
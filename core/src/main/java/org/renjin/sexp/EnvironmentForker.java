@@ -0,0 +1,114 @@
+package org.renjin.sexp;
+
+import org.renjin.eval.Context;
+
+import java.util.IdentityHashMap;
+
+/**
+ * Maps the environments of a session to those of a session forked from it.
+ *
+ * <p>Each environment of the parent session is mirrored, when it is first reached, by an
+ * environment with the same name, attributes and locks whose frame is a
+ * {@link CopyOnWriteFrame} over the parent's frame, and whose enclosure is the mirror
+ * of the parent's enclosure. Closures and promises read from the parent's frames are
+ * translated so that they are evaluated in the mirrored environments.</p>
+ *
+ * <p>Environments which are only reachable through the elements or attributes of other
+ * values are not mirrored, and remain shared with the parent session.</p>
+ */
+public class EnvironmentForker {
+
+  private final IdentityHashMap<Environment, Environment> environments = new IdentityHashMap<Environment, Environment>();
+  private final IdentityHashMap<Environment, Boolean> forkedEnvironments = new IdentityHashMap<Environment, Boolean>();
+  private final IdentityHashMap<Frame, CopyOnWriteFrame> frames = new IdentityHashMap<Frame, CopyOnWriteFrame>();
+  private final IdentityHashMap<SEXP, SEXP> values = new IdentityHashMap<SEXP, SEXP>();
+
+  /**
+   * @return the environment of the forked session which mirrors {@code environment}
+   */
+  public Environment fork(Environment environment) {
+    if(environment == null || environment == Environment.EMPTY || forkedEnvironments.containsKey(environment)) {
+      return environment;
+    }
+    Environment forked = environments.get(environment);
+    if(forked == null) {
+      forked = Environment.fork(environment, this);
+    }
+    return forked;
+  }
+
+  void register(Environment environment, Environment forked) {
+    environments.put(environment, forked);
+    forkedEnvironments.put(forked, Boolean.TRUE);
+  }
+
+  Frame fork(Frame frame) {
+    CopyOnWriteFrame forked = frames.get(frame);
+    if(forked == null) {
+      forked = new CopyOnWriteFrame(frame, this);
+      frames.put(frame, forked);
+    }
+    return forked;
+  }
+
+  /**
+   * @return {@code value}, or, if it refers to an environment of the parent session,
+   * an equivalent value which refers to the corresponding environment of the forked session.
+   */
+  public SEXP translate(SEXP value) {
+    if(value instanceof Environment) {
+      return fork((Environment) value);
+
+    } else if(value instanceof Closure || value instanceof Promise) {
+      SEXP translated = values.get(value);
+      if(translated == null) {
+        translated = value instanceof Closure ? translateClosure((Closure) value) : translatePromise((Promise) value);
+        values.put(value, translated);
+      }
+      return translated;
+
+    } else {
+      return value;
+    }
+  }
+
+  private SEXP translateClosure(Closure closure) {
+    Environment enclosing = closure.getEnclosingEnvironment();
+    Environment forked = fork(enclosing);
+    if(forked == enclosing) {
+      return closure;
+    }
+    return new Closure(forked, closure.getFormals(), closure.getBody(), closure.getAttributes());
+  }
+
+  private SEXP translatePromise(Promise promise) {
+    if(promise.isEvaluated()) {
+      SEXP value = translate(promise.getValue());
+      return value == promise.getValue() ? promise : new Promise(promise.getExpression(), value);
+    }
+    return new ForkedPromise(promise, fork(promise.getEnvironment()));
+  }
+
+  /**
+   * A promise of the forked session which evaluates a promise of the parent session without
+   * forcing it, so that the parent's promise is left unevaluated.
+   */
+  private static class ForkedPromise extends Promise {
+    private final Promise original;
+
+    private ForkedPromise(Promise original, Environment environment) {
+      super(environment, original.getExpression());
+      this.original = original;
+    }
+
+    @Override
+    protected SEXP doEval(Context context) {
+      if(original.getClass() == Promise.class) {
+        return context.evaluate(expression, environment);
+      } else {
+        // promises of serialized values are read into the session in which they are forced
+        return original.doEval(context);
+      }
+    }
+  }
+}
@@ -43,6 +43,17 @@ public interface Frame {
    * no such variable is bound to this frame.
    */
   SEXP getVariable(Symbol name);
+
+  /**
+   * Retrieves the value of a variable without marking it as shared, so
+   * that a replacement function can update it in place.
+   *
+   * @param name the name of the variable to lookup
+   * @return the value of the variable named {@code name}, or {@code Symbol.UNBOUND} if
+   * no such variable is bound to this frame.
+   * @see ReferenceTracked
+   */
+  SEXP getVariableForUpdate(Symbol name);
   
   /**
    * Retrieves a function value from the frame. This does basically the same as 
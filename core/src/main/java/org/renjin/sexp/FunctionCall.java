@@ -21,6 +21,8 @@
 
 package org.renjin.sexp;
 
+import org.renjin.eval.MatchPlan;
+
 /**
  * Expression representing a call to an R function, consisting of
  * a function reference and a list of arguments.
@@ -32,6 +34,18 @@ public class FunctionCall extends PairList.Node {
   public static final String TYPE_NAME = "language";
   public static final String IMPLICIT_CLASS = "call";
 
+  /**
+   * Inline cache of the function to which this call's function symbol
+   * was most recently resolved.
+   */
+  private transient CachedFunction cachedFunction;
+
+  /**
+   * The argument matching plan computed for the closure most recently
+   * called from this call site.
+   */
+  private transient MatchPlan matchPlan;
+
   public FunctionCall(SEXP function, PairList arguments) {
     super(function, arguments);
   }
@@ -60,6 +74,53 @@ public class FunctionCall extends PairList.Node {
     return getArguments().<X>getElementAsSEXP(index);
   }
 
+  /**
+   * Returns the function to which this call's function symbol was previously resolved
+   * from {@code rho}, if the binding is still valid.
+   *
+   * <p>The cache is keyed on {@code rho}'s enclosure rather than on {@code rho} itself, so that
+   * an entry made during one call to a closure remains valid in later calls, each of which
+   * evaluates in a new environment with the same enclosure. The entry is only valid if the symbol
+   * is not bound in {@code rho}'s own frame and no bindings have been changed in any of the
+   * enclosing environments since the function was cached, as measured by
+   * {@link Environment#getCumulativeModCount()}. This allows calls in a loop to
+   * skip the walk through the environment chain even while local variables are being assigned.</p>
+   *
+   * @return the cached function, or {@code null} if there is no valid cache entry.
+   */
+  public Function getCachedFunction(Environment rho) {
+    CachedFunction cached = this.cachedFunction;
+    if(cached != null &&
+        cached.symbol == value &&
+        cached.parent == rho.getParent() &&
+        rho.getFrame().getVariable(cached.symbol) == Symbol.UNBOUND_VALUE &&
+        cached.parent.getCumulativeModCount() == cached.modCount) {
+      return cached.function;
+    }
+    return null;
+  }
+
+  /**
+   * Caches the function to which this call's function symbol has been resolved from {@code rho}.
+   * Nothing is cached if the function is bound in {@code rho}'s own frame.
+   */
+  public void cacheFunction(Environment rho, Function function) {
+    if(value instanceof Symbol && rho != Environment.EMPTY &&
+        rho.getFrame().getVariable((Symbol) value) == Symbol.UNBOUND_VALUE) {
+      Environment parent = rho.getParent();
+      this.cachedFunction = new CachedFunction(parent, (Symbol) value,
+          parent.getCumulativeModCount(), function);
+    }
+  }
+
+  public MatchPlan getMatchPlan() {
+    return matchPlan;
+  }
+
+  public void setMatchPlan(MatchPlan matchPlan) {
+    this.matchPlan = matchPlan;
+  }
+
   @Override
   public void accept(SexpVisitor visitor) {
     visitor.visit(this);
@@ -165,4 +226,18 @@ public class FunctionCall extends PairList.Node {
 
   }
 
+
+  private static final class CachedFunction {
+    private final Environment parent;
+    private final Symbol symbol;
+    private final int modCount;
+    private final Function function;
+
+    private CachedFunction(Environment parent, Symbol symbol, int modCount, Function function) {
+      this.parent = parent;
+      this.symbol = symbol;
+      this.modCount = modCount;
+      this.function = function;
+    }
+  }
 }
@@ -46,6 +46,18 @@ public class HashFrame implements Frame{
 
   @Override
   public SEXP getVariable(Symbol name) {
+    SEXP value = values.get(name);
+    if(value == null) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    if(value instanceof ReferenceTracked) {
+      ((ReferenceTracked) value).markShared();
+    }
+    return value;
+  }
+
+  @Override
+  public SEXP getVariableForUpdate(Symbol name) {
     SEXP value = values.get(name);
     return value == null ? Symbol.UNBOUND_VALUE : value;
   }
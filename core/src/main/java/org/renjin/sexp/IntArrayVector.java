@@ -23,9 +23,11 @@ package org.renjin.sexp;
 
 import java.util.Arrays;
 
-public class IntArrayVector extends IntVector {
+public class IntArrayVector extends IntVector implements ReferenceTracked {
 
   private int[] values;
+
+  private transient boolean unshared;
   
   private IntArrayVector(AttributeMap attributes) {
     super(attributes);
@@ -65,6 +67,34 @@ public class IntArrayVector extends IntVector {
     return clone;    
   }
   
+  @Override
+  public boolean isShared() {
+    return !unshared;
+  }
+
+  @Override
+  public void markShared() {
+    unshared = false;
+  }
+
+  /**
+   * @return a copy of this vector with its own storage, which can be
+   * updated in place with {@link #setElementInPlace(int, int)}
+   */
+  public IntArrayVector unsharedCopy() {
+    IntArrayVector copy = new IntArrayVector(values, getAttributes());
+    copy.unshared = true;
+    return copy;
+  }
+
+  /**
+   * Replaces the element at {@code index}. This vector must not be shared.
+   */
+  public void setElementInPlace(int index, int value) {
+    assert unshared : "vector is shared";
+    values[index] = value;
+  }
+
   /**
    * @return a pointer to the underlying array. DO NOT MODIFY!!
    */
@@ -18,6 +18,16 @@ public class IntBufferVector extends IntVector {
     this.length = length;
   }
 
+  /**
+   * @return a read-only view of the elements of this vector
+   */
+  public IntBuffer asReadOnlyBuffer() {
+    IntBuffer view = buffer.asReadOnlyBuffer();
+    view.position(0);
+    view.limit(length);
+    return view;
+  }
+
   @Override
   public int length() {
     return length;
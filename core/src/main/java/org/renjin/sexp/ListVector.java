@@ -38,7 +38,7 @@ import java.util.List;
 /**
  * Generic vector of {@code SEXP}s
  */
-public class ListVector extends AbstractVector implements Iterable<SEXP>, HasNamedValues {
+public class ListVector extends AbstractVector implements Iterable<SEXP>, HasNamedValues, ReferenceTracked {
 
   public static final String TYPE_NAME = "list";
   public static final ListVector EMPTY = new ListVector();
@@ -46,6 +46,8 @@ public class ListVector extends AbstractVector implements Iterable<SEXP>, HasNam
 
   private final ArrayList<SEXP> values;
 
+  private transient boolean unshared;
+
   public ListVector(Iterable<? extends SEXP> values,  AttributeMap attributes) {
     super(Null.INSTANCE, attributes);
     this.values = new ArrayList<SEXP>();
@@ -369,6 +371,34 @@ public class ListVector extends AbstractVector implements Iterable<SEXP>, HasNam
     return new NamedBuilder();
   }
   
+  @Override
+  public boolean isShared() {
+    return !unshared;
+  }
+
+  @Override
+  public void markShared() {
+    unshared = false;
+  }
+
+  /**
+   * @return a copy of this list with its own storage, which can be
+   * updated in place with {@link #setElementInPlace(int, SEXP)}
+   */
+  public ListVector unsharedCopy() {
+    ListVector copy = new ListVector(values, getAttributes());
+    copy.unshared = true;
+    return copy;
+  }
+
+  /**
+   * Replaces the element at {@code index}. This list must not be shared.
+   */
+  public void setElementInPlace(int index, SEXP value) {
+    assert unshared : "list is shared";
+    values.set(index, value);
+  }
+
   public NamedBuilder newCopyNamedBuilder() {
     return new NamedBuilder(this);
   }
@@ -0,0 +1,102 @@
+package org.renjin.sexp;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A character vector of decimal numbers read from a file, which holds the encoded text of each
+ * element together with the number that it was parsed as.
+ *
+ * <p>{@code read.table()} reads every column as text, and then converts those that look like
+ * numbers with {@code type.convert()}. Holding the text undecoded, and the numbers already
+ * parsed, allows such a column to be converted without creating a String for each element,
+ * while the vector still behaves as an ordinary character vector elsewhere.</p>
+ *
+ * <p>The text is held in blocks, each of which holds the bytes of a consecutive run of
+ * elements. Elements are never {@code NA}: empty elements are empty strings, and are
+ * {@code NA} among the parsed values. None of the arrays may be modified.</p>
+ */
+public class ParsedStringVector extends StringVector {
+
+  private final byte[][] blockBytes;
+  private final int[][] blockOffsets;
+  private final int[] blockStarts;
+  private final Charset charset;
+  private final AtomicVector parsed;
+
+  /**
+   * @param blockBytes the encoded text of the elements of each block, concatenated
+   * @param blockOffsets the offset in the block's bytes of each element of the block, followed by
+   *                     the offset of the end of its last element
+   * @param blockStarts the index of the first element of each block
+   * @param parsed the values of the elements as integers or doubles
+   */
+  public ParsedStringVector(byte[][] blockBytes, int[][] blockOffsets, int[] blockStarts,
+                            Charset charset, AtomicVector parsed, AttributeMap attributes) {
+    super(attributes);
+    this.blockBytes = blockBytes;
+    this.blockOffsets = blockOffsets;
+    this.blockStarts = blockStarts;
+    this.charset = charset;
+    this.parsed = parsed;
+  }
+
+  public ParsedStringVector(byte[][] blockBytes, int[][] blockOffsets, int[] blockStarts,
+                            Charset charset, AtomicVector parsed) {
+    this(blockBytes, blockOffsets, blockStarts, charset, parsed, AttributeMap.EMPTY);
+  }
+
+  @Override
+  public int length() {
+    return parsed.length();
+  }
+
+  @Override
+  public String getElementAsString(int index) {
+    int block = Arrays.binarySearch(blockStarts, index);
+    if(block < 0) {
+      block = -block - 2;
+    } else {
+      // skip over empty blocks
+      while(block + 1 < blockStarts.length && blockStarts[block + 1] == index) {
+        block++;
+      }
+    }
+    int[] offsets = blockOffsets[block];
+    int i = index - blockStarts[block];
+    return new String(blockBytes[block], offsets[i], offsets[i + 1] - offsets[i], charset);
+  }
+
+  @Override
+  public boolean isElementNA(int index) {
+    return false;
+  }
+
+  /**
+   * @param naStrings the strings which {@code type.convert()} is to treat as {@code NA}, in
+   *                  addition to empty strings
+   * @return the elements as an integer or double vector, as {@code type.convert()} would convert
+   * them, or {@code null} if one of {@code naStrings} could be the text of a number.
+   */
+  public AtomicVector getParsedValues(Set<String> naStrings) {
+    for(String naString : naStrings) {
+      for(int i=0;i!=naString.length();++i) {
+        if(Character.isDigit(naString.charAt(i))) {
+          return null;
+        }
+      }
+    }
+    return parsed;
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected ParsedStringVector cloneWithNewAttributes(AttributeMap attributes) {
+    return new ParsedStringVector(blockBytes, blockOffsets, blockStarts, charset, parsed, attributes);
+  }
+}
@@ -0,0 +1,27 @@
+package org.renjin.sexp;
+
+/**
+ * A vector which can be updated in place by replacement functions such as
+ * {@code x[i] <- value}, as long as it is referenced by a single variable binding,
+ * in the same spirit as GNU R's {@code NAMED} field.
+ *
+ * <p>Vectors are shared by default, and only a replacement function which has just
+ * copied a vector may mark the copy as unshared, before binding it to a variable.
+ * Every read of a variable through {@link Frame#getVariable(Symbol)} marks the value
+ * as shared again, as from then on there is no telling where else it is stored.
+ * Once shared, a vector stays shared.</p>
+ */
+public interface ReferenceTracked extends Vector {
+
+  /**
+   * @return true if this vector may be referenced from more than one place
+   * and so must not be modified.
+   */
+  boolean isShared();
+
+  /**
+   * Marks this vector as possibly referenced from more than one place.
+   */
+  void markShared();
+
+}
@@ -0,0 +1,112 @@
+package org.renjin.sexp;
+
+/**
+ * A character vector stored as an array of integer codes into a table of distinct strings.
+ *
+ * <p>Columns of categorical data, such as those read from delimited files, typically hold
+ * a small number of distinct values repeated many times. Storing each distinct value once
+ * reduces the cost of such a column to four bytes per element, and allows operations such
+ * as {@code match()}, {@code unique()}, {@code paste()} and the construction of factors to
+ * work on each distinct value only once, and otherwise on the codes.</p>
+ *
+ * <p>The level table may be shared between vectors, for example between a vector and
+ * its {@code unique()} values, and must never be modified.</p>
+ */
+public class StringDictionaryVector extends StringVector {
+
+  /**
+   * The code of {@code NA} elements
+   */
+  public static final int NA_CODE = -1;
+
+  private final int[] codes;
+  private final String[] levels;
+
+  /**
+   * Creates a new vector without copying {@code codes} or {@code levels}, neither of which
+   * may be modified afterwards.
+   *
+   * @param codes the zero-based index in {@code levels} of each element, or {@link #NA_CODE}
+   * @param levels distinct, non-NA strings
+   */
+  public StringDictionaryVector(int[] codes, String[] levels, AttributeMap attributes) {
+    super(attributes);
+    this.codes = codes;
+    this.levels = levels;
+  }
+
+  public StringDictionaryVector(int[] codes, String[] levels) {
+    this(codes, levels, AttributeMap.EMPTY);
+  }
+
+  @Override
+  public int length() {
+    return codes.length;
+  }
+
+  @Override
+  public String getElementAsString(int index) {
+    int code = codes[index];
+    return code == NA_CODE ? NA : levels[code];
+  }
+
+  @Override
+  public boolean isElementNA(int index) {
+    return codes[index] == NA_CODE;
+  }
+
+  /**
+   * @return the index of element {@code index} in the level table, or {@link #NA_CODE}
+   */
+  public int getCode(int index) {
+    return codes[index];
+  }
+
+  public int getLevelCount() {
+    return levels.length;
+  }
+
+  public String getLevel(int code) {
+    return levels[code];
+  }
+
+  /**
+   * @return the level table as a vector
+   */
+  public StringVector getLevelVector() {
+    return new StringArrayVector(levels);
+  }
+
+  /**
+   * @return true if this vector and {@code other} encode their elements with the same
+   * level table, so that two elements are equal if and only if their codes are equal.
+   */
+  public boolean hasSameLevels(StringDictionaryVector other) {
+    return levels == other.levels;
+  }
+
+  /**
+   * @return a vector with the same level table and the given codes
+   */
+  public StringDictionaryVector withCodes(int[] codes) {
+    return new StringDictionaryVector(codes, levels);
+  }
+
+  @Override
+  public int compare(int index1, int index2) {
+    if(codes[index1] == codes[index2]) {
+      return 0;
+    }
+    return super.compare(index1, index2);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected StringDictionaryVector cloneWithNewAttributes(AttributeMap attributes) {
+    return new StringDictionaryVector(codes, levels, attributes);
+  }
+}
@@ -0,0 +1,59 @@
+package org.renjin.sexp;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Pools equal strings so that a value read many times, for example a level of a
+ * categorical column read from several files, is held in memory only once.
+ *
+ * <p>The pool holds its strings weakly, so strings which are no longer referenced
+ * by any vector can still be collected. Pooling is disabled unless the
+ * {@code renjin.strings.intern} system property is set to {@code true}, or an enabled
+ * pool is bound to the {@link org.renjin.eval.SessionBuilder}.</p>
+ */
+public class StringPool {
+
+  /**
+   * System property which enables pooling when set to {@code true}
+   */
+  public static final String INTERN_PROPERTY = "renjin.strings.intern";
+
+  /**
+   * A pool which returns every string unchanged
+   */
+  public static final StringPool DISABLED = new StringPool(false);
+
+  private final Interner<String> interner;
+
+  public StringPool(boolean enabled) {
+    this.interner = enabled ? Interners.<String>newWeakInterner() : null;
+  }
+
+  /**
+   * @return a {@code StringPool} configured from the {@code renjin.strings.intern} system
+   * property, or {@link #DISABLED} if the property is not set.
+   */
+  public static StringPool fromSystemProperties() {
+    if(Boolean.parseBoolean(System.getProperty(INTERN_PROPERTY))) {
+      return new StringPool(true);
+    } else {
+      return DISABLED;
+    }
+  }
+
+  public boolean isEnabled() {
+    return interner != null;
+  }
+
+  /**
+   * @return the pooled instance equal to {@code string}, or {@code string} itself
+   * if pooling is disabled or the string is {@code NA}.
+   */
+  public String intern(String string) {
+    if(interner == null || string == null) {
+      return string;
+    }
+    return interner.intern(string);
+  }
+}
@@ -0,0 +1,49 @@
+package org.renjin.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the pool of threads among which the primitives divide CPU-bound work, such
+ * as grouping vectors, parsing tables, inflating gzip members and multiplying matrices.
+ *
+ * <p>The pool has a thread for each available processor, and is shared so that
+ * operations running concurrently do not together start more threads than there are
+ * processors. Its threads are daemons, so they do not prevent the JVM from exiting.
+ * Tasks submitted to the pool must not themselves wait on other tasks in the pool.</p>
+ */
+public final class Parallel {
+
+  private static ExecutorService executor;
+
+  private Parallel() { }
+
+  /**
+   * @return the shared pool, which is created on first use
+   */
+  public static synchronized ExecutorService executor() {
+    if(executor == null) {
+      executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+          daemonThreadFactory("renjin-worker"));
+    }
+    return executor;
+  }
+
+  /**
+   * @return a {@code ThreadFactory} which creates daemon threads named
+   * {@code prefix-1}, {@code prefix-2}, etc.
+   */
+  public static ThreadFactory daemonThreadFactory(final String prefix) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+}
@@ -23,6 +23,7 @@ package org.renjin;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.renjin.primitives.S3DispatchCache;
 import org.renjin.sexp.Logical;
 
 import java.io.IOException;
@@ -135,4 +136,45 @@ public class S3DispatchTest extends EvalTestCase {
 
   }
 
+  @Test
+  public void cachedDispatchIsInvalidatedByNewMethods() {
+    eval("f <- function(x) UseMethod('f')");
+    eval("f.default <- function(x) 'default'");
+    eval("x <- 1");
+    eval("class(x) <- c('b', 'a')");
+
+    S3DispatchCache cache = topLevelContext.getSession().getSingleton(S3DispatchCache.class);
+    long hits = cache.getHitCount();
+
+    assertThat(eval("f(x)"), equalTo(c("default")));
+    assertThat(eval("f(x)"), equalTo(c("default")));
+    assertThat(cache.getHitCount(), equalTo(hits + 1));
+
+    eval("f.a <- function(x) 'a'");
+    assertThat(eval("f(x)"), equalTo(c("a")));
+    eval("f.b <- function(x) 'b'");
+    assertThat(eval("f(x)"), equalTo(c("b")));
+    eval("f.b <- NULL");
+    assertThat(eval("f(x)"), equalTo(c("a")));
+  }
+
+  @Test
+  public void cachedDispatchHonoursMethodsInCallingFrame() {
+    eval("f <- function(x) UseMethod('f')");
+    eval("f.a <- function(x) 'global'");
+    eval("g <- function(x) f(x)");
+    eval("h <- function(x) { f.a <- function(x) 'local'; UseMethod('f') }");
+    eval("x <- 1");
+    eval("class(x) <- 'a'");
+
+    assertThat(eval("g(x)"), equalTo(c("global")));
+    assertThat(eval("g(x)"), equalTo(c("global")));
+
+    // same cache key as the calls through g, but a method is bound in the calling frame
+    assertThat(eval("h(x)"), equalTo(c("local")));
+
+    // and must not be cached for frames in which it is not bound
+    assertThat(eval("g(x)"), equalTo(c("global")));
+  }
+
 }
@@ -0,0 +1,125 @@
+package org.renjin.compiler;
+
+import org.junit.Test;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.SEXP;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TieredCompilerTest {
+
+  @Test
+  public void disabledByDefault() {
+    Session session = new SessionBuilder().withoutBasePackage().build();
+    Context context = session.getTopLevelContext();
+
+    eval(context, "f <- function(x) x * 2");
+    for(int i=0;i!=10;++i) {
+      eval(context, "f(1)");
+    }
+    Closure f = (Closure) context.getGlobalEnvironment().getVariable("f");
+    assertTrue(f.beginCompilation());
+  }
+
+  @Test
+  public void hotClosureIsScheduled() throws InterruptedException {
+    TieredCompiler compiler = new TieredCompiler(3);
+    Session session = new SessionBuilder()
+        .withoutBasePackage()
+        .bind(TieredCompiler.class, compiler)
+        .build();
+    Context context = session.getTopLevelContext();
+
+    eval(context, "f <- function(x) x * 2");
+    Closure f = (Closure) context.getGlobalEnvironment().getVariable("f");
+
+    for(int i=0;i!=5;++i) {
+      SEXP result = eval(context, "f(" + i + ")");
+      assertThat(((DoubleVector) result).getElementAsDouble(0), equalTo(i * 2d));
+    }
+
+    // already scheduled, compiled, or found to be uncompilable
+    assertFalse(f.beginCompilation());
+
+    // Whatever the outcome of compilation, results should be unchanged
+    for(int i=0;i!=5;++i) {
+      SEXP result = eval(context, "f(" + i + ")");
+      assertThat(((DoubleVector) result).getElementAsDouble(0), equalTo(i * 2d));
+    }
+  }
+
+  @Test
+  public void loopsCountTowardsThreshold() {
+    TieredCompiler compiler = new TieredCompiler(1000);
+    Session session = new SessionBuilder()
+        .withoutBasePackage()
+        .bind(TieredCompiler.class, compiler)
+        .build();
+    Context context = session.getTopLevelContext();
+
+    eval(context, "f <- function(n) { s <- 0; for(i in 1:n) s <- s + i; s }");
+    Closure f = (Closure) context.getGlobalEnvironment().getVariable("f");
+
+    eval(context, "f(200000)");
+
+    assertFalse(f.beginCompilation());
+  }
+
+  @Test
+  public void specializedLoopsMatchInterpreter() throws Exception {
+    Session session = new SessionBuilder().withoutBasePackage().build();
+    Context context = session.getTopLevelContext();
+
+    String[] bodies = {
+        // the element and the sum are held unboxed
+        "x <- c(1.5, 2, 3); n <- length(x); s <- 0; for(i in 1:n) s <- s + x[i]; s",
+        "x <- c(1.5, 2, 3); s <- 0; for(i in 1:3) s <- s + x[[i]] * 2; s",
+        // x[0] is numeric(0), so the guards fail and the primitives are applied
+        "x <- c(1.5, 2, 3); s <- 0; for(i in 0:3) s <- s + x[i]; s",
+        // x[4] is NA
+        "x <- c(1.5, 2, 3); s <- 0; for(i in 1:4) { t <- x[i]; s <- s + t }; s"
+    };
+    for(String body : bodies) {
+      eval(context, "f <- function() { " + body + " }");
+      Closure f = (Closure) context.getGlobalEnvironment().getVariable("f");
+      Closure compiled = ClosureCompiler.compileAndLoad(f)
+          .getConstructor(Environment.class)
+          .newInstance(context.getGlobalEnvironment());
+      context.getGlobalEnvironment().setVariable("fc", compiled);
+
+      assertThat(body, eval(context, "fc()"), equalTo(eval(context, "f()")));
+    }
+  }
+
+  @Test
+  public void methodsDispatchedInLoopsAreCalledEachTime() throws Exception {
+    Session session = new SessionBuilder().withoutBasePackage().build();
+    Context context = session.getTopLevelContext();
+
+    eval(context, "`[.foo` <- function(x, i) { calls <<- calls + 1; unclass(x)[i] }");
+    eval(context, "f <- function() { x <- c(1, 2, 3); class(x) <- 'foo'; s <- 0; " +
+        "for(i in 1:3) s <- s + x[1] + x[1]; s }");
+    Closure f = (Closure) context.getGlobalEnvironment().getVariable("f");
+    Closure compiled = ClosureCompiler.compileAndLoad(f)
+        .getConstructor(Environment.class)
+        .newInstance(context.getGlobalEnvironment());
+    context.getGlobalEnvironment().setVariable("fc", compiled);
+
+    eval(context, "calls <- 0");
+    assertThat(eval(context, "fc()"), equalTo(eval(context, "6")));
+    assertThat(eval(context, "calls"), equalTo(eval(context, "6")));
+  }
+
+  private SEXP eval(Context context, String source) {
+    return context.evaluate(RParser.parseSource(source + "\n"));
+  }
+}
@@ -0,0 +1,158 @@
+package org.renjin.compiler.cfg;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.renjin.compiler.CompilerTestCase;
+import org.renjin.compiler.ir.ssa.SsaTransformer;
+import org.renjin.compiler.ir.ssa.TypeInference;
+import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
+import org.renjin.compiler.ir.tac.expressions.PrimitiveCall;
+import org.renjin.compiler.ir.tac.expressions.Variable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+import org.renjin.compiler.ir.tac.statements.Statement;
+
+import com.google.common.collect.Iterables;
+
+public class OptimizationPassesTest extends CompilerTestCase {
+
+  private ControlFlowGraph cfg;
+  private DominanceTree dtree;
+  private TypeInference types;
+
+  @Test
+  public void hoistLengthOutOfWhileLoop() {
+    buildSsa("x <- c(1, 2, 3); i <- 0; while(i < length(x)) { i <- i + 1 }; i");
+
+    LoopInvariantCodeMotion licm = new LoopInvariantCodeMotion(cfg, dtree, types);
+    licm.optimize();
+    dump("after LICM");
+
+    assertThat(licm.getHoistedCount(), equalTo(1));
+    assertThat(countCalls(cfg.getBasicBlocks().get(0), "length"), equalTo(1));
+  }
+
+  @Test
+  public void doNotHoistAcrossCalls() {
+    buildSsa("x <- c(1, 2, 3); i <- 0; while(i < length(x)) { i <- i + 1; f() }; i");
+
+    LoopInvariantCodeMotion licm = new LoopInvariantCodeMotion(cfg, dtree, types);
+    licm.optimize();
+    dump("after LICM");
+
+    // f() could reassign x in our environment
+    assertThat(licm.getHoistedCount(), equalTo(0));
+  }
+
+  @Test
+  public void doNotHoistFromBody() {
+    buildSsa("x <- c(1, 2, 3); n <- 10; i <- 0; while(i < n) { i <- i + length(x) }; i");
+
+    LoopInvariantCodeMotion licm = new LoopInvariantCodeMotion(cfg, dtree, types);
+    licm.optimize();
+    dump("after LICM");
+
+    // length(x) fails if x is not defined, which must not happen
+    // if the loop is never entered
+    assertThat(licm.getHoistedCount(), equalTo(0));
+  }
+
+  @Test
+  public void eliminateCommonSubexpressions() {
+    buildSsa("x <- c(1, 2, 3); a <- length(x) + 1; b <- length(x) + 2; a * b");
+
+    CommonSubexpressionElimination cse = new CommonSubexpressionElimination(cfg, dtree, types);
+    cse.optimize();
+    dump("after CSE");
+
+    assertThat(cse.getEliminatedCount(), equalTo(1));
+    assertThat(countCalls(cfg.getBasicBlocks().get(0), "length"), equalTo(1));
+  }
+
+  @Test
+  public void commonSubexpressionsAcrossCalls() {
+    buildSsa("x <- c(1, 2, 3); a <- length(x) + 1; f(); b <- length(x) + 2; a * b");
+
+    CommonSubexpressionElimination cse = new CommonSubexpressionElimination(cfg, dtree, types);
+    cse.optimize();
+    dump("after CSE");
+
+    assertThat(cse.getEliminatedCount(), equalTo(0));
+  }
+
+  @Test
+  public void genericPrimitivesOnObjectsAreBarriers() {
+    // x could have a class, and `[.foo` could assign to y
+    buildSsa("y <- c(1, 2, 3); i <- 0; while(i < length(y)) { i <- i + x[1] }; i");
+
+    LoopInvariantCodeMotion licm = new LoopInvariantCodeMotion(cfg, dtree, types);
+    licm.optimize();
+    dump("after LICM");
+
+    assertThat(licm.getHoistedCount(), equalTo(0));
+  }
+
+  @Test
+  public void genericPrimitivesOnObjectsAreNotEliminated() {
+    // each x[1] could call a `[.foo` method with side effects
+    buildSsa("a <- x[1] + 1; b <- x[1] + 2; a * b");
+
+    CommonSubexpressionElimination cse = new CommonSubexpressionElimination(cfg, dtree, types);
+    cse.optimize();
+    dump("after CSE");
+
+    assertThat(cse.getEliminatedCount(), equalTo(0));
+    assertThat(countCalls(cfg.getBasicBlocks().get(0), "["), equalTo(2));
+  }
+
+  @Test
+  public void deadPhiFunctions() {
+    buildSsa("if(q) x <- 1 else x <- 2; y <- 3");
+
+    DeadCodeElimination dce = new DeadCodeElimination(cfg);
+    dce.optimize();
+    dump("after DCE");
+
+    // the phi function for x, which is never read, is removed,
+    // but the assignments to x itself must be kept
+    assertTrue(dce.getRemovedCount() > 0);
+    int assignmentsToX = 0;
+    for(BasicBlock bb : cfg.getBasicBlocks()) {
+      assertThat(Iterables.size(bb.phiAssignments()), equalTo(0));
+      for(Assignment assignment : bb.assignments()) {
+        if(SideEffects.innerVariable((Variable) assignment.getLHS())
+            .equals(new EnvironmentVariable("x"))) {
+          assignmentsToX++;
+        }
+      }
+    }
+    assertThat(assignmentsToX, equalTo(2));
+  }
+
+  private void buildSsa(String rcode) {
+    cfg = new ControlFlowGraph(buildScope(rcode));
+    dtree = new DominanceTree(cfg);
+    new SsaTransformer(cfg, dtree).transform();
+    types = new TypeInference(cfg);
+    types.infer();
+    dump("before");
+  }
+
+  private void dump(String title) {
+    System.out.println("==== " + title + " ====");
+    System.out.println(cfg);
+  }
+
+  private int countCalls(BasicBlock bb, String name) {
+    int count = 0;
+    for(Statement stmt : bb.getStatements()) {
+      if(stmt.getRHS() instanceof PrimitiveCall &&
+         ((PrimitiveCall) stmt.getRHS()).getName().getPrintName().equals(name)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,88 @@
+package org.renjin.compiler.ir.ssa;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Set;
+
+import org.junit.Test;
+import org.renjin.compiler.CompilerTestCase;
+import org.renjin.compiler.cfg.BasicBlock;
+import org.renjin.compiler.cfg.ControlFlowGraph;
+import org.renjin.compiler.cfg.DominanceTree;
+import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
+import org.renjin.compiler.ir.tac.statements.Assignment;
+
+import com.google.common.collect.Sets;
+
+public class TypeInferenceTest extends CompilerTestCase {
+
+  @Test
+  public void scalarDoubleThroughLoop() {
+    TypeInference types = infer("s <- 0; for(i in 1:10) { s <- s + 1 }; s");
+
+    assertThat(typesOf(types, "s"), equalTo((Set)Sets.newHashSet(InferredType.DOUBLE)));
+  }
+
+  @Test
+  public void integerArithmetic() {
+    TypeInference types = infer("y <- 1L; z <- y * 2L; w <- z / 2L");
+
+    assertThat(typesOf(types, "z"), equalTo((Set)Sets.newHashSet(InferredType.INTEGER)));
+    assertThat(typesOf(types, "w"), equalTo((Set)Sets.newHashSet(InferredType.DOUBLE)));
+  }
+
+  @Test
+  public void conflictingDefinitions() {
+    TypeInference types = infer("if(q) x <- 1 else x <- TRUE; y <- x + 1");
+
+    assertThat(typesOf(types, "y"), equalTo((Set)Sets.newHashSet(InferredType.SEXP)));
+  }
+
+  @Test
+  public void elementsAreNotProven() {
+    TypeInference types = infer("s <- 0; for(x in xs) { s <- s + x }");
+
+    assertThat(typesOf(types, "x"), equalTo((Set)Sets.newHashSet(InferredType.SEXP)));
+    assertThat(typesOf(types, "s").contains(InferredType.SEXP), equalTo(true));
+  }
+
+  @Test
+  public void elementsOfDoubleVectors() {
+    TypeInference types = infer("x <- c(1, 2, 3); n <- length(x); s <- 0; for(i in 1:n) s <- s + x[i]");
+
+    assertThat(typesOf(types, "x"), equalTo((Set)Sets.newHashSet(InferredType.DOUBLE_VECTOR)));
+    assertThat(typesOf(types, "i"), equalTo((Set)Sets.newHashSet(InferredType.INTEGER)));
+    assertThat(typesOf(types, "s"), equalTo((Set)Sets.newHashSet(InferredType.DOUBLE)));
+  }
+
+  @Test
+  public void scalarsJoinVectors() {
+    TypeInference types = infer("if(q) x <- 1 else x <- c(1, 2); y <- x * 2L");
+
+    assertThat(typesOf(types, "y"), equalTo((Set)Sets.newHashSet(InferredType.DOUBLE_VECTOR)));
+  }
+
+  private TypeInference infer(String rcode) {
+    ControlFlowGraph cfg = new ControlFlowGraph(buildScope(rcode));
+    new SsaTransformer(cfg, new DominanceTree(cfg)).transform();
+    TypeInference types = new TypeInference(cfg);
+    types.infer();
+    System.out.println(cfg);
+    System.out.println(types);
+    return types;
+  }
+
+  private Set<InferredType> typesOf(TypeInference types, String name) {
+    Set<InferredType> set = Sets.newHashSet();
+    for(BasicBlock bb : types.getControlFlowGraph().getBasicBlocks()) {
+      for(Assignment assignment : bb.assignments()) {
+        if(assignment.getLHS() instanceof SsaVariable &&
+           ((SsaVariable) assignment.getLHS()).getInner().equals(new EnvironmentVariable(name))) {
+          set.add(types.getType((SsaVariable) assignment.getLHS()));
+        }
+      }
+    }
+    return set;
+  }
+}
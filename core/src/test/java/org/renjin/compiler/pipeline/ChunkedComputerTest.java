@@ -0,0 +1,67 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.primitives.sequence.DoubleSequence;
+import org.renjin.primitives.summary.DeferredMean;
+import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.Vector;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ChunkedComputerTest {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void chunkedSum() throws Exception {
+    int n = ChunkedComputer.MIN_CHUNK_SIZE * 10 + 17;
+    Vector x = new DoubleSequence(AttributeMap.EMPTY, 1, 1, n);
+
+    ChunkedComputer computer = new ChunkedComputer(executor, 4);
+
+    assertThat(computer.sum(x), equalTo(((double)n) * (n + 1) / 2d));
+  }
+
+  @Test
+  public void chunkedToDoubleArray() throws Exception {
+    int n = ChunkedComputer.MIN_CHUNK_SIZE * 3 + 5;
+    Vector x = new DoubleSequence(AttributeMap.EMPTY, 1, 1, n);
+
+    double[] array = new ChunkedComputer(executor, 4).toDoubleArray(x);
+
+    assertThat(array.length, equalTo(n));
+    assertThat(array[0], equalTo(1d));
+    assertThat(array[n-1], equalTo((double)n));
+  }
+
+  @Test
+  public void pipelinerChunksLargeReductions() {
+    int n = ChunkedComputer.MIN_CHUNK_SIZE * 8;
+    Vector x = new DoubleSequence(AttributeMap.EMPTY, 1, 1, n);
+
+    MultiThreadedVectorPipeliner pipeliner = new MultiThreadedVectorPipeliner(executor, 4);
+
+    DeferredSum sum = new DeferredSum(x, AttributeMap.EMPTY);
+    DeferredMean mean = new DeferredMean(x, AttributeMap.EMPTY);
+
+    assertThat(pipeliner.materialize(sum).getElementAsDouble(0), equalTo(((double)n) * (n + 1) / 2d));
+    assertThat(pipeliner.materialize(mean).getElementAsDouble(0), equalTo((n + 1) / 2d));
+  }
+}
@@ -0,0 +1,61 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renjin.primitives.summary.DeferredMean;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class DeferredJitCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void persistedAcrossInstances() {
+
+    DiskJitCache diskCache = new DiskJitCache(folder.getRoot());
+
+    DeferredJitCache first = new DeferredJitCache(diskCache);
+    assertThat(compute(first, 1, 2, 3), equalTo(2d));
+    assertThat(compute(first, 4, 5, 6), equalTo(5d));
+    assertThat(first.getMissCount(), equalTo(1L));
+    assertThat(first.getMemoryHitCount(), equalTo(1L));
+
+    // simulates a restart: nothing in memory, but the class should be read from disk
+    DeferredJitCache second = new DeferredJitCache(diskCache);
+    assertThat(compute(second, 1, 2, 3), equalTo(2d));
+    assertThat(second.getMissCount(), equalTo(0L));
+    assertThat(second.getDiskHitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void stableKey() {
+    DeferredGraph graph = new DeferredGraph(new DeferredMean(new DoubleArrayVector(1, 2), AttributeMap.EMPTY));
+    JitKey key = graph.getRoot().jitKey();
+
+    assertThat(key.toStableString(), equalTo(DeferredMean.class.getName() + ";" + DoubleArrayVector.class.getName()));
+  }
+
+  @Test
+  public void stableIdDependsOnBuild() {
+    DeferredGraph graph = new DeferredGraph(new DeferredMean(new DoubleArrayVector(1, 2), AttributeMap.EMPTY));
+    JitKey key = graph.getRoot().jitKey();
+
+    assertThat(key.getStableId(), equalTo(key.getStableId(JitKey.getBuildId())));
+    assertThat(key.getStableId("a"), equalTo(key.getStableId("a")));
+    assertThat(key.getStableId("a"), not(equalTo(key.getStableId("b"))));
+  }
+
+  private double compute(DeferredJitCache cache, double... values) {
+    DeferredMean mean = new DeferredMean(new DoubleArrayVector(values), AttributeMap.EMPTY);
+    DeferredGraph graph = new DeferredGraph(mean);
+    JittedComputation computation = cache.compile(graph.getRoot());
+    return computation.compute(graph.getRoot().flattenVectors())[0];
+  }
+}
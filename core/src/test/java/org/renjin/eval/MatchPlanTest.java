@@ -0,0 +1,45 @@
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MatchPlanTest extends EvalTestCase {
+
+  @Test
+  public void planIsReplayedAcrossCalls() {
+    eval("f <- function(alpha, beta = 10) alpha - beta");
+    eval("g <- function(x) f(be = 1, x)");
+
+    assertThat(eval("g(5)"), equalTo(c(4)));
+    assertThat(eval("g(7)"), equalTo(c(6)));
+  }
+
+  @Test
+  public void planIsRecomputedWhenTagsChange() {
+    eval("f <- function(alpha, beta = 10) alpha - beta");
+    eval("g <- function(...) f(...)");
+
+    assertThat(eval("g(5)"), equalTo(c(-5)));
+    assertThat(eval("g(5, 1)"), equalTo(c(4)));
+    assertThat(eval("g(beta = 5, 1)"), equalTo(c(-4)));
+    assertThat(eval("g(5)"), equalTo(c(-5)));
+  }
+
+  @Test
+  public void ellipsesArePlanned() {
+    eval("f <- function(x, ...) x + length(list(...))");
+    eval("g <- function(n) f(n, 1, b = 2, 3)");
+
+    assertThat(eval("g(1)"), equalTo(c(4)));
+    assertThat(eval("g(2)"), equalTo(c(5)));
+  }
+
+  @Test(expected = EvalException.class)
+  public void unmatchedPositionalArguments() {
+    eval("f <- function(x) x");
+    eval("f(1, 2)");
+  }
+}
@@ -0,0 +1,77 @@
+package org.renjin.eval;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Logical;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SessionForkTest {
+
+  private Session template;
+
+  @Before
+  public void setUp() {
+    template = SessionBuilder.buildDefault();
+    eval(template, "x <- c(1, 2, 3)");
+    eval(template, "counter <- local({ n <- 0; function() { n <<- n + 1; n } })");
+  }
+
+  @Test
+  public void forkSeesTemplateBindings() {
+    Session fork = template.fork();
+    assertThat(eval(fork, "sum(x)").asReal(), equalTo(6d));
+    assertThat(eval(fork, "paste('a', 'b')").asString(), equalTo("a b"));
+  }
+
+  @Test
+  public void assignmentsDoNotLeakIntoTemplate() {
+    Session fork = template.fork();
+    eval(fork, "x[2] <- 20");
+    eval(fork, "y <- 42");
+    eval(fork, "rm(counter)");
+
+    assertThat(eval(fork, "sum(x)").asReal(), equalTo(24d));
+    assertThat(eval(template, "sum(x)").asReal(), equalTo(6d));
+    assertThat(eval(template, "exists('y')").asLogical(), equalTo(Logical.FALSE));
+    assertThat(eval(template, "exists('counter')").asLogical(), equalTo(Logical.TRUE));
+  }
+
+  @Test
+  public void closuresAreEvaluatedInForkedEnvironments() {
+    Session fork = template.fork();
+    assertThat(eval(fork, "counter()").asReal(), equalTo(1d));
+    assertThat(eval(fork, "counter()").asReal(), equalTo(2d));
+
+    // the template's closure environment is unchanged
+    assertThat(eval(template, "counter()").asReal(), equalTo(1d));
+
+    Closure forkedCounter = (Closure) fork.getGlobalEnvironment().getVariable("counter");
+    Closure templateCounter = (Closure) template.getGlobalEnvironment().getVariable("counter");
+    assertThat(forkedCounter.getEnclosingEnvironment(), not(sameInstance(templateCounter.getEnclosingEnvironment())));
+  }
+
+  @Test
+  public void forkHasItsOwnBaseEnvironment() {
+    Session fork = template.fork();
+    Environment base = fork.getGlobalEnvironment().getBaseEnvironment();
+    assertThat(base, not(sameInstance(template.getBaseEnvironment())));
+    assertThat(fork.getBaseNamespaceEnv().getVariable(Symbol.get(".BaseNamespaceEnv")),
+        sameInstance((SEXP) fork.getBaseNamespaceEnv()));
+
+    eval(fork, "options(digits = 3)");
+    assertThat(eval(template, "getOption('digits')").asReal(), equalTo(7d));
+  }
+
+  private static SEXP eval(Session session, String source) {
+    return session.getTopLevelContext().evaluate(RParser.parseSource(source + "\n"));
+  }
+}
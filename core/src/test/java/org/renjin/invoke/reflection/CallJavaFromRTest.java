@@ -1,5 +1,8 @@
 package org.renjin.invoke.reflection;
 
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
 public class CallJavaFromRTest {
 
   private MyCakeTest cakeConverted = null;
@@ -118,6 +121,63 @@ public class CallJavaFromRTest {
     return values;
   }
 
+  public static double[] PrimitiveDoubleArrayConvert(double[] values) {
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = values[i] + 1;
+    }
+    return result;
+  }
+
+  public static int[] PrimitiveIntArrayConvert(int[] values) {
+    int[] result = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = values[i] + 1;
+    }
+    return result;
+  }
+
+  private static double[] keptDoubles;
+  private static int[] keptInts;
+
+  public static void FillDoubleArray(double[] values) {
+    keptDoubles = values;
+    java.util.Arrays.fill(values, -1);
+  }
+
+  public static void FillIntArray(int[] values) {
+    keptInts = values;
+    java.util.Arrays.fill(values, -1);
+  }
+
+  public static double[] KeptDoubleArray() {
+    return keptDoubles;
+  }
+
+  public static void ModifyKeptDoubleArray() {
+    keptDoubles[0] = 42;
+  }
+
+  public static DoubleBuffer ReadOnlyDoubleBufferSequence(int length) {
+    return DoubleBufferSequence(length).asReadOnlyBuffer();
+  }
+
+  public static double DoubleBufferSum(DoubleBuffer buffer) {
+    double sum = 0;
+    while (buffer.hasRemaining()) {
+      sum += buffer.get();
+    }
+    return sum;
+  }
+
+  public static DoubleBuffer DoubleBufferSequence(int length) {
+    DoubleBuffer buffer = ByteBuffer.allocateDirect(length * 8).asDoubleBuffer();
+    for (int i = 0; i < length; i++) {
+      buffer.put(i, i + 1);
+    }
+    return buffer;
+  }
+
   // inBooleanArray<-c(TRUE,FALSE,FALSE)
   public static Boolean[] BooleanArrayConvert(Boolean[] values) {
     System.out
@@ -0,0 +1,78 @@
+package org.renjin.invoke.reflection;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class InvokerGeneratorTest {
+
+  public static class Scorer {
+    private double weight = 2;
+
+    public double score(String word, int count) {
+      return weight * word.length() * count;
+    }
+
+    public void setWeight(float weight) {
+      this.weight = weight;
+    }
+
+    public static long sum(long[] values, boolean negate) {
+      long sum = 0;
+      for(long value : values) {
+        sum += value;
+      }
+      return negate ? -sum : sum;
+    }
+  }
+
+  private static class Hidden {
+    public int value() {
+      return 1;
+    }
+  }
+
+  @Test
+  public void instanceMethodWithPrimitives() throws Exception {
+    Scorer scorer = new Scorer();
+    MethodInvoker invoker = generate(Scorer.class.getMethod("score", String.class, int.class));
+    assertThat(invoker.invoke(scorer, new Object[] { "abc", 4 }), equalTo((Object) 24d));
+
+    // numeric arguments are converted to the parameter type
+    MethodInvoker setter = generate(Scorer.class.getMethod("setWeight", float.class));
+    assertThat(setter.invoke(scorer, new Object[] { 0.5d }), nullValue());
+    assertThat(invoker.invoke(scorer, new Object[] { "abc", 4 }), equalTo((Object) 6d));
+  }
+
+  @Test
+  public void staticMethod() throws Exception {
+    MethodInvoker invoker = generate(Scorer.class.getMethod("sum", long[].class, boolean.class));
+    assertThat(invoker.invoke(null, new Object[] { new long[] { 1, 2, 3 }, true }), equalTo((Object) (-6L)));
+  }
+
+  @Test
+  public void interfaceMethod() throws Exception {
+    List<String> list = new ArrayList<String>();
+    list.add("a");
+    MethodInvoker invoker = generate(List.class.getMethod("get", int.class));
+    assertThat(invoker.invoke(list, new Object[] { 0 }), equalTo((Object) "a"));
+  }
+
+  @Test
+  public void methodsOfPrivateClassesAreCalledThroughReflection() throws Exception {
+    Method method = Hidden.class.getMethod("value");
+    assertThat(InvokerGenerator.canGenerate(method), equalTo(false));
+    assertThat(InvokerGenerator.reflective(method).invoke(new Hidden(), new Object[0]), equalTo((Object) 1));
+  }
+
+  private MethodInvoker generate(Method method) {
+    assertThat(InvokerGenerator.canGenerate(method), equalTo(true));
+    return InvokerGenerator.generate(method);
+  }
+}
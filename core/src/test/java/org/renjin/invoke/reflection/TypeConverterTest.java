@@ -3,8 +3,14 @@ package org.renjin.invoke.reflection;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.invoke.reflection.converters.Converters;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleBufferVector;
 import org.renjin.sexp.Logical;
 
+import java.nio.DoubleBuffer;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 import static org.renjin.ExpMatchers.logicalVectorOf;
 
@@ -59,6 +65,60 @@ public class TypeConverterTest extends EvalTestCase {
         logicalVectorOf(Logical.TRUE));
   }
 
+  @Test
+  public void primitiveArrayConvertTest() {
+    eval("import(org.renjin.invoke.reflection.CallJavaFromRTest)");
+    eval("x <- c(1.5, 2.5, 3.5)");
+    assertThat(eval("identical(CallJavaFromRTest$PrimitiveDoubleArrayConvert(x), x + 1)"),
+        logicalVectorOf(Logical.TRUE));
+    eval("i <- 1:4");
+    assertThat(eval("identical(CallJavaFromRTest$PrimitiveIntArrayConvert(i), i + 1L)"),
+        logicalVectorOf(Logical.TRUE));
+
+    // the vector passed to the method can still be replaced in R
+    eval("x[2] <- 10");
+    assertThat(eval("identical(x, c(1.5, 10, 3.5))"), logicalVectorOf(Logical.TRUE));
+  }
+
+  @Test
+  public void javaMethodsCannotModifyVectors() {
+    eval("import(org.renjin.invoke.reflection.CallJavaFromRTest)");
+    eval("x <- c(1, 2, 3)");
+    eval("y <- x");
+    eval("CallJavaFromRTest$FillDoubleArray(x)");
+    assertThat(eval("identical(x, c(1, 2, 3))"), logicalVectorOf(Logical.TRUE));
+    assertThat(eval("identical(y, c(1, 2, 3))"), logicalVectorOf(Logical.TRUE));
+
+    eval("i <- 1:3");
+    eval("CallJavaFromRTest$FillIntArray(i)");
+    assertThat(eval("identical(i, 1:3)"), logicalVectorOf(Logical.TRUE));
+
+    // nor can they modify arrays they have returned
+    eval("k <- CallJavaFromRTest$KeptDoubleArray()");
+    eval("CallJavaFromRTest$ModifyKeptDoubleArray()");
+    assertThat(eval("identical(k, c(-1, -1, -1))"), logicalVectorOf(Logical.TRUE));
+  }
+
+  @Test
+  public void readOnlyBuffersAreNotCopied() {
+    DoubleBuffer buffer = DoubleBuffer.wrap(new double[] { 1, 2, 3 });
+    assertThat(Converters.get(DoubleBuffer.class).convertToR(buffer.asReadOnlyBuffer()),
+        instanceOf(DoubleBufferVector.class));
+    assertThat(Converters.get(DoubleBuffer.class).convertToR(buffer),
+        instanceOf(DoubleArrayVector.class));
+  }
+
+  @Test
+  public void bufferConvertTest() {
+    eval("import(org.renjin.invoke.reflection.CallJavaFromRTest)");
+    eval("r <- CallJavaFromRTest$ReadOnlyDoubleBufferSequence(3L)");
+    assertThat(eval("identical(r[1:3], c(1, 2, 3))"), logicalVectorOf(Logical.TRUE));
+    assertThat(eval("CallJavaFromRTest$DoubleBufferSum(c(1, 2, 3.5)) == 6.5"), logicalVectorOf(Logical.TRUE));
+    eval("s <- CallJavaFromRTest$DoubleBufferSequence(5L)");
+    assertThat(eval("identical(s[1:5], c(1, 2, 3, 4, 5))"), logicalVectorOf(Logical.TRUE));
+    assertThat(eval("CallJavaFromRTest$DoubleBufferSum(s) == 15"), logicalVectorOf(Logical.TRUE));
+  }
+
   @Test
   public void specilConvertTest() {
     eval("import(org.renjin.invoke.reflection.CallJavaFromRTest)");
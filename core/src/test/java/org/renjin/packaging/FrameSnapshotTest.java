@@ -0,0 +1,84 @@
+package org.renjin.packaging;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.sexp.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class FrameSnapshotTest {
+
+  private Context context;
+  private File dir;
+
+  @Before
+  public void setUp() throws Exception {
+    Session session = new SessionBuilder().withoutBasePackage().build();
+    context = session.getTopLevelContext();
+
+    Environment env = Environment.createChildEnvironment(context.getGlobalEnvironment());
+    env.setVariable("x", new IntArrayVector(1, 2, 3));
+    env.setVariable("s", StringVector.valueOf("snapshot"));
+    env.setVariable("big", new DoubleArrayVector(new double[5000]));
+
+    dir = Files.createTempDir();
+    dir.deleteOnExit();
+    new LazyLoadFrameBuilder(context).outputTo(dir).build(env);
+  }
+
+  @Test
+  public void snapshotIsSharedAndLoadedLazily() throws Exception {
+    URL url = new File(dir, "environment").toURI().toURL();
+    assertThat(FrameSnapshot.open(url), sameInstance(FrameSnapshot.open(url)));
+    assertThat(FrameSnapshot.open(url).size(), equalTo(3));
+
+    Map<String, SEXP> values = Maps.newHashMap();
+    for(NamedValue namedValue : LazyLoadFrame.load(context, url)) {
+      assertThat(namedValue.getValue(), instanceOf(Promise.class));
+      values.put(namedValue.getName(), namedValue.getValue().force(context));
+    }
+    checkValues(values);
+  }
+
+  @Test
+  public void snapshotCanBeReadFromStream() throws Exception {
+    Iterable<NamedValue> frame = LazyLoadFrame.load(context, new Function<String, InputStream>() {
+      @Override
+      public InputStream apply(String name) {
+        try {
+          return new FileInputStream(new File(dir, name));
+        } catch (FileNotFoundException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    Map<String, SEXP> values = Maps.newHashMap();
+    for(NamedValue namedValue : frame) {
+      values.put(namedValue.getName(), namedValue.getValue().force(context));
+    }
+    checkValues(values);
+  }
+
+  private void checkValues(Map<String, SEXP> values) {
+    assertThat(values.size(), equalTo(3));
+    assertThat(((IntVector) values.get("x")).getElementAsInt(2), equalTo(3));
+    assertThat(values.get("s").asString(), equalTo("snapshot"));
+    assertThat(values.get("big").length(), equalTo(5000));
+  }
+}
@@ -23,8 +23,12 @@ package org.renjin.primitives;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 public class AssignmentTest extends EvalTestCase {
@@ -40,4 +44,54 @@ public class AssignmentTest extends EvalTestCase {
     eval(" x <- 1");
     assertThat( eval("x"), equalTo( c(1) ));
   }
+
+  @Test
+  public void replaceInPlace() throws Exception {
+    eval(" x <- c(1, 2, 3)");
+    eval(" x[1] <- 10");
+    SEXP updated = peek("x");
+    eval(" x[2L] <- 20L");
+    eval(" x[[3]] <- TRUE");
+
+    assertThat( peek("x"), sameInstance(updated));
+    assertThat( eval("x"), equalTo( c(10, 20, 1) ));
+  }
+
+  @Test
+  public void copyOnWrite() throws Exception {
+    eval(" x <- c(1, 2, 3)");
+    eval(" x[1] <- 10");
+    eval(" y <- x");
+    eval(" x[2] <- 20");
+    eval(" f <- function() { x[3] <- 30; x } ");
+
+    assertThat( eval("y"), equalTo( c(10, 2, 3) ));
+    assertThat( eval("f()"), equalTo( c(10, 20, 30) ));
+    assertThat( eval("x"), equalTo( c(10, 20, 3) ));
+  }
+
+  @Test
+  public void replaceInLoop() throws Exception {
+    eval(" x <- integer(100) ");
+    eval(" for(i in 1:100) x[i] <- i * 2L ");
+    eval(" l <- list(1, 2) ");
+    eval(" for(i in 1:2) l[[i]] <- letters[i] ");
+
+    assertThat( eval("x[50]"), equalTo( c_i(100) ));
+    assertThat( eval("l"), equalTo( list("a", "b") ));
+  }
+
+  @Test
+  public void replaceWithCoercion() throws Exception {
+    eval(" x <- 1:3 ");
+    eval(" x[1] <- 0L ");
+    eval(" x[2] <- 1.5 ");
+    eval(" x[5] <- 4L ");
+
+    assertThat( eval("x"), equalTo( c(0, 1.5, 3, DoubleVector.NA, 4) ));
+  }
+
+  private SEXP peek(String name) {
+    return topLevelContext.getGlobalEnvironment().getFrame().getVariableForUpdate(Symbol.get(name));
+  }
 }
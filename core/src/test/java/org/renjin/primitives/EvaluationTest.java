@@ -707,5 +707,48 @@ public class EvaluationTest extends EvalTestCase {
 
   }
 
-}
+  @Test
+  public void cachedFunctionLookupIsInvalidatedByRedefinition() {
+    eval(" f <- function() 1 ");
+    eval(" g <- function() { s <- 0; for(i in 1:3) { s <- s + f(); if(i == 2) assign('f', function() 10, envir=globalenv()) }; s } ");
+    assertThat( eval("g()"), equalTo(c(12)));
+  }
+
+  @Test
+  public void cachedFunctionLookupIsInvalidatedByLocalBinding() {
+    eval(" f <- function() 1 ");
+    eval(" g <- function() { s <- 0; for(i in 1:3) { s <- s + f(); f <- function() 10 }; s } ");
+    assertThat( eval("g()"), equalTo(c(21)));
+  }
+
+  @Test
+  public void cachedFunctionLookupIsInvalidatedByRemoval() {
+    eval(" sum <- function(...) 42 ");
+    eval(" g <- function() sum(1, 2) ");
+    assertThat( eval("g()"), equalTo(c(42)));
+    eval(" rm(sum) ");
+    assertThat( eval("g()"), equalTo(c(3)));
+  }
 
+  @Test
+  public void cachedFunctionLookupIsSharedBetweenCalls() {
+    eval(" f <- function() 1 ");
+    eval(" g <- function() f() ");
+    assertThat( eval("g()"), equalTo(c(1)));
+
+    Closure g = (Closure) global.getVariable("g");
+    FunctionCall call = (FunctionCall) g.getBody();
+    Environment nextCall = Environment.createChildEnvironment(g.getEnclosingEnvironment());
+    assertThat(call.getCachedFunction(nextCall), equalTo(global.getVariable("f")));
+  }
+
+  @Test
+  public void cachedFunctionLookupIsNotSharedWithLocalBinding() {
+    eval(" f <- function() 1 ");
+    eval(" g <- function(local) { if(local) f <- function() 10; f() } ");
+    assertThat( eval("g(FALSE)"), equalTo(c(1)));
+    assertThat( eval("g(TRUE)"), equalTo(c(10)));
+    assertThat( eval("g(FALSE)"), equalTo(c(1)));
+  }
+
+}
@@ -0,0 +1,92 @@
+package org.renjin.primitives;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.gcc.runtime.DoublePtr;
+import org.renjin.gcc.runtime.IntPtr;
+import org.renjin.sexp.ListVector;
+import org.renjin.sexp.SEXP;
+
+import java.lang.reflect.Method;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+
+public class NativeRoutineTest extends EvalTestCase {
+
+  public static void countpos_(DoublePtr x, IntPtr n, IntPtr count) {
+    int result = 0;
+    for(int i=0;i!=n.unwrap();++i) {
+      if(x.get(i) > 0) {
+        result++;
+      }
+    }
+    count.array[count.offset] = result;
+  }
+
+  public static void scale_(DoublePtr x, IntPtr n, DoublePtr factor) {
+    for(int i=0;i!=n.unwrap();++i) {
+      x.set(i, x.get(i) * factor.unwrap());
+    }
+  }
+
+  public static void delegate_(DoublePtr x, IntPtr n) {
+    scale_(x, n, new DoublePtr(2));
+  }
+
+  @Test
+  public void readOnlyArguments() throws Exception {
+    NativeRoutine countpos = new NativeRoutine(method("countpos_"));
+    assertFalse(countpos.mayWrite(0));
+    assertTrue(countpos.mayWrite(1));
+    assertTrue(countpos.mayWrite(2));
+
+    NativeRoutine scale = new NativeRoutine(method("scale_"));
+    assertTrue(scale.mayWrite(0));
+    assertFalse(scale.mayWrite(1));
+
+    NativeRoutine delegate = new NativeRoutine(method("delegate_"));
+    assertTrue(delegate.mayWrite(0));
+    assertTrue(delegate.mayWrite(1));
+  }
+
+  @Test
+  public void routinesAreResolvedOnce() throws Exception {
+    NativeRoutineRegistry registry = new NativeRoutineRegistry();
+    assertThat(registry.get(".Fortran", "Foo", "countpos"), nullValue());
+
+    NativeRoutine routine = registry.register(".Fortran", "Foo", "countpos", method("countpos_"));
+    assertThat(registry.get(".Fortran", "Foo", "countpos"), sameInstance(routine));
+    assertThat(registry.get(method("countpos_")), sameInstance(routine));
+  }
+
+  @Test
+  public void unmodifiedArgumentsAreNotCopied() {
+    eval("x <- c(1, -2, 3, 4)");
+    SEXP x = global.getVariable("x");
+
+    for(int i=0;i!=50;++i) {
+      SEXP result = eval(".Fortran('countpos', x, 4L, count = integer(1), CLASS = 'org.renjin.primitives.NativeRoutineTest')");
+      assertThat(((ListVector) result).get(0), sameInstance(x));
+      assertThat(((ListVector) result).get("count"), equalTo(c_i(3)));
+    }
+  }
+
+  @Test
+  public void modifiedArgumentsAreCopied() {
+    eval("x <- c(1, 2, 3)");
+    assertThat(eval(".Fortran('scale', x, 3L, 10, CLASS = 'org.renjin.primitives.NativeRoutineTest')[[1]]"),
+        equalTo(c(10, 20, 30)));
+    assertThat(eval("x"), equalTo(c(1, 2, 3)));
+  }
+
+  private static Method method(String name) throws NoSuchMethodException {
+    for(Method method : NativeRoutineTest.class.getMethods()) {
+      if(method.getName().equals(name)) {
+        return method;
+      }
+    }
+    throw new NoSuchMethodException(name);
+  }
+}
@@ -1,9 +1,14 @@
 package org.renjin.primitives;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 import org.junit.Test;
 import org.renjin.EvalTestCase;
 import org.renjin.sexp.StringVector;
 
+import java.io.File;
+import java.io.IOException;
+
 import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.*;
 
@@ -26,6 +31,55 @@ public class ScanTest extends EvalTestCase {
     eval("print(x)" );
     assertThat( eval("length(x)"), equalTo(c_i(555)));
   }
-  
 
+  @Test
+  public void delimitedFile() throws IOException {
+    File file = File.createTempFile("scantest", ".csv");
+    file.deleteOnExit();
+    Files.write("id,value,label\n1,1.5,'a,b'\n\n2,-2e3,c\r\n3,NA,'two\nlines'\n", file, Charsets.UTF_8);
+
+    global.setVariable("file.name", StringVector.valueOf(file.getAbsolutePath()));
+    eval("x <- scan(file.name, what=list(id=0L, value=0, label=''), sep=',', skip=1)");
+    assertThat( eval("names(x)"), equalTo(c("id", "value", "label")));
+    assertThat( eval("x$id"), equalTo(c_i(1, 2, 3)));
+    assertThat( eval("x$value[1:2]"), equalTo(c(1.5, -2000)));
+    assertThat( eval("is.na(x$value[3])"), equalTo(c(true)));
+    assertThat( eval("x$label"), equalTo(c("a,b", "c", "two\nlines")));
+  }
+
+  @Test
+  public void delimitedFileAfterPushedBackLines() throws IOException {
+    File file = File.createTempFile("scantest", ".csv");
+    file.deleteOnExit();
+    Files.write("id,value,label\n1,1.5,a\n#x\n2,,b\n3,-2e3,c\n4,0.25,d\n#y,'\n5,3,e\n", file, Charsets.UTF_8);
+
+    // read the head of the file as read.table() does
+    global.setVariable("file.name", StringVector.valueOf(file.getAbsolutePath()));
+    eval("con <- file(file.name, 'rt')");
+    eval("lines <- .Internal(readTableHead(con, 5L, '#', TRUE, \"'\", ','))");
+    eval("pushBack(c(lines, lines), con)");
+    eval("for(i in 1:5) scan(con, what='', sep=',', nlines=1, quiet=TRUE, comment.char='#')");
+    eval(".Internal(readTableHead(con, 1L, '#', TRUE, \"'\", ','))");
+
+    eval("x <- scan(con, what=list(id='', value='', label=''), sep=',', quote=\"'\", comment.char='#')");
+    assertThat( eval("x$label"), equalTo(c("a", "b", "c", "d", "e")));
+    assertThat( eval(".Internal(type.convert(x$id, character(0), TRUE, '.'))"), equalTo(c_i(1, 2, 3, 4, 5)));
+    assertThat( eval(".Internal(type.convert(x$value, character(0), TRUE, '.'))[-2]"),
+        equalTo(c(1.5, -2000, 0.25, 3)));
+    assertThat( eval("is.na(.Internal(type.convert(x$value, character(0), TRUE, '.'))[2])"), equalTo(c(true)));
+    assertThat( eval("x$value"), equalTo(c("1.5", "", "-2e3", "0.25", "3")));
+    eval("close(con)");
+  }
+
+  @Test
+  public void delimitedFileInEncoding() throws IOException {
+    File file = File.createTempFile("scantest", ".csv");
+    file.deleteOnExit();
+    Files.write("name,value\ncaf\u00e9,1\nna\u00efve,2\n", file, Charsets.ISO_8859_1);
+
+    global.setVariable("file.name", StringVector.valueOf(file.getAbsolutePath()));
+    eval("x <- scan(file.name, what=list(name='', value=0), sep=',', skip=1, encoding='latin1')");
+    assertThat( eval("x$name"), equalTo(c("caf\u00e9", "na\u00efve")));
+    assertThat( eval("x$value"), equalTo(c(1, 2)));
+  }
 }
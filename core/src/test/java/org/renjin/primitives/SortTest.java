@@ -83,4 +83,43 @@ public class SortTest extends EvalTestCase {
       assertThat( eval(".Internal(is.unsorted(c(1,1,1), TRUE))"), equalTo(c(true)) );
       assertThat( eval(".Internal(is.unsorted(c(1,1,1), FALSE))"), equalTo(c(false)) );
     }
+
+    @Test
+    public void orderNAs() {
+      assertThat( eval(".Internal(order(TRUE, FALSE, c(3L,NA,1L,2L)))"), equalTo(c_i(3,4,1,2)));
+      assertThat( eval(".Internal(order(FALSE, FALSE, c(3L,NA,1L,2L)))"), equalTo(c_i(2,3,4,1)));
+      assertThat( eval(".Internal(order(TRUE, TRUE, c(3,NA,1,NaN,-0,0)))"), equalTo(c_i(1,3,5,6,2,4)));
+    }
+
+    @Test
+    public void orderStrings() {
+      assertThat( eval(".Internal(order(TRUE, FALSE, c('b','a',NA,'b','ab'), c(2,1,1,1,1)))"), equalTo(c_i(2,5,4,1,3)));
+      assertThat( eval(".Internal(order(TRUE, TRUE, c('b','a','b'), c('x','y','z')))"), equalTo(c_i(3,1,2)));
+    }
+
+    @Test
+    public void orderLarge() {
+      eval("x <- c(sin(1:5000) * 1e6, -Inf, Inf)");
+      eval("o <- .Internal(order(TRUE, FALSE, x))");
+      assertThat( eval(".Internal(is.unsorted(x[o], FALSE))"), equalTo(c(false)));
+      assertThat( eval("sum(o)"), equalTo(c_i(5002 * 5003 / 2)));
+      assertThat( eval("identical(.Internal(sort(x, FALSE)), x[o])"), equalTo(c(true)));
+    }
+
+    @Test
+    public void rank() {
+      assertThat( eval(".Internal(rank(c(10,20,10,5), 'average'))"), equalTo(c(2.5,4,2.5,1)));
+      assertThat( eval(".Internal(rank(c(10,20,10,5), 'min'))"), equalTo(c_i(2,4,2,1)));
+      assertThat( eval(".Internal(rank(c('b','c','b','a'), 'max'))"), equalTo(c_i(3,4,3,1)));
+    }
+
+    @Test
+    public void radixsort() {
+      assertThat( eval(".Internal(radixsort(c(3L,NA,1L,3L), TRUE, TRUE))"), equalTo(c_i(1,4,3,2)));
+    }
+
+    @Test
+    public void unsortedIntegers() {
+      assertThat( eval(".Internal(is.unsorted(c(-2147483647L, 2147483647L), TRUE))"), equalTo(c(false)) );
+    }
 }
@@ -7,6 +7,7 @@ import java.io.IOException;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.IntVector;
 
 
 public class SplitTest extends EvalTestCase {
@@ -33,4 +34,25 @@ public class SplitTest extends EvalTestCase {
     assertThat(eval("x$`3`"), equalTo(c_i(2)));
   }
   
+  @Test
+  public void splitKeepsEmptyLevelsAndNames() throws IOException {
+    assumingBasePackagesLoad();
+
+    eval("x <- split(c(a=1, b=2, c=3, d=4), factor(c('q','p','q',NA), levels=c('p','q','r')))");
+
+    assertThat(eval("names(x)"), equalTo(c("p", "q", "r")));
+    assertThat(eval("x$p"), equalTo(c(2)));
+    assertThat(eval("names(x$q)"), equalTo(c("a", "c")));
+    assertThat(eval("length(x$r)"), equalTo(c_i(0)));
+  }
+
+  @Test
+  public void unsplit() throws IOException {
+    assumingBasePackagesLoad();
+
+    eval("f <- c(1,2,1,2,1,2,1,2,3,NA)");
+    assertThat(eval("unsplit(split(10:1, f), f)"), equalTo(c_i(10,9,8,7,6,5,4,3,2,IntVector.NA)));
+    assertThat(eval("unsplit(list(1, c(5,6)), c('a','b','a','b'))"), equalTo(c(1,5,1,6)));
+  }
+
 }
@@ -27,11 +27,13 @@ import org.renjin.EvalTestCase;
 import org.renjin.sexp.IntVector;
 import org.renjin.sexp.SEXP;
 import org.renjin.sexp.StringArrayVector;
+import org.renjin.sexp.StringDictionaryVector;
 import org.renjin.sexp.StringVector;
 
 import java.io.IOException;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
 public class TextTest extends EvalTestCase {
@@ -46,6 +48,13 @@ public class TextTest extends EvalTestCase {
       assertThat( eval( ".Internal(paste(list('a', c()), '-', NULL)) "), equalTo(  c("a-") )) ;
   }
   
+  @Test
+  public void pasteDictionaryEncoded() {
+      global.setVariable("x", new StringDictionaryVector(new int[] { 1, 0, 1 }, new String[] { "a", "b" }));
+      assertThat( eval( "y <- .Internal(paste(list('id', x, 1), '-', NULL)) "), equalTo(  c("id-b-1", "id-a-1", "id-b-1") )) ;
+      assertThat( eval( "y" ), instanceOf(StringDictionaryVector.class));
+  }
+
   @Test 
   public void pasteWithNas() {
     assertThat( eval(".Internal(paste(list('a', NA_character_), ' ', NULL))"), equalTo( c("a NA")));
@@ -3,7 +3,9 @@ package org.renjin.primitives;
 import org.junit.Test;
 import org.renjin.EvalTestCase;
 import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
 import org.renjin.sexp.Logical;
+import org.renjin.sexp.StringDictionaryVector;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -22,4 +24,15 @@ public class TypeConvertTest extends EvalTestCase {
 
   }
   
+  @Test
+  public void convertDictionaryEncoded() {
+    global.setVariable("x", new StringDictionaryVector(new int[] { 1, 0, -1, 1 }, new String[] { "10", "20" }));
+    assertThat(eval(".Internal(type.convert(x, 'NA', FALSE, '.'))"), equalTo(c_i(20, 10, IntVector.NA, 20)));
+
+    global.setVariable("y", new StringDictionaryVector(new int[] { 2, 0, 2, -1, 1 }, new String[] { "b", "BOB", "a" }));
+    assertThat(eval("f <- .Internal(type.convert(y, 'BOB', FALSE, '.'))"), equalTo(c_i(1, 2, 1, IntVector.NA, IntVector.NA)));
+    assertThat(eval("levels(f)"), equalTo(c("a", "b")));
+    assertThat(eval(".Internal(type.convert(y, 'BOB', TRUE, '.'))"), equalTo(c("a", "b", "a", null, "BOB")));
+  }
+
 }
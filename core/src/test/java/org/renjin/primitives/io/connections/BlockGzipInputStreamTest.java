@@ -0,0 +1,111 @@
+package org.renjin.primitives.io.connections;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BlockGzipInputStreamTest {
+
+  private static final int BLOCK_SIZE = 65280;
+
+  @Test
+  public void sameAsGzipInputStream() throws IOException {
+    byte[] data = randomText(1000000);
+    byte[] compressed = blockCompress(data);
+
+    assertTrue(BlockGzipInputStream.isBlocked(compressed, compressed.length));
+
+    byte[] expected = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    byte[] blocked = ByteStreams.toByteArray(new BlockGzipInputStream(new ByteArrayInputStream(compressed)));
+
+    assertThat(expected.length, equalTo(data.length));
+    assertTrue(Arrays.equals(blocked, data));
+  }
+
+  @Test
+  public void pipelined() throws IOException {
+    byte[] data = randomText(1000000);
+    PipelinedInputStream in = new PipelinedInputStream(new ByteArrayInputStream(data), 1000, 3);
+
+    assertTrue(Arrays.equals(ByteStreams.toByteArray(in), data));
+    assertThat(in.read(), equalTo(-1));
+    in.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void corruptBlock() throws IOException {
+    byte[] compressed = blockCompress(randomText(100000));
+    compressed[100] ^= 0xFF;
+
+    ByteStreams.toByteArray(new BlockGzipInputStream(new ByteArrayInputStream(compressed)));
+  }
+
+  private byte[] randomText(int length) {
+    Random random = new Random(42);
+    byte[] data = new byte[length];
+    for(int i=0;i!=length;++i) {
+      data[i] = (byte)('a' + random.nextInt(8));
+    }
+    return data;
+  }
+
+  /**
+   * Compresses {@code data} in the blocked gzip format written by bgzip,
+   * including the empty end-of-file block
+   */
+  private byte[] blockCompress(byte[] data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int offset = 0;
+    do {
+      int length = Math.min(BLOCK_SIZE, data.length - offset);
+      writeBlock(out, data, offset, length);
+      offset += length;
+    } while(offset < data.length);
+    writeBlock(out, data, 0, 0);
+    return out.toByteArray();
+  }
+
+  private void writeBlock(ByteArrayOutputStream out, byte[] data, int offset, int length) throws IOException {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data, offset, length);
+    deflater.finish();
+    byte[] buffer = new byte[length + 1024];
+    int compressedLength = 0;
+    while(!deflater.finished()) {
+      compressedLength += deflater.deflate(buffer, compressedLength, buffer.length - compressedLength);
+    }
+    deflater.end();
+
+    int blockSize = 18 + compressedLength + 8;
+    out.write(new byte[] { 31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0 });
+    writeShort(out, blockSize - 1);
+    out.write(buffer, 0, compressedLength);
+
+    CRC32 crc = new CRC32();
+    crc.update(data, offset, length);
+    writeInt(out, (int) crc.getValue());
+    writeInt(out, length);
+  }
+
+  private void writeShort(ByteArrayOutputStream out, int value) {
+    out.write(value & 0xFF);
+    out.write((value >> 8) & 0xFF);
+  }
+
+  private void writeInt(ByteArrayOutputStream out, int value) {
+    writeShort(out, value & 0xFFFF);
+    writeShort(out, (value >>> 16) & 0xFFFF);
+  }
+}
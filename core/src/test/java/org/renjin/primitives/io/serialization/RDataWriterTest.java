@@ -28,8 +28,11 @@ import org.renjin.sexp.PairList.Builder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -151,6 +154,64 @@ public class RDataWriterTest extends EvalTestCase {
     writeAndReRead(eval("g(f)"));
   }
 
+  @Test
+  public void mappedVectors() throws IOException {
+    DoubleArrayVector.Builder doubles = new DoubleArrayVector.Builder();
+    IntArrayVector.Builder ints = new IntArrayVector.Builder();
+    for(int i=0;i!=20000;++i) {
+      doubles.add(i * 1.5);
+      ints.add(i);
+    }
+    ListVector.NamedBuilder list = new ListVector.NamedBuilder();
+    list.add("x", doubles.build());
+    list.add("y", ints.build());
+    list.add("z", new DoubleArrayVector(1, 2, 3));
+    ListVector expected = list.build();
+
+    File file = File.createTempFile("mapped", ".rds");
+    file.deleteOnExit();
+    FileOutputStream fos = new FileOutputStream(file);
+    RDataWriter writer = new RDataWriter(topLevelContext, fos);
+    writer.save(expected);
+    fos.close();
+
+    FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+    assertThat(RDataReader.isMappable(channel), equalTo(true));
+    
+    ListVector result = (ListVector) new RDataReader(topLevelContext, channel).readFile();
+    assertThat(result.getElementAsSEXP(0), instanceOf(DoubleBufferVector.class));
+    assertThat(result.getElementAsSEXP(1), instanceOf(IntBufferVector.class));
+    assertThat(result.getElementAsSEXP(2), instanceOf(DoubleArrayVector.class));
+    assertThat((SEXP)result, equalTo((SEXP)expected));
+  }
+
+  @Test
+  public void consecutiveMappedObjectsFromOneConnection() throws IOException {
+    DoubleArrayVector.Builder first = new DoubleArrayVector.Builder();
+    DoubleArrayVector.Builder second = new DoubleArrayVector.Builder();
+    for(int i=0;i!=20000;++i) {
+      first.add(i);
+      second.add(-i);
+    }
+
+    File file = File.createTempFile("consecutive", ".rds");
+    file.deleteOnExit();
+    FileOutputStream fos = new FileOutputStream(file);
+    new RDataWriter(topLevelContext, fos).save(first.build());
+    new RDataWriter(topLevelContext, fos).save(second.build());
+    fos.close();
+
+    global.setVariable("path", StringVector.valueOf(file.getAbsolutePath()));
+    eval("con <- file(path, 'rb')");
+    eval("a <- unserialize(con)");
+    eval("b <- unserialize(con)");
+    eval("close(con)");
+
+    assertThat(global.getVariable("a"), instanceOf(DoubleBufferVector.class));
+    assertThat(global.getVariable("a"), equalTo((SEXP) first.build()));
+    assertThat(global.getVariable("b"), equalTo((SEXP) second.build()));
+  }
+
   private void write(String fileName, SEXP exp) throws IOException {
     FileOutputStream fos = new FileOutputStream(fileName);
     GZIPOutputStream zos = new GZIPOutputStream(fos);
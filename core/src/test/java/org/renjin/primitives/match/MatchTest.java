@@ -24,9 +24,12 @@ package org.renjin.primitives.match;
 import org.junit.Test;
 import org.renjin.EvalTestCase;
 import org.renjin.sexp.IntVector;
+import org.renjin.sexp.StringDictionaryVector;
+import org.renjin.sexp.Vector;
 
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 public class MatchTest extends EvalTestCase {
@@ -65,6 +68,36 @@ public class MatchTest extends EvalTestCase {
     
   }
 
+  @Test
+  public void matchHashed() {
+    eval("table <- c(10:1, NA, 5L)");
+    assertThat( eval(".Internal(match(c(3L, 11L, NA, 5L), table, NA_integer_, NULL))"),
+        equalTo( c_i(8, IntVector.NA, 11, 6) ));
+    assertThat( eval(".Internal(match(c(3, 2.5, TRUE), table, 0L, NULL))"), equalTo( c_i(8, 0, 10) ));
+    assertThat( eval(".Internal(match(c('4', 'x'), table, 0L, NULL))"), equalTo( c_i(7, 0) ));
+  }
+
+  @Test
+  public void matchHashedNaN() {
+    eval("table <- c(1, 2, 3, 4, 5, 6, 7, NaN, NA, -0)");
+    assertThat( eval(".Internal(match(c(NA, NaN, 0, 7), table, 0L, NULL))"), equalTo( c_i(9, 8, 10, 7) ));
+    assertThat( eval(".Internal(match(c('NaN', NA), table, 0L, NULL))"), equalTo( c_i(8, 9) ));
+  }
+
+  @Test
+  public void matchHashedStrings() {
+    eval("table <- c(letters, NA, 'a')");
+    assertThat( eval(".Internal(match(c('z', NA, 'a', 'A'), table, 0L, NULL))"), equalTo( c_i(26, 27, 1, 0) ));
+    assertThat( eval(".Internal(match(factor(c('c', 'q')), table, 0L, NULL))"), equalTo( c_i(3, 17) ));
+  }
+
+  @Test
+  public void tableIndexIsReused() {
+    Vector table = (Vector) eval("as.character(1:100)");
+    MatchIndex index = MatchIndex.get(table, table, MatchIndex.KeyType.STRING);
+    assertThat( MatchIndex.get(table, table, MatchIndex.KeyType.STRING), sameInstance(index));
+  }
+
   @Test
   public void pmatch() {
     eval(" pmatch <- function (x, table, nomatch = NA_integer_, duplicates.ok = FALSE) \n" +
@@ -105,4 +138,15 @@ public class MatchTest extends EvalTestCase {
     assertThat( eval(" .Internal(duplicated(c(2,2,3,3), FALSE, TRUE)) "), equalTo( c(true, false,true,false) ));
   }
   
+
+  @Test
+  public void matchDictionaryEncoded() {
+    global.setVariable("x", new StringDictionaryVector(new int[] { 1, 0, -1, 1, 2 }, new String[] { "a", "b", "c" }));
+    assertThat( eval(".Internal(match(x, c('c','b',NA,'z'), NA_integer_, NULL))"), equalTo( c_i(2, IntVector.NA, 3, 2, 1) ));
+    assertThat( eval(".Internal(match(c('c','a','z'), x, NA_integer_, NULL))"), equalTo( c_i(5, 2, IntVector.NA) ));
+    assertThat( eval("u <- .Internal(unique(x, FALSE, FALSE))"), equalTo( c("b", "a", null, "c") ));
+    assertThat( eval(".Internal(match(x, u, 0L, NULL))"), equalTo( c_i(1, 2, 3, 1, 4) ));
+    assertThat( eval(".Internal(duplicated(x, FALSE, TRUE))"), equalTo( c(true, false, false, false, false) ));
+    assertThat( eval(".Internal(anyDuplicated(x, FALSE, FALSE))"), equalTo( c_i(4) ));
+  }
 }
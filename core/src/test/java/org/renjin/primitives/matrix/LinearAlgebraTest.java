@@ -0,0 +1,88 @@
+package org.renjin.primitives.matrix;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class LinearAlgebraTest extends EvalTestCase {
+
+  private final Random random = new Random(42);
+
+  @Test
+  public void dgemmMatchesReference() {
+    int[][] shapes = { {1, 1, 1}, {3, 2, 5}, {130, 7, 300}, {150, 140, 260} };
+    String[] trans = { "N", "T" };
+    for(int[] shape : shapes) {
+      int m = shape[0], n = shape[1], k = shape[2];
+      for(String transa : trans) {
+        for(String transb : trans) {
+          int lda = (transa.equals("N") ? m : k) + 1;
+          int ldb = (transb.equals("N") ? k : n) + 2;
+          double[] a = randomArray(lda * (transa.equals("N") ? k : m));
+          double[] b = randomArray(ldb * (transb.equals("N") ? n : k));
+          double[] expected = randomArray(m * n);
+          double[] actual = expected.clone();
+
+          new NetlibLinearAlgebra().dgemm(transa, transb, m, n, k, 1.5, a, lda, b, ldb, 0.5, expected, m);
+          new JavaLinearAlgebra().dgemm(transa, transb, m, n, k, 1.5, a, lda, b, ldb, 0.5, actual, m);
+
+          assertArrayCloseTo(actual, expected);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void dsyrkUpdatesOnlyTriangle() {
+    int n = 140, k = 300;
+    for(String uplo : new String[] { "U", "L" }) {
+      for(String trans : new String[] { "N", "T" }) {
+        int lda = trans.equals("N") ? n : k;
+        double[] a = randomArray(lda * (trans.equals("N") ? k : n));
+        double[] expected = randomArray(n * n);
+        double[] actual = expected.clone();
+
+        new NetlibLinearAlgebra().dsyrk(uplo, trans, n, k, 1, a, lda, 0, expected, n);
+        new JavaLinearAlgebra().dsyrk(uplo, trans, n, k, 1, a, lda, 0, actual, n);
+
+        assertArrayCloseTo(actual, expected);
+      }
+    }
+  }
+
+  @Test
+  public void backendIsSelectedPerSession() {
+    LinearAlgebra linearAlgebra = topLevelContext.getSession().getSingleton(LinearAlgebra.class);
+    assertThat(linearAlgebra.getBackend(), sameInstance((LinearAlgebraBackend) JavaLinearAlgebra.INSTANCE));
+
+    linearAlgebra.setBackend(new NetlibLinearAlgebra());
+    assertThat(eval("matrix(1:4, 2) %*% matrix(1:4, 2)"), equalTo(eval("matrix(c(7, 10, 15, 22), 2)")));
+    assertThat(eval("crossprod(matrix(1:4, 2))"), equalTo(eval("matrix(c(5, 11, 11, 25), 2)")));
+
+    linearAlgebra.setBackend(JavaLinearAlgebra.INSTANCE);
+    assertThat(eval("matrix(1:4, 2) %*% matrix(1:4, 2)"), equalTo(eval("matrix(c(7, 10, 15, 22), 2)")));
+    assertThat(eval("crossprod(matrix(1:4, 2))"), equalTo(eval("matrix(c(5, 11, 11, 25), 2)")));
+    assertThat(eval("tcrossprod(matrix(1:4, 2))"), equalTo(eval("matrix(c(10, 14, 14, 20), 2)")));
+  }
+
+  private double[] randomArray(int length) {
+    double[] array = new double[length];
+    for(int i = 0; i != length; ++i) {
+      array[i] = random.nextGaussian();
+    }
+    return array;
+  }
+
+  private void assertArrayCloseTo(double[] actual, double[] expected) {
+    assertThat(actual.length, equalTo(expected.length));
+    for(int i = 0; i != expected.length; ++i) {
+      assertThat(actual[i], closeTo(expected[i], 1e-10));
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997--2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.renjin.primitives.text.regex;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LazyDFATest {
+
+  private static final String[] PATTERNS = {
+      "abc", "^abc", "abc$", "^abc$", "^$", "$", "a|b|cd", "(ab)+c", "a*b", "a+?b",
+      "x?y", "[a-c]+d", "[^0-9]", "^[[:digit:]]+$", "\\d+\\.\\d*", "\\s\\S", "\\w+@\\w+",
+      "(foo|bar)*baz", "a.c", "(a|c)+b", "^(a|b)*$", "colou?r", "[[:upper:]][[:lower:]]+"
+  };
+
+  private static final String[] INPUTS = {
+      "", "abc", "xabcx", "ab", "aaab", "cd", "ababc", "y", "xy", "abd", "123", "3.14",
+      "a b", "me@host", "foobarbaz", "baz", "a\nc", "abc\n", "b", "abab", "color", "Hello",
+      "été abc"
+  };
+
+  @Test
+  public void agreesWithBacktrackingMatcher() {
+    for (String pattern : PATTERNS) {
+      for (int flags : new int[] { ExtendedRE.MATCH_NORMAL, ExtendedRE.MATCH_CASEINDEPENDENT }) {
+        REProgram program = new RECompiler().compile(pattern);
+        LazyDFA dfa = program.getDFA(flags);
+        assertThat(pattern, dfa, notNullValue());
+        for (String input : INPUTS) {
+          boolean expected = new ExtendedRE(program, flags).match(input);
+          assertThat("'" + pattern + "' on '" + input + "'", dfa.matches(input), equalTo(expected));
+          assertThat("'" + pattern + "' on '" + input + "'", dfa.matches(input.toUpperCase()),
+              equalTo(new ExtendedRE(program, flags).match(input.toUpperCase())));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void backreferencesAreLeftToBacktrackingMatcher() {
+    REProgram program = new RECompiler().compile("(a+)b\\1");
+    assertThat(program.getDFA(ExtendedRE.MATCH_NORMAL), nullValue());
+    assertThat(new ExtendedRE(program).test("aabaa"), equalTo(true));
+    assertThat(new ExtendedRE(program).test("aaba"), equalTo(true));
+    assertThat(new ExtendedRE(program).test("aab"), equalTo(false));
+  }
+
+  @Test
+  public void substAndSplitWithoutMatch() {
+    RE re = REFactory.compile("[0-9]+", false, false, false, false);
+    assertThat(re.subst("no digits", "#"), equalTo("no digits"));
+    assertThat(re.subst("a1b22", "#"), equalTo("a#b#"));
+    assertThat(re.split("no digits").length, equalTo(1));
+    assertThat(re.split("").length, equalTo(0));
+  }
+}
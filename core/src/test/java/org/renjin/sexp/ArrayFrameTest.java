@@ -0,0 +1,61 @@
+package org.renjin.sexp;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ArrayFrameTest {
+
+  @Test
+  public void setAndGet() {
+    ArrayFrame frame = new ArrayFrame(2);
+    frame.setVariable(Symbol.get("a"), IntVector.valueOf(1));
+    frame.setVariable(Symbol.get("b"), IntVector.valueOf(2));
+    frame.setVariable(Symbol.get("c"), IntVector.valueOf(3));
+    frame.setVariable(Symbol.get("a"), IntVector.valueOf(4));
+
+    assertThat(frame.getVariable(Symbol.get("a")), equalTo((SEXP)IntVector.valueOf(4)));
+    assertThat(frame.getVariable(Symbol.get("c")), equalTo((SEXP)IntVector.valueOf(3)));
+    assertThat(frame.getVariable(Symbol.get("d")), sameInstance((SEXP)Symbol.UNBOUND_VALUE));
+    assertThat(frame.getSymbols().size(), equalTo(3));
+  }
+
+  @Test
+  public void remove() {
+    ArrayFrame frame = new ArrayFrame(4);
+    frame.setVariable(Symbol.get("a"), IntVector.valueOf(1));
+    frame.setVariable(Symbol.get("b"), IntVector.valueOf(2));
+    frame.setVariable(Symbol.get("c"), IntVector.valueOf(3));
+    frame.remove(Symbol.get("b"));
+
+    assertThat(frame.getVariable(Symbol.get("b")), sameInstance((SEXP)Symbol.UNBOUND_VALUE));
+    assertThat(frame.getVariable(Symbol.get("c")), equalTo((SEXP)IntVector.valueOf(3)));
+    assertThat(frame.getSymbols().size(), equalTo(2));
+  }
+
+  @Test
+  public void growsIntoHashedFrame() {
+    ArrayFrame frame = new ArrayFrame(1);
+    int count = ArrayFrame.MAX_LINEAR_SIZE * 2;
+    for(int i=0;i!=count;++i) {
+      frame.setVariable(Symbol.get("x" + i), IntVector.valueOf(i));
+    }
+    for(int i=0;i!=count;++i) {
+      assertThat(frame.getVariable(Symbol.get("x" + i)), equalTo((SEXP)IntVector.valueOf(i)));
+    }
+    assertThat(frame.getSymbols().size(), equalTo(count));
+  }
+
+  @Test
+  public void functionLookup() {
+    ArrayFrame frame = new ArrayFrame(2);
+    Closure f = new Closure(Environment.EMPTY, Null.INSTANCE, Null.INSTANCE);
+    frame.setVariable(Symbol.get("f"), f);
+    frame.setVariable(Symbol.get("g"), IntVector.valueOf(1));
+
+    assertThat(frame.getFunction(null, Symbol.get("f")), sameInstance((Function) f));
+    assertThat(frame.getFunction(null, Symbol.get("g")), equalTo(null));
+  }
+}